@@ -0,0 +1,27 @@
+package com.example.backend;
+
+import com.example.ejb.metrics.HotAccountTracker;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Benefícios que mais concentram transferências e espera por lock neste nó, nos últimos
+ * minutos ({@link HotAccountTracker}). Candidatos a particionamento em sub-saldos ou a
+ * limite de taxa.
+ */
+@RestController
+@RequestMapping("/api/v1/beneficios/quentes")
+public class BeneficiosQuentesController {
+
+    private final HotAccountTracker hotAccounts;
+
+    public BeneficiosQuentesController(HotAccountTracker hotAccounts) {
+        this.hotAccounts = hotAccounts;
+    }
+
+    @GetMapping
+    public BeneficiosQuentesResponse listar() {
+        return BeneficiosQuentesResponse.of(hotAccounts);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.backend;
+
+import com.example.ejb.metrics.HotAccountTracker;
+import com.example.ejb.metrics.HotKeySketch;
+import java.util.List;
+
+/**
+ * Resposta de {@code GET /api/v1/beneficios/quentes}: as duas listas do
+ * {@link HotAccountTracker}, da maior para a menor estimativa, e os totais de referência.
+ */
+public class BeneficiosQuentesResponse {
+
+    private final long totalTransferencias;
+    private final long totalEsperaLockMicros;
+    private final List<HotKeySketch.Entry> porTransferencias;
+    private final List<HotKeySketch.Entry> porEsperaLock;
+
+    public BeneficiosQuentesResponse(long totalTransferencias, long totalEsperaLockMicros,
+                                     List<HotKeySketch.Entry> porTransferencias,
+                                     List<HotKeySketch.Entry> porEsperaLock) {
+        this.totalTransferencias = totalTransferencias;
+        this.totalEsperaLockMicros = totalEsperaLockMicros;
+        this.porTransferencias = porTransferencias;
+        this.porEsperaLock = porEsperaLock;
+    }
+
+    public static BeneficiosQuentesResponse of(HotAccountTracker hotAccounts) {
+        return new BeneficiosQuentesResponse(hotAccounts.getTotalTransfers(), hotAccounts.getTotalLockWaitMicros(),
+                                             hotAccounts.getTopTransfers(), hotAccounts.getTopLockWait());
+    }
+
+    /**
+     * Participações em transferências (origem ou destino), base de {@link #getPorTransferencias()}.
+     */
+    public long getTotalTransferencias() {
+        return totalTransferencias;
+    }
+
+    /**
+     * Espera por lock somada, em microssegundos, base de {@link #getPorEsperaLock()}.
+     */
+    public long getTotalEsperaLockMicros() {
+        return totalEsperaLockMicros;
+    }
+
+    public List<HotKeySketch.Entry> getPorTransferencias() {
+        return porTransferencias;
+    }
+
+    public List<HotKeySketch.Entry> getPorEsperaLock() {
+        return porEsperaLock;
+    }
+}
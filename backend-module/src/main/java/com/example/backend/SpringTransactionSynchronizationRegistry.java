@@ -0,0 +1,140 @@
+package com.example.backend;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link TransactionSynchronizationRegistry} sobre as transações do Spring, para os
+ * serviços do ejb-module que recebem o registro por {@code @Resource} (callbacks após o
+ * commit em {@code IdempotenciaService} e {@code TransferMetrics}, locks em memória
+ * retidos até o commit em {@code BeneficioEjbService}).
+ *
+ * Cada transação do Spring ganha, no primeiro uso, um contêiner de recursos que também é
+ * a chave dela. O contêiner é vinculado à thread pelo {@link TransactionSynchronizationManager}
+ * e registrado como {@link TransactionSynchronization}: quando o Spring suspende a transação
+ * (REQUIRES_NEW, NOT_SUPPORTED), ele é desvinculado, e volta a ser vinculado na retomada.
+ * Assim uma transação interna na mesma thread não enxerga os recursos da externa (como os
+ * locks em memória retidos até o commit), e cada uma libera os seus no próprio fim.
+ */
+public class SpringTransactionSynchronizationRegistry implements TransactionSynchronizationRegistry {
+
+    /**
+     * Vínculo do {@link Recursos} da transação corrente entre os recursos da thread.
+     */
+    private static final Object CHAVE_RECURSOS = new Object();
+
+    @Override
+    public Object getTransactionKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        return recursos(true);
+    }
+
+    @Override
+    public void registerInterposedSynchronization(Synchronization sync) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Nenhuma transação ativa para registrar a sincronização");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCompletion() {
+                sync.beforeCompletion();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                sync.afterCompletion(status == STATUS_COMMITTED ? Status.STATUS_COMMITTED
+                        : status == STATUS_ROLLED_BACK ? Status.STATUS_ROLLEDBACK
+                        : Status.STATUS_UNKNOWN);
+            }
+        });
+    }
+
+    @Override
+    public int getTransactionStatus() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                ? Status.STATUS_ACTIVE
+                : Status.STATUS_NO_TRANSACTION;
+    }
+
+    @Override
+    public void setRollbackOnly() {
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+    }
+
+    @Override
+    public boolean getRollbackOnly() {
+        return TransactionAspectSupport.currentTransactionStatus().isRollbackOnly();
+    }
+
+    @Override
+    public void putResource(Object key, Object value) {
+        exigirChave(key);
+        Recursos recursos = recursos(true);
+        if (value == null) {
+            recursos.valores.remove(key);
+        } else {
+            recursos.valores.put(key, value);
+        }
+    }
+
+    @Override
+    public Object getResource(Object key) {
+        exigirChave(key);
+        Recursos recursos = recursos(false);
+        return recursos == null ? null : recursos.valores.get(key);
+    }
+
+    private static void exigirChave(Object key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Nenhuma transação ativa");
+        }
+        if (key == null) {
+            throw new IllegalArgumentException("Chave nula");
+        }
+    }
+
+    /**
+     * Recursos da transação corrente, criados e vinculados no primeiro uso se {@code criar}.
+     */
+    private static Recursos recursos(boolean criar) {
+        Recursos recursos = (Recursos) TransactionSynchronizationManager.getResource(CHAVE_RECURSOS);
+        if (recursos == null && criar) {
+            recursos = new Recursos();
+            TransactionSynchronizationManager.bindResource(CHAVE_RECURSOS, recursos);
+            TransactionSynchronizationManager.registerSynchronization(recursos);
+        }
+        return recursos;
+    }
+
+    /**
+     * Recursos de uma transação, acompanhando a suspensão e a retomada dela.
+     */
+    private static final class Recursos implements TransactionSynchronization {
+
+        private final Map<Object, Object> valores = new HashMap<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CHAVE_RECURSOS);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(CHAVE_RECURSOS, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CHAVE_RECURSOS);
+        }
+    }
+}
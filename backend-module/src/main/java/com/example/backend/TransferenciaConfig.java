@@ -0,0 +1,153 @@
+package com.example.backend;
+
+import com.example.ejb.AccountLockManager;
+import com.example.ejb.BeneficioEjbService;
+import com.example.ejb.BeneficioSubSaldoService;
+import com.example.ejb.IdempotenciaService;
+import com.example.ejb.TransferenciaSnapshotService;
+import com.example.ejb.capture.TransferCapture;
+import com.example.ejb.metrics.HotAccountTracker;
+import com.example.ejb.metrics.TransferMetrics;
+import com.example.ejb.ratelimit.AccountRateLimiter;
+import com.example.ejb.ratelimit.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Serviços de transferência do ejb-module como beans Spring.
+ *
+ * O Spring processa as anotações que eles já usam: {@code @PersistenceContext},
+ * {@code @EJB} e {@code @Resource} (resolvidos por tipo entre estes beans),
+ * {@code @TransactionAttribute} e {@code @PostConstruct}/{@code @PreDestroy}. Os singletons
+ * do módulo continuam únicos no contexto. {@link TransferMetrics} registra no registro
+ * global do Micrometer, ao qual o Actuator acrescenta o seu
+ * ({@code management.metrics.use-global-registry}).
+ *
+ * O Spring não interpreta {@code @Schedule} do EJB: o envelhecimento dos benefícios
+ * quentes, a consolidação do ledger e a limpeza das chaves de idempotência são agendados
+ * aqui com {@code @Scheduled}, nos mesmos intervalos. O agendador padrão do Spring tem uma
+ * só thread, o que mantém as consolidações sem sobreposição, como o lock do
+ * {@code @Singleton} no container.
+ */
+@Configuration
+@EnableScheduling
+@EntityScan("com.example.ejb.model")
+public class TransferenciaConfig {
+
+    @Bean
+    public BeneficioEjbService beneficioEjbService() {
+        return new BeneficioEjbService();
+    }
+
+    @Bean
+    public BeneficioSubSaldoService beneficioSubSaldoService() {
+        return new BeneficioSubSaldoService();
+    }
+
+    @Bean
+    public IdempotenciaService idempotenciaService() {
+        return new IdempotenciaService();
+    }
+
+    @Bean
+    public TransferenciaSnapshotService transferenciaSnapshotService() {
+        return new TransferenciaSnapshotService();
+    }
+
+    @Bean
+    public AccountLockManager accountLockManager() {
+        return new AccountLockManager();
+    }
+
+    @Bean
+    public TransferMetrics transferMetrics() {
+        return new TransferMetrics();
+    }
+
+    @Bean
+    public HotAccountTracker hotAccountTracker() {
+        return new HotAccountTracker();
+    }
+
+    /**
+     * Como o {@code @Schedule} de {@link HotAccountTracker#decay()}: pesos pela metade a cada minuto.
+     */
+    @Scheduled(cron = "0 * * * * *")
+    public void envelhecerBeneficiosQuentes() {
+        hotAccountTracker().decay();
+    }
+
+    /**
+     * Como o {@code @Schedule} de {@link TransferenciaSnapshotService#consolidarAgendado()}:
+     * lançamentos do modo LEDGER consolidados a cada 5 segundos.
+     */
+    @Scheduled(cron = "*/5 * * * * *")
+    public void consolidarLedger() {
+        transferenciaSnapshotService().consolidarAgendado();
+    }
+
+    /**
+     * Como o {@code @Schedule} de {@link IdempotenciaService#removerExpiradas()}: chaves
+     * expiradas removidas a cada 15 minutos.
+     */
+    @Scheduled(cron = "0 */15 * * * *")
+    public void removerChavesExpiradas() {
+        idempotenciaService().removerExpiradas();
+    }
+
+    /**
+     * Limite de transferências por benefício, aplicado pelo {@link TransferenciaController}
+     * antes do serviço.
+     */
+    @Bean
+    public AccountRateLimiter accountRateLimiter(MeterRegistry registry,
+            @Value("${bip.transfer.rate-limit.per-second:50}") double porSegundo,
+            @Value("${bip.transfer.rate-limit.burst:100}") int rajada,
+            @Value("${bip.transfer.rate-limit.max-accounts:65536}") int maxBeneficios) {
+        AccountRateLimiter limiter = new AccountRateLimiter(porSegundo, rajada, maxBeneficios);
+        FunctionCounter.builder("bip.transfer.rate.limited", limiter, AccountRateLimiter::getRejected)
+                .description("Transferências recusadas pelo limite por benefício")
+                .register(registry);
+        Gauge.builder("bip.transfer.rate.accounts", limiter, AccountRateLimiter::getTrackedAccounts)
+                .description("Benefícios com balde de fichas em memória")
+                .register(registry);
+        return limiter;
+    }
+
+    /**
+     * Limite adaptativo de transferências simultâneas, aplicado pelo
+     * {@link TransferenciaController} em volta da execução.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(MeterRegistry registry,
+            @Value("${bip.transfer.concurrency.initial:20}") int inicial,
+            @Value("${bip.transfer.concurrency.min:4}") int minimo,
+            @Value("${bip.transfer.concurrency.max:200}") int maximo) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(inicial, minimo, maximo);
+        Gauge.builder("bip.transfer.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Limite adaptativo de transferências simultâneas")
+                .register(registry);
+        FunctionCounter.builder("bip.transfer.concurrency.shed", limiter, AdaptiveConcurrencyLimiter::getShed)
+                .description("Transferências recusadas pelo limite de concorrência")
+                .register(registry);
+        return limiter;
+    }
+
+    @Bean
+    public TransferCapture transferCapture() {
+        return new TransferCapture();
+    }
+
+    @Bean
+    public TransactionSynchronizationRegistry transactionSynchronizationRegistry() {
+        return new SpringTransactionSynchronizationRegistry();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.backend;
+
+import com.example.ejb.BeneficioEjbService;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.exception.BeneficioInativoException;
+import com.example.ejb.exception.BeneficioNotFoundException;
+import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.exception.TransferenciaInvalidaException;
+import com.example.ejb.ratelimit.AccountRateLimiter;
+import com.example.ejb.ratelimit.AdaptiveConcurrencyLimiter;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Transferências entre benefícios, pelo {@link BeneficioEjbService} do ejb-module, no modo
+ * padrão da implantação ({@code bip.transfer.mode}).
+ *
+ * Rejeições de negócio chegam como {@link TransferOutcome}, sem exceção: benefício
+ * inexistente responde 404; inativo ou sem saldo, 422. As mesmas rejeições lançadas como
+ * exceção pelo serviço têm as mesmas respostas. Parâmetros inválidos respondem 400
+ * e conflitos de concorrência (conflito otimista, timeout de lock, deadlock), 409, para
+ * que o cliente repita.
+ *
+ * Antes do serviço, o {@link AccountRateLimiter} confere o limite de transferências da
+ * origem e do destino: acima dele a resposta é 429 com {@code Retry-After}, sem transação
+ * nem conexão, e os demais benefícios não disputam os locks do que foi inundado. Em
+ * seguida o {@link AdaptiveConcurrencyLimiter} limita as transferências simultâneas pela
+ * latência observada: acima do limite a resposta é 503 com {@code Retry-After}, em vez de
+ * uma fila sem limite esperando conexão.
+ */
+@RestController
+@RequestMapping("/api/v1/transferencias")
+public class TransferenciaController {
+
+    private final BeneficioEjbService service;
+    private final AccountRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    public TransferenciaController(BeneficioEjbService service, AccountRateLimiter rateLimiter,
+                                   AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.service = service;
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    @PostMapping
+    public ResponseEntity<TransferenciaResponse> transferir(@RequestBody TransferenciaRequest request) {
+        long esperaNanos = rateLimiter.tryAcquire(request.getFromId(), request.getToId());
+        if (esperaNanos != AccountRateLimiter.ADMITIDA) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(AccountRateLimiter.retryAfterSeconds(esperaNanos)))
+                    .body(TransferenciaResponse.erro("LIMITE_EXCEDIDO",
+                            "Limite de transferências do benefício excedido; repita após o Retry-After"));
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire();
+        if (permit == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(TransferenciaResponse.erro("SOBRECARGA",
+                            "Transferências simultâneas acima do limite; repita após o Retry-After"));
+        }
+        TransferOutcome outcome;
+        // A vaga cobre a transação inteira: o commit ocorre dentro de tryTransfer
+        try (permit) {
+            outcome = service.tryTransfer(request.getFromId(), request.getToId(), request.getAmount());
+        }
+        return ResponseEntity.status(statusHttp(outcome.getStatus())).body(TransferenciaResponse.of(outcome));
+    }
+
+    private static HttpStatus statusHttp(TransferOutcome.Status status) {
+        switch (status) {
+            case SUCESSO:
+                return HttpStatus.OK;
+            case ORIGEM_NAO_ENCONTRADA:
+            case DESTINO_NAO_ENCONTRADO:
+                return HttpStatus.NOT_FOUND;
+            default:
+                return HttpStatus.UNPROCESSABLE_ENTITY;
+        }
+    }
+
+    /**
+     * Parâmetros inválidos e rejeições detectadas depois de aplicada uma perna, que o
+     * serviço lança para desfazer a transação.
+     */
+    @ExceptionHandler(TransferenciaInvalidaException.class)
+    public ResponseEntity<TransferenciaResponse> invalida(TransferenciaInvalidaException e) {
+        return ResponseEntity.badRequest().body(TransferenciaResponse.erro("INVALIDA", e.getMessage()));
+    }
+
+    @ExceptionHandler(BeneficioNotFoundException.class)
+    public ResponseEntity<TransferenciaResponse> naoEncontrado(BeneficioNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(TransferenciaResponse.erro("NAO_ENCONTRADO", e.getMessage()));
+    }
+
+    @ExceptionHandler(SaldoInsuficienteException.class)
+    public ResponseEntity<TransferenciaResponse> saldoInsuficiente(SaldoInsuficienteException e) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(TransferenciaResponse.erro("SALDO_INSUFICIENTE", e.getMessage()));
+    }
+
+    @ExceptionHandler(BeneficioInativoException.class)
+    public ResponseEntity<TransferenciaResponse> inativo(BeneficioInativoException e) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(TransferenciaResponse.erro("INATIVO", e.getMessage()));
+    }
+
+    @ExceptionHandler({OptimisticLockException.class, PessimisticLockException.class,
+                       LockTimeoutException.class, ConcurrencyFailureException.class})
+    public ResponseEntity<TransferenciaResponse> conflito(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(TransferenciaResponse.erro("CONFLITO", "Conflito de concorrência; repita a transferência"));
+    }
+}
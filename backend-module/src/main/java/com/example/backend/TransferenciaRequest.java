@@ -0,0 +1,38 @@
+package com.example.backend;
+
+import java.math.BigDecimal;
+
+/**
+ * Corpo de {@code POST /api/v1/transferencias}. A estratégia de concorrência não é escolhida
+ * pelo cliente: vale o padrão da implantação ({@code bip.transfer.mode}).
+ */
+public class TransferenciaRequest {
+
+    private Long fromId;
+    private Long toId;
+    private BigDecimal amount;
+
+    public Long getFromId() {
+        return fromId;
+    }
+
+    public void setFromId(Long fromId) {
+        this.fromId = fromId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+
+    public void setToId(Long toId) {
+        this.toId = toId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+}
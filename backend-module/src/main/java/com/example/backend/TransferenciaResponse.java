@@ -0,0 +1,51 @@
+package com.example.backend;
+
+import com.example.ejb.dto.TransferOutcome;
+import java.math.BigDecimal;
+
+/**
+ * Resposta de {@code POST /api/v1/transferencias}: situação e, quando o modo os lê, os
+ * novos saldos.
+ */
+public class TransferenciaResponse {
+
+    private final String status;
+    private final String mensagem;
+    private final BigDecimal saldoOrigem;
+    private final BigDecimal saldoDestino;
+
+    public TransferenciaResponse(String status, String mensagem, BigDecimal saldoOrigem, BigDecimal saldoDestino) {
+        this.status = status;
+        this.mensagem = mensagem;
+        this.saldoOrigem = saldoOrigem;
+        this.saldoDestino = saldoDestino;
+    }
+
+    public static TransferenciaResponse of(TransferOutcome outcome) {
+        return new TransferenciaResponse(outcome.getStatus().name(), outcome.getMensagem(),
+                                         outcome.getSaldoOrigem(), outcome.getSaldoDestino());
+    }
+
+    /**
+     * Falha sem {@link TransferOutcome} (parâmetros inválidos, conflito de concorrência).
+     */
+    public static TransferenciaResponse erro(String status, String mensagem) {
+        return new TransferenciaResponse(status, mensagem, null, null);
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMensagem() {
+        return mensagem;
+    }
+
+    public BigDecimal getSaldoOrigem() {
+        return saldoOrigem;
+    }
+
+    public BigDecimal getSaldoDestino() {
+        return saldoDestino;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.backend;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários do registro de sincronização JTA sobre as transações do Spring.
+ */
+@DisplayName("SpringTransactionSynchronizationRegistry - Testes Unitários")
+class SpringTransactionSynchronizationRegistryTest {
+
+    private static final String CHAVE = "recurso";
+
+    private final SpringTransactionSynchronizationRegistry registry = new SpringTransactionSynchronizationRegistry();
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+        // Recursos vinculados à thread sobrevivem ao clear(): não vazar entre testes
+        new ArrayList<>(TransactionSynchronizationManager.getResourceMap().keySet())
+                .forEach(TransactionSynchronizationManager::unbindResource);
+    }
+
+    @Test
+    @DisplayName("Deve guardar e substituir recursos da transação corrente")
+    void deveGuardarRecursosDaTransacao() {
+        // Act
+        assertNull(registry.getResource(CHAVE));
+        registry.putResource(CHAVE, "primeiro");
+        registry.putResource(CHAVE, "segundo");
+
+        // Assert
+        assertNotNull(registry.getTransactionKey());
+        assertEquals("segundo", registry.getResource(CHAVE));
+        assertNull(TransactionSynchronizationManager.getResource(CHAVE));
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+    }
+
+    @Test
+    @DisplayName("Deve desvincular os recursos no fim da transação")
+    void deveDesvincularRecursosNoFimDaTransacao() {
+        // Arrange
+        AtomicInteger status = new AtomicInteger(-1);
+        registry.putResource(CHAVE, "valor");
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int s) {
+                status.set(s);
+            }
+        });
+
+        // Act
+        TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+        TransactionSynchronizationManager.clear();
+
+        // Assert
+        assertEquals(Status.STATUS_COMMITTED, status.get());
+        assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+        assertNull(registry.getTransactionKey());
+    }
+
+    @Test
+    @DisplayName("Deve isolar os recursos de uma transação REQUIRES_NEW na mesma thread")
+    void deveIsolarRecursosDeTransacaoInterna() {
+        // Arrange - transações reais do Spring, sem o estado montado no setUp
+        TransactionSynchronizationManager.clear();
+        TransactionTemplate externa = new TransactionTemplate(new GerenciadorSemRecurso());
+        TransactionTemplate interna = new TransactionTemplate(new GerenciadorSemRecurso());
+        interna.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        TransactionTemplate semTransacao = new TransactionTemplate(new GerenciadorSemRecurso());
+        semTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        List<Object> vistos = new ArrayList<>();
+
+        // Act
+        externa.executeWithoutResult(status -> {
+            registry.putResource(CHAVE, "externo");
+            Object chaveExterna = registry.getTransactionKey();
+            interna.executeWithoutResult(s -> {
+                vistos.add(registry.getResource(CHAVE));
+                vistos.add(registry.getTransactionKey() != chaveExterna);
+                registry.putResource(CHAVE, "interno");
+            });
+            semTransacao.executeWithoutResult(s -> {
+                vistos.add(registry.getResource(CHAVE));
+                vistos.add(registry.getTransactionKey());
+            });
+            vistos.add(registry.getResource(CHAVE));
+            vistos.add(registry.getTransactionKey() == chaveExterna);
+        });
+
+        // Assert
+        assertEquals(Arrays.asList(null, true, null, null, "externo", true), vistos);
+        assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar recursos fora de uma transação")
+    void deveRejeitarRecursosForaDeTransacao() {
+        // Arrange
+        TransactionSynchronizationManager.clear();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> registry.putResource(CHAVE, "valor"));
+        assertThrows(IllegalStateException.class, () -> registry.getResource(CHAVE));
+    }
+
+    /**
+     * Gerenciador sem recurso transacional: só a demarcação, a suspensão e as sincronizações do Spring.
+     */
+    private static final class GerenciadorSemRecurso extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return TransactionSynchronizationManager.isActualTransactionActive();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected Object doSuspend(Object transaction) {
+            return transaction;
+        }
+
+        @Override
+        protected void doResume(Object transaction, Object suspendedResources) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.backend;
+
+import com.example.ejb.BeneficioEjbService;
+import com.example.ejb.TransferMode;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.model.Beneficio;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes de integração dos serviços do ejb-module como beans Spring, com H2 em memória.
+ */
+@SpringBootTest
+@DisplayName("TransferenciaConfig - Testes de Integração")
+class TransferenciaConfigTest {
+
+    @Autowired
+    private TransferenciaConfig config;
+
+    @Autowired
+    private BeneficioEjbService service;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Test
+    @DisplayName("Deve transferir no modo LEDGER e consolidar pelo agendamento do Spring")
+    void deveConsolidarLedgerPeloAgendamento() {
+        // Arrange
+        Long origem = persistir("100.00");
+        Long destino = persistir("0.00");
+
+        // Act
+        TransferOutcome outcome = service.tryTransfer(origem, destino, new BigDecimal("30.00"), TransferMode.LEDGER);
+        config.consolidarLedger();
+
+        // Assert
+        assertEquals(TransferOutcome.Status.SUCESSO, outcome.getStatus());
+        assertEquals(0, new BigDecimal("70.00").compareTo(valor(origem)));
+        assertEquals(0, new BigDecimal("30.00").compareTo(valor(destino)));
+    }
+
+    @Test
+    @DisplayName("Deve remover chaves de idempotência expiradas pelo agendamento do Spring")
+    void deveRemoverChavesExpiradasPeloAgendamento() {
+        // Arrange
+        Long origem = persistir("100.00");
+        Long destino = persistir("0.00");
+        assertTrue(service.transfer("chave-agendamento", origem, destino, BigDecimal.TEN, null));
+
+        // Act
+        config.removerChavesExpiradas();
+
+        // Assert - a chave recém-gravada não expirou: a repetição não é aplicada
+        assertFalse(service.transfer("chave-agendamento", origem, destino, BigDecimal.TEN, null));
+        assertEquals(0, new BigDecimal("90.00").compareTo(valor(origem)));
+    }
+
+    private Long persistir(String valor) {
+        return transactionTemplate.execute(status -> {
+            Beneficio beneficio = new Beneficio("Integração", "Integração", new BigDecimal(valor));
+            em.persist(beneficio);
+            return beneficio.getId();
+        });
+    }
+
+    private BigDecimal valor(Long id) {
+        return transactionTemplate.execute(status -> em.find(Beneficio.class, id).getValor());
+    }
+}
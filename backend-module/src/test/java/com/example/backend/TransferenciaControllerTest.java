@@ -0,0 +1,91 @@
+package com.example.backend;
+
+import com.example.ejb.BeneficioEjbService;
+import com.example.ejb.TransferMode;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.exception.BeneficioNotFoundException;
+import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.ratelimit.AccountRateLimiter;
+import com.example.ejb.ratelimit.AdaptiveConcurrencyLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Testes unitários do controller de transferências.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransferenciaController - Testes Unitários")
+class TransferenciaControllerTest {
+
+    private static final String CORPO = "{\"fromId\":1,\"toId\":2,\"amount\":100.00}";
+
+    @Mock
+    private BeneficioEjbService service;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        TransferenciaController controller = new TransferenciaController(service,
+                new AccountRateLimiter(1000, 1000, 1024), new AdaptiveConcurrencyLimiter(20, 4, 200));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    @DisplayName("Deve transferir no modo da implantação, ignorando modo enviado pelo cliente")
+    void deveTransferirNoModoDaImplantacao() throws Exception {
+        // Arrange
+        BigDecimal valor = new BigDecimal("100.00");
+        when(service.tryTransfer(1L, 2L, valor))
+                .thenReturn(TransferOutcome.sucesso(1L, 2L, 10_000L, 0L, 20_000L));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/transferencias")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fromId\":1,\"toId\":2,\"amount\":100.00,\"mode\":\"SET_BASED\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SUCESSO"));
+        verify(service, never()).tryTransfer(any(), any(), any(), (TransferMode) any());
+    }
+
+    @Test
+    @DisplayName("Deve responder 422 quando o serviço lança saldo insuficiente")
+    void deveResponder422ParaSaldoInsuficiente() throws Exception {
+        // Arrange
+        when(service.tryTransfer(eq(1L), eq(2L), any()))
+                .thenThrow(new SaldoInsuficienteException(1L, 5_000L, 10_000L));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/transferencias").contentType(MediaType.APPLICATION_JSON).content(CORPO))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status").value("SALDO_INSUFICIENTE"));
+    }
+
+    @Test
+    @DisplayName("Deve responder 404 quando o serviço lança benefício não encontrado")
+    void deveResponder404ParaBeneficioNaoEncontrado() throws Exception {
+        // Arrange
+        when(service.tryTransfer(eq(1L), eq(2L), any())).thenThrow(new BeneficioNotFoundException(2L));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/transferencias").contentType(MediaType.APPLICATION_JSON).content(CORPO))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value("NAO_ENCONTRADO"));
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.benchmarks;
+
+import com.example.ejb.model.Beneficio;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Perfil de acesso de {@link TransferBenchmark}: quais benefícios existem e qual
+ * transferência cada thread faz a seguir.
+ */
+public enum Carga {
+
+    /**
+     * Cada thread movimenta o próprio par de benefícios, alternando o sentido: mede o
+     * custo de uma transferência sem disputa de lock.
+     */
+    SEM_CONTENCAO {
+        @Override
+        List<Beneficio> contas(int threads) {
+            return ativas(2 * threads, SALDO_INICIAL);
+        }
+
+        @Override
+        void escolher(Escolha escolha, Long[] ids, int thread, long sequencia, Zipf zipf, SplittableRandom random) {
+            escolha.par(ids[2 * thread], ids[2 * thread + 1], (sequencia & 1) == 1, UM_REAL);
+        }
+    },
+
+    /**
+     * Todas as threads no mesmo par, em sentidos alternados (A->B e B->A): o pior caso
+     * de contenção e de deadlock para quem bloqueia fora de ordem.
+     */
+    PAR_QUENTE {
+        @Override
+        List<Beneficio> contas(int threads) {
+            return ativas(2, SALDO_INICIAL);
+        }
+
+        @Override
+        void escolher(Escolha escolha, Long[] ids, int thread, long sequencia, Zipf zipf, SplittableRandom random) {
+            escolha.par(ids[0], ids[1], ((sequencia + thread) & 1) == 1, UM_REAL);
+        }
+    },
+
+    /**
+     * Origem e destino sorteados entre {@value #CONTAS_ZIPF} benefícios com distribuição
+     * de Zipf (expoente 1): poucos benefícios concentram boa parte das transferências,
+     * como pools de folha e contas de grandes pagadores.
+     */
+    ZIPF {
+        @Override
+        List<Beneficio> contas(int threads) {
+            return ativas(CONTAS_ZIPF, SALDO_INICIAL);
+        }
+
+        @Override
+        void escolher(Escolha escolha, Long[] ids, int thread, long sequencia, Zipf zipf, SplittableRandom random) {
+            int origem = zipf.amostra(random);
+            int destino = zipf.amostra(random);
+            if (destino == origem) {
+                destino = (destino + 1) % ids.length;
+            }
+            escolha.par(ids[origem], ids[destino], false, UM_REAL);
+        }
+    },
+
+    /**
+     * Três de cada quatro transferências rejeitadas: saldo insuficiente, destino inativo
+     * e destino inexistente, seguidas de uma aplicada. Cada thread tem os próprios
+     * benefícios, para que a medida seja o custo da rejeição e não a disputa de lock.
+     */
+    REJEICOES {
+        @Override
+        List<Beneficio> contas(int threads) {
+            List<Beneficio> contas = new ArrayList<>(3 * threads);
+            for (int t = 0; t < threads; t++) {
+                contas.add(nova(SALDO_INICIAL, true));
+                contas.add(nova(BigDecimal.ZERO, true));
+                contas.add(nova(BigDecimal.ZERO, false));
+            }
+            return contas;
+        }
+
+        @Override
+        void escolher(Escolha escolha, Long[] ids, int thread, long sequencia, Zipf zipf, SplittableRandom random) {
+            Long rico = ids[3 * thread];
+            Long semSaldo = ids[3 * thread + 1];
+            Long inativo = ids[3 * thread + 2];
+            switch ((int) (sequencia & 3)) {
+                case 0:
+                    // O saldo acumulado em semSaldo nunca chega a cobrir o valor inicial inteiro
+                    escolha.par(semSaldo, rico, false, SALDO_INICIAL);
+                    break;
+                case 1:
+                    escolha.par(rico, inativo, false, UM_CENTAVO);
+                    break;
+                case 2:
+                    escolha.par(rico, ID_INEXISTENTE, false, UM_CENTAVO);
+                    break;
+                default:
+                    escolha.par(rico, semSaldo, false, UM_CENTAVO);
+                    break;
+            }
+        }
+    };
+
+    static final int CONTAS_ZIPF = 1000;
+
+    static final BigDecimal SALDO_INICIAL = new BigDecimal("1000000.00");
+
+    private static final BigDecimal UM_REAL = new BigDecimal("1.00");
+    private static final BigDecimal UM_CENTAVO = new BigDecimal("0.01");
+    private static final Long ID_INEXISTENTE = Long.MAX_VALUE;
+
+    /**
+     * Benefícios a criar antes da medição, na ordem em que {@link #escolher} os indexa.
+     */
+    abstract List<Beneficio> contas(int threads);
+
+    /**
+     * Preenche {@code escolha} com a próxima transferência da thread.
+     *
+     * @param ids IDs gerados para os benefícios de {@link #contas(int)}, na mesma ordem
+     * @param thread Índice da thread, de 0 a threads - 1
+     * @param sequencia Quantidade de transferências já feitas pela thread
+     */
+    abstract void escolher(Escolha escolha, Long[] ids, int thread, long sequencia, Zipf zipf, SplittableRandom random);
+
+    private static List<Beneficio> ativas(int quantidade, BigDecimal saldo) {
+        List<Beneficio> contas = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            contas.add(nova(saldo, true));
+        }
+        return contas;
+    }
+
+    private static Beneficio nova(BigDecimal saldo, boolean ativo) {
+        Beneficio beneficio = new Beneficio("Benchmark", "Benchmark", saldo);
+        beneficio.setAtivo(ativo);
+        return beneficio;
+    }
+
+    /**
+     * Próxima transferência de uma thread; reaproveitada entre operações.
+     */
+    static final class Escolha {
+        Long fromId;
+        Long toId;
+        BigDecimal valor;
+
+        void par(Long a, Long b, boolean inverter, BigDecimal valor) {
+            this.fromId = inverter ? b : a;
+            this.toId = inverter ? a : b;
+            this.valor = valor;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.benchmarks;
+
+import com.example.ejb.TransferValidations;
+import com.example.ejb.model.Centavos;
+import com.example.ejb.model.CentavosConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compara o caminho de uma transferência com saldos em {@link BigDecimal} (como era antes)
+ * e em centavos ({@link Centavos}): validação do valor, comparação de saldo, débito,
+ * crédito e os argumentos de log, com o logger abaixo de INFO como em produção.
+ *
+ * Reporta ns/op e, pelo {@link GCProfiler}, a taxa de alocação ({@code gc.alloc.rate.norm},
+ * bytes por operação). Uso (na raiz do repositório, depois do {@code package} de
+ * {@link TransferBenchmark}):
+ * {@code java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.CentavosBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CentavosBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(CentavosBenchmark.class.getName());
+
+    private static final CentavosConverter CONVERSOR = new CentavosConverter();
+
+    private final BigDecimal valor = new BigDecimal("12.34");
+
+    private BigDecimal saldoOrigemDecimal;
+    private BigDecimal saldoDestinoDecimal;
+    private long saldoOrigemCentavos;
+    private long saldoDestinoCentavos;
+
+    private Long fromId = 1L;
+    private Long toId = 2L;
+
+    @Setup
+    public void setUp() {
+        LOGGER.setLevel(Level.WARNING);
+        saldoOrigemDecimal = new BigDecimal("1000000.00");
+        saldoDestinoDecimal = new BigDecimal("1000000.00");
+        saldoOrigemCentavos = 100_000_000L;
+        saldoDestinoCentavos = 100_000_000L;
+    }
+
+    /**
+     * Caminho anterior: aritmética e argumentos de log em BigDecimal, sem guarda de nível.
+     */
+    @Benchmark
+    public void bigDecimal(Blackhole bh) {
+        LOGGER.log(Level.INFO, "Iniciando transferência: FROM={0}, TO={1}, AMOUNT={2}",
+                   new Object[]{fromId, toId, valor});
+        if (valor.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if (saldoOrigemDecimal.compareTo(valor) < 0) {
+            inverterDecimal();
+        }
+        saldoOrigemDecimal = saldoOrigemDecimal.subtract(valor);
+        saldoDestinoDecimal = saldoDestinoDecimal.add(valor);
+        LOGGER.log(Level.INFO, "Transferência concluída: FROM={0} (novo saldo: {1}), TO={2} (novo saldo: {3})",
+                   new Object[]{fromId, saldoOrigemDecimal, toId, saldoDestinoDecimal});
+        bh.consume(saldoOrigemDecimal);
+    }
+
+    /**
+     * Caminho atual: uma conversão na entrada e aritmética em long com overflow verificado.
+     */
+    @Benchmark
+    public void centavos(Blackhole bh) {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "Iniciando transferência: FROM={0}, TO={1}, AMOUNT={2}",
+                       new Object[]{fromId, toId, valor});
+        }
+        if (valor.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException();
+        }
+        long centavos = TransferValidations.toCentavos(valor);
+        if (saldoOrigemCentavos < centavos) {
+            inverterCentavos();
+        }
+        saldoOrigemCentavos = Centavos.subtrair(saldoOrigemCentavos, centavos);
+        saldoDestinoCentavos = Centavos.somar(saldoDestinoCentavos, centavos);
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "Transferência concluída: FROM={0} (novo saldo: {1}), TO={2} (novo saldo: {3})",
+                       new Object[]{fromId, Centavos.toBigDecimal(saldoOrigemCentavos), toId,
+                                    Centavos.toBigDecimal(saldoDestinoCentavos)});
+        }
+        bh.consume(saldoOrigemCentavos);
+    }
+
+    /**
+     * Conversão de leitura e escrita da coluna DECIMAL(15,2), paga uma vez por entidade
+     * carregada e alterada, e não por operação aritmética.
+     */
+    @Benchmark
+    public Long conversorIdaEVolta() {
+        return CONVERSOR.convertToEntityAttribute(CONVERSOR.convertToDatabaseColumn(saldoOrigemCentavos));
+    }
+
+    private void inverterDecimal() {
+        BigDecimal aux = saldoOrigemDecimal;
+        saldoOrigemDecimal = saldoDestinoDecimal;
+        saldoDestinoDecimal = aux;
+    }
+
+    private void inverterCentavos() {
+        long aux = saldoOrigemCentavos;
+        saldoOrigemCentavos = saldoDestinoCentavos;
+        saldoDestinoCentavos = aux;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opcoes = new OptionsBuilder()
+                .include(CentavosBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opcoes).run();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.benchmarks;
+
+import com.example.ejb.model.Centavos;
+import java.util.SplittableRandom;
+
+/**
+ * Distribuição dos saldos iniciais gerados por {@link GeradorDataset}, em centavos.
+ */
+public enum DistribuicaoSaldo {
+
+    /**
+     * Todos os benefícios com o saldo médio.
+     */
+    FIXO {
+        @Override
+        long sortear(long mediaCentavos, double sigma, SplittableRandom random) {
+            return mediaCentavos;
+        }
+    },
+
+    /**
+     * Uniforme entre zero e o dobro da média.
+     */
+    UNIFORME {
+        @Override
+        long sortear(long mediaCentavos, double sigma, SplittableRandom random) {
+            return random.nextLong(2 * mediaCentavos + 1);
+        }
+    },
+
+    /**
+     * Log-normal com a média informada: muitos saldos pequenos e uma cauda de saldos
+     * grandes, como em carteiras reais. {@code sigma} controla a dispersão (1 dá uma
+     * mediana de cerca de 60% da média).
+     */
+    LOGNORMAL {
+        @Override
+        long sortear(long mediaCentavos, double sigma, SplittableRandom random) {
+            double mu = Math.log(mediaCentavos) - sigma * sigma / 2;
+            return Math.round(Math.exp(mu + sigma * normal(random)));
+        }
+    };
+
+    /**
+     * Sorteia um saldo não negativo que cabe em DECIMAL(15,2).
+     */
+    long sortearLimitado(long mediaCentavos, double sigma, SplittableRandom random) {
+        return Math.max(0, Math.min(sortear(mediaCentavos, sigma, random), Centavos.MAXIMO_DECIMAL_15_2));
+    }
+
+    abstract long sortear(long mediaCentavos, double sigma, SplittableRandom random);
+
+    /**
+     * Normal padrão pelo método de Box-Muller.
+     */
+    private static double normal(SplittableRandom random) {
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.benchmarks;
+
+import com.example.ejb.model.Centavos;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Gera uma massa de benefícios sintéticos e uma carga de transferências sobre ela.
+ *
+ * Escreve em {@code --saida}:
+ * <ul>
+ *   <li>{@code beneficios.csv} ({@code ID,NOME,DESCRICAO,VALOR,ATIVO}), com saldos na
+ *       distribuição de {@code --saldo} e uma fração {@code --inativos} de inativos;</li>
+ *   <li>{@code transferencias.csv} ({@code ORIGEM,DESTINO,VALOR}), com origem e destino
+ *       sorteados por popularidade de Zipf (expoente {@code --skew}). A ordem de
+ *       popularidade é uma permutação aleatória dos IDs, para que os benefícios quentes não
+ *       sejam simplesmente os primeiros inseridos.</li>
+ * </ul>
+ *
+ * Com {@code --jdbc-url}, carrega os benefícios no banco, na tabela BENEFICIO de
+ * db/schema.sql ({@code --esquema} a cria antes). Em H2 a carga é um único
+ * {@code INSERT ... SELECT FROM CSVREAD}; nos demais bancos (ou com {@code --metodo=batch}),
+ * JDBC batch de {@code --lote} linhas por commit. Os IDs são gravados explicitamente
+ * ({@code OVERRIDING SYSTEM VALUE}, H2 e PostgreSQL), para que a carga de transferências
+ * os referencie; a tabela deve estar vazia, e a identidade é reiniciada depois do último ID.
+ *
+ * Uso (na raiz do repositório):
+ * {@code java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.GeradorDataset
+ * --beneficios=2000000 --transferencias=1000000 --skew=1.1 --saldo=LOGNORMAL
+ * --jdbc-url=jdbc:h2:file:./target/dataset/bip --esquema=db/schema.sql}
+ */
+public final class GeradorDataset {
+
+    static final String ARQUIVO_BENEFICIOS = "beneficios.csv";
+    static final String ARQUIVO_TRANSFERENCIAS = "transferencias.csv";
+
+    private final int beneficios;
+    private final int transferencias;
+    private final DistribuicaoSaldo saldo;
+    private final long saldoMedioCentavos;
+    private final double saldoSigma;
+    private final double inativos;
+    private final double skew;
+    private final long valorMaximoCentavos;
+    private final long semente;
+    private final Path saida;
+
+    GeradorDataset(Map<String, String> opcoes) {
+        beneficios = Integer.parseInt(opcoes.getOrDefault("beneficios", "1000000"));
+        transferencias = Integer.parseInt(opcoes.getOrDefault("transferencias", "1000000"));
+        saldo = DistribuicaoSaldo.valueOf(opcoes.getOrDefault("saldo", "LOGNORMAL").toUpperCase());
+        saldoMedioCentavos = Centavos.of(new BigDecimal(opcoes.getOrDefault("saldo-medio", "1000.00")));
+        saldoSigma = Double.parseDouble(opcoes.getOrDefault("saldo-sigma", "1.0"));
+        inativos = Double.parseDouble(opcoes.getOrDefault("inativos", "0.02"));
+        skew = Double.parseDouble(opcoes.getOrDefault("skew", "1.0"));
+        valorMaximoCentavos = Centavos.of(new BigDecimal(opcoes.getOrDefault("valor-maximo", "100.00")));
+        semente = Long.parseLong(opcoes.getOrDefault("semente", "42"));
+        saida = Paths.get(opcoes.getOrDefault("saida", "target/dataset"));
+
+        if (beneficios < 2) {
+            throw new IllegalArgumentException("São necessários ao menos 2 benefícios: " + beneficios);
+        }
+        if (inativos < 0 || inativos > 1) {
+            throw new IllegalArgumentException("Fração de inativos deve estar entre 0 e 1: " + inativos);
+        }
+        if (valorMaximoCentavos <= 0) {
+            throw new IllegalArgumentException("Valor máximo deve ser positivo");
+        }
+    }
+
+    /**
+     * Escreve {@code beneficios.csv}; o ID do benefício da linha {@code i} (base 0) é {@code i + 1}.
+     */
+    void gerarBeneficios() throws IOException {
+        SplittableRandom random = new SplittableRandom(semente);
+        long total = 0;
+        int quantidadeInativos = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(saida.resolve(ARQUIVO_BENEFICIOS), StandardCharsets.UTF_8)) {
+            out.write("ID,NOME,DESCRICAO,VALOR,ATIVO\n");
+            for (long id = 1; id <= beneficios; id++) {
+                long valor = saldo.sortearLimitado(saldoMedioCentavos, saldoSigma, random);
+                boolean ativo = random.nextDouble() >= inativos;
+                total += valor;
+                if (!ativo) {
+                    quantidadeInativos++;
+                }
+                out.write(Long.toString(id));
+                out.write(",Beneficio ");
+                out.write(Long.toString(id));
+                out.write(",Sintético,");
+                out.write(Centavos.formatar(valor));
+                out.write(ativo ? ",TRUE\n" : ",FALSE\n");
+            }
+        }
+        System.out.printf("%d benefícios (%d inativos), saldo total %s%n",
+                          beneficios, quantidadeInativos, Centavos.formatar(total));
+    }
+
+    /**
+     * Escreve {@code transferencias.csv} com endpoints sorteados por popularidade.
+     */
+    void gerarTransferencias() throws IOException {
+        SplittableRandom random = new SplittableRandom(semente + 1);
+        int[] idPorPosicao = permutacao(beneficios, random);
+        Zipf zipf = new Zipf(beneficios, skew);
+
+        int[] contagemTop = new int[Math.min(10, beneficios)];
+        try (BufferedWriter out = Files.newBufferedWriter(saida.resolve(ARQUIVO_TRANSFERENCIAS), StandardCharsets.UTF_8)) {
+            out.write("ORIGEM,DESTINO,VALOR\n");
+            for (int i = 0; i < transferencias; i++) {
+                int origem = zipf.amostra(random);
+                int destino = zipf.amostra(random);
+                if (destino == origem) {
+                    destino = (destino + 1) % beneficios;
+                }
+                if (origem < contagemTop.length) {
+                    contagemTop[origem]++;
+                }
+                if (destino < contagemTop.length) {
+                    contagemTop[destino]++;
+                }
+                out.write(Integer.toString(idPorPosicao[origem]));
+                out.write(',');
+                out.write(Integer.toString(idPorPosicao[destino]));
+                out.write(',');
+                out.write(Centavos.formatar(1 + random.nextLong(valorMaximoCentavos)));
+                out.write('\n');
+            }
+        }
+
+        System.out.printf("%d transferências (skew %.2f); benefícios mais disputados:%n", transferencias, skew);
+        for (int posicao = 0; posicao < contagemTop.length; posicao++) {
+            System.out.printf("  ID %d: %.2f%% das pontas%n", idPorPosicao[posicao],
+                              100.0 * contagemTop[posicao] / (2.0 * Math.max(1, transferencias)));
+        }
+    }
+
+    /**
+     * Carrega {@code beneficios.csv} na tabela BENEFICIO.
+     */
+    void carregar(String url, String usuario, String senha, Path esquema, boolean csvRead, int lote)
+            throws IOException, SQLException {
+        long inicio = System.nanoTime();
+        try (Connection conexao = DriverManager.getConnection(url, usuario, senha)) {
+            if (esquema != null) {
+                executarScript(conexao, esquema);
+            }
+            conexao.setAutoCommit(false);
+            if (csvRead) {
+                carregarComCsvRead(conexao);
+            } else {
+                carregarEmLotes(conexao, lote);
+            }
+            try (Statement st = conexao.createStatement()) {
+                st.execute("ALTER TABLE BENEFICIO ALTER COLUMN ID RESTART WITH " + (beneficios + 1L));
+            }
+            conexao.commit();
+        }
+        System.out.printf("Carga em %s concluída em %d ms%n", url, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private void carregarComCsvRead(Connection conexao) throws SQLException {
+        try (Statement st = conexao.createStatement()) {
+            st.executeUpdate(insertCsvRead(saida.resolve(ARQUIVO_BENEFICIOS)));
+        }
+    }
+
+    /**
+     * INSERT de H2 que lê um {@code beneficios.csv} inteiro, com os IDs do arquivo.
+     */
+    static String insertCsvRead(Path beneficiosCsv) {
+        String arquivo = beneficiosCsv.toAbsolutePath().toString().replace("'", "''");
+        return "INSERT INTO BENEFICIO (ID, NOME, DESCRICAO, VALOR, ATIVO, SUB_SALDOS, VERSION) "
+                + "OVERRIDING SYSTEM VALUE "
+                + "SELECT CAST(ID AS BIGINT), NOME, DESCRICAO, CAST(VALOR AS DECIMAL(15,2)), "
+                + "CAST(ATIVO AS BOOLEAN), 0, 0 "
+                + "FROM CSVREAD('" + arquivo + "', NULL, 'charset=UTF-8')";
+    }
+
+    private void carregarEmLotes(Connection conexao, int lote) throws IOException, SQLException {
+        String sql = "INSERT INTO BENEFICIO (ID, NOME, DESCRICAO, VALOR, ATIVO, SUB_SALDOS, VERSION) "
+                + "OVERRIDING SYSTEM VALUE VALUES (?, ?, ?, ?, ?, 0, 0)";
+        try (BufferedReader in = Files.newBufferedReader(saida.resolve(ARQUIVO_BENEFICIOS), StandardCharsets.UTF_8);
+             PreparedStatement ps = conexao.prepareStatement(sql)) {
+            in.readLine(); // cabeçalho
+            int pendentes = 0;
+            String linha;
+            while ((linha = in.readLine()) != null) {
+                String[] campos = linha.split(",", -1);
+                ps.setLong(1, Long.parseLong(campos[0]));
+                ps.setString(2, campos[1]);
+                ps.setString(3, campos[2]);
+                ps.setBigDecimal(4, new BigDecimal(campos[3]));
+                ps.setBoolean(5, Boolean.parseBoolean(campos[4]));
+                ps.addBatch();
+                if (++pendentes == lote) {
+                    ps.executeBatch();
+                    conexao.commit();
+                    pendentes = 0;
+                }
+            }
+            if (pendentes > 0) {
+                ps.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Executa um script SQL simples: comandos separados por ';', comentários de linha com '--'.
+     */
+    private static void executarScript(Connection conexao, Path script) throws IOException, SQLException {
+        StringBuilder sql = new StringBuilder();
+        for (String linha : Files.readAllLines(script, StandardCharsets.UTF_8)) {
+            if (!linha.trim().startsWith("--")) {
+                sql.append(linha).append('\n');
+            }
+        }
+        try (Statement st = conexao.createStatement()) {
+            for (String comando : sql.toString().split(";")) {
+                if (!comando.isBlank()) {
+                    st.execute(comando);
+                }
+            }
+        }
+    }
+
+    /**
+     * Permutação aleatória de 1..n (Fisher-Yates): o ID na posição k de popularidade.
+     */
+    private static int[] permutacao(int n, SplittableRandom random) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int aux = ids[i];
+            ids[i] = ids[j];
+            ids[j] = aux;
+        }
+        return ids;
+    }
+
+    /**
+     * Lê argumentos no formato {@code --nome=valor}.
+     */
+    static Map<String, String> opcoes(String[] args) {
+        Map<String, String> opcoes = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (!arg.startsWith("--") || igual < 0) {
+                throw new IllegalArgumentException("Argumento inválido (esperado --nome=valor): " + arg);
+            }
+            opcoes.put(arg.substring(2, igual), arg.substring(igual + 1));
+        }
+        return opcoes;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opcoes = opcoes(args);
+        GeradorDataset gerador = new GeradorDataset(opcoes);
+        Files.createDirectories(gerador.saida);
+        gerador.gerarBeneficios();
+        gerador.gerarTransferencias();
+
+        String url = opcoes.get("jdbc-url");
+        if (url != null) {
+            String esquema = opcoes.get("esquema");
+            String metodo = opcoes.getOrDefault("metodo", url.startsWith("jdbc:h2:") ? "csvread" : "batch");
+            gerador.carregar(url, opcoes.getOrDefault("usuario", "sa"), opcoes.getOrDefault("senha", ""),
+                             esquema != null ? Paths.get(esquema) : null,
+                             "csvread".equalsIgnoreCase(metodo),
+                             Integer.parseInt(opcoes.getOrDefault("lote", "10000")));
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.benchmarks;
+
+import com.example.ejb.AccountLockManager;
+import com.example.ejb.BeneficioEjbService;
+import com.example.ejb.TransferMode;
+import com.example.ejb.capture.CaptureRecord;
+import com.example.ejb.capture.TransferCapture;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.metrics.HotAccountTracker;
+import com.example.ejb.metrics.HotKeySketch;
+import com.example.ejb.metrics.TransferMetrics;
+import com.example.ejb.model.Centavos;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.Persistence;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Reproduz uma captura de {@link TransferCapture} contra um banco novo.
+ *
+ * As chamadas são agrupadas pela thread que as fez na captura, e cada grupo é executado
+ * em ordem por uma thread própria: a concorrência original é preservada, inclusive as
+ * chamadas de uma mesma thread nunca se sobrepõem. Com {@code --velocidade=1} (padrão) ou
+ * {@code 10}, cada chamada espera seu instante original dividido pela velocidade; se a
+ * thread estiver atrasada, segue imediatamente e o atraso é reportado. Com
+ * {@code --velocidade=max}, as chamadas de cada thread seguem uma após a outra, sem espera.
+ *
+ * Cada chamada é uma transação completa, como em {@link TransferBenchmark}, com o modo
+ * capturado ou o de {@code --modo}. O banco é o de {@code benchmark-pu} (H2 em memória,
+ * esquema recriado), ou o de {@code --jdbc-url}. Os benefícios vêm de {@code --beneficios}
+ * (um {@code beneficios.csv} de {@link GeradorDataset}, via CSVREAD) ou são criados a
+ * partir dos IDs da captura com saldo {@code --saldo-inicial}: IDs que só aparecem em
+ * rejeições por inexistência não são criados, e os rejeitados por inatividade são criados
+ * inativos. Como a captura não tem saldos, rejeições por saldo insuficiente só se repetem
+ * com uma massa equivalente à original.
+ *
+ * Reporta a vazão, os desfechos originais e reproduzidos lado a lado, as divergências e
+ * os percentis de latência de ambos. A latência reproduzida inclui o commit; a capturada,
+ * não. Ao final lista os benefícios mais quentes do replay ({@link HotAccountTracker}),
+ * por transferências e por espera de lock.
+ *
+ * Uso (na raiz do repositório):
+ * {@code java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.ReplayCaptura
+ * --captura=/var/log/bip/transferencias.cap --velocidade=10}
+ */
+public final class ReplayCaptura {
+
+    /**
+     * Referência forte, como em {@link TransferBenchmark}: sem log por transferência.
+     */
+    private static final Logger LOGGER_TRANSFERENCIAS = Logger.getLogger(BeneficioEjbService.class.getName());
+
+    private static final CaptureRecord.Outcome[] DESFECHOS = CaptureRecord.Outcome.values();
+
+    private static final int BENEFICIOS_QUENTES_NO_RELATORIO = 5;
+
+    private final Path captura;
+    private final double velocidade;
+    private final TransferMode modo;
+    private final long saldoInicialCentavos;
+    private final Path beneficiosCsv;
+    private final Map<String, String> propriedades = new HashMap<>();
+
+    /**
+     * Chamadas por thread da captura, em ordem de início.
+     */
+    private final Map<Integer, List<CaptureRecord>> pistas = new LinkedHashMap<>();
+    private long chamadas;
+    private long primeiroInicioMicros = Long.MAX_VALUE;
+    private long ultimoFimMicros = Long.MIN_VALUE;
+
+    ReplayCaptura(Map<String, String> opcoes) {
+        String arquivo = opcoes.get("captura");
+        if (arquivo == null) {
+            throw new IllegalArgumentException("Informe o arquivo de captura: --captura=<arquivo>");
+        }
+        captura = Paths.get(arquivo);
+        String v = opcoes.getOrDefault("velocidade", "1");
+        velocidade = "max".equalsIgnoreCase(v) ? Double.POSITIVE_INFINITY : Double.parseDouble(v);
+        if (!(velocidade > 0)) {
+            throw new IllegalArgumentException("Velocidade deve ser positiva ou 'max': " + v);
+        }
+        String m = opcoes.get("modo");
+        modo = m != null ? TransferMode.valueOf(m.toUpperCase()) : null;
+        saldoInicialCentavos = Centavos.of(new BigDecimal(opcoes.getOrDefault("saldo-inicial", "1000000.00")));
+        String csv = opcoes.get("beneficios");
+        beneficiosCsv = csv != null ? Paths.get(csv) : null;
+
+        String url = opcoes.get("jdbc-url");
+        if (url != null) {
+            propriedades.put("jakarta.persistence.jdbc.url", url);
+            propriedades.put("jakarta.persistence.jdbc.user", opcoes.getOrDefault("usuario", "sa"));
+            propriedades.put("jakarta.persistence.jdbc.password", opcoes.getOrDefault("senha", ""));
+        }
+    }
+
+    void ler() throws Exception {
+        TransferCapture.read(captura, record -> {
+            pistas.computeIfAbsent(record.getThread(), t -> new ArrayList<>()).add(record);
+            primeiroInicioMicros = Math.min(primeiroInicioMicros, record.getInicioEpochMicros());
+            ultimoFimMicros = Math.max(ultimoFimMicros, record.getInicioEpochMicros() + record.getLatenciaMicros());
+            chamadas++;
+        });
+        for (List<CaptureRecord> pista : pistas.values()) {
+            pista.sort((a, b) -> Long.compare(a.getInicioEpochMicros(), b.getInicioEpochMicros()));
+        }
+        System.out.printf("%d chamadas em %d threads lidas de %s%n", chamadas, pistas.size(), captura);
+    }
+
+    /**
+     * Cria os benefícios referenciados pela captura, com os IDs originais.
+     */
+    void criarBeneficios(EntityManagerFactory emf) {
+        Set<Long> existentes = new TreeSet<>();
+        Set<Long> inativos = new HashSet<>();
+        for (List<CaptureRecord> pista : pistas.values()) {
+            for (CaptureRecord record : pista) {
+                CaptureRecord.Outcome outcome = record.getOutcome();
+                if (record.getFromId() != null && outcome != CaptureRecord.Outcome.ORIGEM_NAO_ENCONTRADA) {
+                    existentes.add(record.getFromId());
+                }
+                if (record.getToId() != null && outcome != CaptureRecord.Outcome.DESTINO_NAO_ENCONTRADO) {
+                    existentes.add(record.getToId());
+                }
+                if (outcome == CaptureRecord.Outcome.ORIGEM_INATIVA) {
+                    inativos.add(record.getFromId());
+                } else if (outcome == CaptureRecord.Outcome.DESTINO_INATIVO) {
+                    inativos.add(record.getToId());
+                }
+            }
+        }
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            if (beneficiosCsv != null) {
+                em.createNativeQuery(GeradorDataset.insertCsvRead(beneficiosCsv)).executeUpdate();
+            } else {
+                BigDecimal saldo = Centavos.toBigDecimal(saldoInicialCentavos);
+                for (Long id : existentes) {
+                    em.createNativeQuery("INSERT INTO BENEFICIO (ID, NOME, DESCRICAO, VALOR, ATIVO, SUB_SALDOS, VERSION) "
+                                    + "OVERRIDING SYSTEM VALUE VALUES (?, ?, 'Replay', ?, ?, 0, 0)")
+                            .setParameter(1, id)
+                            .setParameter(2, "Beneficio " + id)
+                            .setParameter(3, saldo)
+                            .setParameter(4, !inativos.contains(id))
+                            .executeUpdate();
+                }
+            }
+            Object[] resumo = (Object[]) em.createNativeQuery("SELECT COUNT(*), COALESCE(MAX(ID), 0) FROM BENEFICIO")
+                    .getSingleResult();
+            em.createNativeQuery("ALTER TABLE BENEFICIO ALTER COLUMN ID RESTART WITH "
+                    + (((Number) resumo[1]).longValue() + 1)).executeUpdate();
+            em.getTransaction().commit();
+            System.out.printf("%d benefícios carregados (%d inativos pela captura)%n",
+                              ((Number) resumo[0]).longValue(), beneficiosCsv != null ? 0 : inativos.size());
+        } finally {
+            em.close();
+        }
+    }
+
+    void reproduzir(EntityManagerFactory emf) throws InterruptedException {
+        AccountLockManager lockManager = new AccountLockManager();
+        TransferMetrics metricas = new TransferMetrics(new SimpleMeterRegistry());
+        HotAccountTracker beneficiosQuentes = new HotAccountTracker();
+        AtomicLongArray originais = new AtomicLongArray(DESFECHOS.length);
+        AtomicLongArray reproduzidos = new AtomicLongArray(DESFECHOS.length);
+        List<Pista> executores = new ArrayList<>();
+        for (List<CaptureRecord> chamadasDaPista : pistas.values()) {
+            executores.add(new Pista(chamadasDaPista, emf, new ServicosLocais(lockManager, metricas, beneficiosQuentes), originais, reproduzidos));
+        }
+
+        long inicio = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < executores.size(); i++) {
+            Pista pista = executores.get(i);
+            pista.inicioNanos = inicio;
+            Thread thread = new Thread(pista, "replay-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long duracaoNanos = System.nanoTime() - inicio;
+
+        Histogram latenciaOriginal = new Histogram(3);
+        Histogram latenciaReplay = new Histogram(3);
+        long divergencias = 0;
+        long atrasoMaximoNanos = 0;
+        for (Pista pista : executores) {
+            latenciaOriginal.add(pista.latenciaOriginal);
+            latenciaReplay.add(pista.latenciaReplay);
+            divergencias += pista.divergencias;
+            atrasoMaximoNanos = Math.max(atrasoMaximoNanos, pista.atrasoMaximoNanos);
+        }
+        relatar(duracaoNanos, originais, reproduzidos, divergencias, atrasoMaximoNanos,
+                latenciaOriginal, latenciaReplay);
+        imprimirBeneficiosQuentes(beneficiosQuentes);
+    }
+
+    private void relatar(long duracaoNanos, AtomicLongArray originais, AtomicLongArray reproduzidos,
+                         long divergencias, long atrasoMaximoNanos,
+                         Histogram latenciaOriginal, Histogram latenciaReplay) {
+        double segundos = duracaoNanos / 1e9;
+        double segundosOriginais = chamadas == 0 ? 0 : (ultimoFimMicros - primeiroInicioMicros) / 1e6;
+        System.out.printf("%nReplay a %s, modo %s: %d chamadas em %.2f s (original %.2f s), %.0f transf/s%n",
+                          Double.isInfinite(velocidade)
+                                  ? "velocidade máxima"
+                                  : BigDecimal.valueOf(velocidade).stripTrailingZeros().toPlainString() + "x",
+                          modo != null ? modo : "capturado", chamadas, segundos, segundosOriginais,
+                          chamadas / Math.max(segundos, 1e-9));
+        if (!Double.isInfinite(velocidade)) {
+            System.out.printf("Maior atraso em relação ao instante agendado: %.2f ms%n", atrasoMaximoNanos / 1e6);
+        }
+
+        System.out.printf("%n%-24s %12s %12s%n", "Desfecho", "Original", "Replay");
+        for (CaptureRecord.Outcome outcome : DESFECHOS) {
+            if (originais.get(outcome.ordinal()) > 0 || reproduzidos.get(outcome.ordinal()) > 0) {
+                System.out.printf("%-24s %12d %12d%n", outcome,
+                                  originais.get(outcome.ordinal()), reproduzidos.get(outcome.ordinal()));
+            }
+        }
+        System.out.printf("Divergências (desfecho diferente do original): %d%n", divergencias);
+
+        System.out.printf("%n%-24s %10s %10s %10s %10s %10s%n", "Latência (µs)", "p50", "p90", "p99", "p99.9", "máx");
+        imprimirPercentis("Original (sem commit)", latenciaOriginal);
+        imprimirPercentis("Replay", latenciaReplay);
+    }
+
+    private static void imprimirBeneficiosQuentes(HotAccountTracker beneficiosQuentes) {
+        List<HotKeySketch.Entry> transferencias = beneficiosQuentes.getTopTransfers();
+        List<HotKeySketch.Entry> espera = beneficiosQuentes.getTopLockWait();
+        System.out.printf("%n%-4s %14s %14s   %14s %18s%n", "#", "Benefício", "Transferências",
+                          "Benefício", "Espera lock (ms)");
+        for (int i = 0; i < Math.min(BENEFICIOS_QUENTES_NO_RELATORIO, transferencias.size()); i++) {
+            HotKeySketch.Entry porEspera = i < espera.size() ? espera.get(i) : null;
+            System.out.printf("%-4d %14d %14d   %14s %18s%n", i + 1,
+                              transferencias.get(i).getId(), transferencias.get(i).getEstimativa(),
+                              porEspera == null ? "-" : Long.toString(porEspera.getId()),
+                              porEspera == null ? "-" : String.format("%.1f", porEspera.getEstimativa() / 1e3));
+        }
+    }
+
+    private static void imprimirPercentis(String nome, Histogram histograma) {
+        System.out.printf("%-24s %10d %10d %10d %10d %10d%n", nome,
+                          histograma.getValueAtPercentile(50), histograma.getValueAtPercentile(90),
+                          histograma.getValueAtPercentile(99), histograma.getValueAtPercentile(99.9),
+                          histograma.getMaxValue());
+    }
+
+    /**
+     * Chamadas de uma thread da captura, executadas em ordem.
+     */
+    private final class Pista implements Runnable {
+
+        private final List<CaptureRecord> chamadas;
+        private final EntityManagerFactory emf;
+        private final ServicosLocais servicos;
+        private final AtomicLongArray originais;
+        private final AtomicLongArray reproduzidos;
+
+        final Histogram latenciaOriginal = new Histogram(3);
+        final Histogram latenciaReplay = new Histogram(3);
+        long inicioNanos;
+        long divergencias;
+        long atrasoMaximoNanos;
+
+        Pista(List<CaptureRecord> chamadas, EntityManagerFactory emf, ServicosLocais servicos,
+              AtomicLongArray originais, AtomicLongArray reproduzidos) {
+            this.chamadas = chamadas;
+            this.emf = emf;
+            this.servicos = servicos;
+            this.originais = originais;
+            this.reproduzidos = reproduzidos;
+        }
+
+        @Override
+        public void run() {
+            for (CaptureRecord record : chamadas) {
+                if (!Double.isInfinite(velocidade)) {
+                    long deslocamentoMicros = record.getInicioEpochMicros() - primeiroInicioMicros;
+                    long agendado = inicioNanos + (long) (TimeUnit.MICROSECONDS.toNanos(deslocamentoMicros) / velocidade);
+                    long espera = agendado - System.nanoTime();
+                    while (espera > 0) {
+                        LockSupport.parkNanos(espera);
+                        espera = agendado - System.nanoTime();
+                    }
+                    atrasoMaximoNanos = Math.max(atrasoMaximoNanos, -espera);
+                }
+
+                long inicio = System.nanoTime();
+                CaptureRecord.Outcome outcome = executar(record);
+                long latenciaMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio);
+
+                latenciaReplay.recordValue(latenciaMicros);
+                latenciaOriginal.recordValue(record.getLatenciaMicros());
+                originais.incrementAndGet(record.getOutcome().ordinal());
+                reproduzidos.incrementAndGet(outcome.ordinal());
+                if (outcome != record.getOutcome()) {
+                    divergencias++;
+                }
+            }
+        }
+
+        private CaptureRecord.Outcome executar(CaptureRecord record) {
+            BigDecimal valor = record.getAmountCents() == CaptureRecord.NULO
+                    ? null
+                    : Centavos.toBigDecimal(record.getAmountCents());
+            TransferMode modoChamada = modo != null ? modo : record.getMode();
+
+            EntityManager em = emf.createEntityManager();
+            EntityTransaction tx = em.getTransaction();
+            try {
+                servicos.usar(em);
+                tx.begin();
+                TransferOutcome outcome = servicos.transferencias()
+                        .tryTransfer(record.getFromId(), record.getToId(), valor, modoChamada);
+                tx.commit();
+                return CaptureRecord.Outcome.of(outcome.getStatus());
+            } catch (RuntimeException e) {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+                return CaptureRecord.Outcome.of(e, record.getFromId());
+            } finally {
+                em.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        ReplayCaptura replay = new ReplayCaptura(GeradorDataset.opcoes(args));
+        LOGGER_TRANSFERENCIAS.setLevel(java.util.logging.Level.WARNING);
+
+        replay.ler();
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("benchmark-pu", replay.propriedades);
+        try {
+            replay.criarBeneficios(emf);
+            replay.reproduzir(emf);
+        } finally {
+            emf.close();
+        }
+    }
+}
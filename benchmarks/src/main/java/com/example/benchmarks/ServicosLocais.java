@@ -0,0 +1,78 @@
+package com.example.benchmarks;
+
+import com.example.ejb.AccountLockManager;
+import com.example.ejb.BeneficioEjbService;
+import com.example.ejb.BeneficioSubSaldoService;
+import com.example.ejb.TransferenciaSnapshotService;
+import com.example.ejb.metrics.HotAccountTracker;
+import com.example.ejb.metrics.TransferMetrics;
+import jakarta.persistence.EntityManager;
+import java.lang.reflect.Field;
+
+/**
+ * Serviços do módulo EJB montados fora do container, com as dependências que ele
+ * injetaria ({@code @PersistenceContext} e {@code @EJB}) atribuídas por reflexão.
+ *
+ * Cada instância pertence a uma thread. O {@link EntityManager} é trocado a cada
+ * transação com {@link #usar(EntityManager)}, como o contexto de persistência por
+ * transação do container; o {@link AccountLockManager}, as {@link TransferMetrics} e o
+ * {@link HotAccountTracker} são os mesmos para todas, como os {@code @Singleton}.
+ */
+final class ServicosLocais {
+
+    private static final Field EM_TRANSFERENCIAS = campo(BeneficioEjbService.class, "em");
+    private static final Field SUB_SALDOS = campo(BeneficioEjbService.class, "subSaldoService");
+    private static final Field LOCK_MANAGER = campo(BeneficioEjbService.class, "lockManager");
+    private static final Field METRICAS = campo(BeneficioEjbService.class, "metrics");
+    private static final Field BENEFICIOS_QUENTES = campo(BeneficioEjbService.class, "hotAccounts");
+    private static final Field EM_SUB_SALDOS = campo(BeneficioSubSaldoService.class, "em");
+    private static final Field EM_CONSOLIDADOR = campo(TransferenciaSnapshotService.class, "em");
+    private static final Field SUB_SALDOS_CONSOLIDADOR = campo(TransferenciaSnapshotService.class, "subSaldoService");
+
+    private final BeneficioEjbService transferencias = new BeneficioEjbService();
+    private final BeneficioSubSaldoService subSaldos = new BeneficioSubSaldoService();
+    private final TransferenciaSnapshotService consolidador = new TransferenciaSnapshotService();
+
+    ServicosLocais(AccountLockManager lockManager, TransferMetrics metricas, HotAccountTracker beneficiosQuentes) {
+        atribuir(SUB_SALDOS, transferencias, subSaldos);
+        atribuir(LOCK_MANAGER, transferencias, lockManager);
+        atribuir(METRICAS, transferencias, metricas);
+        atribuir(BENEFICIOS_QUENTES, transferencias, beneficiosQuentes);
+        atribuir(SUB_SALDOS_CONSOLIDADOR, consolidador, subSaldos);
+    }
+
+    /**
+     * Passa a usar o EntityManager da transação corrente.
+     */
+    void usar(EntityManager em) {
+        atribuir(EM_TRANSFERENCIAS, transferencias, em);
+        atribuir(EM_SUB_SALDOS, subSaldos, em);
+        atribuir(EM_CONSOLIDADOR, consolidador, em);
+    }
+
+    BeneficioEjbService transferencias() {
+        return transferencias;
+    }
+
+    TransferenciaSnapshotService consolidador() {
+        return consolidador;
+    }
+
+    private static Field campo(Class<?> classe, String nome) {
+        try {
+            Field field = classe.getDeclaredField(nome);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Campo de injeção não encontrado: " + classe.getSimpleName() + "." + nome, e);
+        }
+    }
+
+    private static void atribuir(Field field, Object alvo, Object valor) {
+        try {
+            field.set(alvo, valor);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Erro ao injetar " + field.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.benchmarks;
+
+import com.example.ejb.AccountLockManager;
+import com.example.ejb.BeneficioEjbService;
+import com.example.ejb.TransferMode;
+import com.example.ejb.exception.BeneficioNotFoundException;
+import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.exception.TransferenciaInvalidaException;
+import com.example.ejb.metrics.HotAccountTracker;
+import com.example.ejb.metrics.TransferMetrics;
+import com.example.ejb.model.Beneficio;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.Persistence;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark de {@link BeneficioEjbService#transfer(Long, Long, BigDecimal, TransferMode)}
+ * contra H2 em memória, com cada {@link TransferMode} lado a lado em cada {@link Carga}.
+ *
+ * Cada operação é uma transação completa, como uma chamada ao EJB: EntityManager novo,
+ * begin, transferência e commit (ou rollback). Rejeições de negócio e falhas de
+ * concorrência (conflito otimista, deadlock, timeout de lock) são desfeitas e contadas
+ * à parte nos contadores {@code sucessos}, {@code rejeicoes} e {@code falhas}; todas
+ * entram na vazão e na latência.
+ *
+ * Reporta vazão (ops/ms), latência por amostragem com percentis p50/p99 (ms/op) e, pelo
+ * {@link GCProfiler}, bytes alocados por operação ({@code gc.alloc.rate.norm}). O
+ * {@link #main} repete a execução para cada quantidade de threads de
+ * {@code -Dbench.threads} (padrão {@value #THREADS_PADRAO}) e grava
+ * {@code transfer-<threads>t.json} no diretório corrente. Argumentos do JMH são
+ * repassados, por exemplo {@code -p modo=PESSIMISTIC,SET_BASED -p carga=PAR_QUENTE}.
+ *
+ * Uso (na raiz do repositório):
+ * {@code mvn -f ejb-module/pom.xml install -DskipTests && mvn -f benchmarks/pom.xml package
+ * && java -Dbench.threads=1,8,64 -jar benchmarks/target/benchmarks.jar}
+ *
+ * No modo {@link TransferMode#LEDGER} os lançamentos são consolidados ao fim de cada
+ * iteração, fora da medida, como faria o agendamento do {@code TransferenciaSnapshotService}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+    static final String PROP_THREADS = "bench.threads";
+    static final String THREADS_PADRAO = "1,4,16,64";
+
+    /**
+     * Referência forte: o JUL guarda loggers por referência fraca, e o nível configurado
+     * se perderia se o logger fosse coletado antes de o serviço ser carregado.
+     */
+    private static final Logger LOGGER_TRANSFERENCIAS = Logger.getLogger(BeneficioEjbService.class.getName());
+
+    /**
+     * Banco, benefícios criados e dependências compartilhadas entre as threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Banco {
+
+        @Param
+        public Carga carga;
+
+        @Param
+        public TransferMode modo;
+
+        EntityManagerFactory emf;
+        AccountLockManager lockManager;
+        TransferMetrics metricas;
+        HotAccountTracker beneficiosQuentes;
+        Long[] ids;
+        Zipf zipf;
+        BigDecimal totalInicial;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkParams params) {
+            // Nível de produção: sem log por transferência
+            LOGGER_TRANSFERENCIAS.setLevel(java.util.logging.Level.WARNING);
+
+            emf = Persistence.createEntityManagerFactory("benchmark-pu");
+            lockManager = new AccountLockManager();
+            // Registro em memória: as medições têm o custo de produção
+            metricas = new TransferMetrics(new SimpleMeterRegistry());
+            beneficiosQuentes = new HotAccountTracker();
+
+            List<Beneficio> contas = carga.contas(params.getThreads());
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                for (Beneficio conta : contas) {
+                    em.persist(conta);
+                }
+                em.getTransaction().commit();
+            } finally {
+                em.close();
+            }
+            ids = new Long[contas.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = contas.get(i).getId();
+            }
+            zipf = new Zipf(ids.length, 1.0);
+            totalInicial = totalEmBeneficios();
+        }
+
+        @TearDown(Level.Iteration)
+        public void consolidarLedger() {
+            if (modo != TransferMode.LEDGER) {
+                return;
+            }
+            ServicosLocais servicos = new ServicosLocais(lockManager, metricas, beneficiosQuentes);
+            int consolidados;
+            do {
+                EntityManager em = emf.createEntityManager();
+                try {
+                    servicos.usar(em);
+                    em.getTransaction().begin();
+                    consolidados = servicos.consolidador().consolidar(5000);
+                    em.getTransaction().commit();
+                } finally {
+                    em.close();
+                }
+            } while (consolidados > 0);
+        }
+
+        /**
+         * Confere a conservação do total: nenhuma estratégia pode criar nem perder valor.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            try {
+                BigDecimal total = totalEmBeneficios();
+                if (total.compareTo(totalInicial) != 0) {
+                    throw new IllegalStateException(String.format(
+                        "Total dos benefícios mudou em %s/%s: inicial=%s, final=%s",
+                        carga, modo, totalInicial, total));
+                }
+            } finally {
+                emf.close();
+            }
+        }
+
+        private BigDecimal totalEmBeneficios() {
+            EntityManager em = emf.createEntityManager();
+            try {
+                Object total = em.createNativeQuery("SELECT COALESCE(SUM(VALOR), 0) FROM BENEFICIO").getSingleResult();
+                return new BigDecimal(total.toString());
+            } finally {
+                em.close();
+            }
+        }
+    }
+
+    /**
+     * Serviços e sequência de transferências de uma thread.
+     */
+    @State(Scope.Thread)
+    public static class Cliente {
+
+        final Carga.Escolha escolha = new Carga.Escolha();
+        ServicosLocais servicos;
+        SplittableRandom random;
+        int thread;
+        long sequencia;
+
+        @Setup(Level.Trial)
+        public void setUp(Banco banco, ThreadParams params) {
+            servicos = new ServicosLocais(banco.lockManager, banco.metricas, banco.beneficiosQuentes);
+            thread = params.getThreadIndex();
+            random = new SplittableRandom(thread);
+        }
+    }
+
+    /**
+     * Desfecho das transferências medidas, reportado como contadores auxiliares do JMH.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Resultados {
+        public long sucessos;
+        public long rejeicoes;
+        public long falhas;
+
+        @Setup(Level.Iteration)
+        public void zerar() {
+            sucessos = 0;
+            rejeicoes = 0;
+            falhas = 0;
+        }
+    }
+
+    @Benchmark
+    public void transfer(Banco banco, Cliente cliente, Resultados resultados) {
+        Carga.Escolha escolha = cliente.escolha;
+        banco.carga.escolher(escolha, banco.ids, cliente.thread, cliente.sequencia++, banco.zipf, cliente.random);
+
+        EntityManager em = banco.emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            cliente.servicos.usar(em);
+            tx.begin();
+            cliente.servicos.transferencias().transfer(escolha.fromId, escolha.toId, escolha.valor, banco.modo);
+            tx.commit();
+            resultados.sucessos++;
+        } catch (BeneficioNotFoundException | TransferenciaInvalidaException | SaldoInsuficienteException e) {
+            desfazer(tx);
+            resultados.rejeicoes++;
+        } catch (RuntimeException e) {
+            // Conflito otimista, deadlock ou timeout de lock: o chamador repetiria
+            desfazer(tx);
+            resultados.falhas++;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void desfazer(EntityTransaction tx) {
+        if (tx.isActive()) {
+            tx.rollback();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linhaDeComando = new CommandLineOptions(args);
+        for (String threads : System.getProperty(PROP_THREADS, THREADS_PADRAO).split(",")) {
+            Options opcoes = new OptionsBuilder()
+                    .parent(linhaDeComando)
+                    .include(TransferBenchmark.class.getSimpleName())
+                    .threads(Integer.parseInt(threads.trim()))
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("transfer-" + threads.trim() + "t.json")
+                    .build();
+            new Runner(opcoes).run();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.benchmarks;
+
+import com.example.ejb.AccountLockManager;
+import com.example.ejb.BeneficioEjbService;
+import com.example.ejb.BeneficioSubSaldoService;
+import com.example.ejb.engine.FileTransferJournal;
+import com.example.ejb.engine.MappedTransferJournal;
+import com.example.ejb.engine.TransferJournal;
+import com.example.ejb.metrics.TransferMetrics;
+import com.example.ejb.model.Beneficio;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark do journal de transferências: registros por segundo e quantidade de fsyncs.
+ *
+ * Compara:
+ * - um fsync por transferência, o custo de commit do caminho atual (uma transação por
+ *   {@code transfer}), reproduzido no journal em arquivo;
+ * - group fsync com {@link FileTransferJournal} e com {@link MappedTransferJournal};
+ * - se a unidade de persistência {@code benchmark-pu} estiver disponível, o próprio
+ *   {@link BeneficioEjbService} com uma transação por transferência.
+ *
+ * Uso (na raiz do repositório, depois do {@code package} de {@link TransferBenchmark}):
+ * {@code java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.TransferJournalBenchmark
+ * 200000 256}
+ * (argumentos: registros e registros por fsync).
+ */
+public final class TransferJournalBenchmark {
+
+    private static final long SEGMENTO = 64L * 1024 * 1024;
+
+    private TransferJournalBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int registros = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int grupo = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        // Um fsync por registro é ordens de grandeza mais lento: amostra menor
+        int amostraPorRegistro = Math.min(registros, 5_000);
+
+        System.out.printf("%-42s %12s %12s %10s%n", "cenário", "registros", "reg/s", "fsyncs");
+        medirJournal("arquivo, 1 fsync por transferência", false, amostraPorRegistro, 1);
+        medirJournal("arquivo, group fsync (" + grupo + ")", false, registros, grupo);
+        medirJournal("mapeado, 1 fsync por transferência", true, amostraPorRegistro, 1);
+        medirJournal("mapeado, group fsync (" + grupo + ")", true, registros, grupo);
+        medirBanco(amostraPorRegistro);
+    }
+
+    private static void medirJournal(String cenario, boolean mapeado, int registros, int grupo) throws IOException {
+        Path dir = Files.createTempDirectory("bip-journal-bench");
+        try (TransferJournal journal = mapeado
+                ? MappedTransferJournal.open(dir, 0, 0, SEGMENTO)
+                : FileTransferJournal.open(dir, 0, 0, SEGMENTO)) {
+            long inicio = System.nanoTime();
+            for (int i = 1; i <= registros; i++) {
+                journal.append(i, i + 1, 100, System.currentTimeMillis());
+                if (i % grupo == 0) {
+                    journal.sync();
+                }
+            }
+            journal.sync();
+            imprimir(cenario, registros, System.nanoTime() - inicio, journal.syncCount());
+        } finally {
+            apagar(dir);
+        }
+    }
+
+    /**
+     * Caminho atual: uma transação (e um fsync do log do banco) por transferência.
+     */
+    private static void medirBanco(int registros) throws Exception {
+        EntityManagerFactory emf;
+        try {
+            emf = Persistence.createEntityManagerFactory("benchmark-pu");
+        } catch (Exception e) {
+            System.out.printf("%-42s %s%n", "banco, 1 transação por transferência", "ignorado (benchmark-pu indisponível)");
+            return;
+        }
+        try {
+            EntityManager em = emf.createEntityManager();
+            BeneficioEjbService service = new BeneficioEjbService();
+            injetar(service, "em", em);
+            injetar(service, "lockManager", new AccountLockManager());
+            injetar(service, "metrics", new TransferMetrics(new SimpleMeterRegistry()));
+            BeneficioSubSaldoService subSaldoService = new BeneficioSubSaldoService();
+            injetar(subSaldoService, "em", em);
+            injetar(service, "subSaldoService", subSaldoService);
+
+            em.getTransaction().begin();
+            Beneficio origem = new Beneficio("Benchmark origem", "Benchmark", new BigDecimal(registros));
+            Beneficio destino = new Beneficio("Benchmark destino", "Benchmark", BigDecimal.ZERO);
+            em.persist(origem);
+            em.persist(destino);
+            em.getTransaction().commit();
+
+            long inicio = System.nanoTime();
+            for (int i = 0; i < registros; i++) {
+                em.getTransaction().begin();
+                service.transfer(origem.getId(), destino.getId(), BigDecimal.ONE);
+                em.getTransaction().commit();
+            }
+            imprimir("banco, 1 transação por transferência", registros, System.nanoTime() - inicio, registros);
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    private static void imprimir(String cenario, int registros, long nanos, long fsyncs) {
+        double porSegundo = registros / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+        System.out.printf("%-42s %12d %12.0f %10d%n", cenario, registros, porSegundo, fsyncs);
+    }
+
+    private static void injetar(Object alvo, String campo, Object valor) throws ReflectiveOperationException {
+        Field field = alvo.getClass().getDeclaredField(campo);
+        field.setAccessible(true);
+        field.set(alvo, valor);
+    }
+
+    private static void apagar(Path dir) throws IOException {
+        try (var arquivos = Files.list(dir)) {
+            for (Path arquivo : (Iterable<Path>) arquivos::iterator) {
+                Files.deleteIfExists(arquivo);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+}
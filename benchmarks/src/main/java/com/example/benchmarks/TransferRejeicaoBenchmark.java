@@ -0,0 +1,188 @@
+package com.example.benchmarks;
+
+import com.example.ejb.AccountLockManager;
+import com.example.ejb.BeneficioEjbService;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.metrics.TransferMetrics;
+import com.example.ejb.model.Beneficio;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark de uma carga dominada por rejeições: a cada quatro transferências, uma por
+ * saldo insuficiente, uma para destino inativo, uma para destino inexistente e uma
+ * aplicada. Mede só o custo na JVM ({@link BeneficioEjbService} no modo pessimista,
+ * com um {@link EntityManager} em memória), onde a criação das exceções pesa.
+ *
+ * Reporta ns/op e, pelo {@link GCProfiler}, bytes alocados por operação. Uso (na raiz do
+ * repositório, depois do {@code package} de {@link TransferBenchmark}):
+ * {@code java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.TransferRejeicaoBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferRejeicaoBenchmark {
+
+    private static final Long RICO = 1L;
+    private static final Long SEM_SALDO = 2L;
+    private static final Long INATIVO = 3L;
+    private static final Long INEXISTENTE = 99L;
+
+    private static final BigDecimal CENTAVO = new BigDecimal("0.01");
+    private static final BigDecimal MILHAO = new BigDecimal("1000000.00");
+
+    private BeneficioEjbService service;
+    private int operacao;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Logger.getLogger(BeneficioEjbService.class.getName()).setLevel(Level.WARNING);
+
+        Map<Long, Beneficio> beneficios = new HashMap<>();
+        beneficios.put(RICO, beneficio(RICO, "1000000000.00", true));
+        beneficios.put(SEM_SALDO, beneficio(SEM_SALDO, "0.00", true));
+        beneficios.put(INATIVO, beneficio(INATIVO, "0.00", false));
+
+        service = new BeneficioEjbService();
+        injetar(service, "em", entityManagerEmMemoria(beneficios));
+        injetar(service, "lockManager", new AccountLockManager());
+        injetar(service, "metrics", new TransferMetrics(new SimpleMeterRegistry()));
+    }
+
+    /**
+     * Rejeições como exceções de {@link BeneficioEjbService#transfer(Long, Long, BigDecimal)}.
+     */
+    @Benchmark
+    public void transferComExcecoes(Blackhole bh) {
+        try {
+            switch (operacao++ & 3) {
+                case 0:
+                    service.transfer(SEM_SALDO, RICO, MILHAO);
+                    break;
+                case 1:
+                    service.transfer(RICO, INATIVO, CENTAVO);
+                    break;
+                case 2:
+                    service.transfer(RICO, INEXISTENTE, CENTAVO);
+                    break;
+                default:
+                    service.transfer(RICO, SEM_SALDO, CENTAVO);
+                    break;
+            }
+        } catch (RuntimeException e) {
+            bh.consume(e.getClass());
+        }
+    }
+
+    /**
+     * Mesma carga com {@link BeneficioEjbService#tryTransfer(Long, Long, BigDecimal)}.
+     */
+    @Benchmark
+    public void tryTransfer(Blackhole bh) {
+        TransferOutcome outcome;
+        switch (operacao++ & 3) {
+            case 0:
+                outcome = service.tryTransfer(SEM_SALDO, RICO, MILHAO);
+                break;
+            case 1:
+                outcome = service.tryTransfer(RICO, INATIVO, CENTAVO);
+                break;
+            case 2:
+                outcome = service.tryTransfer(RICO, INEXISTENTE, CENTAVO);
+                break;
+            default:
+                outcome = service.tryTransfer(RICO, SEM_SALDO, CENTAVO);
+                break;
+        }
+        bh.consume(outcome.getStatus());
+    }
+
+    private static Beneficio beneficio(Long id, String valor, boolean ativo) {
+        Beneficio beneficio = new Beneficio("Benchmark " + id, "Benchmark", new BigDecimal(valor));
+        beneficio.setId(id);
+        beneficio.setAtivo(ativo);
+        return beneficio;
+    }
+
+    /**
+     * EntityManager mínimo: atende à consulta de benefícios por ID.
+     */
+    @SuppressWarnings("unchecked")
+    private static EntityManager entityManagerEmMemoria(Map<Long, Beneficio> beneficios) {
+        List<Beneficio> resultado = new ArrayList<>(2);
+        TypedQuery<Beneficio> query = (TypedQuery<Beneficio>) Proxy.newProxyInstance(
+            TransferRejeicaoBenchmark.class.getClassLoader(), new Class<?>[]{TypedQuery.class},
+            (proxy, metodo, args) -> {
+                switch (metodo.getName()) {
+                    case "setParameter":
+                        resultado.clear();
+                        for (Object id : (Collection<?>) args[1]) {
+                            Beneficio beneficio = beneficios.get(id);
+                            if (beneficio != null) {
+                                resultado.add(beneficio);
+                            }
+                        }
+                        return proxy;
+                    case "getResultList":
+                        return resultado;
+                    default:
+                        return proxy;
+                }
+            });
+        return (EntityManager) Proxy.newProxyInstance(
+            TransferRejeicaoBenchmark.class.getClassLoader(), new Class<?>[]{EntityManager.class},
+            (proxy, metodo, args) -> {
+                switch (metodo.getName()) {
+                    case "createNamedQuery":
+                        return query;
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private static void injetar(Object alvo, String campo, Object valor) throws ReflectiveOperationException {
+        Field field = alvo.getClass().getDeclaredField(campo);
+        field.setAccessible(true);
+        field.set(alvo, valor);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opcoes = new OptionsBuilder()
+                .include(TransferRejeicaoBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opcoes).run();
+    }
+}
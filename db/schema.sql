@@ -4,5 +4,49 @@ CREATE TABLE BENEFICIO (
   DESCRICAO VARCHAR(255),
   VALOR DECIMAL(15,2) NOT NULL,
   ATIVO BOOLEAN DEFAULT TRUE,
+  SUB_SALDOS INT DEFAULT 0 NOT NULL,
   VERSION BIGINT DEFAULT 0
 );
+
+-- Sub-saldos (slots) de benefícios particionados por alta contenção.
+-- Enquanto BENEFICIO.SUB_SALDOS > 0, o saldo do benefício é a soma destes slots.
+CREATE TABLE BENEFICIO_SUB_SALDO (
+  ID BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  BENEFICIO_ID BIGINT NOT NULL REFERENCES BENEFICIO(ID),
+  SLOT INT NOT NULL,
+  VALOR DECIMAL(15,2) NOT NULL,
+  VERSION BIGINT DEFAULT 0,
+  CONSTRAINT UK_BENEFICIO_SUB_SALDO UNIQUE (BENEFICIO_ID, SLOT)
+);
+
+-- Ledger append-only de transferências. No modo LEDGER cada transferência apenas
+-- insere uma linha; o consolidador periódico soma as pendentes em BENEFICIO.VALOR
+-- e as marca como consolidadas, que permanecem como histórico.
+CREATE TABLE TRANSFERENCIA (
+  ID BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+  BENEFICIO_ORIGEM_ID BIGINT NOT NULL REFERENCES BENEFICIO(ID),
+  BENEFICIO_DESTINO_ID BIGINT NOT NULL REFERENCES BENEFICIO(ID),
+  VALOR DECIMAL(15,2) NOT NULL,
+  DATA_HORA TIMESTAMP NOT NULL,
+  CONSOLIDADA BOOLEAN DEFAULT FALSE NOT NULL
+);
+
+CREATE INDEX IDX_TRANSFERENCIA_ORIGEM ON TRANSFERENCIA (BENEFICIO_ORIGEM_ID, CONSOLIDADA);
+CREATE INDEX IDX_TRANSFERENCIA_DESTINO ON TRANSFERENCIA (BENEFICIO_DESTINO_ID, CONSOLIDADA);
+
+-- Chaves de idempotência de transferências já confirmadas. A chave é gravada na
+-- mesma transação da transferência; chaves expiradas são removidas em lote.
+CREATE TABLE TRANSFERENCIA_IDEMPOTENCIA (
+  CHAVE VARCHAR(64) PRIMARY KEY,
+  HASH_ARGUMENTOS VARCHAR(64) NOT NULL,
+  CRIADA_EM TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IDX_IDEMPOTENCIA_CRIADA_EM ON TRANSFERENCIA_IDEMPOTENCIA (CRIADA_EM);
+
+-- Última sequência do journal de cada shard da engine em memória já persistida em
+-- TRANSFERENCIA. Na recuperação, só os registros posteriores são reaplicados.
+CREATE TABLE ENGINE_CHECKPOINT (
+  SHARD INT PRIMARY KEY,
+  SEQUENCIA BIGINT NOT NULL
+);
@@ -0,0 +1,315 @@
+package com.example.ejb;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.persistence.LockTimeoutException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Locks de benefício em memória, na frente dos locks de linha do banco.
+ *
+ * Um array fixo de {@link Semaphore} de uma permissão é indexado pelo hash do ID do
+ * benefício (lock striping). Transferências concorrentes sobre os mesmos benefícios esperam
+ * aqui, dentro da JVM, em vez de ocupar conexões do pool bloqueadas em locks de linha.
+ * As faixas são sempre adquiridas em ordem crescente de índice, o que evita deadlock
+ * entre chamadores que precisam de mais de uma faixa.
+ *
+ * O lock em memória não substitui o lock do banco (outros nós e processos continuam
+ * protegidos por ele); apenas reduz a fila de conexões bloqueadas neste nó. Para cobrir
+ * também o commit, {@link BeneficioEjbService} libera as faixas no fim da transação JTA,
+ * que pode ser executado por outra thread; por isso as faixas são semáforos, não
+ * {@code ReentrantLock}, e não são reentrantes.
+ *
+ * Benefícios cujo saldo não depende do lock da linha (particionados em sub-saldos) podem
+ * ser marcados como isentos ({@link #setExempt(long, boolean)}); a marcação é só uma
+ * indicação local, consultada por quem escolhe os IDs a bloquear.
+ *
+ * Por faixa são mantidos o tempo de espera, as aquisições com espera e um histograma do
+ * tempo de retenção ({@link #getHoldHistogram(int)}); como um benefício quente domina a
+ * sua faixa, o histograma da faixa de um benefício ({@link #stripeOf(long)}) mostra quanto
+ * tempo os locks dele ficam retidos.
+ *
+ * Configurável por propriedades de sistema: {@code bip.transfer.lockStripes} (padrão 1024,
+ * arredondado para potência de 2) e {@code bip.transfer.lockTimeoutMillis} (padrão 10000).
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class AccountLockManager {
+
+    public static final String PROP_STRIPES = "bip.transfer.lockStripes";
+    public static final String PROP_TIMEOUT = "bip.transfer.lockTimeoutMillis";
+
+    /**
+     * Faixas do histograma de retenção: a faixa {@code i} conta retenções em
+     * [2<sup>i</sup>, 2<sup>i+1</sup>) ns; a última acumula as de 2<sup>31</sup> ns (~2 s) ou mais.
+     */
+    public static final int HOLD_BUCKETS = 32;
+
+    private final Semaphore[] stripes;
+    private final LongAdder[] waitNanos;
+    private final LongAdder[] contended;
+    private final AtomicLongArray holdBuckets;
+    private final int mask;
+    private final long timeoutNanos;
+    private final Set<Long> isentos = ConcurrentHashMap.newKeySet();
+
+    public AccountLockManager() {
+        this(Integer.getInteger(PROP_STRIPES, 1024), Long.getLong(PROP_TIMEOUT, 10_000L));
+    }
+
+    AccountLockManager(int stripeCount, long timeoutMillis) {
+        int n = stripeCount <= 1 ? 1 : Integer.highestOneBit((stripeCount - 1) << 1);
+        this.stripes = new Semaphore[n];
+        this.waitNanos = new LongAdder[n];
+        this.contended = new LongAdder[n];
+        this.holdBuckets = new AtomicLongArray(n * HOLD_BUCKETS);
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Semaphore(1);
+            waitNanos[i] = new LongAdder();
+            contended[i] = new LongAdder();
+        }
+        this.mask = n - 1;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Adquire as faixas dos benefícios informados, em ordem crescente de índice.
+     * IDs nulos são ignorados.
+     *
+     * @return Locks adquiridos, a liberar com {@link Locks#close()}
+     * @throws LockTimeoutException se alguma faixa não for obtida no tempo limite;
+     *         nenhuma faixa fica retida nesse caso
+     */
+    public Locks lock(Long... ids) {
+        int[] indices = indicesOf(ids);
+        int acquired = 0;
+        try {
+            for (; acquired < indices.length; acquired++) {
+                acquire(indices[acquired]);
+            }
+        } finally {
+            if (acquired < indices.length) {
+                release(indices, acquired);
+            }
+        }
+        return new Locks(indices, System.nanoTime());
+    }
+
+    /**
+     * Faixas distintas dos IDs não nulos, em ordem crescente.
+     */
+    private int[] indicesOf(Long... ids) {
+        int[] indices = new int[ids.length];
+        int count = 0;
+        for (Long id : ids) {
+            if (id != null) {
+                indices[count++] = stripeOf(id);
+            }
+        }
+        Arrays.sort(indices, 0, count);
+
+        // Remove faixas repetidas: as faixas não são reentrantes
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || indices[distinct - 1] != indices[i]) {
+                indices[distinct++] = indices[i];
+            }
+        }
+        return Arrays.copyOf(indices, distinct);
+    }
+
+    private void acquire(int stripe) {
+        Semaphore lock = stripes[stripe];
+        if (lock.tryAcquire()) {
+            return;
+        }
+        contended[stripe].increment();
+        long inicio = System.nanoTime();
+        boolean obtido;
+        try {
+            obtido = lock.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            obtido = false;
+        } finally {
+            waitNanos[stripe].add(System.nanoTime() - inicio);
+        }
+        if (!obtido) {
+            throw new LockTimeoutException("Tempo esgotado aguardando lock em memória da faixa " + stripe);
+        }
+    }
+
+    /**
+     * Conta a retenção no histograma das faixas. Chamado com as faixas ainda retidas, de
+     * modo que cada contador só é incrementado por quem detém a faixa.
+     */
+    private void recordHold(int[] indices, long nanos) {
+        int bucket = Math.min(HOLD_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1L)));
+        for (int stripe : indices) {
+            holdBuckets.incrementAndGet(stripe * HOLD_BUCKETS + bucket);
+        }
+    }
+
+    private void release(int[] indices, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indices[i]].release();
+        }
+    }
+
+    /**
+     * Índice da faixa de um benefício.
+     */
+    public int stripeOf(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Marca ou desmarca um benefício como isento das faixas.
+     */
+    public void setExempt(long id, boolean exempt) {
+        if (exempt) {
+            isentos.add(id);
+        } else if (!isentos.isEmpty()) {
+            isentos.remove(id);
+        }
+    }
+
+    /**
+     * Indica se o benefício foi marcado como isento das faixas.
+     */
+    public boolean isExempt(long id) {
+        return !isentos.isEmpty() && isentos.contains(id);
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Tempo total de espera acumulado na faixa, em nanossegundos.
+     */
+    public long getWaitNanos(int stripe) {
+        return waitNanos[stripe].sum();
+    }
+
+    /**
+     * Quantidade de aquisições da faixa que precisaram esperar.
+     */
+    public long getContendedAcquisitions(int stripe) {
+        return contended[stripe].sum();
+    }
+
+    /**
+     * Estimativa da quantidade de threads aguardando a faixa neste momento.
+     */
+    public int getQueueDepth(int stripe) {
+        return stripes[stripe].getQueueLength();
+    }
+
+    /**
+     * Histograma do tempo de retenção da faixa, da aquisição à liberação.
+     *
+     * @return Contagem por faixa de tempo, com {@link #HOLD_BUCKETS} posições
+     */
+    public long[] getHoldHistogram(int stripe) {
+        long[] histograma = new long[HOLD_BUCKETS];
+        for (int i = 0; i < HOLD_BUCKETS; i++) {
+            histograma[i] = holdBuckets.get(stripe * HOLD_BUCKETS + i);
+        }
+        return histograma;
+    }
+
+    /**
+     * Tempo total de espera somado em todas as faixas, em nanossegundos.
+     */
+    public long getTotalWaitNanos() {
+        long total = 0;
+        for (LongAdder adder : waitNanos) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Locks adquiridos por uma chamada de {@link AccountLockManager#lock(Long...)}.
+     * Uso restrito a uma transação por vez; a liberação pode ocorrer em outra thread.
+     */
+    public final class Locks implements AutoCloseable {
+
+        private int[] indices;
+        private int count;
+        private final long acquiredNanos;
+        private boolean released;
+
+        private Locks(int[] indices, long acquiredNanos) {
+            this.indices = indices;
+            this.count = indices.length;
+            this.acquiredNanos = acquiredNanos;
+        }
+
+        /**
+         * Acrescenta as faixas de outros benefícios, para mais uma transferência na mesma
+         * transação. Faixas já retidas são ignoradas. As faixas acima da maior já retida são
+         * aguardadas como em {@link AccountLockManager#lock(Long...)}; as demais quebrariam a
+         * ordem crescente e só são adquiridas se estiverem livres. Uma faixa não obtida não é
+         * erro: o lock de linha do banco continua protegendo o benefício.
+         *
+         * @throws LockTimeoutException se uma faixa acima das retidas não for obtida no tempo
+         *         limite; as já retidas continuam com estes locks
+         */
+        public void add(Long... ids) {
+            if (released) {
+                throw new IllegalStateException("Locks já liberados");
+            }
+            int maior = -1;
+            for (int i = 0; i < count; i++) {
+                maior = Math.max(maior, indices[i]);
+            }
+            for (int stripe : indicesOf(ids)) {
+                if (contains(stripe)) {
+                    continue;
+                }
+                if (stripe > maior) {
+                    acquire(stripe);
+                    maior = stripe;
+                } else if (!stripes[stripe].tryAcquire()) {
+                    continue;
+                }
+                if (count == indices.length) {
+                    indices = Arrays.copyOf(indices, Math.max(4, count * 2));
+                }
+                indices[count++] = stripe;
+            }
+        }
+
+        private boolean contains(int stripe) {
+            for (int i = 0; i < count; i++) {
+                if (indices[i] == stripe) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Libera as faixas em ordem inversa à aquisição. Chamadas repetidas são ignoradas.
+         */
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                int[] retidas = Arrays.copyOf(indices, count);
+                recordHold(retidas, System.nanoTime() - acquiredNanos);
+                release(retidas, retidas.length);
+            }
+        }
+    }
+}
@@ -1,130 +1,1055 @@
 package com.example.ejb;
 
+import com.example.ejb.capture.TransferCapture;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.dto.TransferOutcome.Status;
+import com.example.ejb.dto.TransferRequest;
+import com.example.ejb.dto.TransferResult;
+import com.example.ejb.dto.TransferStatus;
 import com.example.ejb.exception.BeneficioNotFoundException;
 import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.exception.TransferenciaDuplicadaException;
 import com.example.ejb.exception.TransferenciaInvalidaException;
+import com.example.ejb.metrics.HotAccountTracker;
+import com.example.ejb.metrics.TransferMetrics;
+import com.example.ejb.metrics.TransferSpan;
 import com.example.ejb.model.Beneficio;
+import com.example.ejb.model.Centavos;
+import com.example.ejb.model.Transferencia;
+import com.example.ejb.model.TransferenciaIdempotencia;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.LocalBean;
 import jakarta.ejb.Stateless;
 import jakarta.ejb.TransactionAttribute;
 import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.LockModeType;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Serviço EJB para operações de transferência entre benefícios.
- * Implementa controle de concorrência via Pessimistic Locking.
+ * Implementa controle de concorrência via Pessimistic Locking, sempre adquirindo
+ * os locks em ordem crescente de ID, ou via Optimistic Locking ({@link TransferMode}).
  */
 @Stateless
-public class BeneficioEjbService {
+@LocalBean
+public class BeneficioEjbService implements TransferService {
 
     private static final Logger LOGGER = Logger.getLogger(BeneficioEjbService.class.getName());
 
+    private static final long SALDO_DESCONHECIDO = TransferOutcome.SALDO_DESCONHECIDO;
+
+    /**
+     * Quantidade máxima de IDs por consulta de lock em lote (limite seguro de IN em Oracle/SQL Server).
+     */
+    private static final int MAX_IDS_POR_LOCK = 500;
+
+    /**
+     * Classe SQLSTATE de violação de restrição de integridade (ex.: 23505, chave duplicada).
+     */
+    private static final String SQLSTATE_VIOLACAO_INTEGRIDADE = "23";
+
+    /**
+     * Chave, no {@link TransactionSynchronizationRegistry}, das faixas do
+     * {@link AccountLockManager} retidas pela transação corrente.
+     */
+    private static final String LOCKS_DA_TRANSACAO = AccountLockManager.Locks.class.getName();
+
+    private static final Long[] SEM_PERNAS = new Long[0];
+
     @PersistenceContext
     private EntityManager em;
 
+    @EJB
+    private BeneficioSubSaldoService subSaldoService;
+
+    @EJB
+    private IdempotenciaService idempotencia;
+
+    @EJB
+    private AccountLockManager lockManager;
+
+    @EJB
+    private TransferMetrics metrics;
+
+    /**
+     * Opcional: fora do container (testes, benchmarks) as chamadas não são capturadas.
+     */
+    @EJB
+    private TransferCapture capture;
+
+    /**
+     * Opcional: sem ele (testes) os benefícios quentes não são acompanhados.
+     */
+    @EJB
+    private HotAccountTracker hotAccounts;
+
+    /**
+     * Opcional: fora do container o desfecho vai para o log ao fim do método.
+     */
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    private TransferMode defaultMode = TransferMode.fromSystemProperty();
+
+    /**
+     * Realiza transferência de valor entre dois benefícios usando o
+     * {@link TransferMode} padrão da implantação.
+     *
+     * @see #transfer(Long, Long, BigDecimal, TransferMode)
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void transfer(Long fromId, Long toId, BigDecimal amount) {
+        transfer(fromId, toId, amount, defaultMode);
+    }
+
     /**
      * Realiza transferência de valor entre dois benefícios.
      * 
      * CORREÇÕES IMPLEMENTADAS:
      * - Validação de parâmetros (nulls, valores negativos, IDs iguais)
-     * - Pessimistic Write Lock para prevenir race conditions
+     * - Pessimistic Write Lock para prevenir race conditions, com ambos os registros
+     *   bloqueados em uma única consulta e em ordem crescente de ID (sem deadlock A->B/B->A)
+     * - Modo otimista opcional ({@link TransferMode#OPTIMISTIC}), sem locks de linha
+     * - Modo set-based opcional ({@link TransferMode#SET_BASED}), só com UPDATEs condicionais
+     * - Modo de crédito comutativo ({@link TransferMode#COMMUTATIVE_CREDIT}), que bloqueia só a origem
+     * - Modo ledger ({@link TransferMode#LEDGER}), que apenas insere um lançamento em TRANSFERENCIA
+     * - Benefícios particionados em sub-saldos ({@link BeneficioSubSaldoService}) em todos os modos
+     * - Lock em memória ({@link AccountLockManager}) dos benefícios que o modo bloqueia no banco,
+     *   adquirido antes de acessar o banco e retido até o fim da transação
      * - Validação de existência dos benefícios
      * - Validação de saldo suficiente
      * - Logging de operações
      * - Exceções customizadas com rollback automático
+     * - Variante sem exceções para rejeições de negócio ({@link #tryTransfer(Long, Long, BigDecimal, TransferMode)})
      * 
      * @param fromId ID do benefício de origem
      * @param toId ID do benefício de destino
      * @param amount Valor a ser transferido
+     * @param mode Estratégia de concorrência; {@code null} usa o padrão da implantação
      * @throws TransferenciaInvalidaException se parâmetros inválidos
      * @throws BeneficioNotFoundException se benefício não encontrado
      * @throws SaldoInsuficienteException se saldo insuficiente
+     * @throws jakarta.persistence.OptimisticLockException no modo otimista, se outra
+     *         transação alterou algum dos benefícios
      */
     @TransactionAttribute(TransactionAttributeType.REQUIRED)
-    public void transfer(Long fromId, Long toId, BigDecimal amount) {
-        LOGGER.log(Level.INFO, "Iniciando transferência: FROM={0}, TO={1}, AMOUNT={2}", 
-                   new Object[]{fromId, toId, amount});
+    public void transfer(Long fromId, Long toId, BigDecimal amount, TransferMode mode) {
+        TransferOutcome outcome = tryTransfer(fromId, toId, amount, mode);
+        if (!outcome.isSucesso()) {
+            throw outcome.toException();
+        }
+    }
 
-        // VALIDAÇÃO 1: Parâmetros não podem ser nulos
-        validateTransferParameters(fromId, toId, amount);
+    /**
+     * Realiza transferência de valor entre dois benefícios usando o
+     * {@link TransferMode} padrão da implantação, sem exceções para rejeições de negócio.
+     *
+     * @see #tryTransfer(Long, Long, BigDecimal, TransferMode)
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public TransferOutcome tryTransfer(Long fromId, Long toId, BigDecimal amount) {
+        return tryTransfer(fromId, toId, amount, defaultMode);
+    }
 
-        // VALIDAÇÃO 2: Valor deve ser positivo
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new TransferenciaInvalidaException(
-                "Valor da transferência deve ser maior que zero. Valor informado: " + amount
-            );
+    /**
+     * Realiza a transferência como {@link #transfer(Long, Long, BigDecimal, TransferMode)},
+     * mas devolve as rejeições de negócio (benefício inexistente, inativo ou sem saldo) no
+     * {@link TransferOutcome}, sem criar exceção e sem marcar a transação para rollback.
+     *
+     * Parâmetros inválidos (validações 1 a 3) continuam lançando {@link TransferenciaInvalidaException}:
+     * são erro de quem chama, não rejeição de negócio. Também lançam exceção as rejeições
+     * detectadas depois que uma perna já foi aplicada (segundo UPDATE condicional no modo
+     * set-based, crédito no modo de crédito comutativo), para que o rollback a desfaça.
+     *
+     * Validação e log de início acontecem antes dos locks; o log do desfecho, depois do fim
+     * da transação, quando os locks de linha já foram liberados.
+     *
+     * Duração, esperas e retenção de locks, rejeições e commit são medidos em {@link TransferMetrics}
+     * e, com uma gravação do Flight Recorder ativa, emitidos como eventos ({@link TransferSpan}).
+     * Origem, destino e espera pelos locks alimentam o {@link HotAccountTracker}.
+     * Com a captura ligada ({@link TransferCapture}), cada chamada é registrada com seus
+     * argumentos, desfecho e latência, inclusive as que terminam em exceção.
+     *
+     * @return Situação e, quando o modo os lê, os novos saldos
+     * @throws TransferenciaInvalidaException se parâmetros inválidos
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public TransferOutcome tryTransfer(Long fromId, Long toId, BigDecimal amount, TransferMode mode) {
+        TransferMode modo = mode != null ? mode : defaultMode;
+        boolean capturando = capture != null && capture.isAtiva();
+        long inicio = metrics.start();
+        TransferSpan span = TransferSpan.begin(fromId, toId);
+        TransferOutcome outcome;
+        try {
+            outcome = executeTransfer(fromId, toId, amount, modo, span);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(inicio, modo, e);
+            span.end(modo, e);
+            if (capturando) {
+                capture.record(inicio, fromId, toId, amount, modo, e);
+            }
+            throw e;
+        }
+        metrics.recordOutcome(inicio, modo, outcome.getStatus());
+        span.end(modo, outcome.getStatus());
+        if (hotAccounts != null) {
+            hotAccounts.record(fromId, toId, span.getLockWaitNanos());
         }
+        metrics.timeCommit(span);
+        logAposConclusao(outcome);
+        if (capturando) {
+            capture.record(inicio, fromId, toId, amount, modo, outcome.getStatus());
+        }
+        return outcome;
+    }
 
-        // VALIDAÇÃO 3: IDs não podem ser iguais
-        if (fromId.equals(toId)) {
-            throw new TransferenciaInvalidaException(
-                "Não é permitido transferir para o mesmo benefício. ID: " + fromId
+    /**
+     * Corpo de {@link #tryTransfer(Long, Long, BigDecimal, TransferMode)}.
+     */
+    private TransferOutcome executeTransfer(Long fromId, Long toId, BigDecimal amount, TransferMode modo,
+                                            TransferSpan span) {
+        // Guardas evitam o Object[] e o boxing dos argumentos com o nível desligado
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.log(Level.INFO, "Iniciando transferência: FROM={0}, TO={1}, AMOUNT={2}, MODE={3}",
+                       new Object[]{fromId, toId, amount, modo});
+        }
+
+        // VALIDAÇÕES 1 a 3: parâmetros não nulos, valor positivo e IDs diferentes
+        TransferValidations.validateParameters(fromId, toId, amount);
+        // Daqui em diante o valor trafega em centavos, sem novos BigDecimal
+        long centavos = TransferValidations.toCentavos(amount);
+        span.amount(centavos);
+
+        // Concorrentes sobre os mesmos benefícios esperam na JVM, sem ocupar conexão
+        Long[] pernas = pernasBloqueadas(fromId, toId, modo);
+        AccountLockManager.Locks locks = null;
+        if (pernas.length > 0) {
+            long espera = System.nanoTime();
+            span.lockRequested(TransferSpan.Lock.MEMORY, pernas[0], pernas.length > 1 ? pernas[1] : null);
+            locks = lockStripes(pernas);
+            long aguardado = System.nanoTime() - espera;
+            metrics.recordMemoryLockWait(aguardado);
+            span.lockAcquired(aguardado);
+        }
+        try {
+            switch (modo) {
+                case SET_BASED:
+                    return transferSetBased(fromId, toId, centavos);
+                case COMMUTATIVE_CREDIT:
+                    return transferCommutativeCredit(fromId, toId, centavos, span);
+                case LEDGER:
+                    return transferLedger(fromId, toId, centavos, span);
+                default:
+                    return transferWithEntities(fromId, toId, centavos, modo, span);
+            }
+        } finally {
+            // Fora de uma transação JTA as faixas são liberadas aqui; dentro dela, no fim da
+            // transação, e a retenção é medida por TransferMetrics#timeCommit
+            if (locks != null) {
+                locks.close();
+                metrics.recordMemoryLockHold(span.lockReleased(TransferSpan.Lock.MEMORY));
+            }
+        }
+    }
+
+    /**
+     * Benefícios cujas faixas do {@link AccountLockManager} a transferência adquire: os que
+     * o modo bloqueia no banco. Nos modos pessimista e otimista são origem e destino (no
+     * otimista a faixa evita conflitos de VERSION entre transferências deste nó), exceto os
+     * particionados; nos modos de crédito comutativo e ledger, só a origem; no set-based,
+     * nenhum, já que o lock de linha só existe dentro dos UPDATEs.
+     */
+    private Long[] pernasBloqueadas(Long fromId, Long toId, TransferMode modo) {
+        switch (modo) {
+            case SET_BASED:
+                return SEM_PERNAS;
+            case COMMUTATIVE_CREDIT:
+            case LEDGER:
+                return new Long[]{fromId};
+            default:
+                boolean origem = !lockManager.isExempt(fromId);
+                boolean destino = !lockManager.isExempt(toId);
+                if (origem && destino) {
+                    return new Long[]{fromId, toId};
+                }
+                if (origem || destino) {
+                    return new Long[]{origem ? fromId : toId};
+                }
+                return SEM_PERNAS;
+        }
+    }
+
+    /**
+     * Adquire as faixas do {@link AccountLockManager} dos benefícios informados.
+     *
+     * Numa transação JTA as faixas ficam retidas até o fim dela, cobrindo também o commit,
+     * quando os locks de linha são liberados: sem isso o próximo chamador sairia da fila da
+     * JVM para esperar o commit no banco, segurando uma conexão. As transferências seguintes
+     * da mesma transação acrescentam as suas faixas aos mesmos locks
+     * ({@link AccountLockManager.Locks#add(Long...)}).
+     *
+     * @return Locks a liberar pelo chamador, ou {@code null} se a transação os libera
+     */
+    private AccountLockManager.Locks lockStripes(Long... ids) {
+        if (txRegistry == null || txRegistry.getTransactionKey() == null) {
+            return lockManager.lock(ids);
+        }
+        AccountLockManager.Locks retidos = (AccountLockManager.Locks) txRegistry.getResource(LOCKS_DA_TRANSACAO);
+        if (retidos != null) {
+            retidos.add(ids);
+            return null;
+        }
+        AccountLockManager.Locks locks = lockManager.lock(ids);
+        try {
+            txRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    locks.close();
+                }
+            });
+            txRegistry.putResource(LOCKS_DA_TRANSACAO, locks);
+        } catch (RuntimeException e) {
+            locks.close();
+            throw e;
+        }
+        return null;
+    }
+
+    /**
+     * Registra o desfecho no log depois do fim da transação JTA corrente, fora dos locks de
+     * linha. Fora de uma transação JTA, registra imediatamente.
+     */
+    private void logAposConclusao(TransferOutcome outcome) {
+        // Sem o nível habilitado não há sincronização nem Object[] a criar
+        if (!LOGGER.isLoggable(outcome.isSucesso() ? Level.INFO : Level.FINE)) {
+            return;
+        }
+        if (txRegistry == null || txRegistry.getTransactionKey() == null) {
+            logOutcome(outcome, true);
+            return;
+        }
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                logOutcome(outcome, status == jakarta.transaction.Status.STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private static void logOutcome(TransferOutcome outcome, boolean confirmada) {
+        if (!outcome.isSucesso()) {
+            LOGGER.log(Level.FINE, "Transferência rejeitada: {0}", outcome);
+        } else if (confirmada) {
+            LOGGER.log(Level.INFO,
+                "Transferência concluída com sucesso: FROM={0} (novo saldo: {1}), TO={2} (novo saldo: {3})",
+                new Object[]{outcome.getFromId(), outcome.getSaldoOrigem(), outcome.getToId(), outcome.getSaldoDestino()}
             );
+        } else {
+            LOGGER.log(Level.INFO, "Transferência desfeita no fim da transação: FROM={0}, TO={1}",
+                       new Object[]{outcome.getFromId(), outcome.getToId()});
+        }
+    }
+
+    /**
+     * Realiza a transferência no máximo uma vez por chave de idempotência.
+     *
+     * A chave é gravada com um hash dos argumentos (origem, destino, valor e modo aplicado).
+     * Repetições de uma chave confirmada recentemente são respondidas pelo cache em
+     * memória ({@link IdempotenciaService}), sem acesso ao banco; as demais consultam a
+     * chave por PK, sem lock de linha. Uma chave repetida com outros argumentos é rejeitada.
+     *
+     * A chave é inserida antes da transferência, de modo que duas requisições simultâneas
+     * com a mesma chave se serializam no índice da PK. A segunda recebe a violação de
+     * unicidade no flush, que já marcou a transação para rollback; como o método participa
+     * da transação do chamador, a colisão é lançada como
+     * {@link TransferenciaDuplicadaException} em vez de respondida como chave confirmada.
+     *
+     * @param idempotencyKey Chave informada pelo cliente (até 64 caracteres)
+     * @return {@code true} se a transferência foi aplicada; {@code false} se a chave já
+     *         havia sido confirmada com os mesmos argumentos e nada foi feito
+     * @throws TransferenciaInvalidaException se a chave ou os parâmetros forem inválidos,
+     *         ou se a chave já foi confirmada com outros argumentos
+     * @throws TransferenciaDuplicadaException se outra requisição confirmou a mesma chave
+     *         durante esta
+     * @see #transfer(Long, Long, BigDecimal, TransferMode)
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public boolean transfer(String idempotencyKey, Long fromId, Long toId, BigDecimal amount, TransferMode mode) {
+        validateIdempotencyKey(idempotencyKey);
+        TransferMode modo = mode != null ? mode : defaultMode;
+        String hash = hashArgumentos(fromId, toId, amount, modo);
+
+        String confirmado = idempotencia.getHash(idempotencyKey);
+        if (confirmado == null) {
+            TransferenciaIdempotencia registrada = em.find(TransferenciaIdempotencia.class, idempotencyKey);
+            if (registrada != null) {
+                confirmado = registrada.getHashArgumentos();
+                idempotencia.lembrar(idempotencyKey, confirmado);
+            }
+        }
+        if (confirmado != null) {
+            if (!confirmado.equals(hash)) {
+                throw new TransferenciaInvalidaException(
+                    "Chave de idempotência já usada com outros argumentos: ", idempotencyKey);
+            }
+            LOGGER.log(Level.INFO, "Transferência duplicada ignorada: KEY={0}", idempotencyKey);
+            return false;
+        }
+
+        // Numa transação JTA as faixas são adquiridas antes do flush da chave, para que a
+        // espera na JVM não segure a conexão; a transferência reaproveita as mesmas faixas
+        if (txRegistry != null && txRegistry.getTransactionKey() != null && fromId != null && toId != null) {
+            lockStripes(pernasBloqueadas(fromId, toId, modo));
+        }
+
+        em.persist(new TransferenciaIdempotencia(idempotencyKey, hash, LocalDateTime.now()));
+        try {
+            em.flush();
+        } catch (PersistenceException e) {
+            if (!isChaveDuplicada(e)) {
+                throw e;
+            }
+            // Outra requisição com a mesma chave confirmou primeiro. A falha do flush já marcou
+            // a transação para rollback: o chamador precisa saber que nada dela será confirmado
+            LOGGER.log(Level.INFO, "Chave de idempotência confirmada por requisição concorrente: KEY={0}",
+                       idempotencyKey);
+            throw new TransferenciaDuplicadaException(idempotencyKey);
         }
 
+        transfer(fromId, toId, amount, modo);
+        idempotencia.lembrarAposCommit(idempotencyKey, hash);
+        return true;
+    }
+
+    /**
+     * Transferência sobre as entidades carregadas, nos modos PESSIMISTIC e OPTIMISTIC.
+     */
+    private TransferOutcome transferWithEntities(Long fromId, Long toId, long amount, TransferMode modo,
+                                                 TransferSpan span) {
         // PESSIMISTIC LOCKING: Previne race conditions e lost updates
-        // O lock é mantido até o fim da transação
-        Beneficio from = em.find(Beneficio.class, fromId, LockModeType.PESSIMISTIC_WRITE);
-        Beneficio to = em.find(Beneficio.class, toId, LockModeType.PESSIMISTIC_WRITE);
+        // Uma única consulta bloqueia origem e destino em ordem crescente de ID, de modo que
+        // transferências simultâneas em sentidos opostos (A->B e B->A) entram em fila em vez
+        // de gerar deadlock. O lock é mantido até o fim da transação.
+        // OPTIMISTIC LOCKING: mesma consulta sem lock de linha; o VERSION é conferido no flush
+        // Benefícios particionados ficam fora do lock e usam os sub-saldos nos dois modos
+        LockModeType lockMode = modo == TransferMode.OPTIMISTIC
+                ? LockModeType.OPTIMISTIC
+                : LockModeType.PESSIMISTIC_WRITE;
+        boolean bloqueando = lockMode == LockModeType.PESSIMISTIC_WRITE;
+        long espera = System.nanoTime();
+        if (bloqueando) {
+            span.lockRequested(TransferSpan.Lock.ROW, fromId, toId);
+        }
+        Map<Long, Beneficio> beneficios = loadInAscendingOrder(orderedPair(fromId, toId), lockMode);
+        if (bloqueando) {
+            long aguardado = System.nanoTime() - espera;
+            metrics.recordRowLockWait(aguardado);
+            span.lockAcquired(aguardado);
+        }
+        Beneficio from = beneficios.get(fromId);
+        Beneficio to = beneficios.get(toId);
+
+        // VALIDAÇÕES 4 a 6 e atualização dos saldos
+        TransferOutcome outcome = applyTransfer(fromId, from, toId, to, amount);
+        if (!outcome.isSucesso()) {
+            return outcome;
+        }
 
+        // As entidades vieram da consulta e já são gerenciadas: as alterações vão para o
+        // banco no flush, sem merge enquanto os locks estão retidos
+
+        if (modo == TransferMode.OPTIMISTIC) {
+            // Antecipa a verificação de VERSION para que o conflito surja aqui,
+            // como OptimisticLockException, e não apenas no commit
+            long flush = System.nanoTime();
+            em.flush();
+            metrics.recordFlush(System.nanoTime() - flush);
+        }
+        return outcome;
+    }
+
+    /**
+     * Transferência sem carregar entidades: UPDATEs condicionais aplicados em ordem
+     * crescente de ID (mesma ordem de lock dos demais modos, portanto sem deadlock).
+     * O UPDATE adquire o lock de linha no próprio banco, sem SELECT FOR UPDATE prévio.
+     * Se algum deles não afetar linha, o motivo é diagnosticado; se a primeira perna já
+     * tiver sido aplicada, a exceção de negócio correspondente desfaz a transação.
+     */
+    private TransferOutcome transferSetBased(Long fromId, Long toId, long amount) {
+        boolean primeira;
+        boolean segunda;
+        if (fromId < toId) {
+            primeira = debitarSetBased(fromId, amount);
+            segunda = primeira && creditarSetBased(toId, amount);
+        } else {
+            primeira = creditarSetBased(toId, amount);
+            segunda = primeira && debitarSetBased(fromId, amount);
+        }
+        if (segunda) {
+            conferirDebitosPendentes(fromId, toId, amount);
+            return TransferOutcome.sucesso(fromId, toId, amount, SALDO_DESCONHECIDO, SALDO_DESCONHECIDO);
+        }
+        TransferOutcome rejeicao = diagnoseSetBasedRejection(fromId, toId, amount);
+        if (primeira) {
+            throw rejeicao.toException();
+        }
+        return rejeicao;
+    }
+
+    /**
+     * Transferência com crédito comutativo: só a origem recebe PESSIMISTIC_WRITE e passa
+     * pelas validações de existência, status e saldo. O destino é creditado por último com
+     * um UPDATE condicional; se ele não afetar linha, o destino não existe ou está inativo
+     * e a exceção desfaz o débito já aplicado.
+     */
+    private TransferOutcome transferCommutativeCredit(Long fromId, Long toId, long amount, TransferSpan span) {
+        Beneficio from = findForUpdate(fromId, span);
+        if (from == null) {
+            return TransferOutcome.rejeitada(Status.ORIGEM_NAO_ENCONTRADA, fromId, toId, amount);
+        }
+        if (!Boolean.TRUE.equals(from.getAtivo())) {
+            return TransferOutcome.rejeitada(Status.ORIGEM_INATIVA, fromId, toId, amount);
+        }
+        long saldoOrigem = saldoDisponivel(from);
+        if (saldoOrigem < amount) {
+            return TransferOutcome.saldoInsuficiente(fromId, toId, amount, saldoOrigem);
+        }
+        if (!debitarEntidade(from, amount)) {
+            return TransferOutcome.saldoInsuficiente(fromId, toId, amount, saldoAtual(from));
+        }
+
+        if (!creditarSetBased(toId, amount)) {
+            Object[] to = findEstados(toId).get(toId);
+            Status status = to == null ? Status.DESTINO_NAO_ENCONTRADO : Status.DESTINO_INATIVO;
+            // O débito já aplicado só é desfeito pelo rollback
+            throw TransferOutcome.rejeitada(status, fromId, toId, amount).toException();
+        }
+        return TransferOutcome.sucesso(fromId, toId, amount, saldoConhecido(from), SALDO_DESCONHECIDO);
+    }
+
+    /**
+     * Transferência por lançamento no ledger: só a origem é bloqueada, para serializar os
+     * débitos dela; o saldo disponível é VALOR mais o efeito dos lançamentos ainda não
+     * consolidados. Da linha de BENEFICIO só o VERSION da origem é incrementado, para que
+     * uma transferência OPTIMISTIC que a tenha lido antes deste lançamento falhe no flush.
+     */
+    private TransferOutcome transferLedger(Long fromId, Long toId, long amount, TransferSpan span) {
+        Beneficio from = findForUpdate(fromId, span);
+        Object[] to = findEstados(toId).get(toId);
+
+        if (from == null) {
+            return TransferOutcome.rejeitada(Status.ORIGEM_NAO_ENCONTRADA, fromId, toId, amount);
+        }
+        if (to == null) {
+            return TransferOutcome.rejeitada(Status.DESTINO_NAO_ENCONTRADO, fromId, toId, amount);
+        }
+        if (!Boolean.TRUE.equals(from.getAtivo())) {
+            return TransferOutcome.rejeitada(Status.ORIGEM_INATIVA, fromId, toId, amount);
+        }
+        if (!Boolean.TRUE.equals(to[1])) {
+            return TransferOutcome.rejeitada(Status.DESTINO_INATIVO, fromId, toId, amount);
+        }
+
+        long saldoDisponivel = Centavos.somar(saldoAtual(from), saldoPendente(fromId));
+        if (saldoDisponivel < amount) {
+            return TransferOutcome.saldoInsuficiente(fromId, toId, amount, saldoDisponivel);
+        }
+
+        em.lock(from, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+        em.persist(new Transferencia(fromId, toId, Centavos.toBigDecimal(amount), LocalDateTime.now()));
+        return TransferOutcome.sucesso(fromId, toId, amount, saldoDisponivel - amount, SALDO_DESCONHECIDO);
+    }
+
+    /**
+     * Efeito líquido dos lançamentos do ledger ainda não consolidados sobre o saldo do
+     * benefício, em centavos.
+     */
+    private long saldoPendente(Long id) {
+        return Centavos.of(em.createNamedQuery(Transferencia.SALDO_PENDENTE, BigDecimal.class)
+                .setParameter("beneficioId", id)
+                .getSingleResult());
+    }
+
+    /**
+     * Débitos do ledger ainda não consolidados, em centavos (zero ou negativo). Os modos
+     * que alteram VALOR ou os sub-saldos descontam só os débitos: os créditos pendentes
+     * ainda não estão no saldo e gastá-los deixaria VALOR negativo até a consolidação.
+     */
+    private long debitosPendentes(Long id) {
+        return Math.min(0L, saldoPendente(id));
+    }
+
+    /**
+     * Confere, depois dos UPDATEs do modo set-based, se o saldo da origem ainda cobre os
+     * débitos pendentes do ledger. O UPDATE já bloqueou a linha da origem, então nenhum
+     * lançamento novo dela pode ser confirmado entre ele e esta leitura. O débito já foi
+     * aplicado: a exceção desfaz a transação.
+     */
+    private void conferirDebitosPendentes(Long fromId, Long toId, long amount) {
+        long pendentes = debitosPendentes(fromId);
+        if (pendentes == 0L) {
+            return;
+        }
+        Object[] from = findEstados(fromId).get(fromId);
+        long saldo = isAtivoEParticionado(from) ? Centavos.of(subSaldoService.saldo(fromId)) : (Long) from[2];
+        long disponivel = Centavos.somar(saldo, pendentes);
+        if (disponivel < 0L) {
+            throw TransferOutcome.saldoInsuficiente(fromId, toId, amount, Centavos.somar(disponivel, amount))
+                    .toException();
+        }
+    }
+
+    /**
+     * Débito condicional em BENEFICIO. O UPDATE ignora benefícios particionados; para eles
+     * o débito é feito em um dos sub-saldos.
+     */
+    private boolean debitarSetBased(Long id, long amount) {
+        if (debitar(id, amount)) {
+            return true;
+        }
+        Object[] estado = findEstados(id).get(id);
+        return isAtivoEParticionado(estado) && subSaldoService.debitar(id, Centavos.toBigDecimal(amount));
+    }
+
+    /**
+     * Crédito condicional em BENEFICIO. O UPDATE ignora benefícios particionados; para eles
+     * o crédito vai para um sub-saldo aleatório.
+     */
+    private boolean creditarSetBased(Long id, long amount) {
+        if (creditar(id, amount)) {
+            return true;
+        }
+        Object[] estado = findEstados(id).get(id);
+        if (!isAtivoEParticionado(estado)) {
+            return false;
+        }
+        subSaldoService.creditar(id, (Integer) estado[3], Centavos.toBigDecimal(amount));
+        return true;
+    }
+
+    private boolean debitar(Long id, long amount) {
+        return em.createNamedQuery(Beneficio.DEBITAR_SE_SALDO_SUFICIENTE)
+                .setParameter("id", id)
+                .setParameter("valor", amount)
+                .executeUpdate() == 1;
+    }
+
+    private boolean creditar(Long id, long amount) {
+        return em.createNamedQuery(Beneficio.CREDITAR_SE_ATIVO)
+                .setParameter("id", id)
+                .setParameter("valor", amount)
+                .executeUpdate() == 1;
+    }
+
+    private static boolean isAtivoEParticionado(Object[] estado) {
+        return estado != null
+                && Boolean.TRUE.equals(estado[1])
+                && estado[3] != null && (Integer) estado[3] > 0;
+    }
+
+    /**
+     * Descobre por que um UPDATE condicional não afetou linha, aplicando as validações
+     * 4 a 6 na mesma ordem dos demais modos.
+     */
+    private TransferOutcome diagnoseSetBasedRejection(Long fromId, Long toId, long amount) {
+        Map<Long, Object[]> estados = findEstados(fromId, toId);
+        Object[] from = estados.get(fromId);
+        Object[] to = estados.get(toId);
+
+        if (from == null) {
+            return TransferOutcome.rejeitada(Status.ORIGEM_NAO_ENCONTRADA, fromId, toId, amount);
+        }
+        if (to == null) {
+            return TransferOutcome.rejeitada(Status.DESTINO_NAO_ENCONTRADO, fromId, toId, amount);
+        }
+        if (!Boolean.TRUE.equals(from[1])) {
+            return TransferOutcome.rejeitada(Status.ORIGEM_INATIVA, fromId, toId, amount);
+        }
+        if (!Boolean.TRUE.equals(to[1])) {
+            return TransferOutcome.rejeitada(Status.DESTINO_INATIVO, fromId, toId, amount);
+        }
+        // Ambos existem e estão ativos: só resta o saldo. O valor lido pode já refletir
+        // um crédito concorrente confirmado depois do UPDATE, mas o débito foi recusado
+        // com o saldo vigente naquele instante.
+        long saldo = isAtivoEParticionado(from) ? Centavos.of(subSaldoService.saldo(fromId)) : (Long) from[2];
+        return TransferOutcome.saldoInsuficiente(fromId, toId, amount, saldo);
+    }
+
+    /**
+     * Lê (id, ativo, valor, subSaldos) dos benefícios informados sem carregar entidades nem bloquear.
+     */
+    private Map<Long, Object[]> findEstados(Long... ids) {
+        List<Object[]> estados = em.createNamedQuery(Beneficio.FIND_ESTADO_BY_IDS, Object[].class)
+                .setParameter("ids", Arrays.asList(ids))
+                .getResultList();
+        Map<Long, Object[]> porId = new HashMap<>(4);
+        for (Object[] estado : estados) {
+            porId.put((Long) estado[0], estado);
+        }
+        return porId;
+    }
+
+    /**
+     * Aplica várias transferências em uma única transação.
+     *
+     * Todos os benefícios envolvidos são bloqueados uma única vez, no {@link AccountLockManager}
+     * (até o fim da transação) e depois com PESSIMISTIC_WRITE em ordem crescente de ID, o que evita deadlock com outros lotes ou transferências
+     * que sigam a mesma ordem. As atualizações são enviadas em um único flush ao final,
+     * permitindo que o provider agrupe os UPDATEs em JDBC batch quando configurado
+     * (ex.: {@code hibernate.jdbc.batch_size} e {@code hibernate.order_updates}).
+     *
+     * Cada item é validado com as mesmas regras de {@link #transfer(Long, Long, BigDecimal)}.
+     * Um item rejeitado não altera saldos nem desfaz os demais: o motivo é devolvido
+     * no {@link TransferResult} correspondente. Os itens são aplicados na ordem da lista,
+     * portanto cada item enxerga os saldos já alterados pelos anteriores.
+     *
+     * A duração do lote, as esperas pelos locks e as rejeições de cada item são medidas em
+     * {@link TransferMetrics}. Cada item validado alimenta o {@link HotAccountTracker} com a
+     * espera do lote e, com a captura ligada, é registrado como uma transferência PESSIMISTIC.
+     *
+     * @param requests Transferências a aplicar
+     * @return Um resultado por item, na mesma ordem da lista recebida
+     * @throws TransferenciaInvalidaException se a lista for nula
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public List<TransferResult> transferBatch(List<TransferRequest> requests) {
+        if (requests == null) {
+            throw new TransferenciaInvalidaException("Lista de transferências não pode ser nula");
+        }
+
+        SortedSet<Long> ids = new TreeSet<>();
+        for (TransferRequest request : requests) {
+            if (request != null) {
+                addIfNotNull(ids, request.getFromId());
+                addIfNotNull(ids, request.getToId());
+            }
+        }
+        List<TransferResult> results = new ArrayList<>(requests.size());
+        int sucessos = 0;
+        List<Long> bloqueados = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (!lockManager.isExempt(id)) {
+                bloqueados.add(id);
+            }
+        }
+        long inicio = metrics.startBatch(requests.size());
+        AccountLockManager.Locks locks = null;
+        try {
+            long espera = System.nanoTime();
+            locks = lockStripes(bloqueados.toArray(SEM_PERNAS));
+            long esperaMemoria = System.nanoTime() - espera;
+            metrics.recordMemoryLockWait(esperaMemoria);
+
+            espera = System.nanoTime();
+            Map<Long, Beneficio> beneficios = loadInAscendingOrder(ids, LockModeType.PESSIMISTIC_WRITE);
+            long esperaLinha = System.nanoTime() - espera;
+            metrics.recordRowLockWait(esperaLinha);
+
+            for (TransferRequest request : requests) {
+                TransferResult result = applyBatchItem(request, beneficios, inicio, esperaMemoria + esperaLinha);
+                if (result.isSucesso()) {
+                    sucessos++;
+                }
+                results.add(result);
+            }
+
+            // Um único flush envia todos os UPDATEs do lote
+            em.flush();
+        } catch (RuntimeException e) {
+            metrics.recordBatchFailure(inicio, requests.size());
+            throw e;
+        } finally {
+            if (locks != null) {
+                locks.close();
+            }
+        }
+        metrics.recordBatch(inicio, requests.size());
+
+        LOGGER.log(Level.INFO, "Lote de transferências concluído: ITENS={0}, SUCESSOS={1}, REJEITADOS={2}",
+                   new Object[]{requests.size(), sucessos, requests.size() - sucessos});
+        return results;
+    }
+
+    /**
+     * Valida e aplica um item do lote, convertendo rejeições e parâmetros inválidos em resultado.
+     *
+     * @param inicio Início do lote, usado na captura
+     * @param esperaLocks Espera do lote pelos locks, atribuída a cada item
+     */
+    private TransferResult applyBatchItem(TransferRequest request, Map<Long, Beneficio> beneficios,
+                                          long inicio, long esperaLocks) {
+        boolean capturando = capture != null && capture.isAtiva();
+        try {
+            if (request == null) {
+                throw new TransferenciaInvalidaException("Requisição de transferência não pode ser nula");
+            }
+            TransferValidations.validateParameters(request.getFromId(), request.getToId(), request.getAmount());
+            TransferOutcome outcome = applyTransfer(request.getFromId(), beneficios.get(request.getFromId()),
+                          request.getToId(), beneficios.get(request.getToId()),
+                          TransferValidations.toCentavos(request.getAmount()));
+            metrics.recordBatchItem(outcome.getStatus());
+            if (hotAccounts != null) {
+                hotAccounts.record(request.getFromId(), request.getToId(), esperaLocks);
+            }
+            if (capturando) {
+                capture.record(inicio, request.getFromId(), request.getToId(), request.getAmount(),
+                               TransferMode.PESSIMISTIC, outcome.getStatus());
+            }
+            if (outcome.isSucesso()) {
+                return TransferResult.sucesso(request);
+            }
+            return TransferResult.rejeitada(request, outcome.toTransferStatus(), outcome.getMensagem());
+        } catch (TransferenciaInvalidaException e) {
+            metrics.recordBatchItem(e);
+            if (capturando && request != null) {
+                capture.record(inicio, request.getFromId(), request.getToId(), request.getAmount(),
+                               TransferMode.PESSIMISTIC, e);
+            }
+            return TransferResult.rejeitada(request, TransferStatus.TRANSFERENCIA_INVALIDA, e.getMessage());
+        }
+    }
+
+    /**
+     * Carrega um benefício com PESSIMISTIC_WRITE, medindo a espera pelo lock de linha
+     * e abrindo a retenção dele no span.
+     */
+    private Beneficio findForUpdate(Long id, TransferSpan span) {
+        long espera = System.nanoTime();
+        span.lockRequested(TransferSpan.Lock.ROW, id, null);
+        Beneficio beneficio = em.find(Beneficio.class, id, LockModeType.PESSIMISTIC_WRITE);
+        long aguardado = System.nanoTime() - espera;
+        metrics.recordRowLockWait(aguardado);
+        span.lockAcquired(aguardado);
+        return beneficio;
+    }
+
+    /**
+     * Carrega os benefícios informados em ordem crescente de ID com o lock indicado.
+     * IDs inexistentes simplesmente não aparecem no mapa retornado.
+     *
+     * Benefícios particionados não recebem o lock: o saldo deles fica nos sub-saldos, que
+     * {@link BeneficioSubSaldoService} debita e credita com UPDATEs condicionais, e bloquear
+     * a linha de BENEFICIO voltaria a serializar todas as transferências do benefício.
+     * Pelo mesmo motivo eles são marcados como isentos no {@link AccountLockManager}, e as
+     * próximas transferências deixam de adquirir a faixa deles.
+     */
+    private Map<Long, Beneficio> loadInAscendingOrder(SortedSet<Long> ids, LockModeType lockMode) {
+        Map<Long, Beneficio> beneficios = new HashMap<>(ids.size() * 2);
+        List<Long> ordenados = new ArrayList<>(ids);
+        // Blocos em ordem crescente mantêm a ordem global dos locks e limitam o tamanho do IN
+        for (int inicio = 0; inicio < ordenados.size(); inicio += MAX_IDS_POR_LOCK) {
+            List<Long> bloco = ordenados.subList(inicio, Math.min(inicio + MAX_IDS_POR_LOCK, ordenados.size()));
+            List<Beneficio> encontrados = em.createNamedQuery(Beneficio.FIND_NAO_PARTICIONADOS_BY_IDS_ORDERED, Beneficio.class)
+                    .setParameter("ids", bloco)
+                    .setLockMode(lockMode)
+                    .getResultList();
+            for (Beneficio beneficio : encontrados) {
+                beneficios.put(beneficio.getId(), beneficio);
+                lockManager.setExempt(beneficio.getId(), false);
+            }
+        }
+        if (beneficios.size() < ordenados.size()) {
+            loadParticionados(ordenados, beneficios, lockMode);
+        }
+        return beneficios;
+    }
+
+    /**
+     * Lê sem lock os benefícios que a consulta com lock não trouxe (particionados ou inexistentes).
+     */
+    private void loadParticionados(List<Long> ids, Map<Long, Beneficio> beneficios, LockModeType lockMode) {
+        List<Long> faltantes = new ArrayList<>();
+        for (Long id : ids) {
+            if (!beneficios.containsKey(id)) {
+                faltantes.add(id);
+            }
+        }
+        for (int inicio = 0; inicio < faltantes.size(); inicio += MAX_IDS_POR_LOCK) {
+            List<Long> bloco = faltantes.subList(inicio, Math.min(inicio + MAX_IDS_POR_LOCK, faltantes.size()));
+            List<Beneficio> encontrados = em.createNamedQuery(Beneficio.FIND_BY_IDS_ORDERED, Beneficio.class)
+                    .setParameter("ids", bloco)
+                    .getResultList();
+            for (Beneficio beneficio : encontrados) {
+                if (!beneficio.isParticionado()) {
+                    // Consolidado entre as duas consultas: o saldo voltou para VALOR e precisa do lock
+                    em.refresh(beneficio, lockMode);
+                }
+                beneficios.put(beneficio.getId(), beneficio);
+                lockManager.setExempt(beneficio.getId(), beneficio.isParticionado());
+            }
+        }
+    }
+
+    private static SortedSet<Long> orderedPair(Long fromId, Long toId) {
+        SortedSet<Long> ids = new TreeSet<>();
+        ids.add(fromId);
+        ids.add(toId);
+        return ids;
+    }
+
+    private static void addIfNotNull(SortedSet<Long> ids, Long id) {
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Executa as validações 4 a 6 sobre os benefícios já bloqueados e atualiza os saldos.
+     * Uma rejeição não altera nenhum saldo.
+     */
+    private TransferOutcome applyTransfer(Long fromId, Beneficio from, Long toId, Beneficio to, long amount) {
         // VALIDAÇÃO 4: Benefícios devem existir
         if (from == null) {
-            throw new BeneficioNotFoundException(fromId);
+            return TransferOutcome.rejeitada(Status.ORIGEM_NAO_ENCONTRADA, fromId, toId, amount);
         }
         if (to == null) {
-            throw new BeneficioNotFoundException(toId);
+            return TransferOutcome.rejeitada(Status.DESTINO_NAO_ENCONTRADO, fromId, toId, amount);
         }
 
         // VALIDAÇÃO 5: Benefícios devem estar ativos
         if (!Boolean.TRUE.equals(from.getAtivo())) {
-            throw new TransferenciaInvalidaException(
-                "Benefício de origem está inativo. ID: " + fromId
-            );
+            return TransferOutcome.rejeitada(Status.ORIGEM_INATIVA, fromId, toId, amount);
         }
         if (!Boolean.TRUE.equals(to.getAtivo())) {
-            throw new TransferenciaInvalidaException(
-                "Benefício de destino está inativo. ID: " + toId
-            );
+            return TransferOutcome.rejeitada(Status.DESTINO_INATIVO, fromId, toId, amount);
         }
 
         // VALIDAÇÃO 6: Saldo suficiente (CORREÇÃO DO BUG PRINCIPAL)
-        if (from.getValor().compareTo(amount) < 0) {
-            throw new SaldoInsuficienteException(fromId, from.getValor(), amount);
+        long saldoOrigem = saldoDisponivel(from);
+        if (saldoOrigem < amount) {
+            return TransferOutcome.saldoInsuficiente(fromId, toId, amount, saldoOrigem);
         }
 
         // Executar transferência
-        BigDecimal novoSaldoFrom = from.getValor().subtract(amount);
-        BigDecimal novoSaldoTo = to.getValor().add(amount);
+        if (!debitarEntidade(from, amount)) {
+            return TransferOutcome.saldoInsuficiente(fromId, toId, amount, saldoAtual(from));
+        }
+        creditarEntidade(to, amount);
+        return TransferOutcome.sucesso(fromId, toId, amount, saldoConhecido(from), saldoConhecido(to));
+    }
+
+    /**
+     * Saldo vigente em centavos: VALOR para benefícios comuns, soma dos slots para os particionados.
+     */
+    private long saldoAtual(Beneficio beneficio) {
+        return beneficio.isParticionado()
+                ? Centavos.of(subSaldoService.saldo(beneficio.getId()))
+                : beneficio.getValorCentavos();
+    }
+
+    /**
+     * Saldo que os modos que alteram o saldo podem debitar: o vigente menos os débitos do
+     * ledger ainda não consolidados.
+     */
+    private long saldoDisponivel(Beneficio beneficio) {
+        return Centavos.somar(saldoAtual(beneficio), debitosPendentes(beneficio.getId()));
+    }
+
+    /**
+     * Saldo já em memória, sem consulta: desconhecido para benefícios particionados.
+     */
+    private static long saldoConhecido(Beneficio beneficio) {
+        return beneficio.isParticionado() ? SALDO_DESCONHECIDO : beneficio.getValorCentavos();
+    }
 
-        from.setValor(novoSaldoFrom);
-        to.setValor(novoSaldoTo);
+    /**
+     * @return {@code false} se nenhum sub-saldo de um benefício particionado pôde ser
+     *         debitado (saldo consumido por concorrentes); nada é alterado nesse caso
+     */
+    private boolean debitarEntidade(Beneficio beneficio, long amount) {
+        if (!beneficio.isParticionado()) {
+            beneficio.setValorCentavos(Centavos.subtrair(beneficio.getValorCentavos(), amount));
+            return true;
+        }
+        return subSaldoService.debitar(beneficio.getId(), Centavos.toBigDecimal(amount));
+    }
 
-        // Merge atualiza as entidades no banco
-        em.merge(from);
-        em.merge(to);
+    private void creditarEntidade(Beneficio beneficio, long amount) {
+        if (beneficio.isParticionado()) {
+            subSaldoService.creditar(beneficio.getId(), beneficio.getSubSaldos(), Centavos.toBigDecimal(amount));
+        } else {
+            beneficio.setValorCentavos(Centavos.somar(beneficio.getValorCentavos(), amount));
+        }
+    }
 
-        LOGGER.log(Level.INFO, 
-            "Transferência concluída com sucesso: FROM={0} (novo saldo: {1}), TO={2} (novo saldo: {3})", 
-            new Object[]{fromId, novoSaldoFrom, toId, novoSaldoTo}
-        );
+    /**
+     * Percorre a cadeia de causas procurando violação de unicidade (SQLSTATE classe 23).
+     */
+    static boolean isChaveDuplicada(Throwable erro) {
+        for (Throwable t = erro; t != null; t = t.getCause()) {
+            if (t instanceof EntityExistsException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String sqlState = ((SQLException) t).getSQLState();
+                if (sqlState != null && sqlState.startsWith(SQLSTATE_VIOLACAO_INTEGRIDADE)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
-     * Valida parâmetros básicos da transferência.
+     * Hash SHA-256, em hexadecimal, dos argumentos de uma transferência idempotente. O valor
+     * entra sem zeros à direita, para que {@code 10} e {@code 10.00} sejam o mesmo pedido.
      */
-    private void validateTransferParameters(Long fromId, Long toId, BigDecimal amount) {
-        if (fromId == null) {
-            throw new TransferenciaInvalidaException("ID do benefício de origem não pode ser nulo");
+    static String hashArgumentos(Long fromId, Long toId, BigDecimal amount, TransferMode modo) {
+        String argumentos = fromId + "|" + toId + "|"
+                + (amount == null ? null : amount.stripTrailingZeros().toPlainString()) + "|" + modo;
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(argumentos.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Todo Java SE tem SHA-256
+            throw new IllegalStateException(e);
         }
-        if (toId == null) {
-            throw new TransferenciaInvalidaException("ID do benefício de destino não pode ser nulo");
+    }
+
+    /**
+     * Valida a chave de idempotência informada pelo cliente.
+     */
+    private void validateIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            throw new TransferenciaInvalidaException("Chave de idempotência não pode ser vazia");
         }
-        if (amount == null) {
-            throw new TransferenciaInvalidaException("Valor da transferência não pode ser nulo");
+        if (idempotencyKey.length() > TransferenciaIdempotencia.TAMANHO_MAXIMO_CHAVE) {
+            throw new TransferenciaInvalidaException(
+                "Chave de idempotência deve ter no máximo "
+                    + TransferenciaIdempotencia.TAMANHO_MAXIMO_CHAVE + " caracteres"
+            );
         }
     }
 }
@@ -0,0 +1,272 @@
+package com.example.ejb;
+
+import com.example.ejb.exception.BeneficioNotFoundException;
+import com.example.ejb.exception.TransferenciaInvalidaException;
+import com.example.ejb.model.Beneficio;
+import com.example.ejb.model.BeneficioSubSaldo;
+import com.example.ejb.model.Centavos;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serviço EJB para benefícios particionados em sub-saldos (slots).
+ *
+ * Um benefício muito disputado serializa todas as transferências no lock da sua linha.
+ * Particionado em N slots, cada débito escolhe um slot com saldo suficiente e cada crédito
+ * vai para um slot aleatório, de modo que até N transferências avançam em paralelo.
+ * O saldo do benefício passa a ser a soma dos slots.
+ *
+ * Débitos e créditos rodam na transação do chamador ({@link BeneficioEjbService}).
+ * Particionar, consolidar e rebalancear bloqueiam primeiro a linha de BENEFICIO e depois
+ * os slots, de modo que essas operações se ordenam entre si. Um débito ou crédito que
+ * encontra os slots já removidos por uma consolidação concorrente recai sobre VALOR.
+ */
+@Stateless
+public class BeneficioSubSaldoService {
+
+    private static final Logger LOGGER = Logger.getLogger(BeneficioSubSaldoService.class.getName());
+
+    /**
+     * Quantidade máxima de slots por benefício.
+     */
+    public static final int MAX_SUB_SALDOS = 256;
+
+    /**
+     * Tentativas de débito em slots candidatos antes de concentrar saldo.
+     */
+    private static final int MAX_TENTATIVAS_DEBITO = 3;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Particiona o saldo atual de um benefício em slots de valor igual (diferença de
+     * no máximo um centavo). VALOR é zerado e o saldo passa a viver nos slots.
+     *
+     * @param beneficioId ID do benefício
+     * @param quantidade Número de slots, entre 1 e {@link #MAX_SUB_SALDOS}
+     * @throws BeneficioNotFoundException se o benefício não existir
+     * @throws TransferenciaInvalidaException se a quantidade for inválida ou o benefício já estiver particionado
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void particionar(Long beneficioId, int quantidade) {
+        if (quantidade < 1 || quantidade > MAX_SUB_SALDOS) {
+            throw new TransferenciaInvalidaException(
+                "Quantidade de sub-saldos deve estar entre 1 e " + MAX_SUB_SALDOS + ". Valor informado: " + quantidade
+            );
+        }
+        Beneficio beneficio = em.find(Beneficio.class, beneficioId, LockModeType.PESSIMISTIC_WRITE);
+        if (beneficio == null) {
+            throw new BeneficioNotFoundException(beneficioId);
+        }
+        if (beneficio.isParticionado()) {
+            throw new TransferenciaInvalidaException("Benefício já está particionado. ID: " + beneficioId);
+        }
+
+        BigDecimal[] partes = dividir(beneficio.getValor(), quantidade);
+        for (int slot = 0; slot < quantidade; slot++) {
+            em.persist(new BeneficioSubSaldo(beneficioId, slot, partes[slot]));
+        }
+        beneficio.setValor(BigDecimal.ZERO);
+        beneficio.setSubSaldos(quantidade);
+
+        LOGGER.log(Level.INFO, "Benefício particionado: ID={0}, SUB_SALDOS={1}", new Object[]{beneficioId, quantidade});
+    }
+
+    /**
+     * Desfaz o particionamento: soma os slots de volta em VALOR e remove os slots.
+     *
+     * @param beneficioId ID do benefício
+     * @throws BeneficioNotFoundException se o benefício não existir
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void consolidar(Long beneficioId) {
+        Beneficio beneficio = em.find(Beneficio.class, beneficioId, LockModeType.PESSIMISTIC_WRITE);
+        if (beneficio == null) {
+            throw new BeneficioNotFoundException(beneficioId);
+        }
+        if (!beneficio.isParticionado()) {
+            return;
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (BeneficioSubSaldo slot : lockSlots(beneficioId)) {
+            total = total.add(slot.getValor());
+            em.remove(slot);
+        }
+        beneficio.setSubSaldos(0);
+        beneficio.setValor(total);
+
+        LOGGER.log(Level.INFO, "Benefício consolidado: ID={0}, VALOR={1}", new Object[]{beneficioId, total});
+    }
+
+    /**
+     * Redistribui o saldo igualmente entre os slots, para que nenhum fique sem fundos.
+     * Bloqueia todos os slots do benefício em ordem de slot.
+     *
+     * @param beneficioId ID do benefício particionado
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void rebalancear(Long beneficioId) {
+        Beneficio beneficio = em.find(Beneficio.class, beneficioId, LockModeType.PESSIMISTIC_WRITE);
+        if (beneficio == null || !beneficio.isParticionado()) {
+            return;
+        }
+        List<BeneficioSubSaldo> slots = lockSlots(beneficioId);
+        if (slots.isEmpty()) {
+            return;
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (BeneficioSubSaldo slot : slots) {
+            total = total.add(slot.getValor());
+        }
+        BigDecimal[] partes = dividir(total, slots.size());
+        for (int i = 0; i < slots.size(); i++) {
+            slots.get(i).setValor(partes[i]);
+        }
+    }
+
+    /**
+     * Saldo total de um benefício particionado (soma dos slots).
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public BigDecimal saldo(Long beneficioId) {
+        return em.createNamedQuery(BeneficioSubSaldo.SOMAR_POR_BENEFICIO, BigDecimal.class)
+                .setParameter("beneficioId", beneficioId)
+                .getSingleResult();
+    }
+
+    /**
+     * Debita de um slot com saldo suficiente, escolhido ao acaso entre os candidatos.
+     * Se nenhum slot sozinho cobrir o valor (ou todos os candidatos forem disputados),
+     * concentra saldo dos demais slots em um deles. Sem slots (benefício consolidado
+     * enquanto a transferência corria), debita VALOR com o UPDATE condicional de BENEFICIO.
+     *
+     * @return {@code false} se a soma dos slots (ou VALOR) for menor que o valor
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public boolean debitar(Long beneficioId, BigDecimal amount) {
+        List<Integer> candidatos = new ArrayList<>(
+            em.createNamedQuery(BeneficioSubSaldo.SLOTS_COM_SALDO, Integer.class)
+                .setParameter("beneficioId", beneficioId)
+                .setParameter("valor", amount)
+                .getResultList()
+        );
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int tentativa = 0; tentativa < MAX_TENTATIVAS_DEBITO && !candidatos.isEmpty(); tentativa++) {
+            Integer slot = candidatos.remove(random.nextInt(candidatos.size()));
+            int linhas = em.createNamedQuery(BeneficioSubSaldo.DEBITAR_SE_SALDO_SUFICIENTE)
+                    .setParameter("beneficioId", beneficioId)
+                    .setParameter("slot", slot)
+                    .setParameter("valor", amount)
+                    .executeUpdate();
+            if (linhas == 1) {
+                return true;
+            }
+        }
+        return concentrarEDebitar(beneficioId, amount);
+    }
+
+    /**
+     * Credita em um slot aleatório. Créditos nunca violam a regra de saldo,
+     * então basta um incremento atômico. Se o slot não existir mais (benefício consolidado
+     * enquanto a transferência corria), credita VALOR.
+     *
+     * @param subSaldos Quantidade de slots do benefício
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void creditar(Long beneficioId, int subSaldos, BigDecimal amount) {
+        int slot = ThreadLocalRandom.current().nextInt(subSaldos);
+        int linhas = em.createNamedQuery(BeneficioSubSaldo.CREDITAR)
+                .setParameter("beneficioId", beneficioId)
+                .setParameter("slot", slot)
+                .setParameter("valor", amount)
+                .executeUpdate();
+        if (linhas != 1 && !creditarValor(beneficioId, amount)) {
+            throw new IllegalStateException(
+                "Sub-saldo inexistente: BENEFICIO_ID=" + beneficioId + ", SLOT=" + slot);
+        }
+    }
+
+    /**
+     * Rebalanceamento sob demanda: bloqueia todos os slots, move saldo dos demais para o
+     * slot mais rico até que ele cubra o valor e então debita.
+     */
+    private boolean concentrarEDebitar(Long beneficioId, BigDecimal amount) {
+        List<BeneficioSubSaldo> slots = lockSlots(beneficioId);
+        if (slots.isEmpty()) {
+            return debitarValor(beneficioId, amount);
+        }
+        BeneficioSubSaldo destino = null;
+        BigDecimal total = BigDecimal.ZERO;
+        for (BeneficioSubSaldo slot : slots) {
+            total = total.add(slot.getValor());
+            if (destino == null || slot.getValor().compareTo(destino.getValor()) > 0) {
+                destino = slot;
+            }
+        }
+        if (destino == null || total.compareTo(amount) < 0) {
+            return false;
+        }
+        for (BeneficioSubSaldo slot : slots) {
+            BigDecimal falta = amount.subtract(destino.getValor());
+            if (falta.signum() <= 0) {
+                break;
+            }
+            if (slot != destino) {
+                BigDecimal movido = slot.getValor().min(falta);
+                slot.setValor(slot.getValor().subtract(movido));
+                destino.setValor(destino.getValor().add(movido));
+            }
+        }
+        destino.setValor(destino.getValor().subtract(amount));
+
+        LOGGER.log(Level.FINE, "Sub-saldos concentrados para débito: ID={0}, SLOT={1}",
+                   new Object[]{beneficioId, destino.getSlot()});
+        return true;
+    }
+
+    private boolean debitarValor(Long beneficioId, BigDecimal amount) {
+        return em.createNamedQuery(Beneficio.DEBITAR_SE_SALDO_SUFICIENTE)
+                .setParameter("id", beneficioId)
+                .setParameter("valor", Centavos.of(amount))
+                .executeUpdate() == 1;
+    }
+
+    private boolean creditarValor(Long beneficioId, BigDecimal amount) {
+        return em.createNamedQuery(Beneficio.CREDITAR_SE_ATIVO)
+                .setParameter("id", beneficioId)
+                .setParameter("valor", Centavos.of(amount))
+                .executeUpdate() == 1;
+    }
+
+    private List<BeneficioSubSaldo> lockSlots(Long beneficioId) {
+        return em.createNamedQuery(BeneficioSubSaldo.FIND_BY_BENEFICIO, BeneficioSubSaldo.class)
+                .setParameter("beneficioId", beneficioId)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    /**
+     * Divide um valor em partes com diferença de no máximo um centavo entre elas.
+     */
+    static BigDecimal[] dividir(BigDecimal total, int partes) {
+        long centavos = total.setScale(2).unscaledValue().longValueExact();
+        long base = centavos / partes;
+        long resto = centavos % partes;
+        BigDecimal[] resultado = new BigDecimal[partes];
+        for (int i = 0; i < partes; i++) {
+            resultado[i] = BigDecimal.valueOf(base + (i < resto ? 1 : 0), 2);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.ejb;
+
+import com.example.ejb.retry.RetryPolicy;
+import com.example.ejb.retry.TransferRetryMetrics;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Camada de retentativa em volta de {@link BeneficioEjbService#transfer(Long, Long, BigDecimal)}.
+ *
+ * Quando o banco escolhe a transferência como vítima de deadlock, o lock pessimista
+ * expira ou, no modo otimista, o {@code @Version} acusa conflito, a chamada é repetida
+ * em uma nova transação, com backoff exponencial e jitter,
+ * até o limite de tentativas da {@link RetryPolicy}. Erros de negócio
+ * (saldo insuficiente, benefício inexistente etc.) nunca são repetidos.
+ *
+ * Este bean não participa de transação: cada chamada a {@link BeneficioEjbService}
+ * (REQUIRED) inicia a sua própria, o que permite repetir após o rollback.
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class BeneficioTransferRetryService {
+
+    private static final Logger LOGGER = Logger.getLogger(BeneficioTransferRetryService.class.getName());
+
+    /**
+     * Classe SQLSTATE "40" (transaction rollback): deadlock e falhas de serialização.
+     */
+    private static final String SQLSTATE_TRANSACTION_ROLLBACK = "40";
+
+    @EJB
+    private BeneficioEjbService beneficioService;
+
+    @EJB
+    private TransferRetryMetrics metrics;
+
+    private RetryPolicy retryPolicy = RetryPolicy.fromSystemProperties();
+
+    /**
+     * Realiza a transferência no modo padrão repetindo falhas transitórias de concorrência.
+     *
+     * @param fromId ID do benefício de origem
+     * @param toId ID do benefício de destino
+     * @param amount Valor a ser transferido
+     * @throws RuntimeException a última falha, se todas as tentativas se esgotarem,
+     *         ou a exceção de negócio original, sem retentativa
+     */
+    public void transfer(Long fromId, Long toId, BigDecimal amount) {
+        transfer(fromId, toId, amount, null);
+    }
+
+    /**
+     * Realiza a transferência no modo indicado repetindo falhas transitórias de concorrência.
+     *
+     * @param mode Estratégia de concorrência; {@code null} usa o padrão da implantação
+     * @see #transfer(Long, Long, BigDecimal)
+     */
+    public void transfer(Long fromId, Long toId, BigDecimal amount, TransferMode mode) {
+        long inicio = System.nanoTime();
+        for (int tentativa = 1; ; tentativa++) {
+            long inicioTentativa = System.nanoTime();
+            try {
+                beneficioService.transfer(fromId, toId, amount, mode);
+                if (tentativa > 1) {
+                    metrics.recordRecovery(inicioTentativa - inicio);
+                }
+                return;
+            } catch (RuntimeException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                if (tentativa >= retryPolicy.getMaxAttempts()) {
+                    metrics.recordGiveUp(System.nanoTime() - inicio);
+                    LOGGER.log(Level.WARNING, "Transferência desistida após {0} tentativas: FROM={1}, TO={2}",
+                               new Object[]{tentativa, fromId, toId});
+                    throw e;
+                }
+                metrics.recordRetry();
+                LOGGER.log(Level.FINE, "Conflito de concorrência na tentativa {0}, repetindo: FROM={1}, TO={2}",
+                           new Object[]{tentativa, fromId, toId});
+                aguardarBackoff(tentativa, e);
+            }
+        }
+    }
+
+    /**
+     * Substitui a política de retentativa desta instância.
+     */
+    void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    private void aguardarBackoff(int tentativa, RuntimeException falha) {
+        long espera = retryPolicy.backoffMillis(tentativa);
+        if (espera <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(espera);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw falha;
+        }
+    }
+
+    /**
+     * Percorre a cadeia de causas procurando deadlock, timeout de lock ou conflito de versão.
+     * O container costuma embrulhar a falha em {@code EJBTransactionRolledbackException}.
+     */
+    static boolean isRetryable(Throwable erro) {
+        for (Throwable t = erro; t != null; t = t.getCause()) {
+            if (t instanceof PessimisticLockException
+                    || t instanceof LockTimeoutException
+                    || t instanceof OptimisticLockException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String sqlState = ((SQLException) t).getSQLState();
+                if (sqlState != null && sqlState.startsWith(SQLSTATE_TRANSACTION_ROLLBACK)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.ejb;
+
+import com.example.ejb.model.TransferenciaIdempotencia;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache de chaves de idempotência de transferências.
+ *
+ * Mantém em memória um LRU limitado das chaves confirmadas recentemente, com o hash dos
+ * argumentos de cada uma, de modo que a maioria das retentativas de clientes seja
+ * respondida sem acesso ao banco e sem locks de linha. A fonte da verdade continua sendo a tabela TRANSFERENCIA_IDEMPOTENCIA
+ * (chave primária); uma chave só entra no cache depois do commit da sua transação.
+ *
+ * Configurável por propriedades de sistema: {@code bip.idempotencia.capacidade}
+ * (padrão 100000) e {@code bip.idempotencia.ttlHoras} (padrão 24).
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class IdempotenciaService {
+
+    private static final Logger LOGGER = Logger.getLogger(IdempotenciaService.class.getName());
+
+    public static final String PROP_CAPACIDADE = "bip.idempotencia.capacidade";
+    public static final String PROP_TTL_HORAS = "bip.idempotencia.ttlHoras";
+
+    private final int capacidade = Integer.getInteger(PROP_CAPACIDADE, 100_000);
+    private final long ttlMillis = TimeUnit.HOURS.toMillis(Long.getLong(PROP_TTL_HORAS, 24L));
+
+    /**
+     * Chave -> hash dos argumentos e instante de expiração, em ordem de acesso.
+     */
+    private final Map<String, Lembrada> recentes = new LinkedHashMap<String, Lembrada>(1024, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Lembrada> eldest) {
+            return size() > capacidade;
+        }
+    };
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    /**
+     * Hash dos argumentos de uma chave confirmada recentemente por este nó, sem consultar o
+     * banco.
+     *
+     * @return Hash gravado com a chave, ou {@code null} se ela não está no cache
+     */
+    public String getHash(String chave) {
+        synchronized (recentes) {
+            Lembrada lembrada = recentes.get(chave);
+            if (lembrada == null) {
+                return null;
+            }
+            if (lembrada.expiraEm < System.currentTimeMillis()) {
+                recentes.remove(chave);
+                return null;
+            }
+            return lembrada.hash;
+        }
+    }
+
+    /**
+     * Guarda a chave no cache, com o hash dos argumentos.
+     */
+    public void lembrar(String chave, String hash) {
+        Lembrada lembrada = new Lembrada(hash, System.currentTimeMillis() + ttlMillis);
+        synchronized (recentes) {
+            recentes.put(chave, lembrada);
+        }
+    }
+
+    /**
+     * Guarda a chave no cache somente se a transação corrente for confirmada.
+     * Fora de uma transação JTA, guarda imediatamente.
+     */
+    public void lembrarAposCommit(String chave, String hash) {
+        if (txRegistry == null || txRegistry.getTransactionKey() == null) {
+            lembrar(chave, hash);
+            return;
+        }
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    lembrar(chave, hash);
+                }
+            }
+        });
+    }
+
+    /**
+     * Remove em lote as chaves expiradas do banco e do cache, a cada 15 minutos.
+     *
+     * @return Quantidade de chaves removidas do banco
+     */
+    @Schedule(minute = "*/15", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public int removerExpiradas() {
+        long agora = System.currentTimeMillis();
+        synchronized (recentes) {
+            Iterator<Lembrada> it = recentes.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().expiraEm < agora) {
+                    it.remove();
+                }
+            }
+        }
+        int removidas = em.createNamedQuery(TransferenciaIdempotencia.DELETE_EXPIRADAS)
+                .setParameter("limite", LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(ttlMillis)))
+                .executeUpdate();
+        LOGGER.log(Level.INFO, "Chaves de idempotência expiradas removidas: {0}", removidas);
+        return removidas;
+    }
+
+    /**
+     * Quantidade de chaves no cache em memória.
+     */
+    public int getTamanhoCache() {
+        synchronized (recentes) {
+            return recentes.size();
+        }
+    }
+
+    private static final class Lembrada {
+
+        final String hash;
+        final long expiraEm;
+
+        Lembrada(String hash, long expiraEm) {
+            this.hash = hash;
+            this.expiraEm = expiraEm;
+        }
+    }
+}
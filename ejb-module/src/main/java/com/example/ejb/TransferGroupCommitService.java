@@ -0,0 +1,199 @@
+package com.example.ejb;
+
+import com.example.ejb.dto.TransferRequest;
+import com.example.ejb.dto.TransferResult;
+import com.example.ejb.retry.RetryPolicy;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pipeline assíncrono de transferências com group commit.
+ *
+ * As transferências entram em uma fila limitada e cada chamador recebe um
+ * {@link CompletableFuture}. Um único committer drena a fila a cada poucos milissegundos
+ * e confirma o grupo inteiro em uma transação via
+ * {@link BeneficioEjbService#transferBatch(List)}, que bloqueia cada benefício uma única
+ * vez por grupo, em ordem crescente de ID. O custo de commit (fsync do log do banco) passa
+ * a ser pago por grupo e não por transferência.
+ *
+ * Os futures são completados somente depois do commit, cada um com o resultado do seu
+ * item. Se o grupo inteiro falhar (ex.: timeout de lock), ele é repetido conforme a
+ * {@link RetryPolicy}; esgotadas as tentativas, todos os futures do grupo falham com a
+ * mesma causa.
+ *
+ * Configurável por propriedades de sistema: {@code bip.transfer.groupCommit.capacidade}
+ * (padrão 10000), {@code bip.transfer.groupCommit.maxGrupo} (padrão 500) e
+ * {@code bip.transfer.groupCommit.intervaloMillis} (padrão 5).
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class TransferGroupCommitService {
+
+    private static final Logger LOGGER = Logger.getLogger(TransferGroupCommitService.class.getName());
+
+    public static final String PROP_CAPACIDADE = "bip.transfer.groupCommit.capacidade";
+    public static final String PROP_MAX_GRUPO = "bip.transfer.groupCommit.maxGrupo";
+    public static final String PROP_INTERVALO = "bip.transfer.groupCommit.intervaloMillis";
+
+    private final int maxGrupo = Integer.getInteger(PROP_MAX_GRUPO, 500);
+    private final long intervaloMillis = Long.getLong(PROP_INTERVALO, 5L);
+    private final BlockingQueue<Pendente> fila =
+            new ArrayBlockingQueue<>(Integer.getInteger(PROP_CAPACIDADE, 10_000));
+
+    private final LongAdder grupos = new LongAdder();
+    private final LongAdder confirmadas = new LongAdder();
+
+    @EJB
+    private BeneficioEjbService beneficioService;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    private RetryPolicy retryPolicy = RetryPolicy.fromSystemProperties();
+
+    private ScheduledFuture<?> committer;
+
+    @PostConstruct
+    void iniciar() {
+        // Atraso fixo: o próximo ciclo só começa depois do commit do grupo anterior,
+        // garantindo um único committer
+        committer = scheduler.scheduleWithFixedDelay(
+                this::drenarComSeguranca, intervaloMillis, intervaloMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void parar() {
+        if (committer != null) {
+            committer.cancel(false);
+        }
+        drenar();
+    }
+
+    /**
+     * Enfileira uma transferência para o próximo grupo.
+     *
+     * @param request Transferência a aplicar
+     * @return Future completado após o commit do grupo com o resultado deste item, ou
+     *         completado com {@link RejectedExecutionException} se a fila estiver cheia
+     */
+    public CompletableFuture<TransferResult> submit(TransferRequest request) {
+        Pendente pendente = new Pendente(request);
+        if (!fila.offer(pendente)) {
+            pendente.future.completeExceptionally(
+                    new RejectedExecutionException("Fila de transferências cheia: " + fila.size()));
+        }
+        return pendente.future;
+    }
+
+    /**
+     * Drena e confirma grupos até esvaziar a fila.
+     *
+     * @return Quantidade de transferências processadas
+     */
+    int drenar() {
+        int total = 0;
+        List<Pendente> grupo = new ArrayList<>(maxGrupo);
+        while (fila.drainTo(grupo, maxGrupo) > 0) {
+            confirmar(grupo);
+            total += grupo.size();
+            grupo.clear();
+        }
+        return total;
+    }
+
+    private void drenarComSeguranca() {
+        try {
+            drenar();
+        } catch (RuntimeException e) {
+            // Uma exceção não tratada cancelaria o agendamento do committer
+            LOGGER.log(Level.SEVERE, "Falha inesperada no committer de transferências", e);
+        }
+    }
+
+    private void confirmar(List<Pendente> grupo) {
+        List<TransferRequest> requests = new ArrayList<>(grupo.size());
+        for (Pendente pendente : grupo) {
+            requests.add(pendente.request);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<TransferResult> results = beneficioService.transferBatch(requests);
+                grupos.increment();
+                confirmadas.add(grupo.size());
+                for (int i = 0; i < grupo.size(); i++) {
+                    grupo.get(i).future.complete(results.get(i));
+                }
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= retryPolicy.getMaxAttempts()
+                        || !BeneficioTransferRetryService.isRetryable(e)
+                        || !aguardar(retryPolicy.backoffMillis(attempt))) {
+                    LOGGER.log(Level.WARNING, "Grupo de transferências falhou: ITENS={0}, TENTATIVAS={1}",
+                               new Object[]{grupo.size(), attempt});
+                    for (Pendente pendente : grupo) {
+                        pendente.future.completeExceptionally(e);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean aguardar(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public int getTamanhoFila() {
+        return fila.size();
+    }
+
+    public long getGruposConfirmados() {
+        return grupos.sum();
+    }
+
+    public long getTransferenciasConfirmadas() {
+        return confirmadas.sum();
+    }
+
+    private static final class Pendente {
+        private final TransferRequest request;
+        private final CompletableFuture<TransferResult> future = new CompletableFuture<>();
+
+        private Pendente(TransferRequest request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ejb;
+
+/**
+ * Estratégia de controle de concorrência usada por {@link BeneficioEjbService#transfer}.
+ *
+ * O padrão da implantação vem da propriedade de sistema {@code bip.transfer.mode}
+ * (ex.: {@code -Dbip.transfer.mode=OPTIMISTIC}); na ausência dela, {@link #PESSIMISTIC}.
+ * Cada chamada pode sobrescrever o padrão.
+ *
+ * Benefícios particionados ({@link BeneficioSubSaldoService}) são debitados e creditados
+ * nos sub-saldos em todos os modos. Nos modos {@link #PESSIMISTIC}, {@link #OPTIMISTIC} e
+ * {@link #SET_BASED} a linha de BENEFICIO deles nunca é bloqueada; nos modos
+ * {@link #COMMUTATIVE_CREDIT} e {@link #LEDGER} a origem particionada ainda é bloqueada
+ * (no ledger, o lock é o que serializa a conferência dos lançamentos pendentes).
+ */
+public enum TransferMode {
+
+    /**
+     * Bloqueia origem e destino com PESSIMISTIC_WRITE até o fim da transação.
+     * Indicado para benefícios disputados por muitas transferências simultâneas.
+     */
+    PESSIMISTIC,
+
+    /**
+     * Lê sem lock de linha e deixa o {@code @Version} detectar conflitos no flush.
+     * Indicado para benefícios pouco disputados; um conflito gera
+     * {@code OptimisticLockException}, que deve ser repetido em nova transação
+     * (ver {@link BeneficioTransferRetryService}).
+     */
+    OPTIMISTIC,
+
+    /**
+     * Não carrega entidades: aplica débito e crédito com UPDATEs condicionais
+     * ({@code VALOR >= :valor AND ATIVO}) em ordem crescente de ID e usa a contagem de
+     * linhas afetadas para detectar rejeições. Elimina o SELECT FOR UPDATE e o dirty checking.
+     */
+    SET_BASED,
+
+    /**
+     * Bloqueia e valida apenas a origem; o crédito no destino é um incremento atômico
+     * ({@code VALOR = VALOR + :valor}) executado por último, de modo que o lock de linha
+     * do destino só dura do UPDATE até o commit. Indicado para benefícios que recebem de
+     * muitas origens (ex.: pools de folha). Um crédito nunca viola a regra de saldo
+     * não negativo, então o destino não precisa ser lido antes.
+     *
+     * Como a origem é bloqueada antes do destino, transferências cruzadas (A->B e B->A)
+     * podem gerar deadlock; o banco escolhe uma vítima, que
+     * {@link BeneficioTransferRetryService} repete.
+     */
+    COMMUTATIVE_CREDIT,
+
+    /**
+     * Não altera BENEFICIO: bloqueia apenas a origem, valida o saldo como VALOR mais
+     * os lançamentos pendentes e insere um lançamento em TRANSFERENCIA. O destino nunca é
+     * bloqueado nem atualizado. {@link TransferenciaSnapshotService} consolida os
+     * lançamentos periodicamente em VALOR.
+     *
+     * Os demais modos consideram apenas VALOR; benefícios movimentados por este modo
+     * devem usá-lo com exclusividade até que os pendentes sejam consolidados.
+     */
+    LEDGER;
+
+    public static final String PROP_MODE = "bip.transfer.mode";
+
+    /**
+     * Modo padrão da implantação, lido da propriedade {@code bip.transfer.mode}.
+     */
+    public static TransferMode fromSystemProperty() {
+        String valor = System.getProperty(PROP_MODE);
+        if (valor == null || valor.isBlank()) {
+            return PESSIMISTIC;
+        }
+        return valueOf(valor.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.ejb;
+
+import com.example.ejb.dto.TransferOutcome;
+import jakarta.ejb.Local;
+import java.math.BigDecimal;
+
+/**
+ * Contrato de transferência de valor entre benefícios.
+ *
+ * Implementações:
+ * - {@link BeneficioEjbService}: o banco é a fonte da verdade (padrão)
+ * - {@link com.example.ejb.engine.ShardedTransferEngine}: saldos em memória, com journal
+ *   local e persistência assíncrona
+ *
+ * A implementação é escolhida no ponto de injeção, ex.:
+ * {@code @EJB(beanName = "ShardedTransferEngine") TransferService transferService}.
+ */
+@Local
+public interface TransferService {
+
+    /**
+     * Transfere {@code amount} do benefício {@code fromId} para {@code toId}.
+     *
+     * @throws com.example.ejb.exception.TransferenciaInvalidaException se parâmetros inválidos
+     *         ou benefício inativo
+     * @throws com.example.ejb.exception.BeneficioNotFoundException se benefício não encontrado
+     * @throws com.example.ejb.exception.SaldoInsuficienteException se saldo insuficiente
+     */
+    void transfer(Long fromId, Long toId, BigDecimal amount);
+
+    /**
+     * Como {@link #transfer(Long, Long, BigDecimal)}, mas devolve benefício inexistente,
+     * inativo ou sem saldo como {@link TransferOutcome}, sem lançar exceção.
+     *
+     * @throws com.example.ejb.exception.TransferenciaInvalidaException se parâmetros inválidos
+     */
+    TransferOutcome tryTransfer(Long fromId, Long toId, BigDecimal amount);
+}
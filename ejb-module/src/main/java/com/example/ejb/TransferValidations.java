@@ -0,0 +1,68 @@
+package com.example.ejb;
+
+import com.example.ejb.exception.TransferenciaInvalidaException;
+import com.example.ejb.model.Centavos;
+import java.math.BigDecimal;
+
+/**
+ * Validações de parâmetros comuns às implementações de {@link TransferService}.
+ */
+public final class TransferValidations {
+
+    private static final BigDecimal MAXIMO = Centavos.toBigDecimal(Centavos.MAXIMO_DECIMAL_15_2);
+
+    private TransferValidations() {
+    }
+
+    /**
+     * VALIDAÇÕES 1 a 3: parâmetros não nulos, valor positivo e IDs diferentes.
+     *
+     * @throws TransferenciaInvalidaException se algum parâmetro for inválido
+     */
+    public static void validateParameters(Long fromId, Long toId, BigDecimal amount) {
+        // VALIDAÇÃO 1: Parâmetros não podem ser nulos
+        if (fromId == null) {
+            throw new TransferenciaInvalidaException("ID do benefício de origem não pode ser nulo");
+        }
+        if (toId == null) {
+            throw new TransferenciaInvalidaException("ID do benefício de destino não pode ser nulo");
+        }
+        if (amount == null) {
+            throw new TransferenciaInvalidaException("Valor da transferência não pode ser nulo");
+        }
+
+        // VALIDAÇÃO 2: Valor deve ser positivo
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new TransferenciaInvalidaException(
+                "Valor da transferência deve ser maior que zero. Valor informado: " + amount
+            );
+        }
+
+        // VALIDAÇÃO 3: IDs não podem ser iguais
+        if (fromId.equals(toId)) {
+            throw new TransferenciaInvalidaException(
+                "Não é permitido transferir para o mesmo benefício. ID: " + fromId
+            );
+        }
+    }
+
+    /**
+     * Converte o valor já validado para centavos, a unidade do caminho de transferência.
+     *
+     * @throws TransferenciaInvalidaException se o valor tiver mais de duas casas decimais
+     *         ou não couber em DECIMAL(15,2)
+     */
+    public static long toCentavos(BigDecimal amount) {
+        if (amount.scale() > 2 && amount.stripTrailingZeros().scale() > 2) {
+            throw new TransferenciaInvalidaException(
+                "Valor da transferência deve ter no máximo duas casas decimais. Valor informado: " + amount
+            );
+        }
+        if (amount.compareTo(MAXIMO) > 0) {
+            throw new TransferenciaInvalidaException(
+                "Valor da transferência excede o máximo de " + MAXIMO + ". Valor informado: " + amount
+            );
+        }
+        return Centavos.of(amount);
+    }
+}
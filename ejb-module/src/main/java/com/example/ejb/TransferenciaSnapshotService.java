@@ -0,0 +1,231 @@
+package com.example.ejb;
+
+import com.example.ejb.model.Beneficio;
+import com.example.ejb.model.Transferencia;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Consolidador do ledger de transferências.
+ *
+ * Periodicamente soma os lançamentos pendentes de TRANSFERENCIA no saldo dos benefícios
+ * (VALOR ou sub-saldos) e os marca como consolidados, tudo na mesma transação.
+ *
+ * Antes de aplicá-los, os lançamentos são reivindicados com um UPDATE condicional
+ * ({@code CONSOLIDADA = false}): com consolidadores em vários nós, cada lançamento é
+ * aplicado por quem o marcou, e os marcados por outra transação são deixados de lado.
+ * Os benefícios afetados são então bloqueados em ordem crescente de ID, como nos demais
+ * fluxos. Neste nó, o lock de escrita padrão do Singleton evita consolidações simultâneas.
+ *
+ * Um benefício particionado cujos sub-saldos não cobrem o débito líquido não interrompe a
+ * consolidação: os lançamentos em que ele é a origem voltam a ficar pendentes e os demais
+ * são aplicados.
+ */
+@Singleton
+public class TransferenciaSnapshotService {
+
+    private static final Logger LOGGER = Logger.getLogger(TransferenciaSnapshotService.class.getName());
+
+    /**
+     * Máximo de lançamentos consolidados por execução, para limitar a duração dos locks.
+     */
+    static final int MAX_LANCAMENTOS_POR_CONSOLIDACAO = 5000;
+
+    private static final int MAX_IDS_POR_LOCK = 500;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @EJB
+    private BeneficioSubSaldoService subSaldoService;
+
+    /**
+     * Execução agendada a cada 5 segundos.
+     */
+    @Schedule(second = "*/5", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void consolidarAgendado() {
+        consolidar(MAX_LANCAMENTOS_POR_CONSOLIDACAO);
+    }
+
+    /**
+     * Consolida até {@code maxLancamentos} lançamentos pendentes, em ordem de inserção.
+     *
+     * @return Quantidade de lançamentos consolidados
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public int consolidar(int maxLancamentos) {
+        List<Transferencia> lidos = em.createNamedQuery(Transferencia.FIND_PENDENTES, Transferencia.class)
+                .setMaxResults(maxLancamentos)
+                .getResultList();
+        List<Transferencia> pendentes = reivindicar(lidos);
+        if (pendentes.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, BigDecimal> deltas = deltas(pendentes);
+        List<Beneficio> beneficios = lockInAscendingOrder(new ArrayList<>(deltas.keySet()));
+        List<Transferencia> adiados = adiarSemSubSaldo(pendentes, beneficios);
+        if (!adiados.isEmpty()) {
+            pendentes.removeAll(adiados);
+            deltas = deltas(pendentes);
+        }
+
+        for (Beneficio beneficio : beneficios) {
+            aplicarDelta(beneficio, deltas.getOrDefault(beneficio.getId(), BigDecimal.ZERO));
+        }
+
+        LOGGER.log(Level.INFO, "Ledger consolidado: LANCAMENTOS={0}, BENEFICIOS={1}, ADIADOS={2}",
+                   new Object[]{pendentes.size(), deltas.size(), adiados.size()});
+        return pendentes.size();
+    }
+
+    /**
+     * Marca como consolidados os lançamentos lidos que ainda estão pendentes no banco.
+     * Em blocos; um bloco com lançamentos já marcados por outra transação é refeito um a
+     * um, para separar os que são desta.
+     *
+     * @return Lançamentos reivindicados por esta transação, desanexados do contexto
+     */
+    private List<Transferencia> reivindicar(List<Transferencia> lidos) {
+        List<Transferencia> reivindicados = new ArrayList<>(lidos.size());
+        for (int inicio = 0; inicio < lidos.size(); inicio += MAX_IDS_POR_LOCK) {
+            List<Transferencia> bloco = lidos.subList(inicio, Math.min(inicio + MAX_IDS_POR_LOCK, lidos.size()));
+            if (marcar(ids(bloco)) == bloco.size()) {
+                reivindicados.addAll(bloco);
+                continue;
+            }
+            for (Transferencia t : bloco) {
+                if (marcar(Collections.singletonList(t.getId())) == 1) {
+                    reivindicados.add(t);
+                }
+            }
+        }
+        // O UPDATE em lote não passa pelo contexto de persistência
+        for (Transferencia t : lidos) {
+            em.detach(t);
+        }
+        for (Transferencia t : reivindicados) {
+            t.setConsolidada(true);
+        }
+        return reivindicados;
+    }
+
+    private int marcar(List<Long> ids) {
+        return em.createNamedQuery(Transferencia.MARCAR_CONSOLIDADAS)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Retira dos lançamentos a consolidar os que debitam benefícios particionados sem
+     * sub-saldos suficientes, e devolve-os à fila de pendentes. Retirar um débito reduz os
+     * créditos de outros benefícios, então a verificação se repete até estabilizar.
+     *
+     * @return Lançamentos adiados
+     */
+    private List<Transferencia> adiarSemSubSaldo(List<Transferencia> pendentes, List<Beneficio> beneficios) {
+        Map<Long, BigDecimal> saldos = new HashMap<>();
+        Set<Long> semSaldo = new HashSet<>();
+        List<Transferencia> restantes = new ArrayList<>(pendentes);
+        boolean mudou = true;
+        while (mudou) {
+            mudou = false;
+            Map<Long, BigDecimal> deltas = deltas(restantes);
+            for (Beneficio beneficio : beneficios) {
+                BigDecimal delta = deltas.get(beneficio.getId());
+                if (!beneficio.isParticionado() || delta == null || delta.signum() >= 0
+                        || semSaldo.contains(beneficio.getId())) {
+                    continue;
+                }
+                BigDecimal saldo = saldos.computeIfAbsent(beneficio.getId(), subSaldoService::saldo);
+                if (saldo.compareTo(delta.negate()) < 0) {
+                    semSaldo.add(beneficio.getId());
+                    restantes.removeIf(t -> t.getOrigemId().equals(beneficio.getId()));
+                    mudou = true;
+                    LOGGER.log(Level.WARNING,
+                        "Sub-saldos insuficientes para consolidar o ledger; lançamentos adiados. ID: {0}",
+                        beneficio.getId());
+                }
+            }
+        }
+        if (semSaldo.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Transferencia> adiados = new ArrayList<>(pendentes);
+        adiados.removeAll(restantes);
+        em.createNamedQuery(Transferencia.DESMARCAR_CONSOLIDADAS)
+                .setParameter("ids", ids(adiados))
+                .executeUpdate();
+        for (Transferencia t : adiados) {
+            t.setConsolidada(false);
+        }
+        return adiados;
+    }
+
+    /**
+     * Efeito líquido por benefício, em ordem crescente de ID.
+     */
+    private static Map<Long, BigDecimal> deltas(List<Transferencia> lancamentos) {
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        for (Transferencia t : lancamentos) {
+            deltas.merge(t.getOrigemId(), t.getValor().negate(), BigDecimal::add);
+            deltas.merge(t.getDestinoId(), t.getValor(), BigDecimal::add);
+        }
+        return deltas;
+    }
+
+    private static List<Long> ids(List<Transferencia> lancamentos) {
+        List<Long> ids = new ArrayList<>(lancamentos.size());
+        for (Transferencia t : lancamentos) {
+            ids.add(t.getId());
+        }
+        return ids;
+    }
+
+    private void aplicarDelta(Beneficio beneficio, BigDecimal delta) {
+        int sinal = delta.signum();
+        if (sinal == 0) {
+            return;
+        }
+        if (!beneficio.isParticionado()) {
+            beneficio.setValor(beneficio.getValor().add(delta));
+        } else if (sinal > 0) {
+            subSaldoService.creditar(beneficio.getId(), beneficio.getSubSaldos(), delta);
+        } else if (!subSaldoService.debitar(beneficio.getId(), delta.negate())) {
+            // Conferido em adiarSemSubSaldo: só um débito concorrente nos slots chega aqui,
+            // e a próxima execução confere de novo
+            throw new IllegalStateException(
+                "Sub-saldos insuficientes para consolidar o ledger. ID: " + beneficio.getId());
+        }
+    }
+
+    private List<Beneficio> lockInAscendingOrder(List<Long> ids) {
+        List<Beneficio> beneficios = new ArrayList<>(ids.size());
+        for (int inicio = 0; inicio < ids.size(); inicio += MAX_IDS_POR_LOCK) {
+            List<Long> bloco = ids.subList(inicio, Math.min(inicio + MAX_IDS_POR_LOCK, ids.size()));
+            beneficios.addAll(em.createNamedQuery(Beneficio.FIND_BY_IDS_ORDERED, Beneficio.class)
+                    .setParameter("ids", bloco)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList());
+        }
+        return beneficios;
+    }
+}
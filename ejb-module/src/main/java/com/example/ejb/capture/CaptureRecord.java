@@ -0,0 +1,226 @@
+package com.example.ejb.capture;
+
+import com.example.ejb.TransferMode;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.exception.BeneficioInativoException;
+import com.example.ejb.exception.BeneficioNotFoundException;
+import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.exception.TransferenciaInvalidaException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * Registro de tamanho fixo de uma chamada de transferência capturada.
+ *
+ * Layout ({@value #TAMANHO} bytes, big-endian): início (epoch em microssegundos),
+ * origem, destino e valor em centavos, 8 bytes cada; latência em microssegundos e
+ * thread chamadora, 4 bytes cada; desfecho e modo, 1 byte cada; 2 bytes de preenchimento
+ * e o CRC32C dos 44 bytes anteriores. Um CRC inválido marca o fim da captura (escrita
+ * interrompida).
+ *
+ * Argumentos nulos, e valores que não cabem em centavos, são gravados como {@link #NULO}.
+ * Quem escreve ou lê passa o próprio {@link CRC32C}, reaproveitado registro a registro;
+ * o CRC é calculado sobre uma janela do mesmo buffer, sem cópia nem {@code duplicate()}.
+ */
+public final class CaptureRecord {
+
+    public static final int TAMANHO = 48;
+
+    /**
+     * Argumento ausente: a chamada original recebeu {@code null} (ou um valor com mais de
+     * duas casas decimais, que a validação rejeita da mesma forma).
+     */
+    public static final long NULO = Long.MIN_VALUE;
+
+    private static final int TAMANHO_DADOS = 44;
+
+    private static final byte MODO_PADRAO = -1;
+
+    /**
+     * Desfecho de uma chamada: as situações de {@link TransferOutcome.Status}, na mesma
+     * ordem, mais as que chegam ao chamador como exceção.
+     */
+    public enum Outcome {
+        SUCESSO,
+        ORIGEM_NAO_ENCONTRADA,
+        DESTINO_NAO_ENCONTRADO,
+        ORIGEM_INATIVA,
+        DESTINO_INATIVO,
+        SALDO_INSUFICIENTE,
+        /** Parâmetros inválidos. */
+        INVALIDA,
+        /** Falha técnica: conflito otimista, deadlock, timeout de lock, erro de banco. */
+        ERRO;
+
+        private static final Outcome[] VALORES = values();
+
+        public static Outcome of(TransferOutcome.Status status) {
+            return VALORES[status.ordinal()];
+        }
+
+        public static Outcome of(RuntimeException erro, Long fromId) {
+            if (erro instanceof SaldoInsuficienteException) {
+                return SALDO_INSUFICIENTE;
+            }
+            if (erro instanceof BeneficioNotFoundException) {
+                Long id = ((BeneficioNotFoundException) erro).getBeneficioId();
+                return id != null && id.equals(fromId) ? ORIGEM_NAO_ENCONTRADA : DESTINO_NAO_ENCONTRADO;
+            }
+            if (erro instanceof BeneficioInativoException) {
+                Long id = ((BeneficioInativoException) erro).getBeneficioId();
+                return id != null && id.equals(fromId) ? ORIGEM_INATIVA : DESTINO_INATIVO;
+            }
+            if (erro instanceof TransferenciaInvalidaException) {
+                return INVALIDA;
+            }
+            return ERRO;
+        }
+
+        static Outcome fromCode(int code) {
+            return code >= 0 && code < VALORES.length ? VALORES[code] : ERRO;
+        }
+    }
+
+    private final long inicioEpochMicros;
+    private final long fromId;
+    private final long toId;
+    private final long amountCents;
+    private final int latenciaMicros;
+    private final int thread;
+    private final Outcome outcome;
+    private final TransferMode mode;
+
+    public CaptureRecord(long inicioEpochMicros, long fromId, long toId, long amountCents,
+                         int latenciaMicros, int thread, Outcome outcome, TransferMode mode) {
+        this.inicioEpochMicros = inicioEpochMicros;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.amountCents = amountCents;
+        this.latenciaMicros = latenciaMicros;
+        this.thread = thread;
+        this.outcome = outcome;
+        this.mode = mode;
+    }
+
+    /**
+     * Escreve um registro na posição corrente do buffer, sem alocar.
+     *
+     * @param crc CRC do escritor, reiniciado aqui
+     * @param mode Modo aplicado na chamada, ou {@code null} se desconhecido
+     */
+    static void write(ByteBuffer buffer, CRC32C crc, long inicioEpochMicros, long fromId, long toId, long amountCents,
+                      int latenciaMicros, int thread, Outcome outcome, TransferMode mode) {
+        int inicio = buffer.position();
+        buffer.putLong(inicioEpochMicros)
+              .putLong(fromId)
+              .putLong(toId)
+              .putLong(amountCents)
+              .putInt(latenciaMicros)
+              .putInt(thread)
+              .put((byte) outcome.ordinal())
+              .put(mode == null ? MODO_PADRAO : (byte) mode.ordinal())
+              .putShort((short) 0);
+        buffer.putInt(crc(crc, buffer, inicio));
+    }
+
+    /**
+     * Lê o registro na posição corrente do buffer.
+     *
+     * @param crc CRC do leitor, reiniciado aqui
+     * @return O registro, ou {@code null} se o CRC não conferir ou não houver um registro
+     *         inteiro; nesse caso a posição do buffer é preservada
+     */
+    static CaptureRecord read(ByteBuffer buffer, CRC32C crc) {
+        int inicio = buffer.position();
+        if (buffer.remaining() < TAMANHO || buffer.getInt(inicio + TAMANHO_DADOS) != crc(crc, buffer, inicio)) {
+            return null;
+        }
+        byte modo = buffer.get(inicio + 41);
+        CaptureRecord record = new CaptureRecord(
+                buffer.getLong(inicio),
+                buffer.getLong(inicio + 8),
+                buffer.getLong(inicio + 16),
+                buffer.getLong(inicio + 24),
+                buffer.getInt(inicio + 32),
+                buffer.getInt(inicio + 36),
+                Outcome.fromCode(buffer.get(inicio + 40)),
+                modo == MODO_PADRAO ? null : TransferMode.values()[modo]);
+        buffer.position(inicio + TAMANHO);
+        return record;
+    }
+
+    /**
+     * CRC dos dados do registro que começa em {@code inicio}. A posição e o limite do
+     * buffer são restaurados.
+     */
+    private static int crc(CRC32C crc, ByteBuffer buffer, int inicio) {
+        int posicao = buffer.position();
+        int limite = buffer.limit();
+        buffer.limit(inicio + TAMANHO_DADOS).position(inicio);
+        crc.reset();
+        crc.update(buffer);
+        buffer.limit(limite).position(posicao);
+        return (int) crc.getValue();
+    }
+
+    public long getInicioEpochMicros() {
+        return inicioEpochMicros;
+    }
+
+    /**
+     * Origem, ou {@code null} se a chamada original não a informou.
+     */
+    public Long getFromId() {
+        return fromId == NULO ? null : fromId;
+    }
+
+    /**
+     * Destino, ou {@code null} se a chamada original não o informou.
+     */
+    public Long getToId() {
+        return toId == NULO ? null : toId;
+    }
+
+    /**
+     * Valor em centavos, ou {@link #NULO}.
+     */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public int getLatenciaMicros() {
+        return latenciaMicros;
+    }
+
+    /**
+     * Identificador da thread chamadora; chamadas de uma mesma thread foram sequenciais.
+     */
+    public int getThread() {
+        return thread;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Modo aplicado na chamada, ou {@code null} se desconhecido (o replay usa então o padrão).
+     */
+    public TransferMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public String toString() {
+        return "CaptureRecord{" +
+                "inicioEpochMicros=" + inicioEpochMicros +
+                ", fromId=" + getFromId() +
+                ", toId=" + getToId() +
+                ", amountCents=" + (amountCents == NULO ? "null" : Long.toString(amountCents)) +
+                ", latenciaMicros=" + latenciaMicros +
+                ", thread=" + thread +
+                ", outcome=" + outcome +
+                ", mode=" + mode +
+                '}';
+    }
+}
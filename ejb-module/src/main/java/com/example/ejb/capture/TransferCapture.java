@@ -0,0 +1,267 @@
+package com.example.ejb.capture;
+
+import com.example.ejb.TransferMode;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.model.Centavos;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Captura das chamadas de transferência em arquivo binário, para reprodução posterior
+ * (ver {@code ReplayCaptura} no módulo de benchmarks).
+ *
+ * Cada chamada vira um {@link CaptureRecord} de {@value CaptureRecord#TAMANHO} bytes com
+ * argumentos, instante de início, thread, desfecho e latência. A latência é a do método
+ * de negócio: não inclui o commit feito pelo container depois do retorno. Os registros são
+ * acumulados em um buffer direto e gravados ao encher, a cada {@code bip.transfer.capture.flushMillis}
+ * (padrão 1000, conferido na chamada seguinte) e no desligamento; uma queda perde no
+ * máximo o buffer corrente, e o registro incompleto no fim do arquivo é ignorado na leitura.
+ *
+ * Desligada por padrão: ativa-se com a propriedade de sistema {@code bip.transfer.capture.file}
+ * (arquivo de destino, aberto em modo append). Falhas de E/S desligam a captura com um
+ * aviso, sem afetar as transferências.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class TransferCapture {
+
+    private static final Logger LOGGER = Logger.getLogger(TransferCapture.class.getName());
+
+    public static final String PROP_FILE = "bip.transfer.capture.file";
+    public static final String PROP_FLUSH_MILLIS = "bip.transfer.capture.flushMillis";
+
+    private static final int REGISTROS_POR_BUFFER = 1024;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CaptureRecord.TAMANHO * REGISTROS_POR_BUFFER);
+
+    /**
+     * CRC dos registros escritos, reaproveitado; protegido por {@link #lock}, como o buffer.
+     */
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Par de referência para converter {@link System#nanoTime()} em epoch sem consultar o
+     * relógio de parede a cada chamada.
+     */
+    private final long baseEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    private final long baseNanos = System.nanoTime();
+
+    private long intervaloFlushNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong(PROP_FLUSH_MILLIS, 1000L));
+
+    private FileChannel canal;
+    private long ultimaEscritaNanos;
+    private long registros;
+    private volatile boolean ativa;
+
+    @PostConstruct
+    void iniciar() {
+        String arquivo = System.getProperty(PROP_FILE);
+        if (arquivo == null || arquivo.isBlank()) {
+            return;
+        }
+        try {
+            open(Paths.get(arquivo));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Captura de transferências não iniciada: " + arquivo, e);
+        }
+    }
+
+    /**
+     * Passa a gravar no arquivo informado, acrescentando ao fim dele.
+     */
+    void open(Path arquivo) throws IOException {
+        Path dir = arquivo.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        lock.lock();
+        try {
+            canal = FileChannel.open(arquivo,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            ultimaEscritaNanos = System.nanoTime();
+            ativa = true;
+        } finally {
+            lock.unlock();
+        }
+        LOGGER.log(Level.INFO, "Captura de transferências ativa: ARQUIVO={0}", arquivo);
+    }
+
+    /**
+     * Indica se as chamadas estão sendo capturadas; quem chama só mede a latência se estiverem.
+     */
+    public boolean isAtiva() {
+        return ativa;
+    }
+
+    /**
+     * Registra uma chamada concluída com um {@link TransferOutcome}.
+     *
+     * @param inicioNanos {@link System#nanoTime()} no início da chamada
+     * @param mode Modo aplicado, já resolvido o padrão da implantação
+     */
+    public void record(long inicioNanos, Long fromId, Long toId, BigDecimal amount, TransferMode mode,
+                       TransferOutcome.Status status) {
+        record(inicioNanos, fromId, toId, amount, mode, CaptureRecord.Outcome.of(status));
+    }
+
+    /**
+     * Registra uma chamada que terminou em exceção.
+     *
+     * @param inicioNanos {@link System#nanoTime()} no início da chamada
+     * @param mode Modo aplicado, já resolvido o padrão da implantação
+     */
+    public void record(long inicioNanos, Long fromId, Long toId, BigDecimal amount, TransferMode mode,
+                       RuntimeException erro) {
+        record(inicioNanos, fromId, toId, amount, mode, CaptureRecord.Outcome.of(erro, fromId));
+    }
+
+    private void record(long inicioNanos, Long fromId, Long toId, BigDecimal amount, TransferMode mode,
+                        CaptureRecord.Outcome outcome) {
+        long agora = System.nanoTime();
+        long inicioEpochMicros = baseEpochMicros + TimeUnit.NANOSECONDS.toMicros(inicioNanos - baseNanos);
+        int latenciaMicros = (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMicros(agora - inicioNanos));
+        long centavos = toCentavos(amount);
+        int thread = (int) Thread.currentThread().getId();
+
+        lock.lock();
+        try {
+            if (!ativa) {
+                return;
+            }
+            CaptureRecord.write(buffer, crc, inicioEpochMicros,
+                    fromId == null ? CaptureRecord.NULO : fromId,
+                    toId == null ? CaptureRecord.NULO : toId,
+                    centavos, latenciaMicros, thread, outcome, mode);
+            registros++;
+            if (!buffer.hasRemaining() || agora - ultimaEscritaNanos >= intervaloFlushNanos) {
+                escrever(agora);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grava no arquivo os registros acumulados.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            if (ativa) {
+                escrever(System.nanoTime());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registros capturados desde o início.
+     */
+    public long getRegistros() {
+        lock.lock();
+        try {
+            return registros;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (canal == null) {
+                return;
+            }
+            if (ativa) {
+                escrever(System.nanoTime());
+            }
+            ativa = false;
+            canal.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Falha ao fechar o arquivo de captura", e);
+        } finally {
+            canal = null;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lê os registros de um arquivo de captura, em ordem, até o fim ou até o primeiro
+     * registro incompleto ou corrompido.
+     *
+     * @return Quantidade de registros lidos
+     */
+    public static long read(Path arquivo, Consumer<CaptureRecord> consumer) throws IOException {
+        long lidos = 0;
+        ByteBuffer leitura = ByteBuffer.allocateDirect(CaptureRecord.TAMANHO * REGISTROS_POR_BUFFER);
+        CRC32C crc = new CRC32C();
+        try (FileChannel entrada = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            while (true) {
+                int n = entrada.read(leitura);
+                leitura.flip();
+                CaptureRecord record;
+                while ((record = CaptureRecord.read(leitura, crc)) != null) {
+                    consumer.accept(record);
+                    lidos++;
+                }
+                // CRC inválido com o registro inteiro no buffer, ou sobra incompleta no fim
+                if (leitura.remaining() >= CaptureRecord.TAMANHO || n < 0) {
+                    return lidos;
+                }
+                leitura.compact();
+            }
+        }
+    }
+
+    /**
+     * Chamado com o lock retido. Uma falha desliga a captura.
+     */
+    private void escrever(long agora) {
+        ultimaEscritaNanos = agora;
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        } catch (IOException e) {
+            ativa = false;
+            LOGGER.log(Level.WARNING, "Falha ao gravar a captura de transferências; captura desligada", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Centavos do valor, ou {@link CaptureRecord#NULO} se nulo ou com mais de duas casas.
+     */
+    private static long toCentavos(BigDecimal amount) {
+        if (amount == null) {
+            return CaptureRecord.NULO;
+        }
+        try {
+            return Centavos.of(amount);
+        } catch (ArithmeticException e) {
+            return CaptureRecord.NULO;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.ejb.dto;
+
+import com.example.ejb.exception.BeneficioInativoException;
+import com.example.ejb.exception.BeneficioNotFoundException;
+import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.model.Centavos;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Resultado de uma transferência sem exceções: situação e, quando conhecidos, os novos
+ * saldos em centavos.
+ *
+ * Rejeições de negócio (validações 4 a 6) são rotineiras e chegam ao chamador como
+ * valor, sem custo de exceção. {@link #toException()} produz a mesma exceção que a API
+ * que lança ({@code transfer}) usaria.
+ */
+public final class TransferOutcome implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Saldo não informado: o modo de transferência não lê o saldo da conta
+     * (ex.: destino de um UPDATE condicional).
+     */
+    public static final long SALDO_DESCONHECIDO = Long.MIN_VALUE;
+
+    /**
+     * Situação de uma transferência. As rejeições correspondem, nesta ordem, às
+     * validações 4 a 6.
+     */
+    public enum Status {
+        SUCESSO,
+        ORIGEM_NAO_ENCONTRADA,
+        DESTINO_NAO_ENCONTRADO,
+        ORIGEM_INATIVA,
+        DESTINO_INATIVO,
+        SALDO_INSUFICIENTE
+    }
+
+    private final Status status;
+    private final long fromId;
+    private final long toId;
+    private final long valorCentavos;
+    private final long saldoOrigemCentavos;
+    private final long saldoDestinoCentavos;
+
+    private TransferOutcome(Status status, long fromId, long toId, long valorCentavos,
+                            long saldoOrigemCentavos, long saldoDestinoCentavos) {
+        this.status = status;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.valorCentavos = valorCentavos;
+        this.saldoOrigemCentavos = saldoOrigemCentavos;
+        this.saldoDestinoCentavos = saldoDestinoCentavos;
+    }
+
+    /**
+     * Transferência aplicada, com os saldos resultantes (ou {@link #SALDO_DESCONHECIDO}).
+     */
+    public static TransferOutcome sucesso(long fromId, long toId, long valorCentavos,
+                                          long saldoOrigemCentavos, long saldoDestinoCentavos) {
+        return new TransferOutcome(Status.SUCESSO, fromId, toId, valorCentavos,
+                                   saldoOrigemCentavos, saldoDestinoCentavos);
+    }
+
+    /**
+     * Rejeição por inexistência ou inatividade de um dos benefícios.
+     */
+    public static TransferOutcome rejeitada(Status status, long fromId, long toId, long valorCentavos) {
+        return new TransferOutcome(status, fromId, toId, valorCentavos, SALDO_DESCONHECIDO, SALDO_DESCONHECIDO);
+    }
+
+    /**
+     * Rejeição por saldo insuficiente, com o saldo vigente da origem.
+     */
+    public static TransferOutcome saldoInsuficiente(long fromId, long toId, long valorCentavos,
+                                                    long saldoOrigemCentavos) {
+        return new TransferOutcome(Status.SALDO_INSUFICIENTE, fromId, toId, valorCentavos,
+                                   saldoOrigemCentavos, SALDO_DESCONHECIDO);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSucesso() {
+        return status == Status.SUCESSO;
+    }
+
+    public long getFromId() {
+        return fromId;
+    }
+
+    public long getToId() {
+        return toId;
+    }
+
+    public long getValorCentavos() {
+        return valorCentavos;
+    }
+
+    /**
+     * Saldo da origem após a transferência ou, em {@link Status#SALDO_INSUFICIENTE}, o
+     * saldo que a rejeitou; {@link #SALDO_DESCONHECIDO} se não foi lido.
+     */
+    public long getSaldoOrigemCentavos() {
+        return saldoOrigemCentavos;
+    }
+
+    /**
+     * Saldo do destino após a transferência; {@link #SALDO_DESCONHECIDO} se não foi lido.
+     */
+    public long getSaldoDestinoCentavos() {
+        return saldoDestinoCentavos;
+    }
+
+    /**
+     * {@link #getSaldoOrigemCentavos()} como BigDecimal, ou {@code null} se desconhecido.
+     */
+    public BigDecimal getSaldoOrigem() {
+        return saldoOrigemCentavos == SALDO_DESCONHECIDO ? null : Centavos.toBigDecimal(saldoOrigemCentavos);
+    }
+
+    /**
+     * {@link #getSaldoDestinoCentavos()} como BigDecimal, ou {@code null} se desconhecido.
+     */
+    public BigDecimal getSaldoDestino() {
+        return saldoDestinoCentavos == SALDO_DESCONHECIDO ? null : Centavos.toBigDecimal(saldoDestinoCentavos);
+    }
+
+    /**
+     * Mensagem da exceção correspondente, ou {@code null} em caso de sucesso.
+     */
+    public String getMensagem() {
+        return isSucesso() ? null : toException().getMessage();
+    }
+
+    /**
+     * Situação equivalente nos resultados de lote.
+     */
+    public TransferStatus toTransferStatus() {
+        switch (status) {
+            case SUCESSO:
+                return TransferStatus.SUCESSO;
+            case ORIGEM_NAO_ENCONTRADA:
+            case DESTINO_NAO_ENCONTRADO:
+                return TransferStatus.BENEFICIO_NAO_ENCONTRADO;
+            case SALDO_INSUFICIENTE:
+                return TransferStatus.SALDO_INSUFICIENTE;
+            default:
+                return TransferStatus.TRANSFERENCIA_INVALIDA;
+        }
+    }
+
+    /**
+     * Exceção correspondente à rejeição, com a mesma mensagem de {@code transfer}.
+     *
+     * @throws IllegalStateException se a transferência foi aplicada
+     */
+    public RuntimeException toException() {
+        switch (status) {
+            case ORIGEM_NAO_ENCONTRADA:
+                return new BeneficioNotFoundException(fromId);
+            case DESTINO_NAO_ENCONTRADO:
+                return new BeneficioNotFoundException(toId);
+            case ORIGEM_INATIVA:
+                return new BeneficioInativoException("Benefício de origem está inativo. ID: ", fromId);
+            case DESTINO_INATIVO:
+                return new BeneficioInativoException("Benefício de destino está inativo. ID: ", toId);
+            case SALDO_INSUFICIENTE:
+                return new SaldoInsuficienteException(fromId, saldoOrigemCentavos, valorCentavos);
+            default:
+                throw new IllegalStateException("Transferência aplicada não tem exceção correspondente");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TransferOutcome{" +
+                "status=" + status +
+                ", fromId=" + fromId +
+                ", toId=" + toId +
+                ", valor=" + Centavos.formatar(valorCentavos) +
+                ", saldoOrigem=" + getSaldoOrigem() +
+                ", saldoDestino=" + getSaldoDestino() +
+                '}';
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.ejb.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Item de uma transferência em lote.
+ * Carrega os mesmos parâmetros de {@code BeneficioEjbService.transfer}.
+ */
+public class TransferRequest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long fromId;
+    private final Long toId;
+    private final BigDecimal amount;
+
+    public TransferRequest(Long fromId, Long toId, BigDecimal amount) {
+        this.fromId = fromId;
+        this.toId = toId;
+        this.amount = amount;
+    }
+
+    public Long getFromId() {
+        return fromId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TransferRequest that = (TransferRequest) o;
+        return Objects.equals(fromId, that.fromId)
+                && Objects.equals(toId, that.toId)
+                && Objects.equals(amount, that.amount);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fromId, toId, amount);
+    }
+
+    @Override
+    public String toString() {
+        return "TransferRequest{" +
+                "fromId=" + fromId +
+                ", toId=" + toId +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.ejb.dto;
+
+import java.io.Serializable;
+
+/**
+ * Resultado de um item de transferência em lote.
+ * Uma rejeição afeta apenas o próprio item; os demais itens do lote seguem normalmente.
+ */
+public class TransferResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final TransferRequest request;
+    private final TransferStatus status;
+    private final String message;
+
+    public TransferResult(TransferRequest request, TransferStatus status, String message) {
+        this.request = request;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static TransferResult sucesso(TransferRequest request) {
+        return new TransferResult(request, TransferStatus.SUCESSO, null);
+    }
+
+    public static TransferResult rejeitada(TransferRequest request, TransferStatus status, String message) {
+        return new TransferResult(request, status, message);
+    }
+
+    public TransferRequest getRequest() {
+        return request;
+    }
+
+    public TransferStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Mensagem da exceção que rejeitou o item, ou {@code null} em caso de sucesso.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isSucesso() {
+        return status == TransferStatus.SUCESSO;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferResult{" +
+                "request=" + request +
+                ", status=" + status +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
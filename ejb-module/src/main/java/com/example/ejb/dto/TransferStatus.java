@@ -0,0 +1,20 @@
+package com.example.ejb.dto;
+
+/**
+ * Situação final de um item de transferência em lote.
+ * Cada rejeição corresponde a uma das exceções de {@code com.example.ejb.exception}.
+ */
+public enum TransferStatus {
+
+    /** Transferência aplicada. */
+    SUCESSO,
+
+    /** Parâmetros inválidos ou benefício inativo ({@code TransferenciaInvalidaException}). */
+    TRANSFERENCIA_INVALIDA,
+
+    /** Benefício de origem ou destino inexistente ({@code BeneficioNotFoundException}). */
+    BENEFICIO_NAO_ENCONTRADO,
+
+    /** Saldo da origem menor que o valor solicitado ({@code SaldoInsuficienteException}). */
+    SALDO_INSUFICIENTE
+}
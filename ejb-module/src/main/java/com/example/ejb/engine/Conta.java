@@ -0,0 +1,49 @@
+package com.example.ejb.engine;
+
+import java.io.Serializable;
+
+/**
+ * Saldo em memória de um benefício na {@link ShardedTransferEngine}.
+ *
+ * O saldo só é alterado pela thread do shard dono do benefício; os campos são
+ * voláteis para que as validações feitas na thread do chamador enxerguem o último valor.
+ */
+public final class Conta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long id;
+    private volatile boolean ativo;
+    private volatile long saldoCentavos;
+
+    public Conta(long id, boolean ativo, long saldoCentavos) {
+        this.id = id;
+        this.ativo = ativo;
+        this.saldoCentavos = saldoCentavos;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean isAtivo() {
+        return ativo;
+    }
+
+    public long getSaldoCentavos() {
+        return saldoCentavos;
+    }
+
+    void ajustar(long deltaCentavos) {
+        saldoCentavos += deltaCentavos;
+    }
+
+    @Override
+    public String toString() {
+        return "Conta{" +
+                "id=" + id +
+                ", ativo=" + ativo +
+                ", saldoCentavos=" + saldoCentavos +
+                '}';
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.ejb.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link TransferJournal} em arquivos segmentados, escrito por {@link FileChannel}.
+ *
+ * Cada shard grava em {@code shard-<n>-<primeira sequência>.journal}. Os registros são
+ * acumulados em um buffer direto e gravados no {@link #sync()}, que faz um único
+ * {@code force} para todo o grupo. Ao passar de {@code bytesPorSegmento}, o próximo
+ * sync abre um novo segmento; segmentos inteiramente persistidos são apagados por
+ * {@link #truncateUpTo(long)}.
+ */
+public final class FileTransferJournal implements TransferJournal {
+
+    private static final Pattern NOME_SEGMENTO = Pattern.compile("shard-(\\d+)-(\\d+)\\.journal");
+
+    private static final int REGISTROS_POR_BUFFER = 1024;
+
+    private final Path dir;
+    private final int shard;
+    private final long bytesPorSegmento;
+
+    /**
+     * Primeira sequência de cada segmento -> arquivo; o último é o segmento corrente.
+     */
+    private final TreeMap<Long, Path> segmentos = new TreeMap<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(JournalRecord.TAMANHO * REGISTROS_POR_BUFFER);
+    private final CRC32C crc = new CRC32C();
+
+    private FileChannel canal;
+    private long posicaoSincronizada;
+    private long ultimaSequencia;
+    private long sequenciaSincronizada;
+    private volatile long syncs;
+
+    private FileTransferJournal(Path dir, int shard, long bytesPorSegmento) {
+        this.dir = dir;
+        this.shard = shard;
+        this.bytesPorSegmento = bytesPorSegmento;
+    }
+
+    /**
+     * Abre o journal do shard, descartando um eventual registro incompleto no fim.
+     *
+     * @param minSequence Sequência mínima já utilizada (ex.: checkpoint persistido); novos
+     *        registros recebem sequências maiores que ela e que as existentes no journal
+     */
+    public static FileTransferJournal open(Path dir, int shard, long minSequence, long bytesPorSegmento)
+            throws IOException {
+        FileTransferJournal journal = new FileTransferJournal(dir, shard, bytesPorSegmento);
+        journal.abrir(minSequence);
+        return journal;
+    }
+
+    /**
+     * Shards com algum segmento de journal no diretório.
+     */
+    public static Set<Integer> shardsIn(Path dir) throws IOException {
+        Set<Integer> shards = new TreeSet<>();
+        if (!Files.isDirectory(dir)) {
+            return shards;
+        }
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(dir, "shard-*.journal")) {
+            for (Path arquivo : arquivos) {
+                Matcher m = NOME_SEGMENTO.matcher(arquivo.getFileName().toString());
+                if (m.matches()) {
+                    shards.add(Integer.parseInt(m.group(1)));
+                }
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Segmentos do shard no diretório, por primeira sequência.
+     */
+    static TreeMap<Long, Path> segmentsOf(Path dir, int shard) throws IOException {
+        TreeMap<Long, Path> segmentos = new TreeMap<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(dir, "shard-" + shard + "-*.journal")) {
+            for (Path arquivo : arquivos) {
+                Matcher m = NOME_SEGMENTO.matcher(arquivo.getFileName().toString());
+                if (m.matches() && Integer.parseInt(m.group(1)) == shard) {
+                    segmentos.put(Long.parseLong(m.group(2)), arquivo);
+                }
+            }
+        }
+        return segmentos;
+    }
+
+    static Path segmentPath(Path dir, int shard, long primeiraSequencia) {
+        return dir.resolve(String.format("shard-%d-%020d.journal", shard, primeiraSequencia));
+    }
+
+    /**
+     * Apaga os segmentos, exceto o corrente (último), cujos registros têm todos sequência
+     * até a informada.
+     */
+    static void deleteSegmentsUpTo(TreeMap<Long, Path> segmentos, long sequence) throws IOException {
+        List<Long> primeiras = new ArrayList<>(segmentos.keySet());
+        for (int i = 0; i < primeiras.size() - 1; i++) {
+            if (primeiras.get(i + 1) - 1 > sequence) {
+                break;
+            }
+            Files.deleteIfExists(segmentos.remove(primeiras.get(i)));
+        }
+    }
+
+    private void abrir(long minSequence) throws IOException {
+        Files.createDirectories(dir);
+        segmentos.putAll(segmentsOf(dir, shard));
+
+        long ultima = minSequence;
+        if (!segmentos.isEmpty()) {
+            Map.Entry<Long, Path> corrente = segmentos.lastEntry();
+            canal = FileChannel.open(corrente.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long[] fim = percorrer(canal, Long.MAX_VALUE, Long.MIN_VALUE, null);
+            // Descarta o que vier depois do último registro íntegro
+            canal.truncate(fim[0]);
+            canal.position(fim[0]);
+            posicaoSincronizada = fim[0];
+            // Segmento corrente vazio: a última sequência é a anterior à primeira dele
+            ultima = Math.max(ultima, Math.max(fim[1], corrente.getKey() - 1));
+        }
+        ultimaSequencia = ultima;
+        sequenciaSincronizada = ultima;
+        if (canal == null) {
+            abrirSegmento(ultima + 1);
+        }
+    }
+
+    @Override
+    public long append(long fromId, long toId, long amountCents, long epochMillis) throws IOException {
+        if (buffer.remaining() < JournalRecord.TAMANHO) {
+            escrever();
+        }
+        JournalRecord.write(buffer, crc, ++ultimaSequencia, fromId, toId, amountCents, epochMillis);
+        return ultimaSequencia;
+    }
+
+    @Override
+    public void sync() throws IOException {
+        escrever();
+        if (sequenciaSincronizada == ultimaSequencia) {
+            return;
+        }
+        canal.force(false);
+        syncs++;
+        posicaoSincronizada = canal.position();
+        sequenciaSincronizada = ultimaSequencia;
+        if (posicaoSincronizada >= bytesPorSegmento) {
+            canal.close();
+            abrirSegmento(ultimaSequencia + 1);
+        }
+    }
+
+    @Override
+    public void discardUnsynced() throws IOException {
+        buffer.clear();
+        canal.truncate(posicaoSincronizada);
+        canal.position(posicaoSincronizada);
+        ultimaSequencia = sequenciaSincronizada;
+    }
+
+    @Override
+    public long lastSequence() {
+        return ultimaSequencia;
+    }
+
+    @Override
+    public long syncCount() {
+        return syncs;
+    }
+
+    @Override
+    public void replay(long afterSequence, Consumer<JournalRecord> consumer) throws IOException {
+        Path corrente = segmentos.lastEntry().getValue();
+        for (Path segmento : segmentos.values()) {
+            long limite = segmento.equals(corrente) ? posicaoSincronizada : Long.MAX_VALUE;
+            try (FileChannel leitura = FileChannel.open(segmento, StandardOpenOption.READ)) {
+                percorrer(leitura, limite, afterSequence, consumer);
+            }
+        }
+    }
+
+    @Override
+    public void truncateUpTo(long sequence) throws IOException {
+        deleteSegmentsUpTo(segmentos, sequence);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (canal != null && canal.isOpen()) {
+            sync();
+            canal.close();
+        }
+    }
+
+    private void abrirSegmento(long primeiraSequencia) throws IOException {
+        Path arquivo = segmentPath(dir, shard, primeiraSequencia);
+        canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        canal.position(canal.size());
+        posicaoSincronizada = canal.size();
+        segmentos.put(primeiraSequencia, arquivo);
+    }
+
+    private void escrever() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Lê os registros íntegros do canal a partir do início, até {@code limite} bytes.
+     *
+     * @return {bytes válidos, sequência do último registro válido}
+     */
+    static long[] percorrer(FileChannel origem, long limite, long afterSequence,
+                                    Consumer<JournalRecord> consumer) throws IOException {
+        ByteBuffer leitura = ByteBuffer.allocate(JournalRecord.TAMANHO * REGISTROS_POR_BUFFER);
+        CRC32C crc = new CRC32C();
+        long posicao = 0;
+        long ultima = 0;
+        long fim = Math.min(limite, origem.size());
+        while (posicao < fim) {
+            leitura.clear();
+            leitura.limit((int) Math.min(leitura.capacity(), fim - posicao));
+            int lidos = origem.read(leitura, posicao);
+            if (lidos <= 0) {
+                break;
+            }
+            leitura.flip();
+            JournalRecord record;
+            while ((record = JournalRecord.read(leitura, crc)) != null) {
+                posicao += JournalRecord.TAMANHO;
+                ultima = record.getSequence();
+                if (consumer != null && record.getSequence() > afterSequence) {
+                    consumer.accept(record);
+                }
+            }
+            if (leitura.hasRemaining() && leitura.remaining() >= JournalRecord.TAMANHO) {
+                break; // registro corrompido: fim do journal
+            }
+            if (leitura.position() == 0) {
+                break; // registro incompleto no fim do arquivo
+            }
+        }
+        return new long[]{posicao, ultima};
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.ejb.engine;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * Registro de tamanho fixo do journal de transferências.
+ *
+ * Layout ({@value #TAMANHO} bytes, big-endian): sequência, origem, destino, valor em
+ * centavos e instante (epoch millis), 8 bytes cada, seguidos do CRC32C dos 40 bytes
+ * anteriores e de 4 bytes de preenchimento. Um CRC inválido marca o fim do journal
+ * (escrita interrompida por queda do processo).
+ *
+ * Quem escreve ou lê passa o próprio {@link CRC32C}, reaproveitado registro a registro;
+ * o CRC é calculado sobre uma janela do mesmo buffer, sem cópia nem {@code duplicate()}.
+ */
+public final class JournalRecord {
+
+    public static final int TAMANHO = 48;
+
+    private static final int TAMANHO_DADOS = 40;
+
+    private final long sequence;
+    private final long fromId;
+    private final long toId;
+    private final long amountCents;
+    private final long epochMillis;
+
+    public JournalRecord(long sequence, long fromId, long toId, long amountCents, long epochMillis) {
+        this.sequence = sequence;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.amountCents = amountCents;
+        this.epochMillis = epochMillis;
+    }
+
+    /**
+     * Escreve um registro na posição corrente do buffer, sem alocar.
+     *
+     * @param crc CRC do escritor, reiniciado aqui
+     */
+    static void write(ByteBuffer buffer, CRC32C crc, long sequence, long fromId, long toId, long amountCents,
+                      long epochMillis) {
+        int inicio = buffer.position();
+        buffer.putLong(sequence)
+              .putLong(fromId)
+              .putLong(toId)
+              .putLong(amountCents)
+              .putLong(epochMillis);
+        buffer.putInt(crc(crc, buffer, inicio)).putInt(0);
+    }
+
+    /**
+     * Lê o registro na posição corrente do buffer.
+     *
+     * @param crc CRC do leitor, reiniciado aqui
+     * @return O registro, ou {@code null} se o CRC não conferir ou a área estiver vazia;
+     *         nesse caso a posição do buffer é preservada
+     */
+    static JournalRecord read(ByteBuffer buffer, CRC32C crc) {
+        int inicio = buffer.position();
+        if (buffer.remaining() < TAMANHO) {
+            return null;
+        }
+        long sequence = buffer.getLong(inicio);
+        if (sequence <= 0 || buffer.getInt(inicio + TAMANHO_DADOS) != crc(crc, buffer, inicio)) {
+            return null;
+        }
+        JournalRecord record = new JournalRecord(
+                sequence,
+                buffer.getLong(inicio + 8),
+                buffer.getLong(inicio + 16),
+                buffer.getLong(inicio + 24),
+                buffer.getLong(inicio + 32));
+        buffer.position(inicio + TAMANHO);
+        return record;
+    }
+
+    /**
+     * CRC dos dados do registro que começa em {@code inicio}. A posição e o limite do
+     * buffer são restaurados.
+     */
+    private static int crc(CRC32C crc, ByteBuffer buffer, int inicio) {
+        int posicao = buffer.position();
+        int limite = buffer.limit();
+        buffer.limit(inicio + TAMANHO_DADOS).position(inicio);
+        crc.reset();
+        crc.update(buffer);
+        buffer.limit(limite).position(posicao);
+        return (int) crc.getValue();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getFromId() {
+        return fromId;
+    }
+
+    public long getToId() {
+        return toId;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{" +
+                "sequence=" + sequence +
+                ", fromId=" + fromId +
+                ", toId=" + toId +
+                ", amountCents=" + amountCents +
+                ", epochMillis=" + epochMillis +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.ejb.engine;
+
+import com.example.ejb.model.Beneficio;
+import com.example.ejb.model.Centavos;
+import com.example.ejb.model.EngineCheckpoint;
+import com.example.ejb.model.Transferencia;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Acesso a banco da {@link ShardedTransferEngine}: carga de saldos e persistência
+ * assíncrona (write-behind) das transferências confirmadas no journal.
+ *
+ * As transferências são gravadas como lançamentos pendentes do ledger TRANSFERENCIA,
+ * consolidados em BENEFICIO.VALOR pelo {@link com.example.ejb.TransferenciaSnapshotService}.
+ */
+@Stateless
+public class LedgerEnginePersistence {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Carrega o saldo vigente de um benefício: VALOR (ou soma dos sub-saldos) mais os
+     * lançamentos pendentes do ledger.
+     *
+     * O lock na linha do benefício serializa a leitura com a consolidação do ledger,
+     * que move os pendentes para VALOR sob o mesmo lock.
+     *
+     * @return A conta, ou {@code null} se o benefício não existir
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public Conta carregarConta(Long id) {
+        Beneficio beneficio = em.find(Beneficio.class, id, LockModeType.PESSIMISTIC_WRITE);
+        if (beneficio == null) {
+            return null;
+        }
+        BigDecimal pendente = em.createNamedQuery(Transferencia.SALDO_PENDENTE, BigDecimal.class)
+                .setParameter("beneficioId", id)
+                .getSingleResult();
+        long saldo = Centavos.somar(Centavos.of(beneficio.getValor()), Centavos.of(pendente));
+        return new Conta(id, Boolean.TRUE.equals(beneficio.getAtivo()), saldo);
+    }
+
+    /**
+     * Grava as transferências duráveis no journal como lançamentos pendentes e avança o
+     * checkpoint de cada shard, na mesma transação.
+     *
+     * @param porShard Registros de cada shard, em ordem crescente de sequência
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void persistir(Map<Integer, List<JournalRecord>> porShard) {
+        for (Map.Entry<Integer, List<JournalRecord>> entrada : porShard.entrySet()) {
+            List<JournalRecord> records = entrada.getValue();
+            if (records.isEmpty()) {
+                continue;
+            }
+            for (JournalRecord record : records) {
+                em.persist(new Transferencia(
+                        record.getFromId(),
+                        record.getToId(),
+                        Centavos.toBigDecimal(record.getAmountCents()),
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(record.getEpochMillis()), ZoneId.systemDefault())));
+            }
+
+            long ultima = records.get(records.size() - 1).getSequence();
+            EngineCheckpoint checkpoint = em.find(EngineCheckpoint.class, entrada.getKey());
+            if (checkpoint == null) {
+                em.persist(new EngineCheckpoint(entrada.getKey(), ultima));
+            } else {
+                checkpoint.setSequencia(ultima);
+            }
+        }
+    }
+
+    /**
+     * Última sequência do journal do shard já persistida; 0 se nenhuma.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public long checkpoint(int shard) {
+        EngineCheckpoint checkpoint = em.find(EngineCheckpoint.class, shard);
+        return checkpoint != null ? checkpoint.getSequencia() : 0L;
+    }
+}
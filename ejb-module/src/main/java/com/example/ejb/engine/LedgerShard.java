@@ -0,0 +1,312 @@
+package com.example.ejb.engine;
+
+import com.example.ejb.dto.TransferOutcome;
+import jakarta.ejb.EJBException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shard de escritor único da {@link ShardedTransferEngine}.
+ *
+ * Uma única thread processa a fila do shard: valida o saldo da origem (validação 6),
+ * debita e anexa a transferência ao journal. Os débitos acumulados são tornados duráveis
+ * por um único fsync (group fsync) ao fim de cada grupo drenado da fila ou, com intervalo
+ * configurado, quando o intervalo desde o último fsync se esgota. Só então os créditos são enviados ao shard do destino, que
+ * completa o future do chamador depois de creditar. Assim o chamador só recebe a
+ * confirmação quando a transferência está durável e visível nas duas contas.
+ */
+final class LedgerShard implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(LedgerShard.class.getName());
+
+    private static final int MAX_COMANDOS_POR_GRUPO = 4096;
+
+    /**
+     * Débitos pendentes de fsync que antecipam o fim do intervalo.
+     */
+    private static final int MAX_DEBITOS_POR_SYNC = 16_384;
+
+    private final int indice;
+    private final TransferJournal journal;
+    private final ShardedTransferEngine engine;
+    private final BlockingQueue<Object> fila = new LinkedBlockingQueue<>();
+    private final Semaphore vagas;
+    private final int capacidade;
+    private final long intervaloSyncNanos;
+    private long ultimoSync = System.nanoTime();
+
+    /**
+     * Transferências duráveis ainda não persistidas no banco, em ordem de sequência.
+     */
+    private final Queue<JournalRecord> aPersistir = new ConcurrentLinkedQueue<>();
+
+    private final List<Debito> confirmando = new ArrayList<>();
+    private volatile boolean executando = true;
+    private volatile boolean falhou;
+
+    /**
+     * @param intervaloSyncNanos Intervalo mínimo entre fsyncs; 0 faz um fsync por grupo drenado
+     */
+    LedgerShard(int indice, TransferJournal journal, ShardedTransferEngine engine, int capacidade,
+                long intervaloSyncNanos) {
+        this.indice = indice;
+        this.intervaloSyncNanos = intervaloSyncNanos;
+        this.journal = journal;
+        this.engine = engine;
+        this.capacidade = capacidade;
+        this.vagas = new Semaphore(capacidade);
+    }
+
+    /**
+     * Enfileira o débito da origem. Chamado pela thread do chamador.
+     *
+     * @throws RejectedExecutionException se a fila do shard continuar cheia após a espera
+     */
+    CompletableFuture<TransferOutcome> debitar(Conta origem, Conta destino, long centavos, long esperaMillis) {
+        if (falhou) {
+            throw new EJBException("Shard " + indice + " indisponível após falha de journal");
+        }
+        try {
+            if (!vagas.tryAcquire(esperaMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Fila do shard " + indice + " cheia");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrompido aguardando a fila do shard " + indice, e);
+        }
+        Debito debito = new Debito(origem, destino, centavos);
+        fila.add(debito);
+        return debito.future;
+    }
+
+    /**
+     * Enfileira o crédito de uma transferência já durável. Chamado por outro shard.
+     */
+    void creditar(Debito debito) {
+        fila.add(new Credito(debito));
+    }
+
+    /**
+     * Informa que as transferências até {@code sequencia} já estão no banco.
+     */
+    void checkpoint(long sequencia) {
+        fila.add(new Checkpoint(sequencia));
+    }
+
+    Queue<JournalRecord> getAPersistir() {
+        return aPersistir;
+    }
+
+    int getIndice() {
+        return indice;
+    }
+
+    int getTamanhoFila() {
+        return fila.size();
+    }
+
+    long getSyncCount() {
+        return journal.syncCount();
+    }
+
+    /**
+     * Sem débitos pendentes nem comandos na fila.
+     */
+    boolean isOcioso() {
+        return vagas.availablePermits() == capacidade && fila.isEmpty();
+    }
+
+    void parar() {
+        executando = false;
+    }
+
+    @Override
+    public void run() {
+        List<Object> grupo = new ArrayList<>(MAX_COMANDOS_POR_GRUPO);
+        while (executando || !fila.isEmpty() || !confirmando.isEmpty()) {
+            try {
+                // Com débitos aguardando fsync, espera só até o fim do intervalo
+                long espera = confirmando.isEmpty()
+                        ? TimeUnit.MILLISECONDS.toNanos(100)
+                        : ultimoSync + intervaloSyncNanos - System.nanoTime();
+                Object primeiro = espera > 0 ? fila.poll(espera, TimeUnit.NANOSECONDS) : fila.poll();
+                if (primeiro != null) {
+                    grupo.add(primeiro);
+                    fila.drainTo(grupo, MAX_COMANDOS_POR_GRUPO - 1);
+                    processar(grupo);
+                }
+                if (!confirmando.isEmpty()
+                        && (System.nanoTime() - ultimoSync >= intervaloSyncNanos
+                            || confirmando.size() >= MAX_DEBITOS_POR_SYNC
+                            || !executando)) {
+                    sincronizar();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Falha inesperada no shard " + indice, e);
+            } finally {
+                grupo.clear();
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Falha ao fechar o journal do shard " + indice, e);
+        }
+    }
+
+    private void processar(List<Object> grupo) {
+        long agora = System.currentTimeMillis();
+        for (Object comando : grupo) {
+            if (comando instanceof Debito) {
+                try {
+                    aplicarDebito((Debito) comando, agora);
+                } catch (IOException e) {
+                    desfazer(e);
+                }
+            } else if (comando instanceof Credito) {
+                creditarDestino(((Credito) comando).debito);
+            } else {
+                truncar(((Checkpoint) comando).sequencia);
+            }
+        }
+    }
+
+    /**
+     * Group fsync: um único fsync para todos os débitos acumulados.
+     */
+    private void sincronizar() {
+        try {
+            journal.sync();
+            ultimoSync = System.nanoTime();
+            confirmar();
+        } catch (IOException e) {
+            desfazer(e);
+        }
+    }
+
+    private void truncar(long sequencia) {
+        try {
+            journal.truncateUpTo(sequencia);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Falha ao liberar segmentos do journal do shard " + indice, e);
+        }
+    }
+
+    private void aplicarDebito(Debito debito, long agora) throws IOException {
+        Conta origem = debito.origem;
+        if (falhou) {
+            rejeitar(debito, new EJBException("Shard " + indice + " indisponível após falha de journal"));
+            return;
+        }
+
+        // VALIDAÇÃO 6: Saldo suficiente, avaliado pelo único escritor da conta
+        if (origem.getSaldoCentavos() < debito.centavos) {
+            vagas.release();
+            debito.future.complete(TransferOutcome.saldoInsuficiente(
+                    origem.getId(), debito.destino.getId(), debito.centavos, origem.getSaldoCentavos()));
+            return;
+        }
+
+        origem.ajustar(-debito.centavos);
+        debito.saldoOrigem = origem.getSaldoCentavos();
+        confirmando.add(debito);
+        debito.sequencia = journal.append(origem.getId(), debito.destino.getId(), debito.centavos, agora);
+        debito.epochMillis = agora;
+    }
+
+    private void confirmar() {
+        for (Debito debito : confirmando) {
+            aPersistir.add(new JournalRecord(debito.sequencia, debito.origem.getId(),
+                    debito.destino.getId(), debito.centavos, debito.epochMillis));
+            LedgerShard shardDestino = engine.shardOf(debito.destino.getId());
+            if (shardDestino == this) {
+                creditarDestino(debito);
+            } else {
+                shardDestino.creditar(debito);
+            }
+            vagas.release();
+        }
+        confirmando.clear();
+    }
+
+    /**
+     * Falha de escrita no journal: os débitos do grupo não são duráveis, então são
+     * revertidos em memória e descartados do journal. O shard passa a recusar débitos.
+     */
+    private void desfazer(IOException causa) {
+        LOGGER.log(Level.SEVERE, "Falha de journal no shard " + indice + "; shard desativado", causa);
+        falhou = true;
+        try {
+            journal.discardUnsynced();
+        } catch (IOException e) {
+            causa.addSuppressed(e);
+        }
+        EJBException erro = new EJBException("Falha ao gravar o journal do shard " + indice, causa);
+        for (Debito debito : confirmando) {
+            debito.origem.ajustar(debito.centavos);
+            rejeitar(debito, erro);
+        }
+        confirmando.clear();
+    }
+
+    /**
+     * Crédito na thread do shard do destino, que completa o future do chamador.
+     */
+    private static void creditarDestino(Debito debito) {
+        Conta destino = debito.destino;
+        destino.ajustar(debito.centavos);
+        debito.future.complete(TransferOutcome.sucesso(debito.origem.getId(), destino.getId(),
+                debito.centavos, debito.saldoOrigem, destino.getSaldoCentavos()));
+    }
+
+    private void rejeitar(Debito debito, RuntimeException erro) {
+        vagas.release();
+        debito.future.completeExceptionally(erro);
+    }
+
+    private static final class Debito {
+        private final Conta origem;
+        private final Conta destino;
+        private final long centavos;
+        private final CompletableFuture<TransferOutcome> future = new CompletableFuture<>();
+        private long sequencia;
+        private long epochMillis;
+        private long saldoOrigem;
+
+        private Debito(Conta origem, Conta destino, long centavos) {
+            this.origem = origem;
+            this.destino = destino;
+            this.centavos = centavos;
+        }
+    }
+
+    private static final class Credito {
+        private final Debito debito;
+
+        private Credito(Debito debito) {
+            this.debito = debito;
+        }
+    }
+
+    private static final class Checkpoint {
+        private final long sequencia;
+
+        private Checkpoint(long sequencia) {
+            this.sequencia = sequencia;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.ejb.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link TransferJournal} em segmentos pré-alocados e mapeados em memória ({@link MappedByteBuffer}).
+ *
+ * O append copia o registro de tamanho fixo direto para a página mapeada, sem chamada de
+ * sistema; o {@link #sync()} faz um único {@code force} da faixa ainda não sincronizada.
+ * O espaço livre do segmento é zerado, de modo que a recuperação para no primeiro registro
+ * vazio ou com CRC inválido. Usa o mesmo formato e a mesma nomenclatura de arquivos do
+ * {@link FileTransferJournal}, e os dois podem ler os segmentos um do outro.
+ */
+public final class MappedTransferJournal implements TransferJournal {
+
+    private final Path dir;
+    private final int shard;
+    private final int bytesPorSegmento;
+
+    /**
+     * Primeira sequência de cada segmento -> arquivo; o último é o segmento corrente.
+     */
+    private final TreeMap<Long, Path> segmentos = new TreeMap<>();
+
+    /**
+     * Segmentos anteriores, já cheios, com registros ainda não sincronizados.
+     */
+    private final List<Regiao> anteriores = new ArrayList<>();
+    private final CRC32C crc = new CRC32C();
+
+    private FileChannel canal;
+    private MappedByteBuffer mapa;
+    private int posicaoSincronizada;
+    private long ultimaSequencia;
+    private long sequenciaSincronizada;
+    private volatile long syncs;
+
+    private MappedTransferJournal(Path dir, int shard, long bytesPorSegmento) {
+        this.dir = dir;
+        this.shard = shard;
+        long registros = Math.max(1, Math.min(bytesPorSegmento, Integer.MAX_VALUE) / JournalRecord.TAMANHO);
+        this.bytesPorSegmento = (int) (registros * JournalRecord.TAMANHO);
+    }
+
+    /**
+     * Abre o journal do shard, zerando o que houver depois do último registro íntegro.
+     *
+     * @param minSequence Sequência mínima já utilizada (ex.: checkpoint persistido)
+     * @param bytesPorSegmento Tamanho pré-alocado de cada segmento, arredondado para
+     *        múltiplo do tamanho do registro
+     */
+    public static MappedTransferJournal open(Path dir, int shard, long minSequence, long bytesPorSegmento)
+            throws IOException {
+        MappedTransferJournal journal = new MappedTransferJournal(dir, shard, bytesPorSegmento);
+        journal.abrir(minSequence);
+        return journal;
+    }
+
+    private void abrir(long minSequence) throws IOException {
+        Files.createDirectories(dir);
+        segmentos.putAll(FileTransferJournal.segmentsOf(dir, shard));
+
+        long ultima = minSequence;
+        if (segmentos.isEmpty()) {
+            mapearSegmento(ultima + 1);
+        } else {
+            Map.Entry<Long, Path> corrente = segmentos.lastEntry();
+            mapear(corrente.getValue());
+            long ultimaValida = corrente.getKey() - 1;
+            JournalRecord record;
+            while ((record = JournalRecord.read(mapa, crc)) != null) {
+                ultimaValida = record.getSequence();
+            }
+            // Páginas não sincronizadas podem ter chegado ao disco fora de ordem: tudo depois
+            // do último registro íntegro é zerado para não ressuscitar registros órfãos
+            posicaoSincronizada = mapa.position();
+            zerar(mapa, posicaoSincronizada, mapa.capacity());
+            forcar(mapa, posicaoSincronizada, mapa.capacity() - posicaoSincronizada);
+            ultima = Math.max(ultima, ultimaValida);
+        }
+        ultimaSequencia = ultima;
+        sequenciaSincronizada = ultima;
+    }
+
+    @Override
+    public long append(long fromId, long toId, long amountCents, long epochMillis) throws IOException {
+        if (mapa.remaining() < JournalRecord.TAMANHO) {
+            rolar();
+        }
+        JournalRecord.write(mapa, crc, ++ultimaSequencia, fromId, toId, amountCents, epochMillis);
+        return ultimaSequencia;
+    }
+
+    @Override
+    public void sync() throws IOException {
+        if (sequenciaSincronizada == ultimaSequencia) {
+            return;
+        }
+        for (Regiao regiao : anteriores) {
+            forcar(regiao.mapa, regiao.inicio, regiao.fim - regiao.inicio);
+            regiao.canal.close();
+        }
+        anteriores.clear();
+        int fim = mapa.position();
+        if (fim > posicaoSincronizada) {
+            forcar(mapa, posicaoSincronizada, fim - posicaoSincronizada);
+        }
+        syncs++;
+        posicaoSincronizada = fim;
+        sequenciaSincronizada = ultimaSequencia;
+    }
+
+    @Override
+    public void discardUnsynced() throws IOException {
+        for (Regiao regiao : anteriores) {
+            zerar(regiao.mapa, regiao.inicio, regiao.fim);
+            forcar(regiao.mapa, regiao.inicio, regiao.fim - regiao.inicio);
+            regiao.canal.close();
+        }
+        anteriores.clear();
+        int fim = mapa.position();
+        zerar(mapa, posicaoSincronizada, fim);
+        forcar(mapa, posicaoSincronizada, fim - posicaoSincronizada);
+        mapa.position(posicaoSincronizada);
+        ultimaSequencia = sequenciaSincronizada;
+    }
+
+    @Override
+    public long lastSequence() {
+        return ultimaSequencia;
+    }
+
+    @Override
+    public long syncCount() {
+        return syncs;
+    }
+
+    @Override
+    public void replay(long afterSequence, Consumer<JournalRecord> consumer) throws IOException {
+        Path corrente = segmentos.lastEntry().getValue();
+        for (Path segmento : segmentos.values()) {
+            long limite = segmento.equals(corrente) ? posicaoSincronizada : Long.MAX_VALUE;
+            try (FileChannel leitura = FileChannel.open(segmento, StandardOpenOption.READ)) {
+                FileTransferJournal.percorrer(leitura, limite, afterSequence, consumer);
+            }
+        }
+    }
+
+    @Override
+    public void truncateUpTo(long sequence) throws IOException {
+        FileTransferJournal.deleteSegmentsUpTo(segmentos, sequence);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (canal != null && canal.isOpen()) {
+            sync();
+            canal.close();
+        }
+    }
+
+    /**
+     * Segmento cheio: o corrente só é forçado no próximo sync, junto com o novo.
+     */
+    private void rolar() throws IOException {
+        if (mapa.position() > posicaoSincronizada) {
+            anteriores.add(new Regiao(canal, mapa, posicaoSincronizada, mapa.position()));
+        } else {
+            canal.close();
+        }
+        mapearSegmento(ultimaSequencia + 1);
+    }
+
+    private void mapearSegmento(long primeiraSequencia) throws IOException {
+        Path arquivo = FileTransferJournal.segmentPath(dir, shard, primeiraSequencia);
+        mapear(arquivo);
+        posicaoSincronizada = 0;
+        segmentos.put(primeiraSequencia, arquivo);
+    }
+
+    private void mapear(Path arquivo) throws IOException {
+        canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // Mapear além do tamanho do arquivo o estende (esparso, lido como zeros)
+        mapa = canal.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(bytesPorSegmento, canal.size()));
+    }
+
+    private static void zerar(MappedByteBuffer mapa, int inicio, int fim) {
+        int i = inicio;
+        for (; i + Long.BYTES <= fim; i += Long.BYTES) {
+            mapa.putLong(i, 0L);
+        }
+        for (; i < fim; i++) {
+            mapa.put(i, (byte) 0);
+        }
+    }
+
+    private static void forcar(MappedByteBuffer mapa, int inicio, int tamanho) throws IOException {
+        if (tamanho <= 0) {
+            return;
+        }
+        try {
+            mapa.force(inicio, tamanho);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class Regiao {
+        private final FileChannel canal;
+        private final MappedByteBuffer mapa;
+        private final int inicio;
+        private final int fim;
+
+        private Regiao(FileChannel canal, MappedByteBuffer mapa, int inicio, int fim) {
+            this.canal = canal;
+            this.mapa = mapa;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+    }
+}
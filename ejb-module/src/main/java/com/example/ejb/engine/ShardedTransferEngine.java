@@ -0,0 +1,398 @@
+package com.example.ejb.engine;
+
+import com.example.ejb.TransferService;
+import com.example.ejb.TransferValidations;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.dto.TransferOutcome.Status;
+import com.example.ejb.exception.BeneficioNotFoundException;
+import com.example.ejb.exception.TransferenciaInvalidaException;
+import com.example.ejb.model.Centavos;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.EJBException;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Engine de transferências com saldos em memória, alternativa ao {@link com.example.ejb.BeneficioEjbService}.
+ *
+ * Os benefícios são particionados por ID em shards de escritor único ({@link LedgerShard}).
+ * As validações 1 a 5 são feitas na thread do chamador e a validação 6 (saldo) na thread
+ * do shard da origem, sem nenhum lock de banco. A durabilidade vem do journal local de
+ * cada shard (fsync por grupo); o banco é atualizado de forma assíncrona, em lotes, como
+ * lançamentos pendentes do ledger TRANSFERENCIA (write-behind).
+ *
+ * Na inicialização, os registros do journal posteriores ao checkpoint de cada shard são
+ * reaplicados no banco antes de a engine aceitar transferências. Os saldos são carregados
+ * sob demanda, no primeiro uso de cada benefício.
+ *
+ * Com a engine habilitada, ela deve ser o único caminho de escrita dos saldos: alterações
+ * feitas por outro serviço (inclusive ativação/inativação) não são vistas pelos saldos já
+ * carregados até a próxima reinicialização.
+ *
+ * Configurável por propriedades de sistema: {@code bip.engine.enabled} (padrão false),
+ * {@code bip.engine.journalDir} (padrão data/bip-engine), {@code bip.engine.journal}
+ * ({@code mapped}, padrão, para {@link MappedTransferJournal} ou {@code file} para
+ * {@link FileTransferJournal}), {@code bip.engine.fsyncIntervalMicros} (padrão 0: um fsync
+ * por grupo drenado da fila), {@code bip.engine.shards} (padrão: número de processadores),
+ * {@code bip.engine.segmentBytes} (padrão 64 MiB) e {@code bip.engine.writeBehindMillis}
+ * (padrão 50).
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ShardedTransferEngine implements TransferService {
+
+    private static final Logger LOGGER = Logger.getLogger(ShardedTransferEngine.class.getName());
+
+    public static final String PROP_ENABLED = "bip.engine.enabled";
+    public static final String PROP_JOURNAL_DIR = "bip.engine.journalDir";
+    public static final String PROP_SHARDS = "bip.engine.shards";
+    public static final String PROP_SEGMENT_BYTES = "bip.engine.segmentBytes";
+    public static final String PROP_WRITE_BEHIND_MILLIS = "bip.engine.writeBehindMillis";
+    public static final String PROP_JOURNAL = "bip.engine.journal";
+    public static final String PROP_FSYNC_INTERVAL_MICROS = "bip.engine.fsyncIntervalMicros";
+
+    /**
+     * Máximo de registros por shard em cada transação de write-behind.
+     */
+    private static final int MAX_REGISTROS_POR_PERSISTENCIA = 5000;
+
+    private static final int CAPACIDADE_POR_SHARD = 65_536;
+    private static final long ESPERA_FILA_MILLIS = 1000;
+    private static final long ESPERA_PARADA_MILLIS = 5000;
+
+    @EJB
+    private LedgerEnginePersistence persistence;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    private final ConcurrentMap<Long, Conta> contas = new ConcurrentHashMap<>();
+
+    /**
+     * Registros lidos das filas dos shards e ainda não confirmados no banco; só acessado
+     * pelo write-behind.
+     */
+    private final TreeMap<Integer, List<JournalRecord>> naoPersistidos = new TreeMap<>();
+
+    private boolean journalMapeado = !"file".equalsIgnoreCase(System.getProperty(PROP_JOURNAL, "mapped"));
+    private long intervaloSyncNanos = TimeUnit.MICROSECONDS.toNanos(Long.getLong(PROP_FSYNC_INTERVAL_MICROS, 0L));
+
+    private LedgerShard[] shards;
+    private Thread[] threads;
+    private ScheduledFuture<?> writeBehind;
+    private volatile boolean ativa;
+
+    @PostConstruct
+    void iniciar() {
+        if (!Boolean.getBoolean(PROP_ENABLED)) {
+            LOGGER.log(Level.INFO, "Engine de transferências em memória desabilitada ({0}=false)", PROP_ENABLED);
+            return;
+        }
+        try {
+            iniciar(Paths.get(System.getProperty(PROP_JOURNAL_DIR, "data/bip-engine")),
+                    Integer.getInteger(PROP_SHARDS, Runtime.getRuntime().availableProcessors()),
+                    Long.getLong(PROP_SEGMENT_BYTES, 64L * 1024 * 1024));
+        } catch (IOException e) {
+            throw new EJBException("Falha ao recuperar o journal da engine de transferências", e);
+        }
+        long intervalo = Long.getLong(PROP_WRITE_BEHIND_MILLIS, 50L);
+        writeBehind = scheduler.scheduleWithFixedDelay(
+                this::persistirComSeguranca, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Recupera os journals do diretório e inicia as threads dos shards.
+     */
+    void iniciar(Path dir, int quantidadeShards, long bytesPorSegmento) throws IOException {
+        shards = new LedgerShard[quantidadeShards];
+        threads = new Thread[quantidadeShards];
+
+        // Shards de uma execução anterior com mais shards também são recuperados
+        Set<Integer> indices = new TreeSet<>(FileTransferJournal.shardsIn(dir));
+        for (int i = 0; i < quantidadeShards; i++) {
+            indices.add(i);
+        }
+        for (int indice : indices) {
+            TransferJournal journal = recuperar(dir, indice, bytesPorSegmento);
+            if (indice < quantidadeShards) {
+                shards[indice] = new LedgerShard(indice, journal, this, CAPACIDADE_POR_SHARD, intervaloSyncNanos);
+            } else {
+                journal.close();
+            }
+        }
+
+        for (int i = 0; i < quantidadeShards; i++) {
+            threads[i] = threadFactory != null ? threadFactory.newThread(shards[i]) : new Thread(shards[i]);
+            threads[i].setName("bip-engine-shard-" + i);
+            threads[i].start();
+        }
+        ativa = true;
+        LOGGER.log(Level.INFO, "Engine de transferências em memória iniciada: SHARDS={0}, JOURNAL={1}",
+                   new Object[]{quantidadeShards, dir});
+    }
+
+    /**
+     * Reaplica no banco os registros do journal posteriores ao checkpoint do shard.
+     */
+    private TransferJournal recuperar(Path dir, int indice, long bytesPorSegmento) throws IOException {
+        long checkpoint = persistence.checkpoint(indice);
+        TransferJournal journal = journalMapeado
+                ? MappedTransferJournal.open(dir, indice, checkpoint, bytesPorSegmento)
+                : FileTransferJournal.open(dir, indice, checkpoint, bytesPorSegmento);
+
+        List<JournalRecord> pendentes = new ArrayList<>();
+        journal.replay(checkpoint, pendentes::add);
+        for (int inicio = 0; inicio < pendentes.size(); inicio += MAX_REGISTROS_POR_PERSISTENCIA) {
+            List<JournalRecord> bloco = pendentes.subList(
+                    inicio, Math.min(inicio + MAX_REGISTROS_POR_PERSISTENCIA, pendentes.size()));
+            persistence.persistir(Collections.singletonMap(indice, bloco));
+        }
+        journal.truncateUpTo(journal.lastSequence());
+
+        if (!pendentes.isEmpty()) {
+            LOGGER.log(Level.INFO, "Journal do shard {0} reaplicado: REGISTROS={1}, CHECKPOINT={2}",
+                       new Object[]{indice, pendentes.size(), checkpoint});
+        }
+        return journal;
+    }
+
+    @PreDestroy
+    void parar() {
+        if (shards == null) {
+            return;
+        }
+        ativa = false;
+        if (writeBehind != null) {
+            writeBehind.cancel(false);
+        }
+
+        // Aguarda débitos e créditos em trânsito entre shards antes de parar as threads
+        long limite = System.currentTimeMillis() + ESPERA_PARADA_MILLIS;
+        try {
+            while (!todosOciosos() && System.currentTimeMillis() < limite) {
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (int i = 0; i < shards.length; i++) {
+            shards[i].parar();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(ESPERA_PARADA_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // O que não for persistido aqui continua no journal e é reaplicado na próxima inicialização
+        persistirComSeguranca();
+    }
+
+    private boolean todosOciosos() {
+        for (LedgerShard shard : shards) {
+            if (!shard.isOcioso()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Realiza transferência de valor entre dois benefícios em memória, com as mesmas seis
+     * validações de {@link com.example.ejb.BeneficioEjbService#transfer(Long, Long, BigDecimal)}.
+     * Retorna quando a transferência está durável no journal e aplicada às duas contas.
+     *
+     * @throws IllegalStateException se a engine estiver desabilitada
+     * @throws java.util.concurrent.RejectedExecutionException se a fila do shard estiver cheia
+     */
+    @Override
+    public void transfer(Long fromId, Long toId, BigDecimal amount) {
+        TransferOutcome outcome = tryTransfer(fromId, toId, amount);
+        if (!outcome.isSucesso()) {
+            throw outcome.toException();
+        }
+    }
+
+    /**
+     * Como {@link #transfer(Long, Long, BigDecimal)}, mas devolve as rejeições de negócio
+     * no {@link TransferOutcome}, com os saldos em memória. Nenhuma rejeição cria exceção:
+     * inexistência e inatividade são verificadas na thread do chamador, o saldo na thread
+     * do shard.
+     *
+     * @throws TransferenciaInvalidaException se parâmetros inválidos
+     * @throws IllegalStateException se a engine estiver desabilitada
+     * @throws java.util.concurrent.RejectedExecutionException se a fila do shard estiver cheia
+     */
+    @Override
+    public TransferOutcome tryTransfer(Long fromId, Long toId, BigDecimal amount) {
+        if (!ativa) {
+            throw new IllegalStateException("Engine de transferências em memória desabilitada (" + PROP_ENABLED + ")");
+        }
+
+        // VALIDAÇÕES 1 a 3: parâmetros não nulos, valor positivo e IDs diferentes
+        TransferValidations.validateParameters(fromId, toId, amount);
+        long centavos = TransferValidations.toCentavos(amount);
+
+        // VALIDAÇÃO 4: Benefícios devem existir
+        Conta origem = contaOuNull(fromId);
+        if (origem == null) {
+            return TransferOutcome.rejeitada(Status.ORIGEM_NAO_ENCONTRADA, fromId, toId, centavos);
+        }
+        Conta destino = contaOuNull(toId);
+        if (destino == null) {
+            return TransferOutcome.rejeitada(Status.DESTINO_NAO_ENCONTRADO, fromId, toId, centavos);
+        }
+
+        // VALIDAÇÃO 5: Benefícios devem estar ativos
+        if (!origem.isAtivo()) {
+            return TransferOutcome.rejeitada(Status.ORIGEM_INATIVA, fromId, toId, centavos);
+        }
+        if (!destino.isAtivo()) {
+            return TransferOutcome.rejeitada(Status.DESTINO_INATIVO, fromId, toId, centavos);
+        }
+
+        // VALIDAÇÃO 6 e débito/crédito nas threads dos shards
+        return aguardar(shardOf(fromId).debitar(origem, destino, centavos, ESPERA_FILA_MILLIS));
+    }
+
+    /**
+     * Saldo em memória de um benefício, carregando-o se necessário.
+     */
+    public BigDecimal saldo(Long id) {
+        return Centavos.toBigDecimal(conta(id).getSaldoCentavos());
+    }
+
+    private Conta conta(Long id) {
+        Conta conta = contaOuNull(id);
+        if (conta == null) {
+            throw new BeneficioNotFoundException(id);
+        }
+        return conta;
+    }
+
+    private Conta contaOuNull(Long id) {
+        Conta conta = contas.get(id);
+        if (conta != null) {
+            return conta;
+        }
+        Conta carregada = persistence.carregarConta(id);
+        if (carregada == null) {
+            return null;
+        }
+        Conta existente = contas.putIfAbsent(id, carregada);
+        return existente != null ? existente : carregada;
+    }
+
+    private static TransferOutcome aguardar(CompletableFuture<TransferOutcome> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new EJBException("Falha na transferência", e);
+        }
+    }
+
+    LedgerShard shardOf(long id) {
+        return shards[(int) Math.floorMod(id, (long) shards.length)];
+    }
+
+    /**
+     * Write-behind: grava em uma transação os registros duráveis de todos os shards e
+     * avança os checkpoints. Em caso de falha, os registros ficam retidos e são
+     * reenviados no próximo ciclo.
+     *
+     * @return Quantidade de registros persistidos
+     */
+    synchronized int persistirPendentes() {
+        int total = 0;
+        for (LedgerShard shard : shards) {
+            List<JournalRecord> lista = naoPersistidos.computeIfAbsent(shard.getIndice(), k -> new ArrayList<>());
+            JournalRecord record;
+            while (lista.size() < MAX_REGISTROS_POR_PERSISTENCIA && (record = shard.getAPersistir().poll()) != null) {
+                lista.add(record);
+            }
+            total += lista.size();
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        persistence.persistir(new TreeMap<>(naoPersistidos));
+
+        for (LedgerShard shard : shards) {
+            List<JournalRecord> lista = naoPersistidos.get(shard.getIndice());
+            if (!lista.isEmpty()) {
+                shard.checkpoint(lista.get(lista.size() - 1).getSequence());
+                // Nova lista: a anterior foi entregue ao serviço de persistência
+                naoPersistidos.put(shard.getIndice(), new ArrayList<>());
+            }
+        }
+        return total;
+    }
+
+    private void persistirComSeguranca() {
+        try {
+            persistirPendentes();
+        } catch (RuntimeException e) {
+            // Uma exceção não tratada cancelaria o agendamento do write-behind
+            LOGGER.log(Level.WARNING, "Falha no write-behind da engine de transferências; nova tentativa no próximo ciclo", e);
+        }
+    }
+
+    void setJournal(boolean mapeado, long intervaloSyncMicros) {
+        this.journalMapeado = mapeado;
+        this.intervaloSyncNanos = TimeUnit.MICROSECONDS.toNanos(intervaloSyncMicros);
+    }
+
+    public boolean isAtiva() {
+        return ativa;
+    }
+
+    /**
+     * Total de fsyncs de journal realizados pelos shards.
+     */
+    public long getSyncCount() {
+        long total = 0;
+        if (shards != null) {
+            for (LedgerShard shard : shards) {
+                total += shard.getSyncCount();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.ejb.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Journal append-only de transferências de um shard.
+ *
+ * Não é thread-safe: cada instância pertence à thread do seu shard. Um registro só é
+ * durável depois de {@link #sync()}; registros anexados e não sincronizados podem ser
+ * descartados com {@link #discardUnsynced()}.
+ */
+public interface TransferJournal extends Closeable {
+
+    /**
+     * Anexa um registro.
+     *
+     * @return Sequência atribuída ao registro (crescente, sem lacunas)
+     */
+    long append(long fromId, long toId, long amountCents, long epochMillis) throws IOException;
+
+    /**
+     * Torna duráveis todos os registros anexados até aqui (fsync).
+     */
+    void sync() throws IOException;
+
+    /**
+     * Descarta os registros anexados desde o último {@link #sync()}, que passam a não
+     * existir nem em uma recuperação.
+     */
+    void discardUnsynced() throws IOException;
+
+    /**
+     * Sequência do último registro anexado.
+     */
+    long lastSequence();
+
+    /**
+     * Quantidade de fsyncs efetivamente realizados desde a abertura.
+     */
+    long syncCount();
+
+    /**
+     * Percorre, em ordem, os registros sincronizados com sequência maior que a informada.
+     */
+    void replay(long afterSequence, Consumer<JournalRecord> consumer) throws IOException;
+
+    /**
+     * Libera o espaço dos registros com sequência até a informada, já persistidos em outro
+     * lugar. Implementações podem reter parte deles (ex.: o segmento corrente).
+     */
+    void truncateUpTo(long sequence) throws IOException;
+}
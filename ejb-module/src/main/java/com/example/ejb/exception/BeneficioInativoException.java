@@ -0,0 +1,29 @@
+package com.example.ejb.exception;
+
+import jakarta.ejb.ApplicationException;
+
+/**
+ * Exceção lançada quando a origem ou o destino de uma transferência está inativo.
+ * Subclasse de {@link TransferenciaInvalidaException}, que os chamadores já tratam, para
+ * que a rejeição possa ser distinguida de parâmetros inválidos.
+ * ApplicationException com rollback=true garante rollback da transação.
+ */
+@ApplicationException(rollback = true)
+public class BeneficioInativoException extends TransferenciaInvalidaException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long beneficioId;
+
+    /**
+     * @param prefixo Mensagem sem o ID, concatenado apenas na leitura
+     */
+    public BeneficioInativoException(String prefixo, Long beneficioId) {
+        super(prefixo, beneficioId);
+        this.beneficioId = beneficioId;
+    }
+
+    public Long getBeneficioId() {
+        return beneficioId;
+    }
+}
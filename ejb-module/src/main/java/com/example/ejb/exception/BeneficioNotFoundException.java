@@ -5,21 +5,42 @@ import jakarta.ejb.ApplicationException;
 /**
  * Exceção lançada quando um benefício não é encontrado.
  * ApplicationException com rollback=true garante rollback da transação.
+ *
+ * Rejeição de negócio rotineira: não captura stack trace e só monta a mensagem
+ * quando ela é lida.
  */
 @ApplicationException(rollback = true)
 public class BeneficioNotFoundException extends RuntimeException {
 
     private static final long serialVersionUID = 1L;
 
+    private final Long beneficioId;
+
     public BeneficioNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
+        this.beneficioId = null;
     }
 
     public BeneficioNotFoundException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
+        this.beneficioId = null;
     }
 
     public BeneficioNotFoundException(Long id) {
-        super("Benefício não encontrado com ID: " + id);
+        super(null, null, false, false);
+        this.beneficioId = id;
+    }
+
+    /**
+     * ID não encontrado, ou {@code null} se a exceção foi criada com uma mensagem pronta.
+     */
+    public Long getBeneficioId() {
+        return beneficioId;
+    }
+
+    @Override
+    public String getMessage() {
+        String message = super.getMessage();
+        return message != null ? message : "Benefício não encontrado com ID: " + beneficioId;
     }
 }
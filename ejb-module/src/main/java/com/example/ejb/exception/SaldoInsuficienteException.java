@@ -1,25 +1,73 @@
 package com.example.ejb.exception;
 
+import com.example.ejb.model.Centavos;
 import jakarta.ejb.ApplicationException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 /**
  * Exceção lançada quando há tentativa de transferência com saldo insuficiente.
  * ApplicationException com rollback=true garante rollback da transação.
+ *
+ * Rejeição de negócio rotineira: não captura stack trace e guarda saldo e valor em
+ * centavos, formatando a mensagem só quando ela é lida.
  */
 @ApplicationException(rollback = true)
 public class SaldoInsuficienteException extends RuntimeException {
 
     private static final long serialVersionUID = 1L;
 
+    private final Long beneficioId;
+    private final long saldoAtualCentavos;
+    private final long valorSolicitadoCentavos;
+
     public SaldoInsuficienteException(String message) {
-        super(message);
+        super(message, null, false, false);
+        this.beneficioId = null;
+        this.saldoAtualCentavos = 0;
+        this.valorSolicitadoCentavos = 0;
     }
 
     public SaldoInsuficienteException(Long beneficioId, BigDecimal saldoAtual, BigDecimal valorSolicitado) {
-        super(String.format(
+        // Mesmo arredondamento do %.2f da mensagem
+        this(beneficioId, Centavos.of(saldoAtual.setScale(2, RoundingMode.HALF_UP)),
+             Centavos.of(valorSolicitado.setScale(2, RoundingMode.HALF_UP)));
+    }
+
+    /**
+     * Saldo e valor em centavos, como no caminho de transferência ({@link Centavos}).
+     */
+    public SaldoInsuficienteException(Long beneficioId, long saldoAtualCentavos, long valorSolicitadoCentavos) {
+        super(null, null, false, false);
+        this.beneficioId = beneficioId;
+        this.saldoAtualCentavos = saldoAtualCentavos;
+        this.valorSolicitadoCentavos = valorSolicitadoCentavos;
+    }
+
+    /**
+     * ID do benefício de origem, ou {@code null} se a exceção foi criada com uma mensagem pronta.
+     */
+    public Long getBeneficioId() {
+        return beneficioId;
+    }
+
+    public BigDecimal getSaldoAtual() {
+        return Centavos.toBigDecimal(saldoAtualCentavos);
+    }
+
+    public BigDecimal getValorSolicitado() {
+        return Centavos.toBigDecimal(valorSolicitadoCentavos);
+    }
+
+    @Override
+    public String getMessage() {
+        String message = super.getMessage();
+        if (message != null || beneficioId == null) {
+            return message;
+        }
+        return String.format(
             "Saldo insuficiente no benefício ID %d. Saldo atual: R$ %.2f, Valor solicitado: R$ %.2f",
-            beneficioId, saldoAtual, valorSolicitado
-        ));
+            beneficioId, getSaldoAtual(), getValorSolicitado()
+        );
     }
 }
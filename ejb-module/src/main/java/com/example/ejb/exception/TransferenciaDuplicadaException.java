@@ -0,0 +1,33 @@
+package com.example.ejb.exception;
+
+import jakarta.ejb.ApplicationException;
+
+/**
+ * Exceção lançada quando outra requisição confirma a mesma chave de idempotência durante
+ * a transferência. A inserção da chave falhou e a transação do chamador já está marcada
+ * para rollback: nenhum outro trabalho dela pode ser confirmado.
+ * ApplicationException com rollback=true garante rollback da transação.
+ *
+ * Não captura stack trace: a colisão é esperada com clientes que repetem requisições.
+ */
+@ApplicationException(rollback = true)
+public class TransferenciaDuplicadaException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String chave;
+
+    public TransferenciaDuplicadaException(String chave) {
+        super(null, null, false, false);
+        this.chave = chave;
+    }
+
+    public String getChave() {
+        return chave;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Chave de idempotência confirmada por outra requisição: " + chave;
+    }
+}
@@ -5,17 +5,39 @@ import jakarta.ejb.ApplicationException;
 /**
  * Exceção lançada quando os parâmetros de transferência são inválidos.
  * ApplicationException com rollback=true garante rollback da transação.
+ *
+ * Rejeição de negócio rotineira: não captura stack trace e, no construtor com
+ * detalhe, só concatena a mensagem quando ela é lida.
  */
 @ApplicationException(rollback = true)
 public class TransferenciaInvalidaException extends RuntimeException {
 
     private static final long serialVersionUID = 1L;
 
+    private final Object detalhe;
+
     public TransferenciaInvalidaException(String message) {
-        super(message);
+        super(message, null, false, false);
+        this.detalhe = null;
     }
 
     public TransferenciaInvalidaException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
+        this.detalhe = null;
+    }
+
+    /**
+     * Mensagem formada por um prefixo fixo e um detalhe (ex.: o ID do benefício),
+     * concatenados apenas em {@link #getMessage()}.
+     */
+    public TransferenciaInvalidaException(String prefixo, Object detalhe) {
+        super(prefixo, null, false, false);
+        this.detalhe = detalhe;
+    }
+
+    @Override
+    public String getMessage() {
+        String message = super.getMessage();
+        return detalhe == null ? message : message + detalhe;
     }
 }
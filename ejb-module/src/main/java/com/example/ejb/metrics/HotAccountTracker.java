@@ -0,0 +1,95 @@
+package com.example.ejb.metrics;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benefícios quentes em tempo real, para decidir onde aplicar particionamento
+ * ({@code BeneficioSubSaldoService}) ou limite de taxa.
+ *
+ * Dois {@link HotKeySketch}: um conta as transferências em que cada benefício aparece
+ * (origem ou destino) e outro soma, em microssegundos, a espera pelos locks dessas
+ * transferências. A espera é atribuída aos dois benefícios, pois os locks são adquiridos
+ * em par; o benefício que de fato causa a fila aparece nas duas listas. Os pesos caem pela
+ * metade a cada minuto, portanto o relatório reflete os últimos minutos de carga.
+ *
+ * Configurável por propriedades de sistema: {@code bip.transfer.hotAccounts.topK}
+ * (padrão 20) e {@code bip.transfer.hotAccounts.width} (contadores por linha do sketch,
+ * padrão 4096, com 4 linhas).
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class HotAccountTracker {
+
+    public static final String PROP_TOP_K = "bip.transfer.hotAccounts.topK";
+    public static final String PROP_WIDTH = "bip.transfer.hotAccounts.width";
+
+    private static final int PROFUNDIDADE = 4;
+
+    private final HotKeySketch transferencias;
+    private final HotKeySketch esperaLock;
+
+    public HotAccountTracker() {
+        this(Integer.getInteger(PROP_WIDTH, 4096), Integer.getInteger(PROP_TOP_K, 20));
+    }
+
+    HotAccountTracker(int largura, int k) {
+        this.transferencias = new HotKeySketch(PROFUNDIDADE, largura, k);
+        this.esperaLock = new HotKeySketch(PROFUNDIDADE, largura, k);
+    }
+
+    /**
+     * Registra uma transferência já validada e a espera pelos locks dela.
+     */
+    public void record(long fromId, long toId, long lockWaitNanos) {
+        transferencias.add(fromId, 1L);
+        transferencias.add(toId, 1L);
+        long micros = TimeUnit.NANOSECONDS.toMicros(lockWaitNanos);
+        if (micros > 0) {
+            esperaLock.add(fromId, micros);
+            esperaLock.add(toId, micros);
+        }
+    }
+
+    /**
+     * Benefícios que mais aparecem em transferências, com a quantidade estimada.
+     */
+    public List<HotKeySketch.Entry> getTopTransfers() {
+        return transferencias.top();
+    }
+
+    /**
+     * Benefícios com maior espera por lock, com o total estimado em microssegundos.
+     */
+    public List<HotKeySketch.Entry> getTopLockWait() {
+        return esperaLock.top();
+    }
+
+    /**
+     * Total de participações em transferências (duas por transferência), base das
+     * estimativas de {@link #getTopTransfers()}.
+     */
+    public long getTotalTransfers() {
+        return transferencias.getTotal();
+    }
+
+    /**
+     * Espera total por locks, em microssegundos, base de {@link #getTopLockWait()}.
+     */
+    public long getTotalLockWaitMicros() {
+        return esperaLock.getTotal();
+    }
+
+    /**
+     * Divide os pesos por dois, a cada minuto.
+     */
+    @Schedule(minute = "*", hour = "*", persistent = false)
+    public void decay() {
+        transferencias.decay();
+        esperaLock.decay();
+    }
+}
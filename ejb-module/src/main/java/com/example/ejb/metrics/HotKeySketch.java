@@ -0,0 +1,218 @@
+package com.example.ejb.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chaves mais pesadas de um fluxo: count-min sketch com as K maiores guardadas à parte.
+ *
+ * O sketch estima o peso acumulado de cada chave em memória fixa
+ * ({@code profundidade × largura} contadores), sem nunca subestimar; o erro é limitado
+ * por {@code 2/largura} do peso total com probabilidade {@code 1 - 2^-profundidade}.
+ * Incrementos são lock-free, inclusive os de uma chave já guardada, que só elevam a
+ * estimativa da {@link Entry} dela. O monitor é tomado apenas para admitir uma chave nova
+ * cuja estimativa supera o menor peso entre as K (o limiar); a ordenação fica para
+ * {@link #top()}.
+ *
+ * {@link #decay()} divide todos os pesos por dois, para que o relatório acompanhe a
+ * carga recente.
+ */
+public final class HotKeySketch {
+
+    /**
+     * Chave e peso estimado, como aparecem no relatório.
+     */
+    public static final class Entry {
+
+        private static final AtomicLongFieldUpdater<Entry> ESTIMATIVA =
+                AtomicLongFieldUpdater.newUpdater(Entry.class, "estimativa");
+
+        private final long id;
+        private volatile long estimativa;
+
+        Entry(long id, long estimativa) {
+            this.id = id;
+            this.estimativa = estimativa;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getEstimativa() {
+            return estimativa;
+        }
+
+        /**
+         * Eleva a estimativa, sem nunca reduzi-la: incrementos concorrentes chegam fora de ordem.
+         */
+        void elevar(long nova) {
+            long atual;
+            while ((atual = estimativa) < nova && !ESTIMATIVA.compareAndSet(this, atual, nova)) {
+                // outra thread elevou antes; confere de novo
+            }
+        }
+    }
+
+    private static final Comparator<Entry> POR_ESTIMATIVA = Comparator.comparingLong(e -> e.estimativa);
+
+    private final int profundidade;
+    private final int mask;
+    private final AtomicLongArray contadores;
+    private final LongAdder total = new LongAdder();
+
+    private final int k;
+    private final Map<Long, Entry> porId;
+
+    /**
+     * Menor estimativa entre as K guardadas na última admissão, quando já são K; 0 antes
+     * disso. As guardadas só crescem entre um {@link #decay()} e outro, então o limiar
+     * nunca supera o menor peso real: uma candidata acima dele ainda pode ficar de fora,
+     * e a recusa atualiza o limiar.
+     */
+    private volatile long limiar;
+
+    /**
+     * @param profundidade Funções de hash (linhas do sketch)
+     * @param largura Contadores por linha, arredondado para potência de 2
+     * @param k Quantidade de chaves no relatório
+     */
+    public HotKeySketch(int profundidade, int largura, int k) {
+        int n = largura <= 1 ? 1 : Integer.highestOneBit((largura - 1) << 1);
+        this.profundidade = profundidade;
+        this.mask = n - 1;
+        this.contadores = new AtomicLongArray(profundidade * n);
+        this.k = k;
+        this.porId = new ConcurrentHashMap<>(k * 2);
+    }
+
+    /**
+     * Acrescenta peso a uma chave. Pesos não positivos são ignorados.
+     */
+    public void add(long id, long peso) {
+        if (peso <= 0) {
+            return;
+        }
+        total.add(peso);
+        long estimativa = Long.MAX_VALUE;
+        for (int linha = 0; linha < profundidade; linha++) {
+            long valor = contadores.addAndGet(indice(linha, id), peso);
+            estimativa = Math.min(estimativa, valor);
+        }
+        if (estimativa <= limiar) {
+            return;
+        }
+        Entry guardada = porId.get(id);
+        if (guardada != null) {
+            guardada.elevar(estimativa);
+        } else {
+            admitir(id, estimativa);
+        }
+    }
+
+    /**
+     * Guarda uma chave nova, no lugar da mais leve se já houver K. Varre as K guardadas:
+     * admissões são raras perto dos incrementos, e a varredura dispensa manter um heap
+     * ordenado a cada incremento.
+     */
+    private synchronized void admitir(long id, long estimativa) {
+        Entry guardada = porId.get(id);
+        if (guardada != null) {
+            guardada.elevar(estimativa);
+            return;
+        }
+        if (porId.size() < k) {
+            porId.put(id, new Entry(id, estimativa));
+            atualizarLimiar();
+            return;
+        }
+        Entry menor = menor();
+        if (estimativa > menor.estimativa) {
+            porId.remove(menor.id);
+            porId.put(id, new Entry(id, estimativa));
+        }
+        atualizarLimiar();
+    }
+
+    private Entry menor() {
+        Entry menor = null;
+        for (Entry entry : porId.values()) {
+            if (menor == null || entry.estimativa < menor.estimativa) {
+                menor = entry;
+            }
+        }
+        return menor;
+    }
+
+    private void atualizarLimiar() {
+        limiar = porId.size() < k ? 0L : menor().estimativa;
+    }
+
+    /**
+     * Peso estimado de uma chave (nunca menor que o real desde o último {@link #decay()}).
+     */
+    public long estimate(long id) {
+        long estimativa = Long.MAX_VALUE;
+        for (int linha = 0; linha < profundidade; linha++) {
+            estimativa = Math.min(estimativa, contadores.get(indice(linha, id)));
+        }
+        return estimativa;
+    }
+
+    /**
+     * Peso total acrescentado, para calcular a participação de cada chave.
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * As K chaves mais pesadas, da maior para a menor.
+     */
+    public synchronized List<Entry> top() {
+        List<Entry> top = new ArrayList<>(porId.size());
+        for (Entry entry : porId.values()) {
+            top.add(new Entry(entry.id, entry.estimativa));
+        }
+        top.sort(POR_ESTIMATIVA.reversed());
+        return top;
+    }
+
+    /**
+     * Divide todos os pesos por dois. Incrementos concorrentes podem perder a divisão de
+     * um contador, o que só atrasa o esquecimento.
+     */
+    public synchronized void decay() {
+        for (int i = 0; i < contadores.length(); i++) {
+            long valor = contadores.get(i);
+            contadores.compareAndSet(i, valor, valor >>> 1);
+        }
+        long atual = total.sumThenReset();
+        total.add(atual >>> 1);
+        // Um incremento concorrente de chave guardada pode elevar a estimativa já dividida
+        for (Iterator<Entry> it = porId.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            entry.estimativa = entry.estimativa >>> 1;
+            if (entry.estimativa == 0) {
+                it.remove();
+            }
+        }
+        atualizarLimiar();
+    }
+
+    private int indice(int linha, long id) {
+        // splitmix64 com uma semente por linha
+        long h = id + (linha + 1) * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return linha * (mask + 1) + ((int) h & mask);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.ejb.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Eventos do JDK Flight Recorder emitidos por {@link TransferSpan}.
+ *
+ * Todos levam os IDs da transferência e a faixa do valor; a duração de cada evento é a
+ * do trecho medido. Sem pilha: o volume é de vários eventos por transferência.
+ */
+final class TransferEvents {
+
+    private TransferEvents() {
+    }
+
+    @Category({"BIP", "Transferências"})
+    @StackTrace(false)
+    abstract static class Base extends Event {
+
+        @Label("Origem")
+        long fromId;
+
+        @Label("Destino")
+        long toId;
+
+        @Label("Faixa de valor")
+        @Description("Maior potência de 10 que não excede o valor, em centavos; 0 se o valor for inválido")
+        long amountBucket;
+    }
+
+    @Name("com.example.bip.Transfer")
+    @Label("Transferência")
+    @Description("Método de negócio da transferência, da entrada ao retorno")
+    static final class Transferencia extends Base {
+
+        @Label("Modo")
+        String mode;
+
+        @Label("Desfecho")
+        @Description("sucesso, motivo da rejeição ou erro")
+        String outcome;
+    }
+
+    @Name("com.example.bip.LockAcquire")
+    @Label("Aquisição de lock")
+    @Description("Espera por um lock de benefício (memory: AccountLockManager; row: PESSIMISTIC_WRITE)")
+    static final class AquisicaoLock extends Base {
+
+        @Label("Benefício")
+        long accountId;
+
+        @Label("Lock")
+        String lock;
+    }
+
+    @Name("com.example.bip.LockHold")
+    @Label("Retenção de lock")
+    @Description("Tempo com o lock de um benefício retido, até o fim da transação")
+    static final class RetencaoLock extends Base {
+
+        @Label("Benefício")
+        long accountId;
+
+        @Label("Lock")
+        String lock;
+    }
+
+    @Name("com.example.bip.TransferRejected")
+    @Label("Transferência rejeitada")
+    @Description("Rejeição de negócio ou de parâmetros, com a duração desde o início da transferência")
+    static final class Rejeicao extends Base {
+
+        @Label("Motivo")
+        String reason;
+
+        @Label("Situação")
+        String status;
+    }
+
+    @Name("com.example.bip.TransferCommit")
+    @Label("Commit da transferência")
+    @Description("Do retorno do método de negócio ao fim da transação do container")
+    static final class Commit extends Base {
+
+        @Label("Confirmada")
+        boolean committed;
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.ejb.metrics;
+
+import com.example.ejb.TransferMode;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.exception.BeneficioInativoException;
+import com.example.ejb.exception.BeneficioNotFoundException;
+import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.exception.TransferenciaInvalidaException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métricas Micrometer das transferências unitárias ({@code tryTransfer} e {@code transfer})
+ * e em lote ({@code transferBatch}).
+ *
+ * <ul>
+ *   <li>{@code bip.transfer}: duração do método de negócio, por {@code mode} e {@code outcome}
+ *       ({@code sucesso}, um dos {@link Motivo motivos de rejeição} ou {@code erro});</li>
+ *   <li>{@code bip.transfer.lock.wait}: espera pelos locks, com {@code lock=memory}
+ *       ({@code AccountLockManager}) ou {@code lock=row} (SELECT/find com PESSIMISTIC_WRITE).
+ *       No modo set-based o lock de linha é obtido dentro do próprio UPDATE e não é medido
+ *       à parte;</li>
+ *   <li>{@code bip.transfer.lock.hold}: retenção dos locks, também por {@code lock}, até o
+ *       fim da transação do container; sem transação JTA, o de memória até o fim do método
+ *       de negócio e o de linha não é medido;</li>
+ *   <li>{@code bip.transfer.flush}: flush antecipado do modo otimista;</li>
+ *   <li>{@code bip.transfer.commit}: do retorno do método de negócio ao fim da transação
+ *       do container (flush restante e commit), por {@code status} ({@code committed} ou
+ *       {@code rolledback});</li>
+ *   <li>{@code bip.transfer.batch}: duração do lote inteiro, por {@code outcome}
+ *       ({@code sucesso} ou {@code erro}). As esperas pelos locks do lote entram em
+ *       {@code bip.transfer.lock.wait};</li>
+ *   <li>{@code bip.transfer.rejections}: rejeições por {@code reason}, inclusive as de
+ *       itens de lote;</li>
+ *   <li>{@code bip.transfer.in.flight}: transferências em andamento neste nó, contando
+ *       cada item dos lotes em andamento.</li>
+ * </ul>
+ *
+ * Os meters são criados uma vez e indexados por ordinal: o caminho da transferência não
+ * consulta o registro. No container, usa o registro global do Micrometer, ao qual o
+ * Spring Boot Actuator do backend-module acrescenta o seu; sem nenhum registro
+ * acrescentado, as medições não têm efeito.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class TransferMetrics {
+
+    /**
+     * Motivos de rejeição contados em {@code bip.transfer.rejections}.
+     */
+    public enum Motivo {
+        SALDO_INSUFICIENTE,
+        INATIVO,
+        NAO_ENCONTRADO,
+        PARAMETROS_INVALIDOS;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+
+        /**
+         * Motivo de uma rejeição devolvida em {@link TransferOutcome}, ou {@code null} no sucesso.
+         */
+        public static Motivo of(TransferOutcome.Status status) {
+            switch (status) {
+                case ORIGEM_NAO_ENCONTRADA:
+                case DESTINO_NAO_ENCONTRADO:
+                    return NAO_ENCONTRADO;
+                case ORIGEM_INATIVA:
+                case DESTINO_INATIVO:
+                    return INATIVO;
+                case SALDO_INSUFICIENTE:
+                    return SALDO_INSUFICIENTE;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Motivo de uma rejeição lançada como exceção, ou {@code null} se a exceção não
+         * for de negócio (conflito otimista, deadlock, erro de banco).
+         */
+        public static Motivo of(RuntimeException erro) {
+            if (erro instanceof SaldoInsuficienteException) {
+                return SALDO_INSUFICIENTE;
+            }
+            if (erro instanceof BeneficioNotFoundException) {
+                return NAO_ENCONTRADO;
+            }
+            if (erro instanceof BeneficioInativoException) {
+                return INATIVO;
+            }
+            if (erro instanceof TransferenciaInvalidaException) {
+                return PARAMETROS_INVALIDOS;
+            }
+            return null;
+        }
+    }
+
+    private static final TransferMode[] MODOS = TransferMode.values();
+    private static final Motivo[] MOTIVOS = Motivo.values();
+
+    /**
+     * Colunas de {@link #duracao}: sucesso, um por motivo e erro.
+     */
+    private static final int SUCESSO = 0;
+    private static final int ERRO = MOTIVOS.length + 1;
+
+    private final AtomicInteger emAndamento = new AtomicInteger();
+    private final Timer[][] duracao = new Timer[MODOS.length][MOTIVOS.length + 2];
+    private final Counter[] rejeicoes = new Counter[MOTIVOS.length];
+    private Timer loteConcluido;
+    private Timer loteComErro;
+    private Timer esperaLockMemoria;
+    private Timer esperaLockLinha;
+    private Timer retencaoLockMemoria;
+    private Timer retencaoLockLinha;
+    private Timer flush;
+    private Timer commitConfirmado;
+    private Timer commitDesfeito;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    /**
+     * Construtor do container: os meters são registrados no {@link PostConstruct}, e não
+     * aqui, para que proxies do bean não disputem o registro com a instância real.
+     */
+    public TransferMetrics() {
+    }
+
+    public TransferMetrics(MeterRegistry registry) {
+        registrar(registry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        registrar(Metrics.globalRegistry);
+    }
+
+    private void registrar(MeterRegistry registry) {
+        for (TransferMode modo : MODOS) {
+            String tagModo = modo.name().toLowerCase(Locale.ROOT);
+            duracao[modo.ordinal()][SUCESSO] = duracao(registry, tagModo, "sucesso");
+            for (Motivo motivo : MOTIVOS) {
+                duracao[modo.ordinal()][motivo.ordinal() + 1] = duracao(registry, tagModo, motivo.tag);
+            }
+            duracao[modo.ordinal()][ERRO] = duracao(registry, tagModo, "erro");
+        }
+        for (Motivo motivo : MOTIVOS) {
+            rejeicoes[motivo.ordinal()] = Counter.builder("bip.transfer.rejections")
+                    .description("Transferências rejeitadas, por motivo")
+                    .tag("reason", motivo.tag)
+                    .register(registry);
+        }
+        esperaLockMemoria = esperaLock(registry, "memory");
+        esperaLockLinha = esperaLock(registry, "row");
+        retencaoLockMemoria = retencaoLock(registry, "memory");
+        retencaoLockLinha = retencaoLock(registry, "row");
+        flush = Timer.builder("bip.transfer.flush")
+                .description("Flush antecipado do modo otimista")
+                .register(registry);
+        commitConfirmado = commit(registry, "committed");
+        commitDesfeito = commit(registry, "rolledback");
+        loteConcluido = lote(registry, "sucesso");
+        loteComErro = lote(registry, "erro");
+        Gauge.builder("bip.transfer.in.flight", emAndamento, AtomicInteger::get)
+                .description("Transferências em andamento")
+                .register(registry);
+    }
+
+    private static Timer duracao(MeterRegistry registry, String modo, String resultado) {
+        return Timer.builder("bip.transfer")
+                .description("Duração do método de negócio da transferência")
+                .tag("mode", modo)
+                .tag("outcome", resultado)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Timer lote(MeterRegistry registry, String resultado) {
+        return Timer.builder("bip.transfer.batch")
+                .description("Duração do lote de transferências")
+                .tag("outcome", resultado)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Timer esperaLock(MeterRegistry registry, String lock) {
+        return Timer.builder("bip.transfer.lock.wait")
+                .description("Espera pelos locks da transferência")
+                .tag("lock", lock)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Timer retencaoLock(MeterRegistry registry, String lock) {
+        return Timer.builder("bip.transfer.lock.hold")
+                .description("Retenção dos locks da transferência")
+                .tag("lock", lock)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Timer commit(MeterRegistry registry, String status) {
+        return Timer.builder("bip.transfer.commit")
+                .description("Do fim do método de negócio ao fim da transação")
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Marca o início de uma transferência.
+     *
+     * @return {@link System#nanoTime()} do início, a repassar a {@code recordOutcome}
+     *         ou {@code recordFailure}
+     */
+    public long start() {
+        emAndamento.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Registra uma transferência concluída com um {@link TransferOutcome}.
+     */
+    public void recordOutcome(long inicio, TransferMode modo, TransferOutcome.Status status) {
+        Motivo motivo = Motivo.of(status);
+        terminar(inicio, modo, motivo == null ? SUCESSO : motivo.ordinal() + 1);
+        if (motivo != null) {
+            rejeicoes[motivo.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Registra uma transferência que terminou em exceção.
+     */
+    public void recordFailure(long inicio, TransferMode modo, RuntimeException erro) {
+        Motivo motivo = Motivo.of(erro);
+        terminar(inicio, modo, motivo == null ? ERRO : motivo.ordinal() + 1);
+        if (motivo != null) {
+            rejeicoes[motivo.ordinal()].increment();
+        }
+    }
+
+    private void terminar(long inicio, TransferMode modo, int resultado) {
+        duracao[modo.ordinal()][resultado].record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        emAndamento.decrementAndGet();
+    }
+
+    /**
+     * Marca o início de um lote de transferências.
+     *
+     * @param itens Tamanho do lote, somado às transferências em andamento
+     * @return {@link System#nanoTime()} do início, a repassar a {@code recordBatch}
+     *         ou {@code recordBatchFailure}
+     */
+    public long startBatch(int itens) {
+        emAndamento.addAndGet(itens);
+        return System.nanoTime();
+    }
+
+    /**
+     * Conta a rejeição de um item de lote, se o status não for de sucesso.
+     */
+    public void recordBatchItem(TransferOutcome.Status status) {
+        Motivo motivo = Motivo.of(status);
+        if (motivo != null) {
+            rejeicoes[motivo.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Conta a rejeição de um item de lote por parâmetros inválidos.
+     */
+    public void recordBatchItem(RuntimeException erro) {
+        Motivo motivo = Motivo.of(erro);
+        if (motivo != null) {
+            rejeicoes[motivo.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Registra um lote concluído, com ou sem itens rejeitados.
+     */
+    public void recordBatch(long inicio, int itens) {
+        loteConcluido.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        emAndamento.addAndGet(-itens);
+    }
+
+    /**
+     * Registra um lote que terminou em exceção.
+     */
+    public void recordBatchFailure(long inicio, int itens) {
+        loteComErro.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        emAndamento.addAndGet(-itens);
+    }
+
+    public void recordMemoryLockWait(long nanos) {
+        esperaLockMemoria.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRowLockWait(long nanos) {
+        esperaLockLinha.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param nanos Retenção do lock em memória; valores negativos (lock não adquirido) são ignorados
+     */
+    public void recordMemoryLockHold(long nanos) {
+        if (nanos >= 0) {
+            retencaoLockMemoria.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordFlush(long nanos) {
+        flush.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Mede, a partir de agora, o restante da transação JTA corrente: flush pendente e
+     * commit (ou rollback). O fim da transação também encerra a retenção dos locks de linha
+     * e em memória do {@link TransferSpan}, medida em {@code bip.transfer.lock.hold}. Sem
+     * transação do container (testes, benchmarks), nada é medido e os locks de linha do span
+     * são dados como liberados.
+     */
+    public void timeCommit(TransferSpan span) {
+        if (txRegistry == null || txRegistry.getTransactionKey() == null) {
+            span.lockReleased(TransferSpan.Lock.ROW);
+            return;
+        }
+        long inicio = System.nanoTime();
+        span.completing();
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                boolean confirmada = status == Status.STATUS_COMMITTED;
+                Timer timer = confirmada ? commitConfirmado : commitDesfeito;
+                timer.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                long retencao = span.completed(confirmada);
+                if (retencao >= 0) {
+                    retencaoLockLinha.record(retencao, TimeUnit.NANOSECONDS);
+                }
+                recordMemoryLockHold(span.lockReleased(TransferSpan.Lock.MEMORY));
+            }
+        });
+    }
+
+    /**
+     * Transferências em andamento neste nó.
+     */
+    public int getInFlight() {
+        return emAndamento.get();
+    }
+}
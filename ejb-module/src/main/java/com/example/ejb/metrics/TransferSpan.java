@@ -0,0 +1,318 @@
+package com.example.ejb.metrics;
+
+import com.example.ejb.TransferMode;
+import com.example.ejb.dto.TransferOutcome;
+import java.util.Locale;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+
+/**
+ * Eventos do JDK Flight Recorder de uma transferência unitária, para acompanhar filas de
+ * lock em produção com gravação contínua ({@code -XX:StartFlightRecording}):
+ *
+ * <ul>
+ *   <li>{@code com.example.bip.Transfer}: o método de negócio inteiro, com modo e desfecho;</li>
+ *   <li>{@code com.example.bip.LockAcquire}: espera por lock, um evento por benefício;</li>
+ *   <li>{@code com.example.bip.LockHold}: lock retido, um evento por benefício. Os locks
+ *       em memória e de linha são retidos até o fim da transação (ou até a exceção, quando
+ *       ela desfaz a transação); sem transação JTA, o de memória até o fim do método;</li>
+ *   <li>{@code com.example.bip.TransferRejected}: rejeição de negócio ou de parâmetros;</li>
+ *   <li>{@code com.example.bip.TransferCommit}: do fim do método ao fim da transação.</li>
+ * </ul>
+ *
+ * Os eventos são criados só quando {@code com.example.bip.Transfer} está habilitado em
+ * alguma gravação; o estado do evento é conferido quando uma gravação começa ou termina e
+ * fica em um campo, de modo que sem gravação nenhum evento é alocado. O span em si continua
+ * sendo criado por transferência: ele guarda o instante de aquisição de cada tipo de lock,
+ * de onde {@link TransferMetrics} tira o tempo de retenção ({@code bip.transfer.lock.hold}).
+ * Uso restrito à thread da transferência.
+ */
+public final class TransferSpan {
+
+    /**
+     * Locks medidos, com a tag do campo {@code lock} dos eventos.
+     */
+    public enum Lock {
+        MEMORY,
+        ROW;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final Lock[] LOCKS = Lock.values();
+
+    private static final long NAO_ADQUIRIDO = Long.MIN_VALUE;
+
+    private static final EventType TRANSFERENCIA = EventType.getEventType(TransferEvents.Transferencia.class);
+
+    /**
+     * Se {@code com.example.bip.Transfer} está habilitado, atualizado a cada mudança de estado
+     * das gravações. Uma alteração de configuração em gravação já iniciada só é vista na
+     * próxima mudança de estado.
+     */
+    private static volatile boolean habilitado;
+
+    static {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recordingStateChanged(Recording recording) {
+                habilitado = TRANSFERENCIA.isEnabled();
+            }
+        });
+        // Gravações iniciadas antes desta classe (-XX:StartFlightRecording) não notificam
+        habilitado = TRANSFERENCIA.isEnabled();
+    }
+
+    /**
+     * Origem, destino e um lock de linha em aberto por benefício, além dos de memória.
+     */
+    private static final int MAX_LOCKS = 4;
+
+    private final TransferEvents.Transferencia transferencia;
+    private final TransferEvents.Rejeicao rejeicao;
+    private final long fromId;
+    private final long toId;
+    private long faixa;
+
+    private final TransferEvents.AquisicaoLock[] aquisicoes = new TransferEvents.AquisicaoLock[2];
+    private int aguardando;
+    private final TransferEvents.RetencaoLock[] retidos = new TransferEvents.RetencaoLock[MAX_LOCKS];
+    private TransferEvents.Commit commit;
+
+    /**
+     * Por {@link Lock}: {@link System#nanoTime()} da primeira aquisição ainda não liberada.
+     */
+    private final long[] adquiridoEm = {NAO_ADQUIRIDO, NAO_ADQUIRIDO};
+    private Lock solicitado;
+    private long esperaNanos;
+
+    private TransferSpan(TransferEvents.Transferencia transferencia, Long fromId, Long toId) {
+        this.transferencia = transferencia;
+        this.rejeicao = transferencia == null ? null : new TransferEvents.Rejeicao();
+        this.fromId = id(fromId);
+        this.toId = id(toId);
+    }
+
+    /**
+     * Abre o evento da transferência. IDs nulos são registrados como 0.
+     */
+    public static TransferSpan begin(Long fromId, Long toId) {
+        if (!habilitado) {
+            return new TransferSpan(null, fromId, toId);
+        }
+        TransferEvents.Transferencia transferencia = new TransferEvents.Transferencia();
+        if (!transferencia.isEnabled()) {
+            return new TransferSpan(null, fromId, toId);
+        }
+        TransferSpan span = new TransferSpan(transferencia, fromId, toId);
+        transferencia.begin();
+        span.rejeicao.begin();
+        return span;
+    }
+
+    /**
+     * Informa o valor já validado, em centavos.
+     */
+    public void amount(long centavos) {
+        if (transferencia != null) {
+            faixa = faixa(centavos);
+        }
+    }
+
+    /**
+     * Marca o início da espera pelo lock de um ou dois benefícios.
+     *
+     * @param segundo {@code null} quando só um benefício é bloqueado
+     */
+    public void lockRequested(Lock lock, Long primeiro, Long segundo) {
+        solicitado = lock;
+        if (transferencia == null) {
+            return;
+        }
+        aguardando = 0;
+        aquisicoes[aguardando++] = aquisicao(lock, primeiro);
+        if (segundo != null) {
+            aquisicoes[aguardando++] = aquisicao(lock, segundo);
+        }
+    }
+
+    /**
+     * Encerra a espera marcada em {@link #lockRequested} e passa a medir a retenção.
+     *
+     * @param esperaNanos Espera medida por quem adquiriu o lock, somada em {@link #getLockWaitNanos()}
+     */
+    public void lockAcquired(long esperaNanos) {
+        this.esperaNanos += esperaNanos;
+        if (adquiridoEm[solicitado.ordinal()] == NAO_ADQUIRIDO) {
+            adquiridoEm[solicitado.ordinal()] = System.nanoTime();
+        }
+        if (transferencia == null) {
+            return;
+        }
+        for (int i = 0; i < aguardando; i++) {
+            TransferEvents.AquisicaoLock aquisicao = aquisicoes[i];
+            aquisicoes[i] = null;
+            aquisicao.commit();
+            reter(aquisicao);
+        }
+        aguardando = 0;
+    }
+
+    /**
+     * Encerra a retenção dos locks do tipo informado.
+     *
+     * @return Tempo de retenção em nanossegundos, desde a primeira aquisição; negativo se
+     *         nenhum lock do tipo foi adquirido
+     */
+    public long lockReleased(Lock lock) {
+        long adquirido = adquiridoEm[lock.ordinal()];
+        adquiridoEm[lock.ordinal()] = NAO_ADQUIRIDO;
+        long retencao = adquirido == NAO_ADQUIRIDO ? -1L : System.nanoTime() - adquirido;
+        if (transferencia == null) {
+            return retencao;
+        }
+        for (int i = 0; i < retidos.length; i++) {
+            TransferEvents.RetencaoLock retido = retidos[i];
+            if (retido != null && lock.tag.equals(retido.lock)) {
+                retidos[i] = null;
+                retido.commit();
+            }
+        }
+        return retencao;
+    }
+
+    /**
+     * Espera total pelos locks adquiridos até aqui, em nanossegundos.
+     */
+    public long getLockWaitNanos() {
+        return esperaNanos;
+    }
+
+    /**
+     * Fecha o evento da transferência concluída com um {@link TransferOutcome}, e o de
+     * rejeição se ela não teve sucesso.
+     */
+    public void end(TransferMode modo, TransferOutcome.Status status) {
+        if (transferencia == null) {
+            return;
+        }
+        TransferMetrics.Motivo motivo = TransferMetrics.Motivo.of(status);
+        fechar(modo, motivo == null ? "sucesso" : motivo.tag);
+        if (motivo != null) {
+            rejeitar(motivo, status.name());
+        }
+    }
+
+    /**
+     * Fecha o evento da transferência que terminou em exceção. Uma espera em andamento
+     * (timeout de lock) é registrada até aqui; como a transação será desfeita, todos os
+     * locks ainda retidos são dados como liberados.
+     */
+    public void end(TransferMode modo, RuntimeException erro) {
+        if (transferencia == null) {
+            for (Lock lock : LOCKS) {
+                adquiridoEm[lock.ordinal()] = NAO_ADQUIRIDO;
+            }
+            return;
+        }
+        for (int i = 0; i < aguardando; i++) {
+            aquisicoes[i].commit();
+            aquisicoes[i] = null;
+        }
+        aguardando = 0;
+        TransferMetrics.Motivo motivo = TransferMetrics.Motivo.of(erro);
+        fechar(modo, motivo == null ? "erro" : motivo.tag);
+        if (motivo != null) {
+            rejeitar(motivo, erro.getClass().getSimpleName());
+        }
+        for (Lock lock : LOCKS) {
+            lockReleased(lock);
+        }
+    }
+
+    /**
+     * Início do commit pelo container, logo após o retorno do método de negócio.
+     */
+    void completing() {
+        if (transferencia != null) {
+            commit = preencher(new TransferEvents.Commit());
+            commit.begin();
+        }
+    }
+
+    /**
+     * Fim da transação: fecha o evento de commit e libera os locks de linha.
+     *
+     * @return Tempo de retenção dos locks de linha, como em {@link #lockReleased(Lock)}
+     */
+    long completed(boolean confirmada) {
+        if (commit != null) {
+            commit.committed = confirmada;
+            commit.commit();
+            commit = null;
+        }
+        return lockReleased(Lock.ROW);
+    }
+
+    private void fechar(TransferMode modo, String outcome) {
+        preencher(transferencia);
+        transferencia.mode = modo == null ? null : modo.name();
+        transferencia.outcome = outcome;
+        transferencia.commit();
+    }
+
+    private void rejeitar(TransferMetrics.Motivo motivo, String status) {
+        preencher(rejeicao);
+        rejeicao.reason = motivo.tag;
+        rejeicao.status = status;
+        rejeicao.commit();
+    }
+
+    private TransferEvents.AquisicaoLock aquisicao(Lock lock, Long id) {
+        TransferEvents.AquisicaoLock aquisicao = preencher(new TransferEvents.AquisicaoLock());
+        aquisicao.accountId = id(id);
+        aquisicao.lock = lock.tag;
+        aquisicao.begin();
+        return aquisicao;
+    }
+
+    private void reter(TransferEvents.AquisicaoLock aquisicao) {
+        TransferEvents.RetencaoLock retido = preencher(new TransferEvents.RetencaoLock());
+        retido.accountId = aquisicao.accountId;
+        retido.lock = aquisicao.lock;
+        retido.begin();
+        for (int i = 0; i < retidos.length; i++) {
+            if (retidos[i] == null) {
+                retidos[i] = retido;
+                return;
+            }
+        }
+    }
+
+    private <E extends TransferEvents.Base> E preencher(E evento) {
+        evento.fromId = fromId;
+        evento.toId = toId;
+        evento.amountBucket = faixa;
+        return evento;
+    }
+
+    private static long id(Long id) {
+        return id == null ? 0L : id;
+    }
+
+    /**
+     * Maior potência de 10 que não excede o valor em centavos, ou 0 para valores não positivos.
+     */
+    static long faixa(long centavos) {
+        if (centavos <= 0) {
+            return 0L;
+        }
+        long faixa = 1L;
+        while (faixa <= centavos / 10) {
+            faixa *= 10;
+        }
+        return faixa;
+    }
+}
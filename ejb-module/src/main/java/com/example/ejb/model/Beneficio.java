@@ -1,12 +1,14 @@
 package com.example.ejb.model;
 
 import jakarta.persistence.*;
-import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -15,10 +17,62 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "BENEFICIO")
+@NamedQuery(
+    name = Beneficio.FIND_BY_IDS_ORDERED,
+    query = "SELECT b FROM Beneficio b WHERE b.id IN :ids ORDER BY b.id"
+)
+@NamedQuery(
+    name = Beneficio.FIND_NAO_PARTICIONADOS_BY_IDS_ORDERED,
+    query = "SELECT b FROM Beneficio b WHERE b.id IN :ids AND b.subSaldos = 0 ORDER BY b.id"
+)
+@NamedQuery(
+    name = Beneficio.FIND_ESTADO_BY_IDS,
+    query = "SELECT b.id, b.ativo, b.valor, b.subSaldos FROM Beneficio b WHERE b.id IN :ids"
+)
+@NamedQuery(
+    name = Beneficio.DEBITAR_SE_SALDO_SUFICIENTE,
+    query = "UPDATE Beneficio b SET b.valor = b.valor - :valor, b.version = b.version + 1 "
+          + "WHERE b.id = :id AND b.ativo = true AND b.subSaldos = 0 AND b.valor >= :valor"
+)
+@NamedQuery(
+    name = Beneficio.CREDITAR_SE_ATIVO,
+    query = "UPDATE Beneficio b SET b.valor = b.valor + :valor, b.version = b.version + 1 "
+          + "WHERE b.id = :id AND b.ativo = true AND b.subSaldos = 0"
+)
 public class Beneficio implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Busca benefícios por uma lista de IDs em ordem crescente de ID.
+     * Usada com PESSIMISTIC_WRITE para adquirir locks sempre na mesma ordem.
+     */
+    public static final String FIND_BY_IDS_ORDERED = "Beneficio.findByIdsOrdered";
+
+    /**
+     * Como {@link #FIND_BY_IDS_ORDERED}, mas só benefícios não particionados: com
+     * PESSIMISTIC_WRITE, bloqueia apenas as linhas cujo saldo está em VALOR.
+     */
+    public static final String FIND_NAO_PARTICIONADOS_BY_IDS_ORDERED = "Beneficio.findNaoParticionadosByIdsOrdered";
+
+    /**
+     * Projeção (id, ativo, valor em centavos, subSaldos) sem carregar entidades; usada para diagnosticar
+     * por que um UPDATE condicional não afetou nenhuma linha.
+     */
+    public static final String FIND_ESTADO_BY_IDS = "Beneficio.findEstadoByIds";
+
+    /**
+     * Débito condicional: só afeta a linha se o benefício estiver ativo, não particionado
+     * e com saldo suficiente. O parâmetro {@code valor} é em centavos.
+     */
+    public static final String DEBITAR_SE_SALDO_SUFICIENTE = "Beneficio.debitarSeSaldoSuficiente";
+
+    /**
+     * Crédito condicional: só afeta a linha se o benefício estiver ativo e não particionado.
+     * O parâmetro {@code valor} é em centavos.
+     */
+    public static final String CREDITAR_SE_ATIVO = "Beneficio.creditarSeAtivo";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "ID")
@@ -33,14 +87,34 @@ public class Beneficio implements Serializable {
     @Column(name = "DESCRICAO", length = 255)
     private String descricao;
 
+    /**
+     * Saldo em centavos; a coluna continua DECIMAL(15,2) ({@link CentavosConverter}).
+     * Parâmetros de JPQL comparados com {@code valor} são informados em centavos.
+     */
     @NotNull(message = "Valor é obrigatório")
-    @DecimalMin(value = "0.0", inclusive = true, message = "Valor não pode ser negativo")
+    @Min(value = 0, message = "Valor não pode ser negativo")
+    @Convert(converter = CentavosConverter.class)
     @Column(name = "VALOR", nullable = false, precision = 15, scale = 2)
-    private BigDecimal valor;
+    private Long valor;
 
     @Column(name = "ATIVO")
     private Boolean ativo = true;
 
+    /**
+     * Quantidade de sub-saldos (slots) em que o benefício está particionado.
+     * Zero indica benefício comum, com o saldo inteiro em VALOR.
+     */
+    @Column(name = "SUB_SALDOS", nullable = false)
+    private Integer subSaldos = 0;
+
+    /**
+     * Slots de saldo de um benefício particionado, carregados sob demanda.
+     */
+    @OneToMany(fetch = FetchType.LAZY)
+    @JoinColumn(name = "BENEFICIO_ID", insertable = false, updatable = false)
+    @OrderBy("slot")
+    private List<BeneficioSubSaldo> slots = new ArrayList<>();
+
     /**
      * Campo VERSION para Optimistic Locking.
      * Incrementado automaticamente pelo JPA a cada atualização.
@@ -56,7 +130,7 @@ public class Beneficio implements Serializable {
     public Beneficio(String nome, String descricao, BigDecimal valor) {
         this.nome = nome;
         this.descricao = descricao;
-        this.valor = valor;
+        setValor(valor);
         this.ativo = true;
     }
 
@@ -85,12 +159,38 @@ public class Beneficio implements Serializable {
         this.descricao = descricao;
     }
 
+    /**
+     * Saldo do benefício. Para um benefício particionado é a soma dos sub-saldos,
+     * já que VALOR fica zerado enquanto os slots guardam o saldo.
+     */
     public BigDecimal getValor() {
-        return valor;
+        if (!isParticionado()) {
+            return valor == null ? null : Centavos.toBigDecimal(valor);
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (BeneficioSubSaldo slot : slots) {
+            total = total.add(slot.getValor());
+        }
+        return total;
     }
 
+    /**
+     * @throws ArithmeticException se o valor tiver mais de duas casas decimais
+     */
     public void setValor(BigDecimal valor) {
-        this.valor = valor;
+        this.valor = valor == null ? null : Centavos.of(valor);
+    }
+
+    /**
+     * VALOR em centavos, sem alocação; usado no caminho de transferência. Para um benefício
+     * particionado é zero, já que o saldo fica nos sub-saldos.
+     */
+    public long getValorCentavos() {
+        return valor;
+    }
+
+    public void setValorCentavos(long valorCentavos) {
+        this.valor = valorCentavos;
     }
 
     public Boolean getAtivo() {
@@ -101,6 +201,22 @@ public class Beneficio implements Serializable {
         this.ativo = ativo;
     }
 
+    public Integer getSubSaldos() {
+        return subSaldos;
+    }
+
+    public void setSubSaldos(Integer subSaldos) {
+        this.subSaldos = subSaldos;
+    }
+
+    public boolean isParticionado() {
+        return subSaldos != null && subSaldos > 0;
+    }
+
+    public List<BeneficioSubSaldo> getSlots() {
+        return slots;
+    }
+
     public Long getVersion() {
         return version;
     }
@@ -128,8 +244,9 @@ public class Beneficio implements Serializable {
         return "Beneficio{" +
                 "id=" + id +
                 ", nome='" + nome + '\'' +
-                ", valor=" + valor +
+                ", valor=" + (valor == null ? null : Centavos.formatar(valor)) +
                 ", ativo=" + ativo +
+                ", subSaldos=" + subSaldos +
                 ", version=" + version +
                 '}';
     }
@@ -0,0 +1,168 @@
+package com.example.ejb.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Entidade JPA que representa um sub-saldo (slot) de um benefício particionado.
+ * Transferências contra um benefício muito disputado atualizam slots diferentes,
+ * cada um com o seu próprio lock de linha, em vez de serializarem em BENEFICIO.
+ */
+@Entity
+@Table(
+    name = "BENEFICIO_SUB_SALDO",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"BENEFICIO_ID", "SLOT"})
+)
+@NamedQuery(
+    name = BeneficioSubSaldo.FIND_BY_BENEFICIO,
+    query = "SELECT s FROM BeneficioSubSaldo s WHERE s.beneficioId = :beneficioId ORDER BY s.slot"
+)
+@NamedQuery(
+    name = BeneficioSubSaldo.SOMAR_POR_BENEFICIO,
+    query = "SELECT COALESCE(SUM(s.valor), 0) FROM BeneficioSubSaldo s WHERE s.beneficioId = :beneficioId"
+)
+@NamedQuery(
+    name = BeneficioSubSaldo.SLOTS_COM_SALDO,
+    query = "SELECT s.slot FROM BeneficioSubSaldo s WHERE s.beneficioId = :beneficioId AND s.valor >= :valor"
+)
+@NamedQuery(
+    name = BeneficioSubSaldo.DEBITAR_SE_SALDO_SUFICIENTE,
+    query = "UPDATE BeneficioSubSaldo s SET s.valor = s.valor - :valor, s.version = s.version + 1 "
+          + "WHERE s.beneficioId = :beneficioId AND s.slot = :slot AND s.valor >= :valor"
+)
+@NamedQuery(
+    name = BeneficioSubSaldo.CREDITAR,
+    query = "UPDATE BeneficioSubSaldo s SET s.valor = s.valor + :valor, s.version = s.version + 1 "
+          + "WHERE s.beneficioId = :beneficioId AND s.slot = :slot"
+)
+public class BeneficioSubSaldo implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Slots de um benefício em ordem de slot (ordem canônica de lock).
+     */
+    public static final String FIND_BY_BENEFICIO = "BeneficioSubSaldo.findByBeneficio";
+
+    /**
+     * Saldo total de um benefício particionado.
+     */
+    public static final String SOMAR_POR_BENEFICIO = "BeneficioSubSaldo.somarPorBeneficio";
+
+    /**
+     * Slots com saldo suficiente para um débito, lidos sem lock.
+     */
+    public static final String SLOTS_COM_SALDO = "BeneficioSubSaldo.slotsComSaldo";
+
+    /**
+     * Débito condicional em um slot: só afeta a linha se o slot tiver saldo suficiente.
+     */
+    public static final String DEBITAR_SE_SALDO_SUFICIENTE = "BeneficioSubSaldo.debitarSeSaldoSuficiente";
+
+    /**
+     * Crédito atômico em um slot.
+     */
+    public static final String CREDITAR = "BeneficioSubSaldo.creditar";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ID")
+    private Long id;
+
+    @NotNull(message = "Benefício é obrigatório")
+    @Column(name = "BENEFICIO_ID", nullable = false)
+    private Long beneficioId;
+
+    @NotNull(message = "Slot é obrigatório")
+    @Column(name = "SLOT", nullable = false)
+    private Integer slot;
+
+    @NotNull(message = "Valor é obrigatório")
+    @DecimalMin(value = "0.0", inclusive = true, message = "Valor não pode ser negativo")
+    @Column(name = "VALOR", nullable = false, precision = 15, scale = 2)
+    private BigDecimal valor;
+
+    @Version
+    @Column(name = "VERSION")
+    private Long version;
+
+    // Construtores
+    public BeneficioSubSaldo() {
+    }
+
+    public BeneficioSubSaldo(Long beneficioId, Integer slot, BigDecimal valor) {
+        this.beneficioId = beneficioId;
+        this.slot = slot;
+        this.valor = valor;
+    }
+
+    // Getters e Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getBeneficioId() {
+        return beneficioId;
+    }
+
+    public void setBeneficioId(Long beneficioId) {
+        this.beneficioId = beneficioId;
+    }
+
+    public Integer getSlot() {
+        return slot;
+    }
+
+    public void setSlot(Integer slot) {
+        this.slot = slot;
+    }
+
+    public BigDecimal getValor() {
+        return valor;
+    }
+
+    public void setValor(BigDecimal valor) {
+        this.valor = valor;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    // equals e hashCode baseados no ID
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BeneficioSubSaldo that = (BeneficioSubSaldo) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "BeneficioSubSaldo{" +
+                "id=" + id +
+                ", beneficioId=" + beneficioId +
+                ", slot=" + slot +
+                ", valor=" + valor +
+                ", version=" + version +
+                '}';
+    }
+}
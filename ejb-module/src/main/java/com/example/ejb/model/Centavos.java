@@ -0,0 +1,73 @@
+package com.example.ejb.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valores monetários como quantidade de centavos em um {@code long}.
+ *
+ * O caminho quente das transferências compara, soma e subtrai saldos sem alocar
+ * {@link BigDecimal}; a conversão só acontece nas bordas (parâmetros da API, colunas
+ * DECIMAL(15,2) via {@link CentavosConverter} e mensagens de erro). As operações
+ * aritméticas lançam {@link ArithmeticException} em caso de overflow, em vez de
+ * dar a volta silenciosamente.
+ */
+public final class Centavos {
+
+    /**
+     * Maior valor representável em uma coluna DECIMAL(15,2): 9.999.999.999.999,99.
+     */
+    public static final long MAXIMO_DECIMAL_15_2 = 999_999_999_999_999L;
+
+    private Centavos() {
+    }
+
+    /**
+     * Converte um valor com até duas casas decimais para centavos.
+     *
+     * @throws ArithmeticException se o valor tiver mais de duas casas decimais significativas
+     *         ou não couber em long
+     */
+    public static long of(BigDecimal valor) {
+        return valor.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Valor em centavos como {@link BigDecimal} de escala 2.
+     */
+    public static BigDecimal toBigDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    /**
+     * @throws ArithmeticException em caso de overflow
+     */
+    public static long somar(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * @throws ArithmeticException em caso de overflow
+     */
+    public static long subtrair(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Formata os centavos como {@code 1234.56}, sem passar por {@link BigDecimal}.
+     */
+    public static String formatar(long centavos) {
+        StringBuilder sb = new StringBuilder(24);
+        if (centavos < 0) {
+            sb.append('-');
+        }
+        // Long.MIN_VALUE não tem módulo em long: a divisão é feita com resto negativo
+        long reais = Math.abs(centavos / 100);
+        int resto = (int) Math.abs(centavos % 100);
+        sb.append(reais).append('.');
+        if (resto < 10) {
+            sb.append('0');
+        }
+        return sb.append(resto).toString();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.ejb.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.math.BigDecimal;
+
+/**
+ * Mapeia um atributo em centavos ({@link Long}) para uma coluna DECIMAL(15,2).
+ *
+ * Aplicado explicitamente com {@code @Convert}; parâmetros de JPQL comparados com o
+ * atributo (ex.: {@code b.valor >= :valor}) também passam pelo conversor, portanto
+ * devem ser informados em centavos.
+ */
+@Converter
+public class CentavosConverter implements AttributeConverter<Long, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long centavos) {
+        if (centavos == null) {
+            return null;
+        }
+        if (centavos > Centavos.MAXIMO_DECIMAL_15_2 || centavos < -Centavos.MAXIMO_DECIMAL_15_2) {
+            throw new ArithmeticException("Valor não cabe em DECIMAL(15,2): " + Centavos.formatar(centavos));
+        }
+        return Centavos.toBigDecimal(centavos);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal valor) {
+        return valor == null ? null : Centavos.of(valor);
+    }
+}
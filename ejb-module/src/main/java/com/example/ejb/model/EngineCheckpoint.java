@@ -0,0 +1,67 @@
+package com.example.ejb.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Entidade JPA com a última sequência do journal de um shard da engine em memória
+ * já persistida em TRANSFERENCIA.
+ */
+@Entity
+@Table(name = "ENGINE_CHECKPOINT")
+public class EngineCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "SHARD")
+    private Integer shard;
+
+    @Column(name = "SEQUENCIA", nullable = false)
+    private Long sequencia;
+
+    // Construtores
+    public EngineCheckpoint() {
+    }
+
+    public EngineCheckpoint(Integer shard, Long sequencia) {
+        this.shard = shard;
+        this.sequencia = sequencia;
+    }
+
+    // Getters e Setters
+    public Integer getShard() {
+        return shard;
+    }
+
+    public Long getSequencia() {
+        return sequencia;
+    }
+
+    public void setSequencia(Long sequencia) {
+        this.sequencia = sequencia;
+    }
+
+    // equals e hashCode baseados no shard
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EngineCheckpoint that = (EngineCheckpoint) o;
+        return Objects.equals(shard, that.shard);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(shard);
+    }
+
+    @Override
+    public String toString() {
+        return "EngineCheckpoint{" +
+                "shard=" + shard +
+                ", sequencia=" + sequencia +
+                '}';
+    }
+}
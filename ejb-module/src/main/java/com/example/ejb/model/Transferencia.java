@@ -0,0 +1,166 @@
+package com.example.ejb.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entidade JPA que representa um lançamento do ledger de transferências.
+ * Lançamentos são apenas inseridos; o consolidador marca-os como consolidados
+ * depois de somá-los ao saldo dos benefícios envolvidos.
+ */
+@Entity
+@Table(name = "TRANSFERENCIA")
+@NamedQuery(
+    name = Transferencia.FIND_PENDENTES,
+    query = "SELECT t FROM Transferencia t WHERE t.consolidada = false ORDER BY t.id"
+)
+@NamedQuery(
+    name = Transferencia.MARCAR_CONSOLIDADAS,
+    query = "UPDATE Transferencia t SET t.consolidada = true WHERE t.id IN :ids AND t.consolidada = false"
+)
+@NamedQuery(
+    name = Transferencia.DESMARCAR_CONSOLIDADAS,
+    query = "UPDATE Transferencia t SET t.consolidada = false WHERE t.id IN :ids"
+)
+@NamedQuery(
+    name = Transferencia.SALDO_PENDENTE,
+    query = "SELECT COALESCE(SUM(CASE WHEN t.destinoId = :beneficioId THEN t.valor ELSE -t.valor END), 0) "
+          + "FROM Transferencia t "
+          + "WHERE t.consolidada = false AND (t.origemId = :beneficioId OR t.destinoId = :beneficioId)"
+)
+@NamedQuery(
+    name = Transferencia.FIND_BY_BENEFICIO,
+    query = "SELECT t FROM Transferencia t "
+          + "WHERE t.origemId = :beneficioId OR t.destinoId = :beneficioId ORDER BY t.id"
+)
+public class Transferencia implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Lançamentos ainda não consolidados, em ordem de inserção.
+     */
+    public static final String FIND_PENDENTES = "Transferencia.findPendentes";
+
+    /**
+     * Marca como consolidados os lançamentos ainda pendentes entre {@code ids}. A contagem
+     * de linhas afetadas indica quantos foram reivindicados por esta transação.
+     */
+    public static final String MARCAR_CONSOLIDADAS = "Transferencia.marcarConsolidadas";
+
+    /**
+     * Devolve lançamentos reivindicados, mas não aplicados, à fila de pendentes.
+     */
+    public static final String DESMARCAR_CONSOLIDADAS = "Transferencia.desmarcarConsolidadas";
+
+    /**
+     * Efeito líquido (créditos menos débitos) dos lançamentos pendentes de um benefício.
+     */
+    public static final String SALDO_PENDENTE = "Transferencia.saldoPendente";
+
+    /**
+     * Histórico de lançamentos de um benefício, em ordem de inserção.
+     */
+    public static final String FIND_BY_BENEFICIO = "Transferencia.findByBeneficio";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "ID")
+    private Long id;
+
+    @NotNull(message = "Benefício de origem é obrigatório")
+    @Column(name = "BENEFICIO_ORIGEM_ID", nullable = false, updatable = false)
+    private Long origemId;
+
+    @NotNull(message = "Benefício de destino é obrigatório")
+    @Column(name = "BENEFICIO_DESTINO_ID", nullable = false, updatable = false)
+    private Long destinoId;
+
+    @NotNull(message = "Valor é obrigatório")
+    @DecimalMin(value = "0.01", message = "Valor deve ser maior que zero")
+    @Column(name = "VALOR", nullable = false, precision = 15, scale = 2, updatable = false)
+    private BigDecimal valor;
+
+    @NotNull(message = "Data/hora é obrigatória")
+    @Column(name = "DATA_HORA", nullable = false, updatable = false)
+    private LocalDateTime dataHora;
+
+    @Column(name = "CONSOLIDADA", nullable = false)
+    private Boolean consolidada = false;
+
+    // Construtores
+    public Transferencia() {
+    }
+
+    public Transferencia(Long origemId, Long destinoId, BigDecimal valor, LocalDateTime dataHora) {
+        this.origemId = origemId;
+        this.destinoId = destinoId;
+        this.valor = valor;
+        this.dataHora = dataHora;
+        this.consolidada = false;
+    }
+
+    // Getters e Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getOrigemId() {
+        return origemId;
+    }
+
+    public Long getDestinoId() {
+        return destinoId;
+    }
+
+    public BigDecimal getValor() {
+        return valor;
+    }
+
+    public LocalDateTime getDataHora() {
+        return dataHora;
+    }
+
+    public Boolean getConsolidada() {
+        return consolidada;
+    }
+
+    public void setConsolidada(Boolean consolidada) {
+        this.consolidada = consolidada;
+    }
+
+    // equals e hashCode baseados no ID
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Transferencia that = (Transferencia) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "Transferencia{" +
+                "id=" + id +
+                ", origemId=" + origemId +
+                ", destinoId=" + destinoId +
+                ", valor=" + valor +
+                ", dataHora=" + dataHora +
+                ", consolidada=" + consolidada +
+                '}';
+    }
+}
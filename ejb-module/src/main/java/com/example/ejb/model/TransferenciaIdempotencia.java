@@ -0,0 +1,96 @@
+package com.example.ejb.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entidade JPA que registra a chave de idempotência de uma transferência confirmada.
+ * A chave primária garante que uma mesma chave só seja confirmada uma vez; o hash dos
+ * argumentos permite recusar a mesma chave numa transferência diferente.
+ */
+@Entity
+@Table(name = "TRANSFERENCIA_IDEMPOTENCIA")
+@NamedQuery(
+    name = TransferenciaIdempotencia.DELETE_EXPIRADAS,
+    query = "DELETE FROM TransferenciaIdempotencia t WHERE t.criadaEm < :limite"
+)
+public class TransferenciaIdempotencia implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Remove em lote as chaves criadas antes do limite informado.
+     */
+    public static final String DELETE_EXPIRADAS = "TransferenciaIdempotencia.deleteExpiradas";
+
+    public static final int TAMANHO_MAXIMO_CHAVE = 64;
+
+    public static final int TAMANHO_HASH = 64;
+
+    @Id
+    @NotBlank(message = "Chave de idempotência é obrigatória")
+    @Size(max = TAMANHO_MAXIMO_CHAVE, message = "Chave de idempotência deve ter no máximo 64 caracteres")
+    @Column(name = "CHAVE", length = TAMANHO_MAXIMO_CHAVE)
+    private String chave;
+
+    /**
+     * SHA-256, em hexadecimal, de origem, destino, valor e modo da transferência.
+     */
+    @NotNull(message = "Hash dos argumentos é obrigatório")
+    @Column(name = "HASH_ARGUMENTOS", length = TAMANHO_HASH, nullable = false, updatable = false)
+    private String hashArgumentos;
+
+    @NotNull(message = "Data de criação é obrigatória")
+    @Column(name = "CRIADA_EM", nullable = false, updatable = false)
+    private LocalDateTime criadaEm;
+
+    // Construtores
+    public TransferenciaIdempotencia() {
+    }
+
+    public TransferenciaIdempotencia(String chave, String hashArgumentos, LocalDateTime criadaEm) {
+        this.chave = chave;
+        this.hashArgumentos = hashArgumentos;
+        this.criadaEm = criadaEm;
+    }
+
+    // Getters
+    public String getChave() {
+        return chave;
+    }
+
+    public String getHashArgumentos() {
+        return hashArgumentos;
+    }
+
+    public LocalDateTime getCriadaEm() {
+        return criadaEm;
+    }
+
+    // equals e hashCode baseados na chave
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TransferenciaIdempotencia that = (TransferenciaIdempotencia) o;
+        return Objects.equals(chave, that.chave);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(chave);
+    }
+
+    @Override
+    public String toString() {
+        return "TransferenciaIdempotencia{" +
+                "chave='" + chave + '\'' +
+                ", criadaEm=" + criadaEm +
+                '}';
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.ejb.ratelimit;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limite de taxa de transferências por benefício (token bucket), aplicado antes da
+ * transferência para que um benefício inundado de requisições não ocupe as conexões do
+ * pool esperando o lock da sua linha.
+ *
+ * Cada transferência consome uma ficha do balde da origem e uma do destino; os baldes
+ * recebem {@code porSegundo} fichas por segundo até o máximo de {@code rajada}. O balde é
+ * guardado na forma do GCRA: um único {@code long} por benefício com o instante teórico
+ * em que ele estará cheio de novo. Uma requisição acima do limite é recusada de imediato,
+ * com o tempo até haver ficha ({@link #retryAfterSeconds(long)}), sem fila.
+ *
+ * Os baldes ficam em um mapa de endereçamento aberto com chaves {@code long}, dividido em
+ * segmentos com monitor próprio e limitado a {@code maxBeneficios}. Um balde ocioso (que
+ * já voltou a ficar cheio) é igual a um balde novo, portanto pode ser descartado: quando
+ * um segmento enche, os ociosos são removidos e, se não bastar, os mais próximos de cheios.
+ */
+public final class AccountRateLimiter {
+
+    /**
+     * Retorno de {@link #tryAcquire(Long, Long)} quando a transferência é admitida.
+     */
+    public static final long ADMITIDA = 0L;
+
+    private static final int SEGMENTOS = 64;
+    private static final long VAZIO = Long.MIN_VALUE;
+
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+    private final LongAdder recusadas = new LongAdder();
+
+    /**
+     * @param porSegundo Fichas repostas por segundo em cada balde
+     * @param rajada Capacidade do balde: transferências seguidas admitidas com o balde cheio
+     * @param maxBeneficios Baldes mantidos em memória
+     */
+    public AccountRateLimiter(double porSegundo, int rajada, int maxBeneficios) {
+        if (porSegundo <= 0 || rajada < 1 || maxBeneficios < 1) {
+            throw new IllegalArgumentException("Taxa, rajada e quantidade de benefícios devem ser positivas");
+        }
+        this.intervaloNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / porSegundo));
+        this.toleranciaNanos = intervaloNanos * rajada;
+        int porSegmento = (maxBeneficios + SEGMENTOS - 1) / SEGMENTOS;
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento(porSegmento);
+        }
+    }
+
+    /**
+     * Consome uma ficha da origem e uma do destino. Se um deles estiver sem ficha, nada é
+     * consumido. IDs nulos são ignorados (a validação dos parâmetros fica com o serviço).
+     *
+     * @return {@link #ADMITIDA}, ou os nanossegundos até haver ficha nos dois baldes
+     */
+    public long tryAcquire(Long fromId, Long toId) {
+        return tryAcquire(fromId, toId, System.nanoTime());
+    }
+
+    long tryAcquire(Long fromId, Long toId, long agora) {
+        long espera = fromId == null ? ADMITIDA : adquirir(fromId, agora);
+        if (espera != ADMITIDA) {
+            recusadas.increment();
+            return espera;
+        }
+        if (toId != null && !toId.equals(fromId)) {
+            espera = adquirir(toId, agora);
+            if (espera != ADMITIDA) {
+                if (fromId != null) {
+                    segmento(fromId).devolver(fromId, intervaloNanos);
+                }
+                recusadas.increment();
+            }
+        }
+        return espera;
+    }
+
+    private long adquirir(long id, long agora) {
+        return segmento(id).adquirir(id, agora, intervaloNanos, toleranciaNanos);
+    }
+
+    private Segmento segmento(long id) {
+        return segmentos[(int) (hash(id) >>> 58)];
+    }
+
+    /**
+     * Valor do cabeçalho {@code Retry-After}: segundos inteiros, arredondados para cima.
+     */
+    public static long retryAfterSeconds(long esperaNanos) {
+        return Math.max(1L, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Transferências recusadas desde a criação.
+     */
+    public long getRejected() {
+        return recusadas.sum();
+    }
+
+    /**
+     * Baldes mantidos em memória neste momento.
+     */
+    public int getTrackedAccounts() {
+        int total = 0;
+        for (Segmento segmento : segmentos) {
+            total += segmento.tamanho();
+        }
+        return total;
+    }
+
+    private static long hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Parte do mapa: sondagem linear em arrays paralelos, ocupação máxima de 50%.
+     */
+    private static final class Segmento {
+
+        private final int limite;
+        private final int mask;
+        private long[] chaves;
+        private long[] cheioEm;
+        private int tamanho;
+
+        Segmento(int limite) {
+            this.limite = limite;
+            int slots = Integer.highestOneBit(Math.max(2, limite * 2 - 1) << 1);
+            this.mask = slots - 1;
+            this.chaves = new long[slots];
+            this.cheioEm = new long[slots];
+            Arrays.fill(chaves, VAZIO);
+        }
+
+        synchronized long adquirir(long id, long agora, long intervalo, long tolerancia) {
+            int slot = localizar(id);
+            boolean novo = chaves[slot] != id;
+            // Balde novo ou ocioso: cheio, com o instante teórico no passado
+            long atual = novo ? agora : Math.max(cheioEm[slot], agora);
+            long proximo = atual + intervalo;
+            long excesso = proximo - agora - tolerancia;
+            if (excesso > 0) {
+                return excesso;
+            }
+            if (novo) {
+                if (tamanho >= limite) {
+                    compactar(agora);
+                    slot = localizar(id);
+                }
+                chaves[slot] = id;
+                tamanho++;
+            }
+            cheioEm[slot] = proximo;
+            return ADMITIDA;
+        }
+
+        synchronized void devolver(long id, long intervalo) {
+            int slot = localizar(id);
+            if (chaves[slot] == id) {
+                cheioEm[slot] -= intervalo;
+            }
+        }
+
+        synchronized int tamanho() {
+            return tamanho;
+        }
+
+        /**
+         * Slot da chave ou, se ausente, o slot vazio onde ela entraria.
+         */
+        private int localizar(long id) {
+            int slot = (int) hash(id) & mask;
+            while (chaves[slot] != VAZIO && chaves[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Remove os baldes ociosos e, se o segmento continuar acima de 3/4 do limite, os
+         * mais próximos de cheios, reconstruindo as tabelas.
+         */
+        private void compactar(long agora) {
+            long[] antigasChaves = chaves;
+            long[] antigosCheioEm = cheioEm;
+            long[] ativos = new long[tamanho];
+            int emUso = 0;
+            for (int i = 0; i < antigasChaves.length; i++) {
+                if (antigasChaves[i] != VAZIO && antigosCheioEm[i] > agora) {
+                    ativos[emUso++] = antigosCheioEm[i];
+                }
+            }
+            int alvo = limite - Math.max(1, limite / 4);
+            long corte = agora;
+            if (emUso > alvo) {
+                Arrays.sort(ativos, 0, emUso);
+                corte = ativos[emUso - alvo - 1];
+            }
+
+            chaves = new long[antigasChaves.length];
+            cheioEm = new long[antigasChaves.length];
+            Arrays.fill(chaves, VAZIO);
+            tamanho = 0;
+            for (int i = 0; i < antigasChaves.length && tamanho < alvo; i++) {
+                if (antigasChaves[i] != VAZIO && antigosCheioEm[i] > corte) {
+                    int slot = localizar(antigasChaves[i]);
+                    chaves[slot] = antigasChaves[i];
+                    cheioEm[slot] = antigosCheioEm[i];
+                    tamanho++;
+                }
+            }
+        }
+    }
+}
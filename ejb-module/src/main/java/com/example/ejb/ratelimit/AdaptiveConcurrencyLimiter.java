@@ -0,0 +1,154 @@
+package com.example.ejb.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limite adaptativo de transferências simultâneas, no lugar de um tamanho fixo de pool.
+ *
+ * Segue o gradiente de latência (como o Gradient2 do concurrency-limits da Netflix): a
+ * latência média de cada janela ({@code rttCurto}) é comparada com uma média móvel longa
+ * ({@code rttLongo}). Enquanto a curta fica abaixo de {@code tolerancia × rttLongo}, o
+ * limite cresce de {@code √limite} por janela; quando o banco fica lento e a latência
+ * sobe, o gradiente {@code tolerancia × rttLongo / rttCurto} (no mínimo 0,5) reduz o
+ * limite proporcionalmente. A média longa esquece devagar e, se ficar muito acima da
+ * curta (recuperação após lentidão), é puxada para baixo mais depressa.
+ *
+ * Chamadas acima do limite são recusadas de imediato ({@link #tryAcquire()} devolve
+ * {@code null}), sem fila: o excesso é descartado em vez de esperar e inflar a cauda da
+ * latência. O limite só cresce se a janela chegou a usar ao menos metade dele.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private static final long JANELA_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int MIN_AMOSTRAS = 10;
+    private static final int JANELAS_RTT_LONGO = 600;
+    private static final double TOLERANCIA = 1.5;
+    private static final double SUAVIZACAO = 0.2;
+
+    private final int minimo;
+    private final int maximo;
+    private final AtomicInteger emAndamento = new AtomicInteger();
+    private final LongAdder descartadas = new LongAdder();
+    private volatile int limite;
+
+    // Estado da janela e das médias, sob o monitor da instância
+    private double limiteEstimado;
+    private double rttLongo;
+    private long somaRttJanela;
+    private int amostrasJanela;
+    private int maxEmAndamentoJanela;
+    private long fimJanela;
+
+    /**
+     * @param inicial Limite inicial
+     * @param minimo Limite mínimo, mantido mesmo com o banco lento
+     * @param maximo Limite máximo (por exemplo, o tamanho do pool de conexões mais a fila aceitável)
+     */
+    public AdaptiveConcurrencyLimiter(int inicial, int minimo, int maximo) {
+        if (minimo < 1 || maximo < minimo || inicial < minimo || inicial > maximo) {
+            throw new IllegalArgumentException("Limites devem satisfazer 1 <= mínimo <= inicial <= máximo");
+        }
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.limite = inicial;
+        this.limiteEstimado = inicial;
+        this.fimJanela = System.nanoTime() + JANELA_NANOS;
+    }
+
+    /**
+     * Reserva uma vaga para uma transferência.
+     *
+     * @return Vaga a fechar ao fim da execução, ou {@code null} se o limite foi atingido
+     */
+    public Permit tryAcquire() {
+        int atual;
+        do {
+            atual = emAndamento.get();
+            if (atual >= limite) {
+                descartadas.increment();
+                return null;
+            }
+        } while (!emAndamento.compareAndSet(atual, atual + 1));
+        return new Permit(System.nanoTime(), atual + 1);
+    }
+
+    /**
+     * Vaga ocupada por uma transferência. Fechar registra a latência da execução.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final long inicio;
+        private final int emAndamentoNaEntrada;
+        private boolean fechada;
+
+        private Permit(long inicio, int emAndamentoNaEntrada) {
+            this.inicio = inicio;
+            this.emAndamentoNaEntrada = emAndamentoNaEntrada;
+        }
+
+        @Override
+        public void close() {
+            if (!fechada) {
+                fechada = true;
+                emAndamento.decrementAndGet();
+                long agora = System.nanoTime();
+                onSample(agora - inicio, emAndamentoNaEntrada, agora);
+            }
+        }
+    }
+
+    /**
+     * Acumula uma latência na janela corrente e, ao fim da janela, recalcula o limite.
+     */
+    synchronized void onSample(long rttNanos, int emAndamentoNaEntrada, long agora) {
+        somaRttJanela += rttNanos;
+        amostrasJanela++;
+        maxEmAndamentoJanela = Math.max(maxEmAndamentoJanela, emAndamentoNaEntrada);
+        if (agora - fimJanela < 0 || amostrasJanela < MIN_AMOSTRAS) {
+            return;
+        }
+
+        double rttCurto = (double) somaRttJanela / amostrasJanela;
+        if (rttLongo == 0) {
+            rttLongo = rttCurto;
+        } else {
+            rttLongo += (rttCurto - rttLongo) / JANELAS_RTT_LONGO;
+            // Recuperação: a média longa ainda carrega a lentidão passada
+            if (rttLongo / rttCurto > 2) {
+                rttLongo *= 0.95;
+            }
+        }
+
+        double gradiente = Math.max(0.5, Math.min(1.0, TOLERANCIA * rttLongo / rttCurto));
+        double novo = limiteEstimado * gradiente + Math.sqrt(limiteEstimado);
+        if (novo > limiteEstimado && maxEmAndamentoJanela < limiteEstimado / 2) {
+            // Limite ocioso: sem carga não há evidência de que caberia mais
+            novo = limiteEstimado;
+        }
+        limiteEstimado = Math.max(minimo, Math.min(maximo,
+                limiteEstimado * (1 - SUAVIZACAO) + novo * SUAVIZACAO));
+        limite = (int) limiteEstimado;
+
+        somaRttJanela = 0;
+        amostrasJanela = 0;
+        maxEmAndamentoJanela = 0;
+        fimJanela = agora + JANELA_NANOS;
+    }
+
+    public int getLimit() {
+        return limite;
+    }
+
+    public int getInFlight() {
+        return emAndamento.get();
+    }
+
+    /**
+     * Chamadas recusadas por limite desde a criação.
+     */
+    public long getShed() {
+        return descartadas.sum();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.ejb.retry;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Política de retentativa para transferências que falham por deadlock ou timeout de lock.
+ * Backoff exponencial com jitter ("equal jitter"): cada espera fica entre metade e
+ * o total do atraso exponencial da tentativa, limitado por {@code maxBackoffMillis}.
+ *
+ * Configurável por propriedades de sistema:
+ * {@code bip.transfer.retry.maxAttempts}, {@code bip.transfer.retry.initialBackoffMillis},
+ * {@code bip.transfer.retry.maxBackoffMillis}.
+ */
+public final class RetryPolicy implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String PROP_MAX_ATTEMPTS = "bip.transfer.retry.maxAttempts";
+    public static final String PROP_INITIAL_BACKOFF = "bip.transfer.retry.initialBackoffMillis";
+    public static final String PROP_MAX_BACKOFF = "bip.transfer.retry.maxBackoffMillis";
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 4;
+    private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 5;
+    private static final long DEFAULT_MAX_BACKOFF_MILLIS = 200;
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts deve ser maior ou igual a 1: " + maxAttempts);
+        }
+        if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException(
+                "Backoff inválido: inicial=" + initialBackoffMillis + ", máximo=" + maxBackoffMillis);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    /**
+     * Cria a política a partir das propriedades de sistema, usando os valores padrão
+     * (4 tentativas, backoff de 5 ms a 200 ms) para as ausentes.
+     */
+    public static RetryPolicy fromSystemProperties() {
+        return new RetryPolicy(
+            Integer.getInteger(PROP_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS),
+            Long.getLong(PROP_INITIAL_BACKOFF, DEFAULT_INITIAL_BACKOFF_MILLIS),
+            Long.getLong(PROP_MAX_BACKOFF, DEFAULT_MAX_BACKOFF_MILLIS)
+        );
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    /**
+     * Calcula a espera antes da próxima tentativa.
+     *
+     * @param failedAttempt Número da tentativa que acabou de falhar (a partir de 1)
+     * @return Espera em milissegundos, com jitter
+     */
+    public long backoffMillis(int failedAttempt) {
+        long exponencial = initialBackoffMillis << Math.min(failedAttempt - 1, 20);
+        long atraso = Math.min(exponencial, maxBackoffMillis);
+        if (atraso <= 1) {
+            return atraso;
+        }
+        long metade = atraso / 2;
+        return metade + ThreadLocalRandom.current().nextLong(atraso - metade + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+                "maxAttempts=" + maxAttempts +
+                ", initialBackoffMillis=" + initialBackoffMillis +
+                ", maxBackoffMillis=" + maxBackoffMillis +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.ejb.retry;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores da camada de retentativa de transferências.
+ * Singleton com concorrência gerenciada pelo bean: os contadores são {@link LongAdder}
+ * e não precisam do lock de escrita padrão do container.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class TransferRetryMetrics {
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder giveUps = new LongAdder();
+    private final LongAdder recoveries = new LongAdder();
+    private final LongAdder addedLatencyNanos = new LongAdder();
+
+    /**
+     * Registra uma nova tentativa após falha por deadlock ou timeout de lock.
+     */
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    /**
+     * Registra uma transferência que esgotou as tentativas.
+     */
+    public void recordGiveUp(long addedNanos) {
+        giveUps.increment();
+        addedLatencyNanos.add(addedNanos);
+    }
+
+    /**
+     * Registra uma transferência que só concluiu após ao menos uma retentativa.
+     */
+    public void recordRecovery(long addedNanos) {
+        recoveries.increment();
+        addedLatencyNanos.add(addedNanos);
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getGiveUps() {
+        return giveUps.sum();
+    }
+
+    public long getRecoveries() {
+        return recoveries.sum();
+    }
+
+    /**
+     * Latência adicionada pelas tentativas que falharam e pelas esperas de backoff.
+     */
+    public long getAddedLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(addedLatencyNanos.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "TransferRetryMetrics{" +
+                "retries=" + getRetries() +
+                ", giveUps=" + getGiveUps() +
+                ", recoveries=" + getRecoveries() +
+                ", addedLatencyMillis=" + getAddedLatencyMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.ejb;
+
+import jakarta.persistence.LockTimeoutException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários dos locks de benefício em memória.
+ */
+@DisplayName("AccountLockManager - Testes de Lock em Memória")
+class AccountLockManagerTest {
+
+    @Test
+    @DisplayName("Deve arredondar a quantidade de faixas para potência de 2")
+    void deveArredondarFaixasParaPotenciaDeDois() {
+        assertEquals(1024, new AccountLockManager(1000, 100).getStripeCount());
+        assertEquals(16, new AccountLockManager(16, 100).getStripeCount());
+        assertEquals(1, new AccountLockManager(0, 100).getStripeCount());
+    }
+
+    @Test
+    @DisplayName("Deve aceitar IDs repetidos ou na mesma faixa sem travar")
+    void deveAceitarIdsNaMesmaFaixa() {
+        // Arrange - uma única faixa: todos os IDs colidem
+        AccountLockManager manager = new AccountLockManager(1, 100);
+
+        // Act
+        try (AccountLockManager.Locks locks = manager.lock(1L, 2L, 1L, null)) {
+            assertEquals(0, manager.getQueueDepth(0));
+        }
+
+        // Assert - faixa liberada por completo
+        CompletableFuture.runAsync(() -> manager.lock(3L).close()).join();
+    }
+
+    @Test
+    @DisplayName("Deve registrar espera e expirar quando a faixa está ocupada")
+    void deveExpirarQuandoFaixaOcupada() throws Exception {
+        // Arrange
+        AccountLockManager manager = new AccountLockManager(16, 50);
+        int faixa = manager.stripeOf(7L);
+        CountDownLatch adquirido = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Void> dono = CompletableFuture.runAsync(() -> {
+            try (AccountLockManager.Locks locks = manager.lock(7L)) {
+                adquirido.countDown();
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(adquirido.await(1, TimeUnit.SECONDS));
+
+        // Act & Assert
+        assertThrows(LockTimeoutException.class, () -> manager.lock(7L));
+        assertEquals(1, manager.getContendedAcquisitions(faixa));
+        assertTrue(manager.getWaitNanos(faixa) >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(manager.getWaitNanos(faixa), manager.getTotalWaitNanos());
+
+        liberar.countDown();
+        dono.get(1, TimeUnit.SECONDS);
+        manager.lock(7L).close();
+    }
+
+    @Test
+    @DisplayName("Deve contar a retenção no histograma da faixa de cada benefício")
+    void deveContarRetencaoPorFaixa() throws InterruptedException {
+        // Arrange
+        AccountLockManager manager = new AccountLockManager(16, 100);
+        int faixa = manager.stripeOf(7L);
+
+        // Act
+        try (AccountLockManager.Locks locks = manager.lock(7L)) {
+            Thread.sleep(2);
+        }
+        manager.lock(7L).close();
+
+        // Assert - duas retenções, uma delas de pelo menos 2 ms (faixas a partir de 2^20 ns)
+        long[] histograma = manager.getHoldHistogram(faixa);
+        assertEquals(AccountLockManager.HOLD_BUCKETS, histograma.length);
+        assertEquals(2, Arrays.stream(histograma).sum());
+        assertTrue(Arrays.stream(histograma, 20, histograma.length).sum() >= 1);
+        assertEquals(0, Arrays.stream(manager.getHoldHistogram((faixa + 1) % 16)).sum());
+    }
+
+    @Test
+    @DisplayName("Deve acrescentar faixas sem esperar fora de ordem e liberar em outra thread")
+    void deveAcrescentarFaixasSemEsperarForaDeOrdem() throws Exception {
+        // Arrange - IDs com faixas baixa < média < alta
+        AccountLockManager manager = new AccountLockManager(16, 5_000);
+        long baixo = idNaFaixa(manager, 2);
+        long medio = idNaFaixa(manager, 8);
+        long alto = idNaFaixa(manager, 12);
+        AccountLockManager.Locks outro = manager.lock(baixo);
+        AccountLockManager.Locks locks = manager.lock(medio);
+
+        // Act - a faixa baixa está ocupada e quebraria a ordem: é dispensada sem esperar
+        long inicio = System.nanoTime();
+        locks.add(baixo, alto);
+        long decorrido = System.nanoTime() - inicio;
+
+        // Assert
+        assertTrue(decorrido < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, manager.getContendedAcquisitions(2));
+        CompletableFuture.runAsync(locks::close).get(1, TimeUnit.SECONDS);
+        outro.close();
+        assertEquals(1, Arrays.stream(manager.getHoldHistogram(12)).sum());
+        manager.lock(baixo, medio, alto).close();
+    }
+
+    private static long idNaFaixa(AccountLockManager manager, int faixa) {
+        long id = 1;
+        while (manager.stripeOf(id) != faixa) {
+            id++;
+        }
+        return id;
+    }
+}
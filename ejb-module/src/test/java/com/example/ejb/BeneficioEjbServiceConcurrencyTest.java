@@ -1,9 +1,12 @@
 package com.example.ejb;
 
 import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.metrics.TransferMetrics;
 import com.example.ejb.model.Beneficio;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.Persistence;
 import org.junit.jupiter.api.*;
 
@@ -12,6 +15,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,19 +24,23 @@ import static org.junit.jupiter.api.Assertions.*;
  * previne race conditions e lost updates durante transferências simultâneas.
  * 
  * IMPORTANTE: Este teste requer um banco de dados real (não mock)
- * para validar o comportamento de locking.
+ * para validar o comportamento de locking. Usa a persistence unit {@code test-pu}
+ * (H2 embarcado, em src/test/resources) e roda com {@code mvn test -Pconcorrencia}.
  */
 @DisplayName("BeneficioEjbService - Testes de Concorrência")
 class BeneficioEjbServiceConcurrencyTest {
 
     private static EntityManagerFactory emf;
+    private final AccountLockManager lockManager = new AccountLockManager();
+    private final TransferMetrics metrics = new TransferMetrics(new SimpleMeterRegistry());
     private EntityManager em;
     private BeneficioEjbService service;
+    private Long idA;
+    private Long idB;
 
     @BeforeAll
     static void setUpClass() {
-        // Configurar EntityManagerFactory para testes
-        // Em ambiente real, usar persistence.xml configurado
+        // H2 em memória compartilhado pelos testes: os IDs dependem da ordem de execução
         try {
             emf = Persistence.createEntityManagerFactory("test-pu");
         } catch (Exception e) {
@@ -65,6 +73,8 @@ class BeneficioEjbServiceConcurrencyTest {
         em.persist(b1);
         em.persist(b2);
         em.getTransaction().commit();
+        idA = b1.getId();
+        idB = b2.getId();
         em.clear();
     }
 
@@ -98,7 +108,7 @@ class BeneficioEjbServiceConcurrencyTest {
 
                 try {
                     threadEm.getTransaction().begin();
-                    threadService.transfer(1L, 2L, valorPorTransferencia);
+                    threadService.transfer(idA, idB, valorPorTransferencia);
                     threadEm.getTransaction().commit();
                     sucessos.incrementAndGet();
                 } catch (Exception e) {
@@ -121,8 +131,8 @@ class BeneficioEjbServiceConcurrencyTest {
 
         // Assert - Verificar consistência dos dados
         em.clear();
-        Beneficio b1Final = em.find(Beneficio.class, 1L);
-        Beneficio b2Final = em.find(Beneficio.class, 2L);
+        Beneficio b1Final = em.find(Beneficio.class, idA);
+        Beneficio b2Final = em.find(Beneficio.class, idB);
 
         BigDecimal totalEsperado = new BigDecimal("15000.00"); // 10000 + 5000
         BigDecimal totalAtual = b1Final.getValor().add(b2Final.getValor());
@@ -168,7 +178,7 @@ class BeneficioEjbServiceConcurrencyTest {
 
                 try {
                     threadEm.getTransaction().begin();
-                    threadService.transfer(b3Id, 2L, valorPorTransferencia);
+                    threadService.transfer(b3Id, idB, valorPorTransferencia);
                     threadEm.getTransaction().commit();
                     sucessos.incrementAndGet();
                 } catch (SaldoInsuficienteException e) {
@@ -238,7 +248,7 @@ class BeneficioEjbServiceConcurrencyTest {
 
                 try {
                     threadEm.getTransaction().begin();
-                    threadService.transfer(1L, 2L, valor);
+                    threadService.transfer(idA, idB, valor);
                     threadEm.getTransaction().commit();
                 } catch (Exception e) {
                     if (threadEm.getTransaction().isActive()) {
@@ -258,7 +268,7 @@ class BeneficioEjbServiceConcurrencyTest {
 
                 try {
                     threadEm.getTransaction().begin();
-                    threadService.transfer(2L, 1L, valor);
+                    threadService.transfer(idB, idA, valor);
                     threadEm.getTransaction().commit();
                 } catch (Exception e) {
                     if (threadEm.getTransaction().isActive()) {
@@ -278,8 +288,8 @@ class BeneficioEjbServiceConcurrencyTest {
 
         // Assert - Total deve ser preservado
         em.clear();
-        Beneficio b1Final = em.find(Beneficio.class, 1L);
-        Beneficio b2Final = em.find(Beneficio.class, 2L);
+        Beneficio b1Final = em.find(Beneficio.class, idA);
+        Beneficio b2Final = em.find(Beneficio.class, idB);
 
         BigDecimal totalEsperado = new BigDecimal("15000.00");
         BigDecimal totalAtual = b1Final.getValor().add(b2Final.getValor());
@@ -291,14 +301,262 @@ class BeneficioEjbServiceConcurrencyTest {
         System.out.println("Saldo final B2: " + b2Final.getValor());
     }
 
+    @Test
+    @DisplayName("Deve medir vazão de transferências bidirecionais: lock sequencial vs lock ordenado")
+    void deveMedirVazaoLockSequencialVsLockOrdenado() throws Exception {
+        Assumptions.assumeTrue(emf != null, "EntityManagerFactory não disponível");
+
+        int numThreads = 8;
+        int transferenciasPorThread = 50;
+        BigDecimal valor = new BigDecimal("1.00");
+
+        // Antes: lock de "from" seguido de "to" em duas consultas (ordem depende da direção)
+        ResultadoContencao antes = executarContencao(numThreads, transferenciasPorThread, (threadEm, from, to) -> {
+            Beneficio origem = threadEm.find(Beneficio.class, from, LockModeType.PESSIMISTIC_WRITE);
+            Beneficio destino = threadEm.find(Beneficio.class, to, LockModeType.PESSIMISTIC_WRITE);
+            origem.setValor(origem.getValor().subtract(valor));
+            destino.setValor(destino.getValor().add(valor));
+        });
+
+        // Depois: uma única consulta bloqueia ambos em ordem crescente de ID
+        ResultadoContencao depois = executarContencao(numThreads, transferenciasPorThread, (threadEm, from, to) -> {
+            BeneficioEjbService threadService = new BeneficioEjbService();
+            injectEntityManager(threadService, threadEm);
+            threadService.transfer(from, to, valor);
+        });
+
+        System.out.println("Lock sequencial: " + antes);
+        System.out.println("Lock ordenado:   " + depois);
+
+        // Com lock ordenado não há deadlock: todas as transferências devem concluir
+        assertEquals(numThreads * transferenciasPorThread, depois.sucessos,
+            "Lock em ordem crescente de ID não deve gerar deadlock");
+
+        em.clear();
+        BigDecimal totalAtual = em.find(Beneficio.class, idA).getValor()
+            .add(em.find(Beneficio.class, idB).getValor());
+        assertEquals(0, new BigDecimal("15000.00").compareTo(totalAtual),
+            "Total deve ser preservado nas duas estratégias");
+    }
+
+    @Test
+    @DisplayName("Deve comparar modos pessimista e otimista sob baixa e alta contenção")
+    void deveCompararModosPorNivelDeContencao() throws Exception {
+        Assumptions.assumeTrue(emf != null, "EntityManagerFactory não disponível");
+
+        int numThreads = 8;
+        int transferenciasPorThread = 50;
+        BigDecimal valor = new BigDecimal("1.00");
+
+        // Baixa contenção: cada thread movimenta o seu próprio par de benefícios
+        List<Beneficio> isolados = new ArrayList<>();
+        em.getTransaction().begin();
+        for (int i = 0; i < numThreads * 2; i++) {
+            Beneficio b = new Beneficio("Beneficio Isolado " + i, "Teste", new BigDecimal("1000.00"));
+            em.persist(b);
+            isolados.add(b);
+        }
+        em.getTransaction().commit();
+        em.clear();
+        IntFunction<Long[]> parIsolado = t -> new Long[]{isolados.get(2 * t).getId(), isolados.get(2 * t + 1).getId()};
+        // Alta contenção: todas as threads no mesmo par, em sentidos alternados
+        IntFunction<Long[]> parDisputado = t -> t % 2 == 1 ? new Long[]{idB, idA} : new Long[]{idA, idB};
+
+        for (TransferMode modo : TransferMode.values()) {
+            OperacaoTransferencia operacao = (threadEm, from, to) -> {
+                BeneficioEjbService threadService = new BeneficioEjbService();
+                injectEntityManager(threadService, threadEm);
+                threadService.transfer(from, to, valor, modo);
+            };
+            ResultadoContencao baixa = executarContencao(numThreads, transferenciasPorThread, parIsolado, operacao);
+            ResultadoContencao alta = executarContencao(numThreads, transferenciasPorThread, parDisputado, operacao);
+            System.out.println(modo + " - baixa contenção: " + baixa);
+            System.out.println(modo + " - alta contenção:  " + alta);
+
+            // Sem disputa, nenhum modo deve falhar
+            assertEquals(numThreads * transferenciasPorThread, baixa.sucessos,
+                "Modo " + modo + " não deve falhar sem contenção");
+        }
+
+        // Conflitos otimistas são desfeitos: o total deve ser preservado
+        em.clear();
+        BigDecimal totalAtual = em.find(Beneficio.class, idA).getValor()
+            .add(em.find(Beneficio.class, idB).getValor());
+        assertEquals(0, new BigDecimal("15000.00").compareTo(totalAtual),
+            "Total do par disputado deve ser preservado");
+    }
+
+    @Test
+    @DisplayName("Deve medir vazão em um benefício quente conforme o número de sub-saldos cresce")
+    void deveMedirVazaoDeBeneficioQuentePorNumeroDeSubSaldos() throws Exception {
+        Assumptions.assumeTrue(emf != null, "EntityManagerFactory não disponível");
+
+        int numThreads = 16;
+        int transferenciasPorThread = 50;
+        BigDecimal valor = new BigDecimal("1.00");
+
+        for (int subSaldos : new int[]{1, 4, 16, 64}) {
+            // Um benefício quente que paga muitos destinos distintos
+            em.getTransaction().begin();
+            Beneficio quente = new Beneficio("Beneficio Quente " + subSaldos, "Teste", new BigDecimal("100000.00"));
+            em.persist(quente);
+            List<Beneficio> destinos = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                Beneficio destino = new Beneficio("Destino " + subSaldos + "-" + i, "Teste", BigDecimal.ZERO);
+                em.persist(destino);
+                destinos.add(destino);
+            }
+            em.getTransaction().commit();
+            em.clear();
+
+            em.getTransaction().begin();
+            BeneficioSubSaldoService subSaldoService = novoSubSaldoService(em);
+            subSaldoService.particionar(quente.getId(), subSaldos);
+            em.getTransaction().commit();
+            em.clear();
+
+            ResultadoContencao resultado = executarContencao(numThreads, transferenciasPorThread,
+                t -> new Long[]{quente.getId(), destinos.get(t).getId()},
+                (threadEm, from, to) -> {
+                    BeneficioEjbService threadService = new BeneficioEjbService();
+                    injectEntityManager(threadService, threadEm);
+                    threadService.transfer(from, to, valor, TransferMode.SET_BASED);
+                });
+            System.out.println("Sub-saldos=" + subSaldos + ": " + resultado);
+            // O modo set-based não adquire faixas: o benefício quente não espera na JVM
+            assertEquals(0, lockManager.getContendedAcquisitions(lockManager.stripeOf(quente.getId())),
+                "Benefício particionado não deve esperar por lock em memória");
+
+            // Conservação: o saldo quente (soma dos slots) mais os destinos continua 100000
+            em.clear();
+            BigDecimal total = subSaldoService.saldo(quente.getId());
+            for (Beneficio destino : destinos) {
+                total = total.add(em.find(Beneficio.class, destino.getId()).getValor());
+            }
+            assertEquals(0, new BigDecimal("100000.00").compareTo(total),
+                "Total deve ser preservado com " + subSaldos + " sub-saldos");
+        }
+    }
+
+    /**
+     * Executa transferências alternando A->B e B->A em várias threads e mede a vazão.
+     * Falhas (deadlock, timeout de lock) são contadas, e a transação é desfeita.
+     */
+    private ResultadoContencao executarContencao(int numThreads, int transferenciasPorThread,
+                                                 OperacaoTransferencia operacao) throws Exception {
+        return executarContencao(numThreads, transferenciasPorThread,
+            t -> t % 2 == 1 ? new Long[]{idB, idA} : new Long[]{idA, idB}, operacao);
+    }
+
+    /**
+     * Executa transferências em várias threads, cada uma sempre no par (from, to)
+     * indicado para ela, e mede a vazão.
+     */
+    private ResultadoContencao executarContencao(int numThreads, int transferenciasPorThread,
+                                                 IntFunction<Long[]> parPorThread,
+                                                 OperacaoTransferencia operacao) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger sucessos = new AtomicInteger(0);
+        AtomicInteger falhas = new AtomicInteger(0);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            Long[] par = parPorThread.apply(t);
+            futures.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < transferenciasPorThread; i++) {
+                    EntityManager threadEm = emf.createEntityManager();
+                    try {
+                        threadEm.getTransaction().begin();
+                        operacao.executar(threadEm, par[0], par[1]);
+                        threadEm.getTransaction().commit();
+                        sucessos.incrementAndGet();
+                    } catch (Exception e) {
+                        if (threadEm.getTransaction().isActive()) {
+                            threadEm.getTransaction().rollback();
+                        }
+                        falhas.incrementAndGet();
+                    } finally {
+                        threadEm.close();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long duracaoNanos = System.nanoTime() - inicio;
+        executor.shutdown();
+
+        return new ResultadoContencao(sucessos.get(), falhas.get(), duracaoNanos);
+    }
+
+    @FunctionalInterface
+    private interface OperacaoTransferencia {
+        void executar(EntityManager threadEm, Long fromId, Long toId);
+    }
+
+    private static final class ResultadoContencao {
+        final int sucessos;
+        final int falhas;
+        final long duracaoNanos;
+
+        ResultadoContencao(int sucessos, int falhas, long duracaoNanos) {
+            this.sucessos = sucessos;
+            this.falhas = falhas;
+            this.duracaoNanos = duracaoNanos;
+        }
+
+        double transferenciasPorSegundo() {
+            return sucessos / (duracaoNanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sucessos=%d, falhas=%d, tempo=%d ms, vazão=%.1f transf/s",
+                sucessos, falhas, duracaoNanos / 1_000_000, transferenciasPorSegundo());
+        }
+    }
+
     /**
      * Helper para injetar EntityManager no serviço (simulando @PersistenceContext)
+     * e o serviço de sub-saldos (simulando @EJB), ambos com o mesmo EntityManager
      */
     private void injectEntityManager(BeneficioEjbService service, EntityManager em) {
         try {
             java.lang.reflect.Field field = BeneficioEjbService.class.getDeclaredField("em");
             field.setAccessible(true);
             field.set(service, em);
+
+            java.lang.reflect.Field subSaldoField = BeneficioEjbService.class.getDeclaredField("subSaldoService");
+            subSaldoField.setAccessible(true);
+            subSaldoField.set(service, novoSubSaldoService(em));
+
+            // Mesma instância para todas as threads, como o @Singleton no container
+            java.lang.reflect.Field lockField = BeneficioEjbService.class.getDeclaredField("lockManager");
+            lockField.setAccessible(true);
+            lockField.set(service, lockManager);
+
+            java.lang.reflect.Field metricsField = BeneficioEjbService.class.getDeclaredField("metrics");
+            metricsField.setAccessible(true);
+            metricsField.set(service, metrics);
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao injetar EntityManager", e);
+        }
+    }
+
+    private BeneficioSubSaldoService novoSubSaldoService(EntityManager em) {
+        try {
+            BeneficioSubSaldoService subSaldoService = new BeneficioSubSaldoService();
+            java.lang.reflect.Field field = BeneficioSubSaldoService.class.getDeclaredField("em");
+            field.setAccessible(true);
+            field.set(subSaldoService, em);
+            return subSaldoService;
         } catch (Exception e) {
             throw new RuntimeException("Erro ao injetar EntityManager", e);
         }
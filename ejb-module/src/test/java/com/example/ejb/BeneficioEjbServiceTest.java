@@ -1,23 +1,60 @@
 package com.example.ejb;
 
+import com.example.ejb.capture.TransferCapture;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.dto.TransferRequest;
+import com.example.ejb.dto.TransferResult;
+import com.example.ejb.dto.TransferStatus;
+import com.example.ejb.exception.BeneficioInativoException;
 import com.example.ejb.exception.BeneficioNotFoundException;
 import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.exception.TransferenciaDuplicadaException;
 import com.example.ejb.exception.TransferenciaInvalidaException;
+import com.example.ejb.metrics.HotAccountTracker;
+import com.example.ejb.metrics.TransferMetrics;
 import com.example.ejb.model.Beneficio;
+import com.example.ejb.model.Transferencia;
+import com.example.ejb.model.TransferenciaIdempotencia;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -29,9 +66,35 @@ import static org.mockito.Mockito.*;
 @DisplayName("BeneficioEjbService - Testes de Transferência")
 class BeneficioEjbServiceTest {
 
+    private static final String HASH_PEDIDO =
+        BeneficioEjbService.hashArgumentos(1L, 2L, new BigDecimal("100.00"), TransferMode.PESSIMISTIC);
+
     @Mock
     private EntityManager entityManager;
 
+    @Mock
+    private BeneficioSubSaldoService subSaldoService;
+
+    @Mock
+    private IdempotenciaService idempotencia;
+
+    @Spy
+    private AccountLockManager lockManager = new AccountLockManager(16, 1000);
+
+    @Mock
+    private TransferCapture capture;
+
+    @Mock
+    private HotAccountTracker hotAccounts;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Mock
+    private TransactionSynchronizationRegistry txRegistry;
+
+    @Spy
+    private TransferMetrics metrics = new TransferMetrics(registry);
+
     @InjectMocks
     private BeneficioEjbService service;
 
@@ -47,6 +110,9 @@ class BeneficioEjbServiceTest {
         beneficioDestino = new Beneficio("Beneficio B", "Descrição B", new BigDecimal("500.00"));
         beneficioDestino.setId(2L);
         beneficioDestino.setAtivo(true);
+
+        // Sem lançamentos do ledger pendentes, salvo quando o teste define outro saldo
+        mockSaldoPendentePadrao();
     }
 
     @Test
@@ -54,10 +120,7 @@ class BeneficioEjbServiceTest {
     void deveRealizarTransferenciaComSucesso() {
         // Arrange
         BigDecimal valorTransferencia = new BigDecimal("300.00");
-        when(entityManager.find(eq(Beneficio.class), eq(1L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioOrigem);
-        when(entityManager.find(eq(Beneficio.class), eq(2L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioDestino);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
 
         // Act
         service.transfer(1L, 2L, valorTransferencia);
@@ -65,7 +128,7 @@ class BeneficioEjbServiceTest {
         // Assert
         assertEquals(new BigDecimal("700.00"), beneficioOrigem.getValor());
         assertEquals(new BigDecimal("800.00"), beneficioDestino.getValor());
-        verify(entityManager, times(2)).merge(any(Beneficio.class));
+        verify(entityManager, never()).merge(any());
     }
 
     @Test
@@ -78,7 +141,7 @@ class BeneficioEjbServiceTest {
         );
         
         assertTrue(exception.getMessage().contains("origem não pode ser nulo"));
-        verify(entityManager, never()).find(any(Class.class), any(), any(LockModeType.class));
+        verify(entityManager, never()).createNamedQuery(anyString(), eq(Beneficio.class));
     }
 
     @Test
@@ -91,7 +154,7 @@ class BeneficioEjbServiceTest {
         );
         
         assertTrue(exception.getMessage().contains("destino não pode ser nulo"));
-        verify(entityManager, never()).find(any(Class.class), any(), any(LockModeType.class));
+        verify(entityManager, never()).createNamedQuery(anyString(), eq(Beneficio.class));
     }
 
     @Test
@@ -104,7 +167,7 @@ class BeneficioEjbServiceTest {
         );
         
         assertTrue(exception.getMessage().contains("Valor da transferência não pode ser nulo"));
-        verify(entityManager, never()).find(any(Class.class), any(), any(LockModeType.class));
+        verify(entityManager, never()).createNamedQuery(anyString(), eq(Beneficio.class));
     }
 
     @Test
@@ -117,7 +180,7 @@ class BeneficioEjbServiceTest {
         );
         
         assertTrue(exception.getMessage().contains("maior que zero"));
-        verify(entityManager, never()).find(any(Class.class), any(), any(LockModeType.class));
+        verify(entityManager, never()).createNamedQuery(anyString(), eq(Beneficio.class));
     }
 
     @Test
@@ -130,7 +193,20 @@ class BeneficioEjbServiceTest {
         );
         
         assertTrue(exception.getMessage().contains("maior que zero"));
-        verify(entityManager, never()).find(any(Class.class), any(), any(LockModeType.class));
+        verify(entityManager, never()).createNamedQuery(anyString(), eq(Beneficio.class));
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceção quando valor tem mais de duas casas decimais")
+    void deveLancarExcecaoQuandoValorTemMaisDeDuasCasas() {
+        // Act & Assert
+        TransferenciaInvalidaException exception = assertThrows(
+            TransferenciaInvalidaException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("10.005"))
+        );
+
+        assertTrue(exception.getMessage().contains("duas casas decimais"));
+        verify(entityManager, never()).createNamedQuery(anyString(), eq(Beneficio.class));
     }
 
     @Test
@@ -143,15 +219,14 @@ class BeneficioEjbServiceTest {
         );
         
         assertTrue(exception.getMessage().contains("mesmo benefício"));
-        verify(entityManager, never()).find(any(Class.class), any(), any(LockModeType.class));
+        verify(entityManager, never()).createNamedQuery(anyString(), eq(Beneficio.class));
     }
 
     @Test
     @DisplayName("Deve lançar exceção quando benefício de origem não existe")
     void deveLancarExcecaoQuandoBeneficioOrigemNaoExiste() {
         // Arrange
-        when(entityManager.find(eq(Beneficio.class), eq(1L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(null);
+        mockLockQuery(Arrays.asList(beneficioDestino));
 
         // Act & Assert
         BeneficioNotFoundException exception = assertThrows(
@@ -167,10 +242,7 @@ class BeneficioEjbServiceTest {
     @DisplayName("Deve lançar exceção quando benefício de destino não existe")
     void deveLancarExcecaoQuandoBeneficioDestinoNaoExiste() {
         // Arrange
-        when(entityManager.find(eq(Beneficio.class), eq(1L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioOrigem);
-        when(entityManager.find(eq(Beneficio.class), eq(2L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(null);
+        mockLockQuery(Arrays.asList(beneficioOrigem));
 
         // Act & Assert
         BeneficioNotFoundException exception = assertThrows(
@@ -187,10 +259,7 @@ class BeneficioEjbServiceTest {
     void deveLancarExcecaoQuandoBeneficioOrigemInativo() {
         // Arrange
         beneficioOrigem.setAtivo(false);
-        when(entityManager.find(eq(Beneficio.class), eq(1L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioOrigem);
-        when(entityManager.find(eq(Beneficio.class), eq(2L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioDestino);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
 
         // Act & Assert
         TransferenciaInvalidaException exception = assertThrows(
@@ -207,10 +276,7 @@ class BeneficioEjbServiceTest {
     void deveLancarExcecaoQuandoBeneficioDestinoInativo() {
         // Arrange
         beneficioDestino.setAtivo(false);
-        when(entityManager.find(eq(Beneficio.class), eq(1L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioOrigem);
-        when(entityManager.find(eq(Beneficio.class), eq(2L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioDestino);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
 
         // Act & Assert
         TransferenciaInvalidaException exception = assertThrows(
@@ -227,10 +293,7 @@ class BeneficioEjbServiceTest {
     void deveLancarExcecaoQuandoSaldoInsuficiente() {
         // Arrange
         BigDecimal valorTransferencia = new BigDecimal("1500.00"); // Maior que saldo de 1000
-        when(entityManager.find(eq(Beneficio.class), eq(1L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioOrigem);
-        when(entityManager.find(eq(Beneficio.class), eq(2L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioDestino);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
 
         // Act & Assert
         SaldoInsuficienteException exception = assertThrows(
@@ -245,22 +308,88 @@ class BeneficioEjbServiceTest {
         verify(entityManager, never()).merge(any());
     }
 
+    @Test
+    @DisplayName("Deve devolver saldo insuficiente no resultado sem lançar exceção nem alterar saldos")
+    void deveDevolverSaldoInsuficienteSemExcecao() {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+
+        // Act
+        TransferOutcome outcome = service.tryTransfer(1L, 2L, new BigDecimal("1500.00"));
+
+        // Assert
+        assertEquals(TransferOutcome.Status.SALDO_INSUFICIENTE, outcome.getStatus());
+        assertEquals(100_000L, outcome.getSaldoOrigemCentavos());
+        assertEquals(TransferStatus.SALDO_INSUFICIENTE, outcome.toTransferStatus());
+        assertEquals(new BigDecimal("1000.00"), beneficioOrigem.getValor());
+        verify(entityManager, never()).merge(any());
+    }
+
+    @Test
+    @DisplayName("Deve devolver os novos saldos no resultado de uma transferência aplicada")
+    void deveDevolverNovosSaldos() {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+
+        // Act
+        TransferOutcome outcome = service.tryTransfer(1L, 2L, new BigDecimal("300.00"));
+
+        // Assert
+        assertTrue(outcome.isSucesso());
+        assertEquals(new BigDecimal("700.00"), outcome.getSaldoOrigem());
+        assertEquals(new BigDecimal("800.00"), outcome.getSaldoDestino());
+        verify(entityManager, never()).merge(any());
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceções de negócio sem stack trace e com a mensagem montada na leitura")
+    void deveLancarExcecoesSemStackTrace() {
+        // Arrange
+        beneficioDestino.setAtivo(false);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+
+        // Act
+        TransferenciaInvalidaException exception = assertThrows(
+            TransferenciaInvalidaException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("10.00"))
+        );
+
+        // Assert
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("Benefício de destino está inativo. ID: 2", exception.getMessage());
+        assertEquals("Benefício não encontrado com ID: 7", new BeneficioNotFoundException(7L).getMessage());
+    }
+
     @Test
     @DisplayName("Deve usar Pessimistic Locking para prevenir race conditions")
     void deveUsarPessimisticLocking() {
         // Arrange
         BigDecimal valorTransferencia = new BigDecimal("100.00");
-        when(entityManager.find(eq(Beneficio.class), eq(1L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioOrigem);
-        when(entityManager.find(eq(Beneficio.class), eq(2L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioDestino);
+        TypedQuery<Beneficio> query = mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
 
         // Act
         service.transfer(1L, 2L, valorTransferencia);
 
         // Assert - Verifica que o lock foi aplicado
-        verify(entityManager).find(eq(Beneficio.class), eq(1L), eq(LockModeType.PESSIMISTIC_WRITE));
-        verify(entityManager).find(eq(Beneficio.class), eq(2L), eq(LockModeType.PESSIMISTIC_WRITE));
+        verify(query).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        verify(entityManager, never()).find(any(Class.class), any(), any(LockModeType.class));
+    }
+
+    @Test
+    @DisplayName("Deve bloquear origem e destino em uma única consulta em ordem crescente de ID")
+    void deveBloquearAmbosEmUmaConsultaEmOrdemCrescente() {
+        // Arrange - transferência no sentido inverso (2 -> 1)
+        TypedQuery<Beneficio> query = mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+
+        // Act
+        service.transfer(2L, 1L, new BigDecimal("100.00"));
+
+        // Assert - o lock segue a ordem canônica de ID, não a direção da transferência
+        verify(query).setParameter("ids", Arrays.asList(1L, 2L));
+        verify(query).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        verify(query, times(1)).getResultList();
+        assertEquals(new BigDecimal("1100.00"), beneficioOrigem.getValor());
+        assertEquals(new BigDecimal("400.00"), beneficioDestino.getValor());
     }
 
     @Test
@@ -268,10 +397,7 @@ class BeneficioEjbServiceTest {
     void deveTransferirTodoSaldoQuandoValorIgualAoSaldo() {
         // Arrange
         BigDecimal valorTransferencia = new BigDecimal("1000.00"); // Exatamente o saldo
-        when(entityManager.find(eq(Beneficio.class), eq(1L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioOrigem);
-        when(entityManager.find(eq(Beneficio.class), eq(2L), eq(LockModeType.PESSIMISTIC_WRITE)))
-            .thenReturn(beneficioDestino);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
 
         // Act
         service.transfer(1L, 2L, valorTransferencia);
@@ -279,6 +405,812 @@ class BeneficioEjbServiceTest {
         // Assert
         assertEquals(BigDecimal.ZERO.setScale(2), beneficioOrigem.getValor().setScale(2));
         assertEquals(new BigDecimal("1500.00"), beneficioDestino.getValor());
-        verify(entityManager, times(2)).merge(any(Beneficio.class));
+        verify(entityManager, never()).merge(any());
+    }
+
+    @Test
+    @DisplayName("Deve aplicar lote bloqueando os benefícios uma única vez em ordem crescente")
+    void deveAplicarLoteComLockUnicoEmOrdemCrescente() {
+        // Arrange
+        TypedQuery<Beneficio> query = mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        List<TransferRequest> lote = Arrays.asList(
+            new TransferRequest(2L, 1L, new BigDecimal("100.00")),
+            new TransferRequest(1L, 2L, new BigDecimal("300.00"))
+        );
+
+        // Act
+        List<TransferResult> resultados = service.transferBatch(lote);
+
+        // Assert
+        assertEquals(2, resultados.size());
+        assertTrue(resultados.stream().allMatch(TransferResult::isSucesso));
+        assertEquals(new BigDecimal("800.00"), beneficioOrigem.getValor());
+        assertEquals(new BigDecimal("700.00"), beneficioDestino.getValor());
+        verify(query).setParameter("ids", Arrays.asList(1L, 2L));
+        verify(query).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        verify(query, times(1)).getResultList();
+        verify(entityManager, times(1)).flush();
+        verify(entityManager, never()).find(any(Class.class), any(), any(LockModeType.class));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar apenas o item com saldo insuficiente sem afetar o restante do lote")
+    void deveRejeitarApenasItemComSaldoInsuficiente() {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        List<TransferRequest> lote = Arrays.asList(
+            new TransferRequest(1L, 2L, new BigDecimal("600.00")),
+            new TransferRequest(1L, 2L, new BigDecimal("600.00")),
+            new TransferRequest(2L, 1L, new BigDecimal("100.00"))
+        );
+
+        // Act
+        List<TransferResult> resultados = service.transferBatch(lote);
+
+        // Assert
+        assertEquals(TransferStatus.SUCESSO, resultados.get(0).getStatus());
+        assertEquals(TransferStatus.SALDO_INSUFICIENTE, resultados.get(1).getStatus());
+        assertTrue(resultados.get(1).getMessage().contains("Saldo insuficiente"));
+        assertEquals(TransferStatus.SUCESSO, resultados.get(2).getStatus());
+        assertEquals(new BigDecimal("500.00"), beneficioOrigem.getValor());
+        assertEquals(new BigDecimal("1000.00"), beneficioDestino.getValor());
+    }
+
+    @Test
+    @DisplayName("Deve reportar por item benefícios inexistentes e parâmetros inválidos no lote")
+    void deveReportarItensInvalidosNoLote() {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem));
+        List<TransferRequest> lote = Arrays.asList(
+            new TransferRequest(1L, 99L, new BigDecimal("10.00")),
+            new TransferRequest(1L, 1L, new BigDecimal("10.00")),
+            null
+        );
+
+        // Act
+        List<TransferResult> resultados = service.transferBatch(lote);
+
+        // Assert
+        assertEquals(TransferStatus.BENEFICIO_NAO_ENCONTRADO, resultados.get(0).getStatus());
+        assertEquals(TransferStatus.TRANSFERENCIA_INVALIDA, resultados.get(1).getStatus());
+        assertEquals(TransferStatus.TRANSFERENCIA_INVALIDA, resultados.get(2).getStatus());
+        assertEquals(new BigDecimal("1000.00"), beneficioOrigem.getValor());
+    }
+
+    @Test
+    @DisplayName("Deve ler sem lock de linha e antecipar a verificação de versão no modo otimista")
+    void deveUsarOptimisticLockingQuandoSolicitado() {
+        // Arrange
+        TypedQuery<Beneficio> query = mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+
+        // Act
+        service.transfer(1L, 2L, new BigDecimal("300.00"), TransferMode.OPTIMISTIC);
+
+        // Assert
+        verify(query).setLockMode(LockModeType.OPTIMISTIC);
+        verify(query, never()).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        verify(entityManager).flush();
+        assertEquals(new BigDecimal("700.00"), beneficioOrigem.getValor());
+        assertEquals(new BigDecimal("800.00"), beneficioDestino.getValor());
+    }
+
+    @Test
+    @DisplayName("Deve transferir com UPDATEs condicionais em ordem crescente de ID no modo set-based")
+    void deveTransferirComUpdatesCondicionais() {
+        // Arrange
+        Query debito = mockUpdate(Beneficio.DEBITAR_SE_SALDO_SUFICIENTE, 1);
+        Query credito = mockUpdate(Beneficio.CREDITAR_SE_ATIVO, 1);
+
+        // Act - origem 2, destino 1: o crédito (ID menor) é aplicado primeiro
+        service.transfer(2L, 1L, new BigDecimal("100.00"), TransferMode.SET_BASED);
+
+        // Assert
+        InOrder ordem = inOrder(credito, debito);
+        ordem.verify(credito).setParameter("id", 1L);
+        ordem.verify(debito).setParameter("id", 2L);
+        verify(entityManager, never()).createNamedQuery(anyString(), eq(Beneficio.class));
+        verify(entityManager, never()).merge(any());
+    }
+
+    @Test
+    @DisplayName("Deve diagnosticar saldo insuficiente quando o débito condicional não afeta linha")
+    void deveDiagnosticarSaldoInsuficienteNoModoSetBased() {
+        // Arrange
+        mockUpdate(Beneficio.DEBITAR_SE_SALDO_SUFICIENTE, 0);
+        mockEstados(
+            new Object[]{1L, Boolean.TRUE, 100_000L, 0},
+            new Object[]{2L, Boolean.TRUE, 50_000L, 0}
+        );
+
+        // Act & Assert
+        SaldoInsuficienteException exception = assertThrows(
+            SaldoInsuficienteException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("1500.00"), TransferMode.SET_BASED)
+        );
+        assertTrue(exception.getMessage().contains("Saldo insuficiente"));
+        verify(entityManager, never()).createNamedQuery(Beneficio.CREDITAR_SE_ATIVO);
+    }
+
+    @Test
+    @DisplayName("Deve diagnosticar destino inativo ou inexistente no modo set-based")
+    void deveDiagnosticarDestinoNoModoSetBased() {
+        // Arrange
+        mockUpdate(Beneficio.DEBITAR_SE_SALDO_SUFICIENTE, 1);
+        mockUpdate(Beneficio.CREDITAR_SE_ATIVO, 0);
+        mockEstados(
+            new Object[]{1L, Boolean.TRUE, 90_000L, 0},
+            new Object[]{2L, Boolean.FALSE, 50_000L, 0}
+        );
+
+        // Act & Assert
+        TransferenciaInvalidaException exception = assertThrows(
+            TransferenciaInvalidaException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("100.00"), TransferMode.SET_BASED)
+        );
+        assertTrue(exception.getMessage().contains("destino está inativo"));
+    }
+
+    @Test
+    @DisplayName("Deve bloquear apenas a origem e creditar o destino por incremento atômico")
+    void deveBloquearApenasOrigemNoCreditoComutativo() {
+        // Arrange
+        when(entityManager.find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(beneficioOrigem);
+        Query credito = mockUpdate(Beneficio.CREDITAR_SE_ATIVO, 1);
+
+        // Act
+        service.transfer(1L, 2L, new BigDecimal("300.00"), TransferMode.COMMUTATIVE_CREDIT);
+
+        // Assert
+        assertEquals(new BigDecimal("700.00"), beneficioOrigem.getValor());
+        verify(credito).setParameter("id", 2L);
+        verify(credito).setParameter("valor", 30_000L);
+        verify(entityManager, never()).find(eq(Beneficio.class), eq(2L), any(LockModeType.class));
+        verify(entityManager, never()).createNamedQuery(Beneficio.FIND_NAO_PARTICIONADOS_BY_IDS_ORDERED, Beneficio.class);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar crédito comutativo sem creditar quando a origem não tem saldo")
+    void deveRejeitarCreditoComutativoComSaldoInsuficiente() {
+        // Arrange
+        when(entityManager.find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(beneficioOrigem);
+
+        // Act & Assert
+        assertThrows(
+            SaldoInsuficienteException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("1500.00"), TransferMode.COMMUTATIVE_CREDIT)
+        );
+        assertEquals(new BigDecimal("1000.00"), beneficioOrigem.getValor());
+        verify(entityManager, never()).createNamedQuery(Beneficio.CREDITAR_SE_ATIVO);
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceção quando o destino do crédito comutativo não existe")
+    void deveLancarExcecaoQuandoDestinoDoCreditoComutativoNaoExiste() {
+        // Arrange
+        when(entityManager.find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(beneficioOrigem);
+        mockUpdate(Beneficio.CREDITAR_SE_ATIVO, 0);
+        mockEstados();
+
+        // Act & Assert
+        BeneficioNotFoundException exception = assertThrows(
+            BeneficioNotFoundException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("100.00"), TransferMode.COMMUTATIVE_CREDIT)
+        );
+        assertTrue(exception.getMessage().contains("ID: 2"));
+    }
+
+    @Test
+    @DisplayName("Deve debitar e creditar sub-saldos quando os benefícios estão particionados")
+    void deveUsarSubSaldosDeBeneficiosParticionados() {
+        // Arrange - o UPDATE em BENEFICIO ignora particionados e não afeta linha
+        mockUpdate(Beneficio.DEBITAR_SE_SALDO_SUFICIENTE, 0);
+        mockUpdate(Beneficio.CREDITAR_SE_ATIVO, 0);
+        mockEstados(
+            new Object[]{1L, Boolean.TRUE, 0L, 8},
+            new Object[]{2L, Boolean.TRUE, 0L, 4}
+        );
+        when(subSaldoService.debitar(1L, new BigDecimal("100.00"))).thenReturn(true);
+
+        // Act
+        service.transfer(1L, 2L, new BigDecimal("100.00"), TransferMode.SET_BASED);
+
+        // Assert
+        verify(subSaldoService).debitar(1L, new BigDecimal("100.00"));
+        verify(subSaldoService).creditar(2L, 4, new BigDecimal("100.00"));
+    }
+
+    @Test
+    @DisplayName("Deve validar saldo pela soma dos sub-saldos no modo pessimista")
+    void deveValidarSaldoPelaSomaDosSubSaldos() {
+        // Arrange
+        beneficioOrigem.setValor(BigDecimal.ZERO);
+        beneficioOrigem.setSubSaldos(4);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        when(subSaldoService.saldo(1L)).thenReturn(new BigDecimal("50.00"));
+
+        // Act & Assert
+        SaldoInsuficienteException exception = assertThrows(
+            SaldoInsuficienteException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("100.00"))
+        );
+        assertTrue(exception.getMessage().contains("50"));
+        verify(subSaldoService, never()).debitar(any(), any());
+        assertEquals(new BigDecimal("500.00"), beneficioDestino.getValor());
+    }
+
+    @Test
+    @DisplayName("Deve debitar sub-saldos sem bloquear a linha do benefício particionado no modo pessimista")
+    void deveDebitarSubSaldosSemBloquearBeneficioParticionado() {
+        // Arrange
+        beneficioOrigem.setValor(BigDecimal.ZERO);
+        beneficioOrigem.setSubSaldos(4);
+        TypedQuery<Beneficio> query = mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        when(subSaldoService.saldo(1L)).thenReturn(new BigDecimal("1000.00"));
+        when(subSaldoService.debitar(1L, new BigDecimal("100.00"))).thenReturn(true);
+
+        // Act
+        service.transfer(1L, 2L, new BigDecimal("100.00"));
+
+        // Assert - só o destino comum recebe o lock; a origem é lida sem lock e debitada nos slots
+        verify(query).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        verify(query).getResultList();
+        verify(subSaldoService).debitar(1L, new BigDecimal("100.00"));
+        assertEquals(new BigDecimal("600.00"), beneficioDestino.getValor());
+        verify(entityManager, never()).refresh(any(), any(LockModeType.class));
+    }
+
+    @Test
+    @DisplayName("Deve apenas inserir um lançamento no ledger sem alterar os saldos")
+    void deveInserirLancamentoNoLedger() {
+        // Arrange
+        when(entityManager.find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(beneficioOrigem);
+        mockEstados(new Object[]{2L, Boolean.TRUE, 50_000L, 0});
+        mockSaldoPendente(new BigDecimal("-900.00"));
+
+        // Act
+        service.transfer(1L, 2L, new BigDecimal("100.00"), TransferMode.LEDGER);
+
+        // Assert
+        ArgumentCaptor<Transferencia> lancamento = ArgumentCaptor.forClass(Transferencia.class);
+        verify(entityManager).persist(lancamento.capture());
+        assertEquals(1L, lancamento.getValue().getOrigemId());
+        assertEquals(2L, lancamento.getValue().getDestinoId());
+        assertEquals(new BigDecimal("100.00"), lancamento.getValue().getValor());
+        assertFalse(lancamento.getValue().getConsolidada());
+        assertEquals(new BigDecimal("1000.00"), beneficioOrigem.getValor());
+        verify(entityManager, never()).find(eq(Beneficio.class), eq(2L), any(LockModeType.class));
+        verify(entityManager).lock(beneficioOrigem, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+    }
+
+    @Test
+    @DisplayName("Deve considerar lançamentos pendentes no saldo disponível do ledger")
+    void deveConsiderarPendentesNoSaldoDoLedger() {
+        // Arrange - 1000 em VALOR, mas 950 já debitados em lançamentos pendentes
+        when(entityManager.find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(beneficioOrigem);
+        mockEstados(new Object[]{2L, Boolean.TRUE, 50_000L, 0});
+        mockSaldoPendente(new BigDecimal("-950.00"));
+
+        // Act & Assert
+        SaldoInsuficienteException exception = assertThrows(
+            SaldoInsuficienteException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("100.00"), TransferMode.LEDGER)
+        );
+        assertTrue(exception.getMessage().contains("50"));
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    @DisplayName("Deve descontar débitos pendentes do ledger no saldo do modo pessimista")
+    void deveDescontarDebitosPendentesNoModoPessimista() {
+        // Arrange - 1000 em VALOR, mas 950 já debitados em lançamentos pendentes
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        mockSaldoPendente(new BigDecimal("-950.00"));
+
+        // Act & Assert
+        assertThrows(
+            SaldoInsuficienteException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("100.00"))
+        );
+        assertEquals(new BigDecimal("1000.00"), beneficioOrigem.getValor());
+        assertEquals(new BigDecimal("500.00"), beneficioDestino.getValor());
+    }
+
+    @Test
+    @DisplayName("Deve desfazer o débito set-based que não cobre os débitos pendentes do ledger")
+    void deveDesfazerDebitoSetBasedComDebitosPendentes() {
+        // Arrange - depois do UPDATE restam 900 em VALOR, com 950 pendentes
+        mockUpdate(Beneficio.DEBITAR_SE_SALDO_SUFICIENTE, 1);
+        mockUpdate(Beneficio.CREDITAR_SE_ATIVO, 1);
+        mockSaldoPendente(new BigDecimal("-950.00"));
+        mockEstados(new Object[]{1L, Boolean.TRUE, 90_000L, 0});
+
+        // Act & Assert - a exceção marca a transação para rollback
+        assertThrows(
+            SaldoInsuficienteException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("100.00"), TransferMode.SET_BASED)
+        );
+    }
+
+    @Test
+    @DisplayName("Deve adquirir o lock em memória dos dois benefícios e liberá-lo mesmo na rejeição")
+    void deveLiberarLockEmMemoriaNaRejeicao() throws Exception {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+
+        // Act
+        assertThrows(
+            SaldoInsuficienteException.class,
+            () -> service.transfer(1L, 2L, new BigDecimal("5000.00"))
+        );
+
+        // Assert - outra thread consegue adquirir as mesmas faixas imediatamente
+        verify(lockManager).lock(1L, 2L);
+        CompletableFuture.runAsync(() -> lockManager.lock(1L, 2L).close()).get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Deve adquirir lock em memória só das pernas que o modo bloqueia no banco")
+    void deveAdquirirLockEmMemoriaSoDasPernasBloqueadas() {
+        // Arrange
+        mockUpdate(Beneficio.DEBITAR_SE_SALDO_SUFICIENTE, 1);
+        mockUpdate(Beneficio.CREDITAR_SE_ATIVO, 1);
+        when(entityManager.find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(beneficioOrigem);
+
+        // Act
+        service.transfer(1L, 2L, new BigDecimal("10.00"), TransferMode.SET_BASED);
+        service.transfer(1L, 2L, new BigDecimal("10.00"), TransferMode.COMMUTATIVE_CREDIT);
+
+        // Assert - set-based não adquire faixa; crédito comutativo, só a da origem
+        verify(lockManager, times(1)).lock(any(Long[].class));
+        verify(lockManager).lock(1L);
+    }
+
+    @Test
+    @DisplayName("Deve dispensar o lock em memória de benefício particionado depois de carregá-lo")
+    void deveDispensarLockEmMemoriaDeBeneficioParticionado() {
+        // Arrange
+        beneficioOrigem.setValor(BigDecimal.ZERO);
+        beneficioOrigem.setSubSaldos(4);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        when(subSaldoService.saldo(1L)).thenReturn(new BigDecimal("1000.00"));
+        when(subSaldoService.debitar(1L, new BigDecimal("100.00"))).thenReturn(true);
+
+        // Act
+        service.transfer(1L, 2L, new BigDecimal("100.00"));
+        service.transfer(1L, 2L, new BigDecimal("100.00"));
+
+        // Assert - a primeira descobre a partição; a segunda só bloqueia o destino
+        InOrder ordem = inOrder(lockManager);
+        ordem.verify(lockManager).lock(1L, 2L);
+        ordem.verify(lockManager).lock(2L);
+        assertTrue(lockManager.isExempt(1L));
+        assertFalse(lockManager.isExempt(2L));
+    }
+
+    @Test
+    @DisplayName("Deve reter o lock em memória até o fim da transação JTA")
+    void deveReterLockEmMemoriaAteOFimDaTransacao() {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        List<Synchronization> sincronizacoes = mockTransacaoJta();
+        int faixa = lockManager.stripeOf(1L);
+
+        // Act
+        service.transfer(1L, 2L, new BigDecimal("100.00"));
+
+        // Assert - retida depois do método, liberada só no fim da transação
+        assertEquals(0, Arrays.stream(lockManager.getHoldHistogram(faixa)).sum());
+        sincronizacoes.forEach(s -> s.afterCompletion(jakarta.transaction.Status.STATUS_COMMITTED));
+        assertEquals(1, Arrays.stream(lockManager.getHoldHistogram(faixa)).sum());
+        CompletableFuture.runAsync(() -> lockManager.lock(1L, 2L).close()).join();
+    }
+
+    @Test
+    @DisplayName("Deve adquirir o lock em memória antes do flush da chave de idempotência")
+    void deveAdquirirLockEmMemoriaAntesDoFlushDaChave() {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        List<Synchronization> sincronizacoes = mockTransacaoJta();
+
+        // Act
+        boolean aplicada = service.transfer("pedido-42", 1L, 2L, new BigDecimal("100.00"), null);
+
+        // Assert - uma única aquisição, antes do flush, reaproveitada pela transferência
+        assertTrue(aplicada);
+        InOrder ordem = inOrder(lockManager, entityManager);
+        ordem.verify(lockManager).lock(1L, 2L);
+        ordem.verify(entityManager).flush();
+        verify(lockManager, times(1)).lock(any(Long[].class));
+        sincronizacoes.forEach(s -> s.afterCompletion(jakarta.transaction.Status.STATUS_COMMITTED));
+        CompletableFuture.runAsync(() -> lockManager.lock(1L, 2L).close()).join();
+    }
+
+    @Test
+    @DisplayName("Deve capturar a chamada com o desfecho quando a captura está ligada")
+    void deveCapturarChamadaComDesfecho() {
+        // Arrange
+        when(capture.isAtiva()).thenReturn(true);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        BigDecimal valor = new BigDecimal("1500.00");
+
+        // Act
+        service.tryTransfer(1L, 2L, valor, TransferMode.PESSIMISTIC);
+
+        // Assert
+        verify(capture).record(anyLong(), eq(1L), eq(2L), eq(valor), eq(TransferMode.PESSIMISTIC),
+                               eq(TransferOutcome.Status.SALDO_INSUFICIENTE));
+    }
+
+    @Test
+    @DisplayName("Deve capturar a chamada que termina em exceção e relançá-la")
+    void deveCapturarChamadaComExcecao() {
+        // Arrange
+        when(capture.isAtiva()).thenReturn(true);
+
+        // Act
+        TransferenciaInvalidaException exception = assertThrows(
+            TransferenciaInvalidaException.class,
+            () -> service.transfer(1L, 1L, BigDecimal.TEN)
+        );
+
+        // Assert
+        verify(capture).record(anyLong(), eq(1L), eq(1L), eq(BigDecimal.TEN), any(TransferMode.class), eq(exception));
+    }
+
+    @Test
+    @DisplayName("Deve capturar o modo padrão aplicado quando a chamada não informa o modo")
+    void deveCapturarModoPadraoAplicado() {
+        // Arrange
+        when(capture.isAtiva()).thenReturn(true);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        BigDecimal valor = new BigDecimal("100.00");
+
+        // Act
+        service.tryTransfer(1L, 2L, valor, null);
+
+        // Assert
+        verify(capture).record(anyLong(), eq(1L), eq(2L), eq(valor), eq(TransferMode.PESSIMISTIC),
+                               eq(TransferOutcome.Status.SUCESSO));
+    }
+
+    @Test
+    @DisplayName("Deve medir duração, espera e retenção dos locks e rejeição por saldo insuficiente")
+    void deveMedirTransferenciaRejeitada() {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+
+        // Act
+        service.tryTransfer(1L, 2L, new BigDecimal("1500.00"), TransferMode.PESSIMISTIC);
+
+        // Assert
+        assertEquals(1, registry.get("bip.transfer")
+                .tag("mode", "pessimistic").tag("outcome", "saldo_insuficiente").timer().count());
+        assertEquals(1.0, registry.get("bip.transfer.rejections").tag("reason", "saldo_insuficiente").counter().count());
+        assertEquals(1, registry.get("bip.transfer.lock.wait").tag("lock", "memory").timer().count());
+        assertEquals(1, registry.get("bip.transfer.lock.wait").tag("lock", "row").timer().count());
+        assertEquals(1, registry.get("bip.transfer.lock.hold").tag("lock", "memory").timer().count());
+        // Sem transação JTA a retenção do lock de linha não é medida
+        assertEquals(0, registry.get("bip.transfer.lock.hold").tag("lock", "row").timer().count());
+        assertEquals(0.0, registry.get("bip.transfer.in.flight").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Deve medir o lote, as esperas pelos locks e as rejeições de cada item")
+    void deveMedirLoteERejeicoesPorItem() {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        List<TransferRequest> lote = Arrays.asList(
+            new TransferRequest(1L, 2L, new BigDecimal("600.00")),
+            new TransferRequest(1L, 2L, new BigDecimal("600.00")),
+            new TransferRequest(1L, 1L, new BigDecimal("10.00"))
+        );
+
+        // Act
+        service.transferBatch(lote);
+
+        // Assert
+        assertEquals(1, registry.get("bip.transfer.batch").tag("outcome", "sucesso").timer().count());
+        assertEquals(1.0, registry.get("bip.transfer.rejections").tag("reason", "saldo_insuficiente").counter().count());
+        assertEquals(1.0, registry.get("bip.transfer.rejections").tag("reason", "parametros_invalidos").counter().count());
+        assertEquals(1, registry.get("bip.transfer.lock.wait").tag("lock", "memory").timer().count());
+        assertEquals(1, registry.get("bip.transfer.lock.wait").tag("lock", "row").timer().count());
+        assertEquals(0.0, registry.get("bip.transfer.in.flight").gauge().value());
+        verify(hotAccounts, times(2)).record(eq(1L), eq(2L), anyLong());
+        verifyNoMoreInteractions(hotAccounts);
+    }
+
+    @Test
+    @DisplayName("Deve medir o lote que termina em exceção")
+    void deveMedirLoteComErro() {
+        // Arrange
+        RuntimeException falha = new RuntimeException("flush");
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        doThrow(falha).when(entityManager).flush();
+
+        // Act & Assert
+        assertSame(falha, assertThrows(RuntimeException.class,
+            () -> service.transferBatch(Arrays.asList(new TransferRequest(1L, 2L, BigDecimal.TEN)))));
+        assertEquals(1, registry.get("bip.transfer.batch").tag("outcome", "erro").timer().count());
+        assertEquals(0.0, registry.get("bip.transfer.in.flight").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Deve contar parâmetros inválidos e benefício inativo como motivos distintos")
+    void deveContarRejeicoesLancadasPorMotivo() {
+        // Arrange
+        beneficioDestino.setAtivo(false);
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+
+        // Act
+        assertThrows(TransferenciaInvalidaException.class, () -> service.transfer(1L, 1L, BigDecimal.TEN));
+        assertThrows(BeneficioInativoException.class, () -> service.transfer(1L, 2L, BigDecimal.TEN));
+
+        // Assert
+        assertEquals(1.0, registry.get("bip.transfer.rejections").tag("reason", "parametros_invalidos").counter().count());
+        assertEquals(1.0, registry.get("bip.transfer.rejections").tag("reason", "inativo").counter().count());
+        assertEquals(0.0, registry.get("bip.transfer.rejections").tag("reason", "nao_encontrado").counter().count());
+        assertEquals(0.0, registry.get("bip.transfer.in.flight").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Deve alimentar o rastreador de benefícios quentes só com transferências validadas")
+    void deveAlimentarBeneficiosQuentes() {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+
+        // Act
+        service.tryTransfer(1L, 2L, new BigDecimal("100.00"));
+        assertThrows(TransferenciaInvalidaException.class, () -> service.tryTransfer(1L, 1L, BigDecimal.TEN));
+
+        // Assert
+        verify(hotAccounts).record(eq(1L), eq(2L), anyLong());
+        verifyNoMoreInteractions(hotAccounts);
+    }
+
+    @Test
+    @DisplayName("Deve emitir eventos do Flight Recorder de transferência, locks e rejeição")
+    void deveEmitirEventosDoFlightRecorder(@TempDir Path dir) throws IOException {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+        Path arquivo = dir.resolve("transferencias.jfr");
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.bip.Transfer");
+            recording.enable("com.example.bip.LockAcquire");
+            recording.enable("com.example.bip.LockHold");
+            recording.enable("com.example.bip.TransferRejected");
+            recording.start();
+            service.tryTransfer(1L, 2L, new BigDecimal("1500.00"), TransferMode.PESSIMISTIC);
+            recording.stop();
+            recording.dump(arquivo);
+        }
+
+        // Assert
+        List<RecordedEvent> eventos = RecordingFile.readAllEvents(arquivo);
+        RecordedEvent transferencia = unico(eventos, "com.example.bip.Transfer");
+        assertEquals(1L, transferencia.getLong("fromId"));
+        assertEquals(2L, transferencia.getLong("toId"));
+        assertEquals(100_000L, transferencia.getLong("amountBucket"));
+        assertEquals("PESSIMISTIC", transferencia.getString("mode"));
+        assertEquals("saldo_insuficiente", transferencia.getString("outcome"));
+
+        assertEquals("SALDO_INSUFICIENTE", unico(eventos, "com.example.bip.TransferRejected").getString("status"));
+
+        // Um evento por benefício e por lock (memória e linha), na aquisição e na retenção
+        for (String tipo : Arrays.asList("com.example.bip.LockAcquire", "com.example.bip.LockHold")) {
+            List<String> locks = eventos.stream()
+                    .filter(e -> e.getEventType().getName().equals(tipo))
+                    .map(e -> e.getString("lock") + ":" + e.getLong("accountId"))
+                    .sorted()
+                    .collect(Collectors.toList());
+            assertEquals(Arrays.asList("memory:1", "memory:2", "row:1", "row:2"), locks, tipo);
+        }
+    }
+
+    private static RecordedEvent unico(List<RecordedEvent> eventos, String tipo) {
+        List<RecordedEvent> encontrados = eventos.stream()
+                .filter(e -> e.getEventType().getName().equals(tipo))
+                .collect(Collectors.toList());
+        assertEquals(1, encontrados.size(), tipo);
+        return encontrados.get(0);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar a transferência e registrar a chave de idempotência nova")
+    void deveRegistrarChaveDeIdempotenciaNova() {
+        // Arrange
+        mockLockQuery(Arrays.asList(beneficioOrigem, beneficioDestino));
+
+        // Act
+        boolean aplicada = service.transfer("pedido-42", 1L, 2L, new BigDecimal("100.00"), null);
+
+        // Assert
+        assertTrue(aplicada);
+        assertEquals(new BigDecimal("900.00"), beneficioOrigem.getValor());
+        ArgumentCaptor<TransferenciaIdempotencia> chave = ArgumentCaptor.forClass(TransferenciaIdempotencia.class);
+        InOrder ordem = inOrder(entityManager, idempotencia);
+        ordem.verify(entityManager).persist(chave.capture());
+        ordem.verify(entityManager).flush();
+        ordem.verify(idempotencia).lembrarAposCommit("pedido-42", HASH_PEDIDO);
+        assertEquals("pedido-42", chave.getValue().getChave());
+        assertEquals(HASH_PEDIDO, chave.getValue().getHashArgumentos());
+    }
+
+    @Test
+    @DisplayName("Deve responder chave repetida pelo cache sem acessar o banco")
+    void deveIgnorarChaveConhecidaSemAcessarBanco() {
+        // Arrange
+        when(idempotencia.getHash("pedido-42")).thenReturn(HASH_PEDIDO);
+
+        // Act
+        boolean aplicada = service.transfer("pedido-42", 1L, 2L, new BigDecimal("100.00"), null);
+
+        // Assert
+        assertFalse(aplicada);
+        verifyNoInteractions(entityManager);
+        assertEquals(new BigDecimal("1000.00"), beneficioOrigem.getValor());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar chave já confirmada no banco e guardá-la no cache")
+    void deveIgnorarChaveConfirmadaNoBanco() {
+        // Arrange
+        when(entityManager.find(TransferenciaIdempotencia.class, "pedido-42"))
+            .thenReturn(new TransferenciaIdempotencia("pedido-42", HASH_PEDIDO, LocalDateTime.now()));
+
+        // Act
+        boolean aplicada = service.transfer("pedido-42", 1L, 2L, new BigDecimal("100.00"), null);
+
+        // Assert
+        assertFalse(aplicada);
+        verify(idempotencia).lembrar("pedido-42", HASH_PEDIDO);
+        verify(entityManager, never()).persist(any());
+        verify(entityManager, never()).createNamedQuery(anyString(), eq(Beneficio.class));
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceção de aplicação quando a inserção concorrente viola a unicidade")
+    void deveLancarExcecaoParaChaveInseridaPorRequisicaoConcorrente() {
+        // Arrange - a outra requisição confirmou a mesma chave entre a consulta e o flush
+        doThrow(new PersistenceException("could not execute statement",
+                new SQLException("Unique index or primary key violation", "23505")))
+            .when(entityManager).flush();
+
+        // Act & Assert - a transação do chamador já está marcada para rollback
+        TransferenciaDuplicadaException exception = assertThrows(
+            TransferenciaDuplicadaException.class,
+            () -> service.transfer("pedido-42", 1L, 2L, new BigDecimal("100.00"), null)
+        );
+        assertEquals("pedido-42", exception.getChave());
+        verify(idempotencia, never()).lembrar(anyString(), anyString());
+        verify(idempotencia, never()).lembrarAposCommit(anyString(), anyString());
+        verify(entityManager, never()).createNamedQuery(anyString(), eq(Beneficio.class));
+        assertEquals(new BigDecimal("1000.00"), beneficioOrigem.getValor());
+    }
+
+    @Test
+    @DisplayName("Deve propagar falha de flush da chave que não é violação de unicidade")
+    void devePropagarOutraFalhaNoFlushDaChave() {
+        // Arrange
+        doThrow(new PersistenceException("connection reset", new SQLException("I/O", "08006")))
+            .when(entityManager).flush();
+
+        // Act & Assert
+        assertThrows(
+            PersistenceException.class,
+            () -> service.transfer("pedido-42", 1L, 2L, new BigDecimal("100.00"), null)
+        );
+        verify(idempotencia, never()).lembrar(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar chave confirmada reutilizada com outros argumentos")
+    void deveRejeitarChaveReutilizadaComOutrosArgumentos() {
+        // Arrange
+        when(entityManager.find(TransferenciaIdempotencia.class, "pedido-42"))
+            .thenReturn(new TransferenciaIdempotencia("pedido-42", HASH_PEDIDO, LocalDateTime.now()));
+
+        // Act & Assert
+        assertThrows(
+            TransferenciaInvalidaException.class,
+            () -> service.transfer("pedido-42", 1L, 2L, new BigDecimal("200.00"), null)
+        );
+        verify(entityManager, never()).persist(any());
+        assertEquals(new BigDecimal("1000.00"), beneficioOrigem.getValor());
+    }
+
+    @Test
+    @DisplayName("Deve calcular o mesmo hash para o mesmo pedido e hashes distintos para pedidos distintos")
+    void deveCalcularHashDosArgumentos() {
+        assertEquals(HASH_PEDIDO,
+            BeneficioEjbService.hashArgumentos(1L, 2L, new BigDecimal("100"), TransferMode.PESSIMISTIC));
+        assertNotEquals(HASH_PEDIDO,
+            BeneficioEjbService.hashArgumentos(2L, 1L, new BigDecimal("100.00"), TransferMode.PESSIMISTIC));
+        assertNotEquals(HASH_PEDIDO,
+            BeneficioEjbService.hashArgumentos(1L, 2L, new BigDecimal("100.00"), TransferMode.LEDGER));
+        assertEquals(TransferenciaIdempotencia.TAMANHO_HASH, HASH_PEDIDO.length());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar chave de idempotência vazia")
+    void deveRejeitarChaveDeIdempotenciaVazia() {
+        // Act & Assert
+        assertThrows(
+            TransferenciaInvalidaException.class,
+            () -> service.transfer(" ", 1L, 2L, new BigDecimal("100.00"), null)
+        );
+        verifyNoInteractions(entityManager, idempotencia);
+    }
+
+    /**
+     * Simula uma transação JTA ativa, com recursos em mapa e as sincronizações guardadas.
+     */
+    private List<Synchronization> mockTransacaoJta() {
+        Map<Object, Object> recursos = new HashMap<>();
+        List<Synchronization> sincronizacoes = new ArrayList<>();
+        when(txRegistry.getTransactionKey()).thenReturn(new Object());
+        when(txRegistry.getResource(any())).thenAnswer(i -> recursos.get(i.getArgument(0)));
+        doAnswer(i -> recursos.put(i.getArgument(0), i.getArgument(1))).when(txRegistry).putResource(any(), any());
+        doAnswer(i -> sincronizacoes.add(i.getArgument(0))).when(txRegistry).registerInterposedSynchronization(any());
+        return sincronizacoes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockSaldoPendentePadrao() {
+        TypedQuery<BigDecimal> query = mock(TypedQuery.class);
+        lenient().when(entityManager.createNamedQuery(Transferencia.SALDO_PENDENTE, BigDecimal.class)).thenReturn(query);
+        lenient().when(query.setParameter(anyString(), any())).thenReturn(query);
+        lenient().when(query.getSingleResult()).thenReturn(BigDecimal.ZERO);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockSaldoPendente(BigDecimal saldo) {
+        TypedQuery<BigDecimal> query = mock(TypedQuery.class);
+        when(entityManager.createNamedQuery(Transferencia.SALDO_PENDENTE, BigDecimal.class)).thenReturn(query);
+        when(query.setParameter("beneficioId", 1L)).thenReturn(query);
+        when(query.getSingleResult()).thenReturn(saldo);
+    }
+
+    private Query mockUpdate(String nome, int linhasAfetadas) {
+        Query query = mock(Query.class);
+        when(entityManager.createNamedQuery(nome)).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(linhasAfetadas);
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockEstados(Object[]... estados) {
+        TypedQuery<Object[]> query = mock(TypedQuery.class);
+        when(entityManager.createNamedQuery(Beneficio.FIND_ESTADO_BY_IDS, Object[].class)).thenReturn(query);
+        when(query.setParameter(eq("ids"), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(Arrays.asList(estados));
+    }
+
+    /**
+     * Consulta com lock dos benefícios não particionados; os particionados do resultado
+     * vêm da leitura sem lock ({@link #mockLeituraSemLock(List)}).
+     */
+    @SuppressWarnings("unchecked")
+    private TypedQuery<Beneficio> mockLockQuery(List<Beneficio> resultado) {
+        TypedQuery<Beneficio> query = mock(TypedQuery.class);
+        when(entityManager.createNamedQuery(Beneficio.FIND_NAO_PARTICIONADOS_BY_IDS_ORDERED, Beneficio.class))
+            .thenReturn(query);
+        when(query.setParameter(eq("ids"), any())).thenReturn(query);
+        when(query.setLockMode(any(LockModeType.class))).thenReturn(query);
+        when(query.getResultList()).thenReturn(
+            resultado.stream().filter(b -> !b.isParticionado()).collect(Collectors.toList()));
+        mockLeituraSemLock(resultado.stream().filter(Beneficio::isParticionado).collect(Collectors.toList()));
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypedQuery<Beneficio> mockLeituraSemLock(List<Beneficio> resultado) {
+        TypedQuery<Beneficio> query = mock(TypedQuery.class);
+        lenient().when(entityManager.createNamedQuery(Beneficio.FIND_BY_IDS_ORDERED, Beneficio.class)).thenReturn(query);
+        lenient().when(query.setParameter(eq("ids"), any())).thenReturn(query);
+        lenient().when(query.getResultList()).thenReturn(resultado);
+        return query;
     }
 }
@@ -0,0 +1,221 @@
+package com.example.ejb;
+
+import com.example.ejb.exception.TransferenciaInvalidaException;
+import com.example.ejb.model.Beneficio;
+import com.example.ejb.model.BeneficioSubSaldo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para BeneficioSubSaldoService.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BeneficioSubSaldoService - Testes de Sub-saldos")
+class BeneficioSubSaldoServiceTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private BeneficioSubSaldoService service;
+
+    private Beneficio beneficio;
+
+    @BeforeEach
+    void setUp() {
+        beneficio = new Beneficio("Beneficio Quente", "Pool de folha", new BigDecimal("1000.01"));
+        beneficio.setId(1L);
+    }
+
+    @Test
+    @DisplayName("Deve particionar o saldo em slots com diferença máxima de um centavo")
+    void deveParticionarSaldoEmSlots() {
+        // Arrange
+        when(entityManager.find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(beneficio);
+
+        // Act
+        service.particionar(1L, 4);
+
+        // Assert
+        ArgumentCaptor<BeneficioSubSaldo> slots = ArgumentCaptor.forClass(BeneficioSubSaldo.class);
+        verify(entityManager, times(4)).persist(slots.capture());
+        assertEquals(new BigDecimal("250.01"), slots.getAllValues().get(0).getValor());
+        assertEquals(new BigDecimal("250.00"), slots.getAllValues().get(3).getValor());
+        assertEquals(4, beneficio.getSubSaldos());
+        assertTrue(beneficio.isParticionado());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar particionamento com quantidade inválida ou benefício já particionado")
+    void deveRejeitarParticionamentoInvalido() {
+        assertThrows(TransferenciaInvalidaException.class, () -> service.particionar(1L, 0));
+
+        beneficio.setSubSaldos(2);
+        when(entityManager.find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(beneficio);
+        assertThrows(TransferenciaInvalidaException.class, () -> service.particionar(1L, 4));
+    }
+
+    @Test
+    @DisplayName("Deve debitar em um slot candidato com saldo suficiente")
+    void deveDebitarEmSlotCandidato() {
+        // Arrange
+        mockCandidatos(Arrays.asList(2, 5));
+        Query debito = mockUpdate(BeneficioSubSaldo.DEBITAR_SE_SALDO_SUFICIENTE, 1);
+
+        // Act & Assert
+        assertTrue(service.debitar(1L, new BigDecimal("10.00")));
+        verify(debito, times(1)).executeUpdate();
+    }
+
+    @Test
+    @DisplayName("Deve concentrar saldo dos slots quando nenhum cobre o débito sozinho")
+    void deveConcentrarSaldoQuandoNenhumSlotCobreODebito() {
+        // Arrange
+        mockCandidatos(new ArrayList<>());
+        BeneficioSubSaldo s0 = new BeneficioSubSaldo(1L, 0, new BigDecimal("30.00"));
+        BeneficioSubSaldo s1 = new BeneficioSubSaldo(1L, 1, new BigDecimal("50.00"));
+        BeneficioSubSaldo s2 = new BeneficioSubSaldo(1L, 2, new BigDecimal("40.00"));
+        mockSlots(Arrays.asList(s0, s1, s2));
+
+        // Act
+        boolean debitado = service.debitar(1L, new BigDecimal("100.00"));
+
+        // Assert - total preservado menos o débito, nenhum slot negativo
+        assertTrue(debitado);
+        BigDecimal total = s0.getValor().add(s1.getValor()).add(s2.getValor());
+        assertEquals(0, new BigDecimal("20.00").compareTo(total));
+        assertTrue(s0.getValor().signum() >= 0 && s1.getValor().signum() >= 0 && s2.getValor().signum() >= 0);
+    }
+
+    @Test
+    @DisplayName("Deve recusar débito maior que a soma dos slots")
+    void deveRecusarDebitoMaiorQueSoma() {
+        // Arrange
+        mockCandidatos(new ArrayList<>());
+        mockSlots(Arrays.asList(new BeneficioSubSaldo(1L, 0, new BigDecimal("30.00"))));
+
+        // Act & Assert
+        assertFalse(service.debitar(1L, new BigDecimal("100.00")));
+    }
+
+    @Test
+    @DisplayName("Deve rebalancear o saldo igualmente entre os slots")
+    void deveRebalancearSlots() {
+        // Arrange
+        BeneficioSubSaldo s0 = new BeneficioSubSaldo(1L, 0, new BigDecimal("0.00"));
+        BeneficioSubSaldo s1 = new BeneficioSubSaldo(1L, 1, new BigDecimal("90.00"));
+        beneficio.setSubSaldos(2);
+        when(entityManager.find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(beneficio);
+        mockSlots(Arrays.asList(s0, s1));
+
+        // Act
+        service.rebalancear(1L);
+
+        // Assert - a linha do benefício é bloqueada antes dos slots
+        InOrder ordem = inOrder(entityManager);
+        ordem.verify(entityManager).find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE);
+        ordem.verify(entityManager).createNamedQuery(BeneficioSubSaldo.FIND_BY_BENEFICIO, BeneficioSubSaldo.class);
+        assertEquals(new BigDecimal("45.00"), s0.getValor());
+        assertEquals(new BigDecimal("45.00"), s1.getValor());
+    }
+
+    @Test
+    @DisplayName("Não deve rebalancear benefício já consolidado")
+    void naoDeveRebalancearBeneficioConsolidado() {
+        // Arrange
+        when(entityManager.find(Beneficio.class, 1L, LockModeType.PESSIMISTIC_WRITE)).thenReturn(beneficio);
+
+        // Act
+        service.rebalancear(1L);
+
+        // Assert
+        verify(entityManager, never()).createNamedQuery(BeneficioSubSaldo.FIND_BY_BENEFICIO, BeneficioSubSaldo.class);
+    }
+
+    @Test
+    @DisplayName("Deve debitar VALOR quando os slots foram removidos por uma consolidação concorrente")
+    void deveDebitarValorSemSlots() {
+        // Arrange
+        mockCandidatos(new ArrayList<>());
+        mockSlots(new ArrayList<>());
+        Query debito = mockUpdate(Beneficio.DEBITAR_SE_SALDO_SUFICIENTE, 1);
+
+        // Act & Assert
+        assertTrue(service.debitar(1L, new BigDecimal("10.00")));
+        verify(debito).setParameter("id", 1L);
+        verify(debito).setParameter("valor", 1_000L);
+    }
+
+    @Test
+    @DisplayName("Deve creditar VALOR quando o slot foi removido por uma consolidação concorrente")
+    void deveCreditarValorSemSlot() {
+        // Arrange
+        mockUpdate(BeneficioSubSaldo.CREDITAR, 0);
+        Query credito = mockUpdate(Beneficio.CREDITAR_SE_ATIVO, 1);
+
+        // Act
+        service.creditar(1L, 4, new BigDecimal("10.00"));
+
+        // Assert
+        verify(credito).setParameter("valor", 1_000L);
+    }
+
+    @Test
+    @DisplayName("Deve falhar o crédito quando nem o slot nem VALOR aceitam o valor")
+    void deveFalharCreditoSemSlotNemValor() {
+        // Arrange
+        mockUpdate(BeneficioSubSaldo.CREDITAR, 0);
+        mockUpdate(Beneficio.CREDITAR_SE_ATIVO, 0);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> service.creditar(1L, 4, new BigDecimal("10.00")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockCandidatos(List<Integer> slots) {
+        TypedQuery<Integer> query = mock(TypedQuery.class);
+        when(entityManager.createNamedQuery(BeneficioSubSaldo.SLOTS_COM_SALDO, Integer.class)).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(slots);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockSlots(List<BeneficioSubSaldo> slots) {
+        TypedQuery<BeneficioSubSaldo> query = mock(TypedQuery.class);
+        when(entityManager.createNamedQuery(BeneficioSubSaldo.FIND_BY_BENEFICIO, BeneficioSubSaldo.class))
+            .thenReturn(query);
+        when(query.setParameter(eq("beneficioId"), any())).thenReturn(query);
+        when(query.setLockMode(LockModeType.PESSIMISTIC_WRITE)).thenReturn(query);
+        when(query.getResultList()).thenReturn(slots);
+    }
+
+    private Query mockUpdate(String nome, int linhasAfetadas) {
+        Query query = mock(Query.class);
+        when(entityManager.createNamedQuery(nome)).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(linhasAfetadas);
+        return query;
+    }
+}
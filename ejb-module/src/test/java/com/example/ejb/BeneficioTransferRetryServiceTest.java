@@ -0,0 +1,140 @@
+package com.example.ejb;
+
+import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.retry.RetryPolicy;
+import com.example.ejb.retry.TransferRetryMetrics;
+import jakarta.ejb.EJBTransactionRolledbackException;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários da camada de retentativa de transferências.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BeneficioTransferRetryService - Testes de Retentativa")
+class BeneficioTransferRetryServiceTest {
+
+    private static final BigDecimal VALOR = new BigDecimal("100.00");
+
+    @Mock
+    private BeneficioEjbService beneficioService;
+
+    @Spy
+    private TransferRetryMetrics metrics = new TransferRetryMetrics();
+
+    @InjectMocks
+    private BeneficioTransferRetryService service;
+
+    @BeforeEach
+    void setUp() {
+        service.setRetryPolicy(new RetryPolicy(3, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Deve repetir a transferência após deadlock e concluir")
+    void deveRepetirAposDeadlock() {
+        // Arrange
+        doThrow(new PessimisticLockException("deadlock"))
+            .doNothing()
+            .when(beneficioService).transfer(1L, 2L, VALOR, null);
+
+        // Act
+        service.transfer(1L, 2L, VALOR);
+
+        // Assert
+        verify(beneficioService, times(2)).transfer(1L, 2L, VALOR, null);
+        assertEquals(1, metrics.getRetries());
+        assertEquals(1, metrics.getRecoveries());
+        assertEquals(0, metrics.getGiveUps());
+    }
+
+    @Test
+    @DisplayName("Deve desistir após esgotar as tentativas e propagar a última falha")
+    void deveDesistirAposEsgotarTentativas() {
+        // Arrange
+        LockTimeoutException timeout = new LockTimeoutException("timeout");
+        doThrow(timeout).when(beneficioService).transfer(1L, 2L, VALOR, null);
+
+        // Act & Assert
+        LockTimeoutException exception = assertThrows(
+            LockTimeoutException.class,
+            () -> service.transfer(1L, 2L, VALOR)
+        );
+
+        assertSame(timeout, exception);
+        verify(beneficioService, times(3)).transfer(1L, 2L, VALOR, null);
+        assertEquals(2, metrics.getRetries());
+        assertEquals(1, metrics.getGiveUps());
+    }
+
+    @Test
+    @DisplayName("Não deve repetir erros de negócio")
+    void naoDeveRepetirErrosDeNegocio() {
+        // Arrange
+        doThrow(new SaldoInsuficienteException("Saldo insuficiente"))
+            .when(beneficioService).transfer(1L, 2L, VALOR, null);
+
+        // Act & Assert
+        assertThrows(SaldoInsuficienteException.class, () -> service.transfer(1L, 2L, VALOR));
+        verify(beneficioService, times(1)).transfer(1L, 2L, VALOR, null);
+        assertEquals(0, metrics.getRetries());
+    }
+
+    @Test
+    @DisplayName("Deve repetir conflito de versão no modo otimista")
+    void deveRepetirConflitoOtimista() {
+        // Arrange
+        doThrow(new OptimisticLockException("versão alterada"))
+            .doThrow(new OptimisticLockException("versão alterada"))
+            .doNothing()
+            .when(beneficioService).transfer(1L, 2L, VALOR, TransferMode.OPTIMISTIC);
+
+        // Act
+        service.transfer(1L, 2L, VALOR, TransferMode.OPTIMISTIC);
+
+        // Assert
+        verify(beneficioService, times(3)).transfer(1L, 2L, VALOR, TransferMode.OPTIMISTIC);
+        assertEquals(2, metrics.getRetries());
+        assertEquals(1, metrics.getRecoveries());
+    }
+
+    @Test
+    @DisplayName("Deve reconhecer deadlock embrulhado pelo container ou pelo driver JDBC")
+    void deveReconhecerFalhasEmbrulhadas() {
+        EJBTransactionRolledbackException embrulhada = new EJBTransactionRolledbackException(
+            "rollback", new PessimisticLockException("deadlock"));
+        RuntimeException sqlDeadlock = new RuntimeException(new SQLException("deadlock", "40001"));
+
+        assertTrue(BeneficioTransferRetryService.isRetryable(embrulhada));
+        assertTrue(BeneficioTransferRetryService.isRetryable(sqlDeadlock));
+        assertFalse(BeneficioTransferRetryService.isRetryable(new RuntimeException(new SQLException("x", "23505"))));
+    }
+
+    @Test
+    @DisplayName("Backoff deve crescer exponencialmente respeitando o limite máximo")
+    void backoffDeveRespeitarLimites() {
+        RetryPolicy policy = new RetryPolicy(5, 10, 40);
+
+        for (int i = 0; i < 50; i++) {
+            long primeira = policy.backoffMillis(1);
+            long quarta = policy.backoffMillis(4);
+            assertTrue(primeira >= 5 && primeira <= 10, "Primeira espera fora do intervalo: " + primeira);
+            assertTrue(quarta >= 20 && quarta <= 40, "Espera limitada fora do intervalo: " + quarta);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.ejb;
+
+import com.example.ejb.dto.TransferRequest;
+import com.example.ejb.dto.TransferResult;
+import com.example.ejb.dto.TransferStatus;
+import com.example.ejb.retry.RetryPolicy;
+import jakarta.persistence.LockTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários do pipeline assíncrono com group commit.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransferGroupCommitService - Testes de Group Commit")
+class TransferGroupCommitServiceTest {
+
+    private static final BigDecimal VALOR = new BigDecimal("100.00");
+
+    @Mock
+    private BeneficioEjbService beneficioService;
+
+    @InjectMocks
+    private TransferGroupCommitService service;
+
+    @BeforeEach
+    void setUp() {
+        service.setRetryPolicy(new RetryPolicy(3, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Deve confirmar as transferências enfileiradas em um único lote")
+    void deveConfirmarGrupoEmUmLote() throws Exception {
+        // Arrange
+        TransferRequest primeira = new TransferRequest(1L, 2L, VALOR);
+        TransferRequest segunda = new TransferRequest(3L, 1L, VALOR);
+        List<TransferRequest> grupo = Arrays.asList(primeira, segunda);
+        when(beneficioService.transferBatch(grupo)).thenReturn(Arrays.asList(
+            TransferResult.sucesso(primeira),
+            TransferResult.rejeitada(segunda, TransferStatus.SALDO_INSUFICIENTE, "Saldo insuficiente")
+        ));
+
+        // Act
+        CompletableFuture<TransferResult> futuroPrimeira = service.submit(primeira);
+        CompletableFuture<TransferResult> futuroSegunda = service.submit(segunda);
+        assertFalse(futuroPrimeira.isDone());
+        int processadas = service.drenar();
+
+        // Assert - um commit para o grupo e cada chamador com o próprio resultado
+        assertEquals(2, processadas);
+        verify(beneficioService, times(1)).transferBatch(anyList());
+        assertTrue(futuroPrimeira.get().isSucesso());
+        assertEquals(TransferStatus.SALDO_INSUFICIENTE, futuroSegunda.get().getStatus());
+        assertEquals(1, service.getGruposConfirmados());
+        assertEquals(2, service.getTransferenciasConfirmadas());
+    }
+
+    @Test
+    @DisplayName("Deve repetir o grupo após timeout de lock")
+    void deveRepetirGrupoAposTimeoutDeLock() throws Exception {
+        // Arrange
+        TransferRequest request = new TransferRequest(1L, 2L, VALOR);
+        when(beneficioService.transferBatch(anyList()))
+            .thenThrow(new LockTimeoutException("timeout"))
+            .thenReturn(Arrays.asList(TransferResult.sucesso(request)));
+
+        // Act
+        CompletableFuture<TransferResult> futuro = service.submit(request);
+        service.drenar();
+
+        // Assert
+        assertTrue(futuro.get().isSucesso());
+        verify(beneficioService, times(2)).transferBatch(anyList());
+    }
+
+    @Test
+    @DisplayName("Deve falhar todos os futures do grupo quando o lote falha sem retentativa")
+    void deveFalharFuturesDoGrupo() {
+        // Arrange
+        IllegalStateException falha = new IllegalStateException("conexão perdida");
+        when(beneficioService.transferBatch(anyList())).thenThrow(falha);
+
+        // Act
+        CompletableFuture<TransferResult> primeiro = service.submit(new TransferRequest(1L, 2L, VALOR));
+        CompletableFuture<TransferResult> segundo = service.submit(new TransferRequest(2L, 3L, VALOR));
+        service.drenar();
+
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class, primeiro::get);
+        assertSame(falha, exception.getCause());
+        assertTrue(segundo.isCompletedExceptionally());
+        verify(beneficioService, times(1)).transferBatch(anyList());
+        assertEquals(0, service.getGruposConfirmados());
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.ejb;
+
+import com.example.ejb.model.Beneficio;
+import com.example.ejb.model.Transferencia;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários do consolidador do ledger de transferências.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransferenciaSnapshotService - Testes de Consolidação")
+class TransferenciaSnapshotServiceTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private BeneficioSubSaldoService subSaldoService;
+
+    @InjectMocks
+    private TransferenciaSnapshotService service;
+
+    @Test
+    @DisplayName("Deve somar os lançamentos pendentes aos saldos e marcá-los como consolidados")
+    void deveConsolidarLancamentosPendentes() {
+        // Arrange
+        Beneficio a = beneficio(1L, "1000.00");
+        Beneficio b = beneficio(2L, "500.00");
+        Transferencia t1 = lancamento(10L, 1L, 2L, "300.00");
+        Transferencia t2 = lancamento(11L, 2L, 1L, "50.00");
+        mockPendentes(Arrays.asList(t1, t2));
+        Query marcar = mockMarcar(2);
+        TypedQuery<Beneficio> lock = mockLock(Arrays.asList(a, b));
+
+        // Act
+        int consolidados = service.consolidar(100);
+
+        // Assert
+        assertEquals(2, consolidados);
+        assertEquals(new BigDecimal("750.00"), a.getValor());
+        assertEquals(new BigDecimal("750.00"), b.getValor());
+        assertTrue(t1.getConsolidada());
+        assertTrue(t2.getConsolidada());
+        verify(marcar).setParameter("ids", Arrays.asList(10L, 11L));
+        verify(lock).setParameter("ids", Arrays.asList(1L, 2L));
+        verify(lock).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    @Test
+    @DisplayName("Deve creditar sub-saldos de benefícios particionados ao consolidar")
+    void deveConsolidarEmSubSaldos() {
+        // Arrange
+        Beneficio a = beneficio(1L, "1000.00");
+        Beneficio quente = beneficio(2L, "0.00");
+        quente.setSubSaldos(8);
+        mockPendentes(Collections.singletonList(lancamento(10L, 1L, 2L, "100.00")));
+        mockMarcar(1);
+        mockLock(Arrays.asList(a, quente));
+
+        // Act
+        service.consolidar(100);
+
+        // Assert
+        assertEquals(new BigDecimal("900.00"), a.getValor());
+        verify(subSaldoService).creditar(2L, 8, new BigDecimal("100.00"));
+    }
+
+    @Test
+    @DisplayName("Deve ignorar lançamentos já reivindicados por outro consolidador")
+    void deveIgnorarLancamentosReivindicadosPorOutroNo() {
+        // Arrange - o bloco marca só um dos dois; um a um, t1 já era de outra transação
+        Beneficio a = beneficio(1L, "1000.00");
+        Beneficio b = beneficio(2L, "500.00");
+        Transferencia t1 = lancamento(10L, 1L, 2L, "300.00");
+        Transferencia t2 = lancamento(11L, 2L, 1L, "50.00");
+        mockPendentes(Arrays.asList(t1, t2));
+        Query marcar = mockMarcar(1, 0, 1);
+        mockLock(Arrays.asList(a, b));
+
+        // Act
+        int consolidados = service.consolidar(100);
+
+        // Assert
+        assertEquals(1, consolidados);
+        assertEquals(new BigDecimal("1050.00"), a.getValor());
+        assertEquals(new BigDecimal("450.00"), b.getValor());
+        assertFalse(t1.getConsolidada());
+        verify(marcar).setParameter("ids", Collections.singletonList(10L));
+        verify(marcar).setParameter("ids", Collections.singletonList(11L));
+        verify(entityManager).detach(t1);
+    }
+
+    @Test
+    @DisplayName("Não deve bloquear benefícios quando todos os lançamentos são de outro consolidador")
+    void naoDeveBloquearSemLancamentosReivindicados() {
+        // Arrange
+        mockPendentes(Collections.singletonList(lancamento(10L, 1L, 2L, "100.00")));
+        mockMarcar(0, 0);
+
+        // Act & Assert
+        assertEquals(0, service.consolidar(100));
+        verify(entityManager, never()).createNamedQuery(Beneficio.FIND_BY_IDS_ORDERED, Beneficio.class);
+    }
+
+    @Test
+    @DisplayName("Deve adiar lançamentos de origem sem sub-saldos suficientes e consolidar os demais")
+    void deveAdiarLancamentosSemSubSaldo() {
+        // Arrange
+        Beneficio a = beneficio(1L, "1000.00");
+        Beneficio quente = beneficio(2L, "0.00");
+        quente.setSubSaldos(8);
+        Beneficio c = beneficio(3L, "500.00");
+        Transferencia semSaldo = lancamento(10L, 2L, 1L, "100.00");
+        Transferencia valido = lancamento(11L, 3L, 1L, "50.00");
+        mockPendentes(Arrays.asList(semSaldo, valido));
+        mockMarcar(2);
+        mockLock(Arrays.asList(a, quente, c));
+        when(subSaldoService.saldo(2L)).thenReturn(new BigDecimal("10.00"));
+        Query desmarcar = mock(Query.class);
+        when(entityManager.createNamedQuery(Transferencia.DESMARCAR_CONSOLIDADAS)).thenReturn(desmarcar);
+        when(desmarcar.setParameter(anyString(), any())).thenReturn(desmarcar);
+
+        // Act
+        int consolidados = service.consolidar(100);
+
+        // Assert
+        assertEquals(1, consolidados);
+        assertEquals(new BigDecimal("1050.00"), a.getValor());
+        assertEquals(new BigDecimal("450.00"), c.getValor());
+        assertFalse(semSaldo.getConsolidada());
+        assertTrue(valido.getConsolidada());
+        verify(desmarcar).setParameter("ids", Collections.singletonList(10L));
+        verify(desmarcar).executeUpdate();
+        verify(subSaldoService, never()).debitar(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Não deve bloquear benefícios quando não há lançamentos pendentes")
+    void naoDeveBloquearSemPendentes() {
+        mockPendentes(Collections.emptyList());
+
+        assertEquals(0, service.consolidar(100));
+        verify(entityManager, never()).createNamedQuery(Beneficio.FIND_BY_IDS_ORDERED, Beneficio.class);
+    }
+
+    private static Beneficio beneficio(Long id, String valor) {
+        Beneficio beneficio = new Beneficio("Beneficio " + id, "Teste", new BigDecimal(valor));
+        beneficio.setId(id);
+        return beneficio;
+    }
+
+    private static Transferencia lancamento(Long id, Long origem, Long destino, String valor) {
+        Transferencia t = new Transferencia(origem, destino, new BigDecimal(valor), LocalDateTime.now());
+        t.setId(id);
+        return t;
+    }
+
+    private Query mockMarcar(Integer primeiro, Integer... seguintes) {
+        Query query = mock(Query.class);
+        when(entityManager.createNamedQuery(Transferencia.MARCAR_CONSOLIDADAS)).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.executeUpdate()).thenReturn(primeiro, seguintes);
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockPendentes(List<Transferencia> pendentes) {
+        TypedQuery<Transferencia> query = mock(TypedQuery.class);
+        when(entityManager.createNamedQuery(Transferencia.FIND_PENDENTES, Transferencia.class)).thenReturn(query);
+        when(query.setMaxResults(anyInt())).thenReturn(query);
+        when(query.getResultList()).thenReturn(pendentes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypedQuery<Beneficio> mockLock(List<Beneficio> beneficios) {
+        TypedQuery<Beneficio> query = mock(TypedQuery.class);
+        when(entityManager.createNamedQuery(Beneficio.FIND_BY_IDS_ORDERED, Beneficio.class)).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.setLockMode(any(LockModeType.class))).thenReturn(query);
+        when(query.getResultList()).thenReturn(beneficios);
+        return query;
+    }
+}
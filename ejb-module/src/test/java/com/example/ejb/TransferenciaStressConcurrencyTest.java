@@ -0,0 +1,324 @@
+package com.example.ejb;
+
+import com.example.ejb.exception.BeneficioNotFoundException;
+import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.exception.TransferenciaInvalidaException;
+import com.example.ejb.metrics.TransferMetrics;
+import com.example.ejb.model.Beneficio;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.Persistence;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress de transferências concorrentes contra H2 embarcado (persistence unit
+ * {@code test-pu}), um teste por {@link TransferMode}.
+ *
+ * Threads sorteiam origem e destino entre benefícios recém-criados, com distribuição de
+ * Zipf, e transferem durante um tempo fixo. Ao final, o total dos benefícios deve ser o
+ * inicial e nenhum saldo pode ser negativo. Vazão e desfechos vão para a saída padrão;
+ * a distribuição de latência (HdrHistogram, em ms) vai para
+ * {@code target/stress/<modo>.hgrm}.
+ *
+ * Parâmetros por propriedade de sistema, repassadas pelo Maven:
+ * {@code mvn test -Pconcorrencia -Dtest=TransferenciaStressConcurrencyTest
+ * -Dbip.stress.threads=16 -Dbip.stress.contas=50 -Dbip.stress.skew=1.2 -Dbip.stress.duracaoMillis=10000}
+ */
+@DisplayName("Transferências - Stress de Concorrência")
+class TransferenciaStressConcurrencyTest {
+
+    /**
+     * Threads transferindo ao mesmo tempo.
+     */
+    private static final int THREADS = Integer.getInteger("bip.stress.threads", 8);
+
+    /**
+     * Benefícios disputados pelas threads; quanto menos, maior a contenção.
+     */
+    private static final int CONTAS = Integer.getInteger("bip.stress.contas", 20);
+
+    /**
+     * Expoente de Zipf na escolha dos benefícios: 0 é uniforme, 1 ou mais concentra as
+     * transferências em poucos benefícios.
+     */
+    private static final double SKEW = Double.parseDouble(System.getProperty("bip.stress.skew", "1.0"));
+
+    private static final long DURACAO_MILLIS = Long.getLong("bip.stress.duracaoMillis", 2000L);
+
+    private static final long SALDO_INICIAL_CENTAVOS = 100_000L;
+
+    /**
+     * Valores de 0,01 a 500,00: transferências grandes esgotam benefícios pequenos e
+     * exercitam a rejeição por saldo insuficiente sob concorrência.
+     */
+    private static final int MAXIMO_CENTAVOS = 50_000;
+
+    private static final Path RELATORIOS = Paths.get("target", "stress");
+
+    private static EntityManagerFactory emf;
+    private static AccountLockManager lockManager;
+    private static TransferMetrics metrics;
+
+    @BeforeAll
+    static void setUpClass() {
+        emf = Persistence.createEntityManagerFactory("test-pu");
+        lockManager = new AccountLockManager();
+        metrics = new TransferMetrics(new SimpleMeterRegistry());
+    }
+
+    @AfterAll
+    static void tearDownClass() {
+        if (emf != null && emf.isOpen()) {
+            emf.close();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(TransferMode.class)
+    @DisplayName("Deve conservar o total e não gerar saldo negativo sob carga")
+    void deveConservarTotalSobCarga(TransferMode modo) throws Exception {
+        Long[] ids = criarBeneficios();
+        double[] acumulada = zipfAcumulada(CONTAS, SKEW);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Resultado>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            futures.add(executor.submit(() -> {
+                largada.await();
+                return transferirAte(modo, ids, acumulada, random,
+                                     System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURACAO_MILLIS));
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        Resultado total = new Resultado();
+        for (Future<Resultado> future : futures) {
+            total.somar(future.get(DURACAO_MILLIS + 60_000, TimeUnit.MILLISECONDS));
+        }
+        long duracaoNanos = System.nanoTime() - inicio;
+        executor.shutdown();
+
+        if (modo == TransferMode.LEDGER) {
+            consolidarLedger();
+        }
+        long[] saldos = saldosEmCentavos(ids);
+        String resumo = total.resumo(modo, duracaoNanos);
+        System.out.println(resumo);
+        gravarRelatorio(modo, resumo, total.latencias);
+
+        assertTrue(total.sucessos > 0, "Deve haver transferências aplicadas no modo " + modo);
+        assertEquals(CONTAS * SALDO_INICIAL_CENTAVOS, Arrays.stream(saldos).sum(),
+            "Total dos benefícios deve ser preservado no modo " + modo);
+        assertTrue(Arrays.stream(saldos).allMatch(saldo -> saldo >= 0),
+            "Nenhum saldo pode ficar negativo no modo " + modo + ": " + Arrays.toString(saldos));
+    }
+
+    /**
+     * Laço de uma thread: uma transação por transferência, até o prazo.
+     */
+    private static Resultado transferirAte(TransferMode modo, Long[] ids, double[] acumulada,
+                                           SplittableRandom random, long prazoNanos) {
+        Resultado resultado = new Resultado();
+        BeneficioEjbService service = new BeneficioEjbService();
+        BeneficioSubSaldoService subSaldoService = new BeneficioSubSaldoService();
+        injetar(service, "subSaldoService", subSaldoService);
+        injetar(service, "lockManager", lockManager);
+        injetar(service, "metrics", metrics);
+
+        while (System.nanoTime() < prazoNanos) {
+            int origem = amostrar(acumulada, random);
+            int destino = amostrar(acumulada, random);
+            if (destino == origem) {
+                destino = (destino + 1) % ids.length;
+            }
+            BigDecimal valor = BigDecimal.valueOf(1 + random.nextInt(MAXIMO_CENTAVOS), 2);
+
+            EntityManager em = emf.createEntityManager();
+            EntityTransaction tx = em.getTransaction();
+            injetar(service, "em", em);
+            injetar(subSaldoService, "em", em);
+            long inicio = System.nanoTime();
+            try {
+                tx.begin();
+                service.transfer(ids[origem], ids[destino], valor, modo);
+                tx.commit();
+                resultado.sucessos++;
+            } catch (SaldoInsuficienteException | BeneficioNotFoundException | TransferenciaInvalidaException e) {
+                desfazer(tx);
+                resultado.rejeicoes++;
+            } catch (RuntimeException e) {
+                // Conflito otimista, deadlock ou timeout de lock: o chamador repetiria
+                desfazer(tx);
+                resultado.falhas++;
+            } finally {
+                em.close();
+            }
+            resultado.latencias.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio));
+        }
+        return resultado;
+    }
+
+    private static Long[] criarBeneficios() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<Beneficio> beneficios = new ArrayList<>(CONTAS);
+            for (int i = 0; i < CONTAS; i++) {
+                Beneficio beneficio = new Beneficio("Beneficio Stress " + i, "Teste", BigDecimal.ZERO);
+                beneficio.setValorCentavos(SALDO_INICIAL_CENTAVOS);
+                em.persist(beneficio);
+                beneficios.add(beneficio);
+            }
+            em.getTransaction().commit();
+            return beneficios.stream().map(Beneficio::getId).toArray(Long[]::new);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long[] saldosEmCentavos(Long[] ids) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createNamedQuery(Beneficio.FIND_BY_IDS_ORDERED, Beneficio.class)
+                    .setParameter("ids", Arrays.asList(ids))
+                    .getResultList()
+                    .stream()
+                    .mapToLong(Beneficio::getValorCentavos)
+                    .toArray();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * No modo LEDGER os saldos só mudam na consolidação, que aqui roda até esvaziar o ledger.
+     */
+    private static void consolidarLedger() {
+        TransferenciaSnapshotService consolidador = new TransferenciaSnapshotService();
+        BeneficioSubSaldoService subSaldoService = new BeneficioSubSaldoService();
+        injetar(consolidador, "subSaldoService", subSaldoService);
+        int consolidados;
+        do {
+            EntityManager em = emf.createEntityManager();
+            try {
+                injetar(consolidador, "em", em);
+                injetar(subSaldoService, "em", em);
+                em.getTransaction().begin();
+                consolidados = consolidador.consolidar(5000);
+                em.getTransaction().commit();
+            } finally {
+                em.close();
+            }
+        } while (consolidados > 0);
+    }
+
+    private static void gravarRelatorio(TransferMode modo, String resumo, Histogram latencias) throws IOException {
+        Files.createDirectories(RELATORIOS);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(RELATORIOS.resolve(modo + ".hgrm")),
+                                               false, "UTF-8")) {
+            out.println("# " + resumo);
+            // Valores registrados em microssegundos, relatados em milissegundos
+            latencias.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    /**
+     * Distribuição acumulada de Zipf: o índice k tem peso 1 / (k + 1)^expoente.
+     */
+    private static double[] zipfAcumulada(int n, double expoente) {
+        double[] acumulada = new double[n];
+        double soma = 0;
+        for (int k = 0; k < n; k++) {
+            soma += 1.0 / Math.pow(k + 1, expoente);
+            acumulada[k] = soma;
+        }
+        for (int k = 0; k < n; k++) {
+            acumulada[k] /= soma;
+        }
+        return acumulada;
+    }
+
+    private static int amostrar(double[] acumulada, SplittableRandom random) {
+        int posicao = Arrays.binarySearch(acumulada, random.nextDouble());
+        return Math.min(posicao >= 0 ? posicao : -posicao - 1, acumulada.length - 1);
+    }
+
+    private static void desfazer(EntityTransaction tx) {
+        if (tx.isActive()) {
+            tx.rollback();
+        }
+    }
+
+    /**
+     * Simula a injeção do container ({@code @PersistenceContext} e {@code @EJB}).
+     */
+    private static void injetar(Object alvo, String campo, Object valor) {
+        try {
+            Field field = alvo.getClass().getDeclaredField(campo);
+            field.setAccessible(true);
+            field.set(alvo, valor);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Erro ao injetar " + campo, e);
+        }
+    }
+
+    /**
+     * Desfechos e latências de uma thread, somados ao final.
+     */
+    private static final class Resultado {
+        // Até 1 minuto, em microssegundos, com 3 dígitos significativos
+        final Histogram latencias = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+        long sucessos;
+        long rejeicoes;
+        long falhas;
+
+        void somar(Resultado outro) {
+            latencias.add(outro.latencias);
+            sucessos += outro.sucessos;
+            rejeicoes += outro.rejeicoes;
+            falhas += outro.falhas;
+        }
+
+        String resumo(TransferMode modo, long duracaoNanos) {
+            long total = sucessos + rejeicoes + falhas;
+            return String.format(
+                "%s: threads=%d, contas=%d, skew=%.2f, tempo=%d ms, transferências=%d "
+                    + "(sucessos=%d, rejeições=%d, falhas=%d), vazão=%.1f transf/s, "
+                    + "p50=%.2f ms, p99=%.2f ms, máx=%.2f ms",
+                modo, THREADS, CONTAS, SKEW, duracaoNanos / 1_000_000, total,
+                sucessos, rejeicoes, falhas, total / (duracaoNanos / 1_000_000_000.0),
+                latencias.getValueAtPercentile(50) / 1000.0,
+                latencias.getValueAtPercentile(99) / 1000.0,
+                latencias.getMaxValue() / 1000.0);
+        }
+    }
+}
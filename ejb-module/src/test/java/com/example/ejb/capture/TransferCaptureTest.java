@@ -0,0 +1,125 @@
+package com.example.ejb.capture;
+
+import com.example.ejb.TransferMode;
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.exception.BeneficioNotFoundException;
+import jakarta.persistence.OptimisticLockException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários da captura de transferências.
+ */
+@DisplayName("TransferCapture - Testes de Captura")
+class TransferCaptureTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Deve reler argumentos, desfecho e modo das chamadas capturadas")
+    void deveRelerChamadasCapturadas() throws IOException {
+        // Arrange
+        Path arquivo = dir.resolve("captura.bin");
+        TransferCapture capture = new TransferCapture();
+        capture.open(arquivo);
+
+        // Act
+        long inicio = System.nanoTime();
+        capture.record(inicio, 1L, 2L, new BigDecimal("10.50"), TransferMode.SET_BASED,
+                       TransferOutcome.Status.SALDO_INSUFICIENTE);
+        capture.record(inicio, null, 2L, new BigDecimal("0.001"), null,
+                       new IllegalArgumentException());
+        capture.record(inicio, 1L, 3L, BigDecimal.ONE, TransferMode.OPTIMISTIC,
+                       new BeneficioNotFoundException(3L));
+        capture.record(inicio, 1L, 2L, BigDecimal.ONE, null, new OptimisticLockException());
+        capture.close();
+
+        // Assert
+        List<CaptureRecord> records = new ArrayList<>();
+        assertEquals(4, TransferCapture.read(arquivo, records::add));
+        assertEquals(4L * CaptureRecord.TAMANHO, Files.size(arquivo));
+
+        CaptureRecord primeiro = records.get(0);
+        assertEquals(1L, primeiro.getFromId());
+        assertEquals(2L, primeiro.getToId());
+        assertEquals(1050, primeiro.getAmountCents());
+        assertEquals(TransferMode.SET_BASED, primeiro.getMode());
+        assertEquals(CaptureRecord.Outcome.SALDO_INSUFICIENTE, primeiro.getOutcome());
+        assertEquals((int) Thread.currentThread().getId(), primeiro.getThread());
+        assertTrue(primeiro.getLatenciaMicros() >= 0);
+
+        CaptureRecord segundo = records.get(1);
+        assertNull(segundo.getFromId());
+        assertEquals(CaptureRecord.NULO, segundo.getAmountCents());
+        assertNull(segundo.getMode());
+        assertEquals(CaptureRecord.Outcome.ERRO, segundo.getOutcome());
+
+        assertEquals(CaptureRecord.Outcome.DESTINO_NAO_ENCONTRADO, records.get(2).getOutcome());
+        assertEquals(CaptureRecord.Outcome.ERRO, records.get(3).getOutcome());
+        assertTrue(records.get(3).getInicioEpochMicros() >= primeiro.getInicioEpochMicros());
+    }
+
+    @Test
+    @DisplayName("Deve parar a leitura no registro incompleto ou corrompido")
+    void devePararNoRegistroCorrompido() throws IOException {
+        // Arrange - dois registros íntegros, um corrompido e meio registro no fim
+        Path arquivo = dir.resolve("captura.bin");
+        TransferCapture capture = new TransferCapture();
+        capture.open(arquivo);
+        for (long i = 1; i <= 3; i++) {
+            capture.record(System.nanoTime(), i, i + 1, BigDecimal.ONE, null, TransferOutcome.Status.SUCESSO);
+        }
+        capture.close();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[]{42}), 2L * CaptureRecord.TAMANHO + 10);
+            canal.write(ByteBuffer.wrap(new byte[CaptureRecord.TAMANHO / 2]), 3L * CaptureRecord.TAMANHO);
+        }
+
+        // Act
+        List<CaptureRecord> records = new ArrayList<>();
+        long lidos = TransferCapture.read(arquivo, records::add);
+
+        // Assert
+        assertEquals(2, lidos);
+        assertEquals(2L, records.get(1).getFromId());
+    }
+
+    @Test
+    @DisplayName("Deve acrescentar ao arquivo existente e ignorar chamadas com a captura desligada")
+    void deveAcrescentarAoArquivoExistente() throws IOException {
+        // Arrange
+        Path arquivo = dir.resolve("sub/captura.bin");
+        TransferCapture primeira = new TransferCapture();
+        primeira.open(arquivo);
+        primeira.record(System.nanoTime(), 1L, 2L, BigDecimal.ONE, null, TransferOutcome.Status.SUCESSO);
+        primeira.close();
+
+        // Act
+        TransferCapture segunda = new TransferCapture();
+        segunda.open(arquivo);
+        segunda.record(System.nanoTime(), 2L, 1L, BigDecimal.ONE, null, TransferOutcome.Status.SUCESSO);
+        segunda.close();
+        segunda.record(System.nanoTime(), 3L, 1L, BigDecimal.ONE, null, TransferOutcome.Status.SUCESSO);
+
+        // Assert
+        List<CaptureRecord> records = new ArrayList<>();
+        assertEquals(2, TransferCapture.read(arquivo, records::add));
+        assertEquals(2L, records.get(1).getFromId());
+        assertFalse(segunda.isAtiva());
+        assertFalse(new TransferCapture().isAtiva());
+    }
+}
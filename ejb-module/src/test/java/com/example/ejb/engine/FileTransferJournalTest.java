@@ -0,0 +1,116 @@
+package com.example.ejb.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários do journal em arquivos segmentados.
+ */
+@DisplayName("FileTransferJournal - Testes de Journal")
+class FileTransferJournalTest {
+
+    private static final long SEGMENTO = 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Deve reler após reabrir apenas os registros sincronizados")
+    void deveRelerRegistrosSincronizados() throws IOException {
+        // Arrange
+        try (FileTransferJournal journal = FileTransferJournal.open(dir, 0, 0, SEGMENTO)) {
+            assertEquals(1, journal.append(1L, 2L, 150, 1000L));
+            assertEquals(2, journal.append(2L, 3L, 250, 1001L));
+            journal.sync();
+            journal.append(3L, 1L, 999, 1002L);
+            journal.discardUnsynced();
+        }
+
+        // Act
+        List<JournalRecord> records = new ArrayList<>();
+        try (FileTransferJournal journal = FileTransferJournal.open(dir, 0, 0, SEGMENTO)) {
+            journal.replay(0, records::add);
+
+            // Assert - a sequência continua depois do último registro durável
+            assertEquals(3, journal.append(1L, 2L, 1, 1003L));
+        }
+        assertEquals(2, records.size());
+        assertEquals(2L, records.get(1).getFromId());
+        assertEquals(3L, records.get(1).getToId());
+        assertEquals(250, records.get(1).getAmountCents());
+        assertEquals(1001L, records.get(1).getEpochMillis());
+    }
+
+    @Test
+    @DisplayName("Deve descartar registro incompleto no fim do arquivo")
+    void deveDescartarRegistroIncompleto() throws IOException {
+        // Arrange - registro íntegro seguido de meio registro (queda durante a escrita)
+        try (FileTransferJournal journal = FileTransferJournal.open(dir, 0, 0, SEGMENTO)) {
+            journal.append(1L, 2L, 100, 1000L);
+            journal.sync();
+        }
+        Path segmento = unicoSegmento();
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            canal.write(ByteBuffer.wrap(new byte[JournalRecord.TAMANHO / 2]));
+        }
+
+        // Act
+        List<JournalRecord> records = new ArrayList<>();
+        try (FileTransferJournal journal = FileTransferJournal.open(dir, 0, 0, SEGMENTO)) {
+            journal.replay(0, records::add);
+            assertEquals(2, journal.append(1L, 2L, 100, 1001L));
+        }
+
+        // Assert
+        assertEquals(1, records.size());
+        assertEquals(2 * JournalRecord.TAMANHO, Files.size(segmento));
+    }
+
+    @Test
+    @DisplayName("Deve apagar segmentos já persistidos e ignorar registros até o checkpoint")
+    void deveApagarSegmentosPersistidos() throws IOException {
+        // Arrange - segmentos de 2 registros
+        try (FileTransferJournal journal = FileTransferJournal.open(dir, 3, 0, 2 * JournalRecord.TAMANHO)) {
+            for (int i = 0; i < 6; i++) {
+                journal.append(1L, 2L, i + 1, 1000L + i);
+                journal.sync();
+            }
+
+            // Act
+            journal.truncateUpTo(4);
+
+            // Assert
+            List<JournalRecord> records = new ArrayList<>();
+            journal.replay(4, records::add);
+            assertEquals(2, records.size());
+            assertEquals(5, records.get(0).getSequence());
+        }
+        assertEquals(2, contarSegmentos());
+        assertTrue(FileTransferJournal.shardsIn(dir).contains(3));
+    }
+
+    private Path unicoSegmento() throws IOException {
+        try (Stream<Path> arquivos = Files.list(dir)) {
+            return arquivos.findFirst().orElseThrow();
+        }
+    }
+
+    private long contarSegmentos() throws IOException {
+        try (Stream<Path> arquivos = Files.list(dir)) {
+            return arquivos.count();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.ejb.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários do journal mapeado em memória.
+ */
+@DisplayName("MappedTransferJournal - Testes de Journal Mapeado")
+class MappedTransferJournalTest {
+
+    private static final long SEGMENTO = 64 * JournalRecord.TAMANHO;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Deve reler após reabrir e continuar a sequência com um fsync por grupo")
+    void deveRelerEContinuarSequencia() throws IOException {
+        // Arrange
+        try (MappedTransferJournal journal = MappedTransferJournal.open(dir, 0, 0, SEGMENTO)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(1L, 2L, 100 + i, 1000L + i);
+            }
+            journal.sync();
+            journal.sync();
+            assertEquals(1, journal.syncCount());
+        }
+
+        // Act
+        List<JournalRecord> records = new ArrayList<>();
+        try (MappedTransferJournal journal = MappedTransferJournal.open(dir, 0, 0, SEGMENTO)) {
+            journal.replay(7, records::add);
+            assertEquals(11, journal.append(2L, 1L, 1, 2000L));
+        }
+
+        // Assert
+        assertEquals(3, records.size());
+        assertEquals(8, records.get(0).getSequence());
+        assertEquals(109, records.get(2).getAmountCents());
+    }
+
+    @Test
+    @DisplayName("Deve descartar registros não sincronizados mesmo após trocar de segmento")
+    void deveDescartarNaoSincronizadosEntreSegmentos() throws IOException {
+        // Arrange - segmentos de 4 registros
+        try (MappedTransferJournal journal = MappedTransferJournal.open(dir, 0, 0, 4 * JournalRecord.TAMANHO)) {
+            journal.append(1L, 2L, 1, 1000L);
+            journal.sync();
+            for (int i = 0; i < 6; i++) {
+                journal.append(1L, 2L, 2 + i, 1001L + i);
+            }
+
+            // Act
+            journal.discardUnsynced();
+
+            // Assert
+            assertEquals(1, journal.lastSequence());
+            assertEquals(2, journal.append(1L, 2L, 99, 2000L));
+            journal.sync();
+        }
+        List<JournalRecord> records = new ArrayList<>();
+        try (MappedTransferJournal journal = MappedTransferJournal.open(dir, 0, 0, 4 * JournalRecord.TAMANHO)) {
+            journal.replay(0, records::add);
+        }
+        assertEquals(2, records.size());
+        assertEquals(99, records.get(1).getAmountCents());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar registros órfãos depois de um registro corrompido")
+    void deveIgnorarRegistrosOrfaos() throws IOException {
+        // Arrange - três registros; o segundo é corrompido como em uma queda antes do fsync
+        try (MappedTransferJournal journal = MappedTransferJournal.open(dir, 0, 0, SEGMENTO)) {
+            journal.append(1L, 2L, 1, 1000L);
+            journal.append(1L, 2L, 2, 1001L);
+            journal.append(1L, 2L, 3, 1002L);
+            journal.sync();
+        }
+        Path segmento = FileTransferJournal.segmentsOf(dir, 0).firstEntry().getValue();
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), JournalRecord.TAMANHO + 20);
+        }
+
+        // Act
+        try (MappedTransferJournal journal = MappedTransferJournal.open(dir, 0, 0, SEGMENTO)) {
+            assertEquals(2, journal.append(1L, 2L, 20, 2000L));
+            journal.sync();
+        }
+
+        // Assert - o antigo registro 3 foi zerado e não volta após o novo registro 2
+        List<JournalRecord> records = new ArrayList<>();
+        try (FileTransferJournal leitor = FileTransferJournal.open(dir, 0, 0, SEGMENTO)) {
+            leitor.replay(0, records::add);
+        }
+        assertEquals(2, records.size());
+        assertEquals(20, records.get(1).getAmountCents());
+    }
+}
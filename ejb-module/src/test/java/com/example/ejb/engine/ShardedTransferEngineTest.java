@@ -0,0 +1,199 @@
+package com.example.ejb.engine;
+
+import com.example.ejb.dto.TransferOutcome;
+import com.example.ejb.exception.BeneficioNotFoundException;
+import com.example.ejb.exception.SaldoInsuficienteException;
+import com.example.ejb.exception.TransferenciaInvalidaException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários da engine de transferências em memória.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("ShardedTransferEngine - Testes da Engine em Memória")
+class ShardedTransferEngineTest {
+
+    private static final long SEGMENTO = 1024 * 1024;
+
+    @Mock
+    private LedgerEnginePersistence persistence;
+
+    @InjectMocks
+    private ShardedTransferEngine engine;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(persistence.carregarConta(1L)).thenReturn(new Conta(1L, true, 100_000));
+        when(persistence.carregarConta(2L)).thenReturn(new Conta(2L, true, 50_000));
+        when(persistence.carregarConta(3L)).thenReturn(new Conta(3L, false, 0));
+        engine.iniciar(dir, 2, SEGMENTO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.parar();
+    }
+
+    @Test
+    @DisplayName("Deve transferir em memória e persistir em lote no write-behind")
+    void deveTransferirEPersistirEmLote() {
+        // Act
+        engine.transfer(1L, 2L, new BigDecimal("300.00"));
+        engine.transfer(2L, 1L, new BigDecimal("0.50"));
+
+        // Assert - saldos em memória já refletem as duas transferências
+        assertEquals(new BigDecimal("700.50"), engine.saldo(1L));
+        assertEquals(new BigDecimal("799.50"), engine.saldo(2L));
+        verify(persistence, never()).persistir(anyMap());
+
+        assertEquals(2, engine.persistirPendentes());
+        List<JournalRecord> persistidos = capturarPersistidos();
+        assertEquals(2, persistidos.size());
+        assertEquals(0, engine.persistirPendentes());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar saldo insuficiente sem alterar saldos nem gravar journal")
+    void deveRejeitarSaldoInsuficiente() {
+        // Act & Assert
+        SaldoInsuficienteException exception = assertThrows(
+            SaldoInsuficienteException.class,
+            () -> engine.transfer(1L, 2L, new BigDecimal("1000.01"))
+        );
+
+        assertTrue(exception.getMessage().contains("ID 1"));
+        assertEquals(new BigDecimal("1000.00"), engine.saldo(1L));
+        assertEquals(0, engine.persistirPendentes());
+    }
+
+    @Test
+    @DisplayName("Deve devolver rejeições de saldo e de existência no resultado, sem exceção")
+    void deveDevolverRejeicoesNoResultado() {
+        // Act
+        TransferOutcome semSaldo = engine.tryTransfer(1L, 2L, new BigDecimal("1000.01"));
+        TransferOutcome inexistente = engine.tryTransfer(1L, 99L, new BigDecimal("10.00"));
+        TransferOutcome aplicada = engine.tryTransfer(1L, 2L, new BigDecimal("100.00"));
+
+        // Assert
+        assertEquals(TransferOutcome.Status.SALDO_INSUFICIENTE, semSaldo.getStatus());
+        assertEquals(100_000L, semSaldo.getSaldoOrigemCentavos());
+        assertEquals(TransferOutcome.Status.DESTINO_NAO_ENCONTRADO, inexistente.getStatus());
+        assertTrue(aplicada.isSucesso());
+        assertEquals(new BigDecimal("900.00"), aplicada.getSaldoOrigem());
+        assertEquals(new BigDecimal("600.00"), aplicada.getSaldoDestino());
+    }
+
+    @Test
+    @DisplayName("Deve aplicar as validações de existência, atividade e casas decimais")
+    void deveAplicarValidacoes() {
+        assertThrows(BeneficioNotFoundException.class,
+            () -> engine.transfer(1L, 99L, new BigDecimal("10.00")));
+        TransferenciaInvalidaException inativo = assertThrows(TransferenciaInvalidaException.class,
+            () -> engine.transfer(1L, 3L, new BigDecimal("10.00")));
+        assertTrue(inativo.getMessage().contains("destino está inativo"));
+        assertThrows(TransferenciaInvalidaException.class,
+            () -> engine.transfer(1L, 2L, new BigDecimal("0.001")));
+        assertThrows(TransferenciaInvalidaException.class,
+            () -> engine.transfer(1L, 1L, new BigDecimal("10.00")));
+    }
+
+    @Test
+    @DisplayName("Deve reaplicar no banco, ao reiniciar, o journal posterior ao checkpoint")
+    void deveReaplicarJournalNaInicializacao() throws Exception {
+        // Arrange - transferência durável no journal, mas não persistida antes da parada
+        doThrow(new IllegalStateException("banco indisponível")).when(persistence).persistir(anyMap());
+        engine.transfer(1L, 2L, new BigDecimal("10.00"));
+        engine.parar();
+        reset(persistence);
+        when(persistence.checkpoint(anyInt())).thenReturn(0L);
+
+        // Act
+        ShardedTransferEngine reiniciada = new ShardedTransferEngine();
+        injetarPersistence(reiniciada);
+        reiniciada.iniciar(dir, 2, SEGMENTO);
+        reiniciada.parar();
+
+        // Assert
+        List<JournalRecord> reaplicados = capturarPersistidos();
+        assertEquals(1, reaplicados.size());
+        assertEquals(1L, reaplicados.get(0).getFromId());
+        assertEquals(1000, reaplicados.get(0).getAmountCents());
+    }
+
+    @Test
+    @DisplayName("Deve agrupar transferências concorrentes em poucos fsyncs com intervalo configurado")
+    void deveAgruparFsyncsPorIntervalo() throws Exception {
+        // Arrange - engine com 1 shard e fsync no máximo a cada 20ms
+        ShardedTransferEngine agrupada = new ShardedTransferEngine();
+        injetarPersistence(agrupada);
+        agrupada.setJournal(true, 20_000);
+        agrupada.iniciar(dir.resolve("agrupada"), 1, SEGMENTO);
+        int transferencias = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+
+        // Act
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 0; i < transferencias; i++) {
+                futuros.add(executor.submit(() -> agrupada.transfer(1L, 2L, new BigDecimal("1.00"))));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        } finally {
+            executor.shutdown();
+            agrupada.parar();
+        }
+
+        // Assert
+        assertEquals(new BigDecimal("800.00"), agrupada.saldo(1L));
+        assertTrue(agrupada.getSyncCount() < transferencias / 4,
+            "fsyncs: " + agrupada.getSyncCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<JournalRecord> capturarPersistidos() {
+        ArgumentCaptor<Map<Integer, List<JournalRecord>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(persistence, atLeastOnce()).persistir(captor.capture());
+        List<JournalRecord> records = new ArrayList<>();
+        for (List<JournalRecord> lista : captor.getValue().values()) {
+            records.addAll(lista);
+        }
+        return records;
+    }
+
+    private void injetarPersistence(ShardedTransferEngine alvo) throws Exception {
+        java.lang.reflect.Field field = ShardedTransferEngine.class.getDeclaredField("persistence");
+        field.setAccessible(true);
+        field.set(alvo, persistence);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.ejb.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários do count-min sketch com top-K.
+ */
+@DisplayName("HotKeySketch - Testes de Chaves Quentes")
+class HotKeySketchTest {
+
+    @Test
+    @DisplayName("Deve encontrar as chaves quentes em meio a muitas chaves frias")
+    void deveEncontrarChavesQuentes() {
+        // Arrange - 3 chaves quentes e 50 mil frias, em ordem embaralhada
+        HotKeySketch sketch = new HotKeySketch(4, 1024, 5);
+        SplittableRandom random = new SplittableRandom(42);
+
+        // Act
+        for (int i = 0; i < 200_000; i++) {
+            int sorteio = random.nextInt(100);
+            long id = sorteio < 10 ? 7L : sorteio < 16 ? 8L : sorteio < 19 ? 9L : 1_000L + random.nextInt(50_000);
+            sketch.add(id, 1L);
+        }
+
+        // Assert
+        List<HotKeySketch.Entry> top = sketch.top();
+        assertEquals(5, top.size());
+        assertEquals(7L, top.get(0).getId());
+        assertEquals(8L, top.get(1).getId());
+        assertEquals(9L, top.get(2).getId());
+        assertTrue(top.get(0).getEstimativa() >= 19_000, "nunca subestima");
+        assertTrue(top.get(0).getEstimativa() <= 21_000 + 2 * 200_000 / 1024);
+        assertEquals(200_000, sketch.getTotal());
+    }
+
+    @Test
+    @DisplayName("Deve substituir a chave mais leve e acompanhar o crescimento das guardadas")
+    void deveSubstituirChaveMaisLeve() {
+        // Arrange
+        HotKeySketch sketch = new HotKeySketch(4, 256, 2);
+        sketch.add(1L, 10L);
+        sketch.add(2L, 5L);
+
+        // Act - 3 supera a mais leve (2); 1, já guardada, continua crescendo
+        sketch.add(3L, 7L);
+        sketch.add(1L, 20L);
+
+        // Assert
+        List<HotKeySketch.Entry> top = sketch.top();
+        assertEquals(2, top.size());
+        assertEquals(1L, top.get(0).getId());
+        assertEquals(30L, top.get(0).getEstimativa());
+        assertEquals(3L, top.get(1).getId());
+        assertEquals(7L, top.get(1).getEstimativa());
+    }
+
+    @Test
+    @DisplayName("Deve dividir os pesos por dois e deixar de relatar chaves esquecidas")
+    void deveEnvelhecerPesos() {
+        // Arrange
+        HotKeySketch sketch = new HotKeySketch(4, 256, 2);
+        sketch.add(1L, 100L);
+        sketch.add(2L, 1L);
+        sketch.add(3L, 0L);
+
+        // Act
+        sketch.decay();
+
+        // Assert
+        List<HotKeySketch.Entry> top = sketch.top();
+        assertEquals(1, top.size());
+        assertEquals(1L, top.get(0).getId());
+        assertEquals(50L, top.get(0).getEstimativa());
+        assertEquals(50L, sketch.estimate(1L));
+        assertEquals(0L, sketch.estimate(3L));
+
+        // Depois do decay uma chave nova volta a entrar entre as K
+        sketch.add(4L, 10L);
+        assertEquals(4L, sketch.top().get(1).getId());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.ejb.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários de valores em centavos e do conversor para DECIMAL(15,2).
+ */
+@DisplayName("Centavos - Testes de Valores Monetários em Centavos")
+class CentavosTest {
+
+    @Test
+    @DisplayName("Deve converter de e para BigDecimal sem perder escala nem aceitar frações de centavo")
+    void deveConverterDeEParaBigDecimal() {
+        assertEquals(123_456L, Centavos.of(new BigDecimal("1234.56")));
+        assertEquals(1_000L, Centavos.of(new BigDecimal("10")));
+        assertEquals(1_000L, Centavos.of(new BigDecimal("10.000")));
+        assertEquals(new BigDecimal("1234.56"), Centavos.toBigDecimal(123_456L));
+        assertThrows(ArithmeticException.class, () -> Centavos.of(new BigDecimal("0.001")));
+    }
+
+    @Test
+    @DisplayName("Deve lançar exceção em overflow em vez de dar a volta")
+    void deveLancarExcecaoEmOverflow() {
+        assertEquals(30L, Centavos.somar(10L, 20L));
+        assertEquals(-10L, Centavos.subtrair(10L, 20L));
+        assertThrows(ArithmeticException.class, () -> Centavos.somar(Long.MAX_VALUE, 1L));
+        assertThrows(ArithmeticException.class, () -> Centavos.subtrair(Long.MIN_VALUE, 1L));
+    }
+
+    @Test
+    @DisplayName("Deve formatar centavos com duas casas, inclusive negativos e extremos")
+    void deveFormatarCentavos() {
+        assertEquals("0.05", Centavos.formatar(5L));
+        assertEquals("1234.50", Centavos.formatar(123_450L));
+        assertEquals("-0.99", Centavos.formatar(-99L));
+        assertEquals(Centavos.toBigDecimal(Long.MIN_VALUE).toPlainString(), Centavos.formatar(Long.MIN_VALUE));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar no conversor valores que não cabem em DECIMAL(15,2)")
+    void deveRejeitarValorForaDaColuna() {
+        CentavosConverter converter = new CentavosConverter();
+
+        assertEquals(new BigDecimal("9999999999999.99"),
+            converter.convertToDatabaseColumn(Centavos.MAXIMO_DECIMAL_15_2));
+        assertEquals(50_000L, converter.convertToEntityAttribute(new BigDecimal("500.00")));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertThrows(ArithmeticException.class,
+            () -> converter.convertToDatabaseColumn(Centavos.MAXIMO_DECIMAL_15_2 + 1));
+    }
+}
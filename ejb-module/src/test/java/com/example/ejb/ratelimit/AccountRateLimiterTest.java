@@ -0,0 +1,79 @@
+package com.example.ejb.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários do limite de taxa por benefício.
+ */
+@DisplayName("AccountRateLimiter - Testes de Limite por Benefício")
+class AccountRateLimiterTest {
+
+    private static final long SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("Deve admitir a rajada, recusar o excesso e repor as fichas com o tempo")
+    void deveAdmitirRajadaERecusarExcesso() {
+        // Arrange - 10 fichas por segundo, rajada de 3
+        AccountRateLimiter limiter = new AccountRateLimiter(10, 3, 1000);
+        long agora = 1_000 * SEGUNDO;
+
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(1L, 2L, agora));
+        }
+        long espera = limiter.tryAcquire(1L, 3L, agora);
+        assertEquals(SEGUNDO / 10, espera);
+        assertEquals(1, AccountRateLimiter.retryAfterSeconds(espera));
+        assertEquals(1, limiter.getRejected());
+
+        // Outro par de benefícios não é afetado
+        assertEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(4L, 5L, agora));
+        // Passada a espera, há uma ficha de novo
+        assertEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(1L, 3L, agora + espera));
+        assertNotEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(1L, 3L, agora + espera));
+    }
+
+    @Test
+    @DisplayName("Deve devolver a ficha da origem quando o destino está acima do limite")
+    void deveDevolverFichaDaOrigem() {
+        // Arrange - esgota o destino 9
+        AccountRateLimiter limiter = new AccountRateLimiter(1, 2, 1000);
+        long agora = 1_000 * SEGUNDO;
+        limiter.tryAcquire(7L, 9L, agora);
+        limiter.tryAcquire(8L, 9L, agora);
+
+        // Act
+        assertNotEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(1L, 9L, agora));
+
+        // Assert - a origem 1 mantém as duas fichas
+        assertEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(1L, 2L, agora));
+        assertEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(1L, 3L, agora));
+        assertNotEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(1L, 4L, agora));
+    }
+
+    @Test
+    @DisplayName("Deve manter a quantidade de baldes limitada e descartar os ociosos primeiro")
+    void deveLimitarBaldesEmMemoria() {
+        // Arrange - 64 segmentos de 2 baldes
+        AccountRateLimiter limiter = new AccountRateLimiter(1, 1, 128);
+        long agora = 1_000 * SEGUNDO;
+        limiter.tryAcquire(42L, null, agora);
+
+        // Act - muitos benefícios distintos, já ociosos quando os seguintes chegam
+        for (long id = 1_000; id < 11_000; id++) {
+            assertEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(id, null, agora + 2 * SEGUNDO + id));
+        }
+
+        // Assert
+        assertTrue(limiter.getTrackedAccounts() <= 128);
+        // O balde de 42 ficou ocioso e foi descartado ou reposto: volta a admitir
+        assertEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(42L, null, agora + 3 * SEGUNDO));
+        // Um benefício ainda em débito continua recusado
+        assertNotEquals(AccountRateLimiter.ADMITIDA, limiter.tryAcquire(10_999L, null, agora + 2 * SEGUNDO + 10_999));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.ejb.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários do limite adaptativo de concorrência.
+ */
+@DisplayName("AdaptiveConcurrencyLimiter - Testes de Limite Adaptativo")
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long JANELA = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    @DisplayName("Deve recusar de imediato as chamadas acima do limite")
+    void deveRecusarAcimaDoLimite() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        // Act
+        AdaptiveConcurrencyLimiter.Permit primeira = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit segunda = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit terceira = limiter.tryAcquire();
+
+        // Assert
+        assertNotNull(primeira);
+        assertNotNull(segunda);
+        assertNull(terceira);
+        assertEquals(1, limiter.getShed());
+        assertEquals(2, limiter.getInFlight());
+
+        primeira.close();
+        primeira.close();
+        assertEquals(1, limiter.getInFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Deve crescer com latência estável e recuar quando a latência sobe")
+    void deveAcompanharALatencia() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 5, 200);
+        long agora = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+
+        // Act - 20 janelas a 1 ms com o limite em uso
+        for (int janela = 0; janela < 20; janela++) {
+            agora = janela(limiter, agora, TimeUnit.MILLISECONDS.toNanos(1), limiter.getLimit());
+        }
+        int aposCarga = limiter.getLimit();
+        // Banco lento: 4 ms por transferência
+        for (int janela = 0; janela < 20; janela++) {
+            agora = janela(limiter, agora, TimeUnit.MILLISECONDS.toNanos(4), limiter.getLimit());
+        }
+
+        // Assert
+        assertTrue(aposCarga > 20, "cresce com latência estável: " + aposCarga);
+        assertTrue(limiter.getLimit() < aposCarga / 2, "recua com a latência: " + limiter.getLimit());
+        assertTrue(limiter.getLimit() >= 5);
+    }
+
+    @Test
+    @DisplayName("Não deve crescer enquanto o limite estiver ocioso")
+    void naoDeveCrescerComLimiteOcioso() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 5, 200);
+        long agora = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+
+        // Act - no máximo 3 transferências simultâneas
+        for (int janela = 0; janela < 20; janela++) {
+            agora = janela(limiter, agora, TimeUnit.MILLISECONDS.toNanos(1), 3);
+        }
+
+        // Assert
+        assertEquals(20, limiter.getLimit());
+    }
+
+    /**
+     * Fecha uma janela com 10 amostras da latência informada.
+     */
+    private static long janela(AdaptiveConcurrencyLimiter limiter, long agora, long rtt, int emAndamento) {
+        for (int i = 0; i < 10; i++) {
+            limiter.onSample(rtt, emAndamento, agora);
+        }
+        return agora + JANELA;
+    }
+}